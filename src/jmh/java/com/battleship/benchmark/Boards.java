@@ -0,0 +1,59 @@
+package com.battleship.benchmark;
+
+import com.battleship.client.BattleshipException;
+import com.battleship.client.BitboardShipStorage;
+import com.battleship.client.Coordinates;
+import com.battleship.client.Ship;
+import com.battleship.client.ShipStorage;
+import com.battleship.client.ShipStorageBuilder;
+import com.battleship.client.SparseShipStorage;
+
+/**
+ * Fixtures shared by the benchmarks: the normal fleet on a 10x10 board, one
+ * ship per row starting in column A.
+ */
+final class Boards {
+
+    static final int WIDTH = 10;
+    static final int HEIGHT = 10;
+    static final Ship[] FLEET = new ShipStorageBuilder().getShips();
+
+    private Boards() {
+    }
+
+    /**
+     * Creates an empty storage of the given implementation.
+     *
+     * @param implementation "dense", "bitboard" or "sparse"
+     * @return the empty storage
+     */
+    static ShipStorage newStorage(String implementation) {
+        switch (implementation) {
+            case "dense":
+                return new ShipStorage(WIDTH, HEIGHT);
+            case "bitboard":
+                return new BitboardShipStorage(WIDTH, HEIGHT);
+            case "sparse":
+                return new SparseShipStorage(WIDTH, HEIGHT);
+            default:
+                throw new IllegalArgumentException(implementation);
+        }
+    }
+
+    /**
+     * Places the normal fleet on the storage.
+     *
+     * @param storage the empty storage
+     * @return the same storage
+     */
+    static ShipStorage placeFleet(ShipStorage storage) {
+        try {
+            for (int i = 0; i < FLEET.length; i++) {
+                storage.addShip(new Coordinates(0, i), false, FLEET[i]);
+            }
+        } catch (BattleshipException e) {
+            throw new IllegalStateException(e);
+        }
+        return storage;
+    }
+}
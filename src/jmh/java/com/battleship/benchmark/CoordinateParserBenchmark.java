@@ -0,0 +1,62 @@
+package com.battleship.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.javatuples.Triplet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.battleship.client.BattleshipException;
+import com.battleship.client.CoordinateParser;
+import com.battleship.client.Coordinates;
+
+/**
+ * Throughput of parsing user input into coordinates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CoordinateParserBenchmark {
+
+    @Param({ "b4", "j10" })
+    public String input;
+
+    private String horizontalInput;
+
+    @Setup
+    public void setUp() {
+        horizontalInput = input + "h";
+    }
+
+    @Benchmark
+    public Triplet<Character, Integer, Boolean> splitString() throws BattleshipException {
+        return CoordinateParser.splitString(input);
+    }
+
+    @Benchmark
+    public Triplet<Character, Integer, Boolean> splitStringHorizontal() throws BattleshipException {
+        return CoordinateParser.splitString(horizontalInput);
+    }
+
+    @Benchmark
+    public Coordinates parseCoordinates() throws BattleshipException {
+        return CoordinateParser.parseCoordinates(input);
+    }
+
+    @Benchmark
+    public int parsePacked() {
+        return CoordinateParser.parse(horizontalInput);
+    }
+}
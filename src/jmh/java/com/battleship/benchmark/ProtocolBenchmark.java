@@ -0,0 +1,132 @@
+package com.battleship.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.battleship.client.BattleshipException;
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.ShipStorage;
+import com.battleship.events.AttackEvent;
+import com.battleship.events.AttackerFeedbackEvent;
+import com.battleship.events.DefenderFeedbackEvent;
+import com.battleship.events.RoundStartEvent;
+import com.battleship.events.RoundStartEvent.AttackStatus;
+import com.battleship.events.RoundStartEvent.GameStatus;
+import com.battleship.protocol.Frame;
+import com.battleship.protocol.ProtocolCodec;
+
+/**
+ * Cost of putting every message of a complete match on the wire and reading it
+ * back, Java serialization against the binary protocol.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProtocolBenchmark {
+
+    private final List<Object> messages = new ArrayList<>();
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private final Frame frame = new Frame();
+
+    /**
+     * Records the messages of a match in which both players attack the cells
+     * row by row.
+     */
+    @Setup
+    public void setUp() throws BattleshipException {
+        ShipStorage[] boards = { Boards.placeFleet(Boards.newStorage("dense")),
+                Boards.placeFleet(Boards.newStorage("dense")) };
+        messages.add(boards[0]);
+        messages.add(boards[1]);
+        int[] nextCell = new int[2];
+        int attacker = 0;
+        AttackStatus attackStatus = AttackStatus.ATTACK;
+        AttackStatus defendStatus = AttackStatus.DEFEND;
+        int turn = 0;
+        while (!boards[1 - attacker].isCompletelyDestroyed()) {
+            turn++;
+            messages.add(new RoundStartEvent(GameStatus.GAME_ON, attackStatus, turn));
+            messages.add(new RoundStartEvent(GameStatus.GAME_ON, defendStatus, turn));
+            int cell = nextCell[attacker]++;
+            Coordinates coordinates = new Coordinates(cell % Boards.WIDTH, cell / Boards.WIDTH);
+            HitStatus hitStatus = boards[1 - attacker].attack(coordinates);
+            messages.add(new AttackEvent(turn, coordinates));
+            int shipsRemaining = boards[1 - attacker].getRemainingShips();
+            messages.add(new AttackerFeedbackEvent(true, hitStatus, null, shipsRemaining));
+            messages.add(new DefenderFeedbackEvent(coordinates, hitStatus, shipsRemaining));
+            if (hitStatus == HitStatus.MISSED) {
+                attacker = 1 - attacker;
+                attackStatus = AttackStatus.ATTACK;
+                defendStatus = AttackStatus.DEFEND;
+            } else {
+                attackStatus = AttackStatus.ATTACK_AGAIN;
+                defendStatus = AttackStatus.DEFEND_AGAIN;
+            }
+        }
+        messages.add(new RoundStartEvent(GameStatus.YOU_WON, null, turn));
+        messages.add(new RoundStartEvent(GameStatus.YOU_LOST, null, turn));
+    }
+
+    @Benchmark
+    public void javaSerialization(Blackhole blackhole) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        for (Object message : messages) {
+            out.writeObject(message);
+            out.flush();
+        }
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int i = 0; i < messages.size(); i++) {
+            blackhole.consume(in.readObject());
+        }
+    }
+
+    @Benchmark
+    public void binaryCodec(Blackhole blackhole) throws IOException {
+        buffer.clear();
+        for (Object message : messages) {
+            ProtocolCodec.encode(buffer, message);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            frame.decode(buffer);
+            blackhole.consume(frame.getType());
+        }
+    }
+
+    @Benchmark
+    public void binaryCodecToMessages(Blackhole blackhole) throws IOException {
+        buffer.clear();
+        for (Object message : messages) {
+            ProtocolCodec.encode(buffer, message);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            frame.decode(buffer);
+            blackhole.consume(frame.toMessage());
+        }
+    }
+}
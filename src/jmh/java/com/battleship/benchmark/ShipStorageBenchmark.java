@@ -0,0 +1,103 @@
+package com.battleship.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.battleship.client.BattleshipException;
+import com.battleship.client.BoardRenderer;
+import com.battleship.client.Coordinates;
+import com.battleship.client.ShipStorage;
+
+/**
+ * Throughput of the ship storage operations, for every storage implementation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShipStorageBenchmark {
+
+    @Param({ "dense", "bitboard", "sparse" })
+    public String storage;
+
+    private ShipStorage allButOneDestroyed;
+    private ShipStorage halfAttacked;
+    private Coordinates[] cells;
+    private final BoardRenderer renderer = new BoardRenderer(true);
+
+    /**
+     * A freshly placed board for every invocation of the attack benchmark.
+     */
+    @State(Scope.Thread)
+    public static class FreshBoard {
+        ShipStorage board;
+
+        @Setup(Level.Invocation)
+        public void setUp(ShipStorageBenchmark benchmark) {
+            board = Boards.placeFleet(Boards.newStorage(benchmark.storage));
+        }
+    }
+
+    @Setup
+    public void setUp() throws BattleshipException {
+        cells = new Coordinates[Boards.WIDTH * Boards.HEIGHT];
+        for (int y = 0; y < Boards.HEIGHT; y++) {
+            for (int x = 0; x < Boards.WIDTH; x++) {
+                cells[y * Boards.WIDTH + x] = new Coordinates(x, y);
+            }
+        }
+        // every ship destroyed but the one in the last row: worst case for the scan
+        allButOneDestroyed = Boards.placeFleet(Boards.newStorage(storage));
+        for (int y = 0; y < Boards.HEIGHT - 1; y++) {
+            for (int x = 0; x < Boards.FLEET[y].getLength(); x++) {
+                allButOneDestroyed.attack(cells[y * Boards.WIDTH + x]);
+            }
+        }
+        halfAttacked = Boards.placeFleet(Boards.newStorage(storage));
+        for (int i = 0; i < cells.length; i += 2) {
+            halfAttacked.attack(cells[i]);
+        }
+    }
+
+    @Benchmark
+    public ShipStorage addShip() {
+        return Boards.placeFleet(Boards.newStorage(storage));
+    }
+
+    @Benchmark
+    public void attackAllCells(FreshBoard fresh, Blackhole blackhole) throws BattleshipException {
+        for (Coordinates cell : cells) {
+            blackhole.consume(fresh.board.attack(cell));
+        }
+    }
+
+    @Benchmark
+    public boolean isCompletelyDestroyed() {
+        return allButOneDestroyed.isCompletelyDestroyed();
+    }
+
+    @Benchmark
+    public String render() {
+        return halfAttacked.toString();
+    }
+
+    @Benchmark
+    public String renderCached() {
+        return renderer.render(halfAttacked);
+    }
+}
@@ -0,0 +1,398 @@
+package com.battleship.ai;
+
+import java.util.Arrays;
+
+import com.battleship.bot.TargetingStrategy;
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.Ship;
+import com.battleship.client.ShipStorage;
+
+/**
+ * Targeting engine that attacks the cell covered by the most legal placements
+ * of the ships that are still afloat.
+ *
+ * The hunt density, the number of placements through every cell that avoid all
+ * misses and sunk ships, is kept up to date incrementally: a miss only removes
+ * the placements through the missed cell, a sunk ship removes one ship of its
+ * length and the placements through its cells. While hits of unsunk ships are
+ * known, only the placements through those hits are counted (target mode),
+ * weighted by how many hits they explain. All state lives in arrays sized on
+ * {@link #reset(int, int)}, deciding on a target allocates nothing.
+ */
+public class ProbabilityDensityTargeting implements TargetingStrategy {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte MISS = 1;
+    // hit of a ship that is not sunk yet
+    private static final byte HIT = 2;
+    // cell of a sunk ship
+    private static final byte SUNK = 3;
+    // cell chosen for the salvo being put together, unknown to everything but argMax
+    private static final byte CHOSEN = 4;
+
+    private final int[] fleetLengths;
+    private final int maxLength;
+
+    private int width;
+    private int height;
+    private byte[] state = new byte[0];
+    private int[] density = new int[0];
+    private int[] targetDensity = new int[0];
+    // number of ships still afloat, by length
+    private int[] remaining;
+    private int unresolvedHits;
+
+    /**
+     * Constructs a targeting engine for the given fleet.
+     *
+     * @param fleet the ships the opponent has to place
+     */
+    public ProbabilityDensityTargeting(Ship[] fleet) {
+        this.fleetLengths = new int[fleet.length];
+        int longest = 0;
+        for (int i = 0; i < fleet.length; i++) {
+            fleetLengths[i] = fleet[i].getLength();
+            longest = Math.max(longest, fleetLengths[i]);
+        }
+        this.maxLength = longest;
+        this.remaining = new int[maxLength + 1];
+    }
+
+    /**
+     * Prepares the engine for a new match with the whole fleet afloat.
+     *
+     * @param width  the width of the opponent's board
+     * @param height the height of the opponent's board
+     */
+    @Override
+    public void reset(int width, int height) {
+        this.width = width;
+        this.height = height;
+        if (state.length != width * height) {
+            state = new byte[width * height];
+            density = new int[width * height];
+            targetDensity = new int[width * height];
+        }
+        Arrays.fill(state, UNKNOWN);
+        Arrays.fill(density, 0);
+        Arrays.fill(remaining, 0);
+        unresolvedHits = 0;
+        for (int length : fleetLengths) {
+            remaining[length]++;
+        }
+        for (int length = 1; length <= maxLength; length++) {
+            if (remaining[length] > 0) {
+                addAllPlacements(length, remaining[length]);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the knowledge of the engine from an attack history.
+     *
+     * @param history the attack history of a match
+     */
+    public void load(ShipStorage.AttackHistory history) {
+        reset(history.getWidth(), history.getHeight());
+        // destroyed cells last, the hits of their ships must be known first
+        for (HitStatus pass : new HitStatus[] { HitStatus.MISSED, HitStatus.HIT, HitStatus.DESTROYED }) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (history.getHitStatus(Coordinates.of(x, y)) == pass) {
+                        observe(x, y, pass);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Chooses the next cell to attack.
+     *
+     * @return the coordinates to attack
+     */
+    @Override
+    public Coordinates nextTarget() {
+        int cell = nextTargetCell();
+        return Coordinates.of(cell % width, cell / width);
+    }
+
+    /**
+     * Chooses the cells of a salvo: the best cell, then the best of the others,
+     * and so on, all with the knowledge before the salvo.
+     *
+     * @param shots the number of shots of the salvo
+     * @return the coordinates to attack, fewer than shots only if the board has
+     *         no more cells left to attack
+     */
+    @Override
+    public Coordinates[] nextTargets(int shots) {
+        int[] cells = new int[shots];
+        int chosen = 0;
+        try {
+            while (chosen < shots) {
+                cells[chosen] = nextTargetCell();
+                state[cells[chosen++]] = CHOSEN;
+            }
+        } catch (IllegalStateException e) {
+            if (chosen == 0) {
+                throw e;
+            }
+        } finally {
+            for (int i = 0; i < chosen; i++) {
+                state[cells[i]] = UNKNOWN;
+            }
+        }
+        Coordinates[] targets = new Coordinates[chosen];
+        for (int i = 0; i < chosen; i++) {
+            targets[i] = Coordinates.of(cells[i] % width, cells[i] / width);
+        }
+        return targets;
+    }
+
+    /**
+     * Chooses the next cell to attack without allocating.
+     *
+     * @return the index {@code y * width + x} of the cell to attack
+     * @throws IllegalStateException if every cell has been attacked
+     */
+    public int nextTargetCell() {
+        if (unresolvedHits > 0) {
+            computeTargetDensity();
+            int cell = argMax(targetDensity);
+            if (cell >= 0 && targetDensity[cell] > 0) {
+                return cell;
+            }
+        }
+        int cell = argMax(density);
+        if (cell < 0) {
+            throw new IllegalStateException("Every cell has been attacked");
+        }
+        return cell;
+    }
+
+    /**
+     * Informs the engine about the result of its last attack.
+     *
+     * @param target    the attacked coordinates
+     * @param hitStatus the result of the attack
+     */
+    @Override
+    public void onResult(Coordinates target, HitStatus hitStatus) {
+        observe(target.getX(), target.getY(), hitStatus);
+    }
+
+    /**
+     * Records the result of an attack on a cell.
+     *
+     * @param x         the x-coordinate of the attacked cell
+     * @param y         the y-coordinate of the attacked cell
+     * @param hitStatus the result of the attack
+     */
+    public void observe(int x, int y, HitStatus hitStatus) {
+        int cell = y * width + x;
+        if (state[cell] != UNKNOWN) {
+            return;
+        }
+        switch (hitStatus) {
+            case MISSED:
+                block(cell, MISS);
+                break;
+            case HIT:
+                state[cell] = HIT;
+                unresolvedHits++;
+                break;
+            case DESTROYED:
+                state[cell] = HIT;
+                unresolvedHits++;
+                sink(cell);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Retrieves the hunt density of a cell: the number of legal placements of the
+     * remaining ships covering it.
+     *
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @return the density
+     */
+    public int getDensity(int x, int y) {
+        return density[y * width + x];
+    }
+
+    /**
+     * Resolves the ship sunk by the attack on a cell: the longest remaining ship
+     * that fits a line of unresolved hits through the cell.
+     */
+    private void sink(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        for (int length = maxLength; length > 0; length--) {
+            if (remaining[length] == 0) {
+                continue;
+            }
+            for (int vertical = 0; vertical < 2; vertical++) {
+                int step = vertical == 1 ? width : 1;
+                int along = vertical == 1 ? y : x;
+                int size = vertical == 1 ? height : width;
+                for (int first = Math.max(0, along - length + 1); first <= Math.min(along, size - length); first++) {
+                    int start = cell - (along - first) * step;
+                    if (allHits(start, step, length)) {
+                        // one ship of this length less, then its cells block other placements
+                        addAllPlacements(length, -1);
+                        remaining[length]--;
+                        for (int i = 0, c = start; i < length; i++, c += step) {
+                            block(c, SUNK);
+                        }
+                        unresolvedHits -= length;
+                        return;
+                    }
+                }
+            }
+        }
+        // no remaining ship explains the hits, only resolve the cell itself
+        block(cell, SUNK);
+        unresolvedHits--;
+    }
+
+    /**
+     * Marks a cell as blocking and removes every placement through it from the hunt
+     * density. A placement is only removed if it was legal before.
+     */
+    private void block(int cell, byte newState) {
+        int x = cell % width;
+        int y = cell / width;
+        for (int length = 1; length <= maxLength; length++) {
+            int count = remaining[length];
+            if (count == 0) {
+                continue;
+            }
+            for (int vertical = 0; vertical < 2; vertical++) {
+                int step = vertical == 1 ? width : 1;
+                int along = vertical == 1 ? y : x;
+                int size = vertical == 1 ? height : width;
+                for (int first = Math.max(0, along - length + 1); first <= Math.min(along, size - length); first++) {
+                    int start = cell - (along - first) * step;
+                    if (isLegal(start, step, length)) {
+                        addToCells(density, start, step, length, -count);
+                    }
+                }
+            }
+        }
+        state[cell] = newState;
+    }
+
+    /**
+     * Counts, for every unknown cell, the legal placements through unresolved hits
+     * covering it, weighted by the number of hits they cover.
+     */
+    private void computeTargetDensity() {
+        Arrays.fill(targetDensity, 0);
+        for (int length = 1; length <= maxLength; length++) {
+            int count = remaining[length];
+            if (count == 0) {
+                continue;
+            }
+            for (int vertical = 0; vertical < 2; vertical++) {
+                int step = vertical == 1 ? width : 1;
+                int maxX = vertical == 1 ? width - 1 : width - length;
+                int maxY = vertical == 1 ? height - length : height - 1;
+                for (int y = 0; y <= maxY; y++) {
+                    for (int x = 0; x <= maxX; x++) {
+                        int start = y * width + x;
+                        int hits = countHits(start, step, length);
+                        if (hits > 0) {
+                            addToCells(targetDensity, start, step, length, count * hits);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a weight to the hunt density of every legal placement of a length.
+     */
+    private void addAllPlacements(int length, int weight) {
+        for (int vertical = 0; vertical < 2; vertical++) {
+            int step = vertical == 1 ? width : 1;
+            int maxX = vertical == 1 ? width - 1 : width - length;
+            int maxY = vertical == 1 ? height - length : height - 1;
+            for (int y = 0; y <= maxY; y++) {
+                for (int x = 0; x <= maxX; x++) {
+                    int start = y * width + x;
+                    if (isLegal(start, step, length)) {
+                        addToCells(density, start, step, length, weight);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that a placement covers no miss and no sunk ship.
+     */
+    private boolean isLegal(int start, int step, int length) {
+        for (int i = 0, c = start; i < length; i++, c += step) {
+            if (state[c] == MISS || state[c] == SUNK) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that every cell of a placement is an unresolved hit.
+     */
+    private boolean allHits(int start, int step, int length) {
+        for (int i = 0, c = start; i < length; i++, c += step) {
+            if (state[c] != HIT) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the unresolved hits of a legal placement, 0 if it is not legal.
+     */
+    private int countHits(int start, int step, int length) {
+        int hits = 0;
+        for (int i = 0, c = start; i < length; i++, c += step) {
+            if (state[c] == MISS || state[c] == SUNK) {
+                return 0;
+            }
+            if (state[c] == HIT) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Adds a weight to every cell of a placement.
+     */
+    private void addToCells(int[] counts, int start, int step, int length, int weight) {
+        for (int i = 0, c = start; i < length; i++, c += step) {
+            counts[c] += weight;
+        }
+    }
+
+    /**
+     * Returns the unknown cell with the highest count, -1 if there is none.
+     */
+    private int argMax(int[] counts) {
+        int best = -1;
+        for (int c = 0; c < counts.length; c++) {
+            if (state[c] == UNKNOWN && (best < 0 || counts[c] > counts[best])) {
+                best = c;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,210 @@
+package com.battleship.bot;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.util.random.RandomGenerator;
+
+import com.battleship.client.ClientDisconnectException;
+import com.battleship.client.Coordinates;
+import com.battleship.client.RandomFleetPlacer;
+import com.battleship.client.ShipStorage;
+import com.battleship.client.ShipStorageBuilder;
+import com.battleship.events.AttackEvent;
+import com.battleship.events.AttackerFeedbackEvent;
+import com.battleship.events.FleetLayoutEvent;
+import com.battleship.events.JoinEvent;
+import com.battleship.events.MatchTokenEvent;
+import com.battleship.events.RoundStartEvent;
+import com.battleship.events.RoundStartEvent.AttackStatus;
+import com.battleship.events.RoundStartEvent.GameStatus;
+import com.battleship.events.SalvoEvent;
+import com.battleship.events.SalvoResultEvent;
+import com.battleship.events.TimeoutEvent;
+import com.battleship.metrics.LatencyHistogram;
+import com.battleship.protocol.ProtocolStream;
+
+/**
+ * Headless client that plays complete matches against the server over the real
+ * protocol: it places its fleet automatically and asks a
+ * {@link TargetingStrategy} where to attack.
+ */
+public class BotClient {
+
+    /**
+     * How a match ended for the bot.
+     */
+    public enum Outcome {
+        WON,
+        LOST,
+        OPPONENT_DISCONNECTED
+    }
+
+    static final int BOARD_WIDTH = 10;
+    static final int BOARD_HEIGHT = 10;
+
+    private final String hostName;
+    private final int port;
+    private final TargetingStrategy strategy;
+    private final RandomGenerator random;
+    private final LatencyHistogram turnLatency;
+    private final RandomFleetPlacer placer = new RandomFleetPlacer(new ShipStorageBuilder().getShips(),
+            BOARD_WIDTH, BOARD_HEIGHT);
+
+    // shots per turn, more than one only against a server allowing salvos
+    private int salvo = 1;
+    private int turns;
+    // socket of the running match, closed by close() to abort it
+    private volatile Socket socket;
+
+    /**
+     * Constructs a BotClient.
+     *
+     * @param hostName    the hostname of the server
+     * @param port        the port of the server
+     * @param strategy    the strategy choosing the attacked cells
+     * @param random      the source of randomness for the placement
+     * @param turnLatency records the time between sending an attack and
+     *                    receiving its feedback
+     */
+    public BotClient(String hostName, int port, TargetingStrategy strategy, RandomGenerator random,
+            LatencyHistogram turnLatency) {
+        this.hostName = hostName;
+        this.port = port;
+        this.strategy = strategy;
+        this.random = random;
+        this.turnLatency = turnLatency;
+    }
+
+    /**
+     * Connects to the server and plays one match to the end.
+     *
+     * @return the outcome of the match
+     * @throws IOException if the connection fails or the server violates the
+     *                     protocol
+     */
+    public Outcome playMatch() throws IOException {
+        turns = 0;
+        strategy.reset(BOARD_WIDTH, BOARD_HEIGHT);
+        try (Socket socket = new Socket(hostName, port); ProtocolStream stream = new ProtocolStream(socket)) {
+            this.socket = socket;
+            stream.write(new JoinEvent(JoinEvent.DEFAULT_RATING, BOARD_WIDTH, BOARD_HEIGHT));
+            ShipStorage shipStorage = new ShipStorage(BOARD_WIDTH, BOARD_HEIGHT);
+            placer.place(shipStorage, random);
+            stream.write(FleetLayoutEvent.of(shipStorage));
+            while (true) {
+                Object message = receive(stream);
+                if (message instanceof TimeoutEvent) {
+                    // a forfeited placement, the outcome follows
+                    continue;
+                }
+                RoundStartEvent roundStartEvent = (RoundStartEvent) message;
+                if (roundStartEvent.gameStatus() == GameStatus.YOU_WON) {
+                    return Outcome.WON;
+                } else if (roundStartEvent.gameStatus() == GameStatus.YOU_LOST) {
+                    return Outcome.LOST;
+                }
+                if (roundStartEvent.attackStatus() == AttackStatus.ATTACK
+                        || roundStartEvent.attackStatus() == AttackStatus.ATTACK_AGAIN) {
+                    attack(stream, roundStartEvent.turn());
+                } else {
+                    // defender feedback or timeout of the opponent, the bot does not track its own board
+                    receive(stream);
+                }
+            }
+        } catch (ClientDisconnectException e) {
+            return Outcome.OPPONENT_DISCONNECTED;
+        } catch (ClassCastException e) {
+            throw new ProtocolException("Unexpected message: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fires salvos of the given size instead of single attacks from the next
+     * match on.
+     *
+     * @param salvo the number of shots per turn, 1 for single attacks
+     */
+    public void setSalvo(int salvo) {
+        this.salvo = salvo;
+    }
+
+    /**
+     * Aborts the running match, for example when the bot waits for an opponent
+     * that never comes. The match then ends with an IOException.
+     */
+    public void close() {
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of attacks the bot made in its last match.
+     *
+     * @return the number of turns
+     */
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * Attacks until the server accepts the attack. A salvo is only rejected if
+     * the server does not allow salvos of its size. Every attack carries the
+     * turn of the round, so the server drops one that arrives after the turn
+     * expired.
+     */
+    private void attack(ProtocolStream stream, int turn) throws IOException, ClientDisconnectException {
+        while (true) {
+            Coordinates target = salvo == 1 ? strategy.nextTarget() : null;
+            Coordinates[] targets = salvo == 1 ? null : strategy.nextTargets(salvo);
+            long start = System.nanoTime();
+            stream.write(salvo == 1 ? new AttackEvent(turn, target) : new SalvoEvent(turn, targets));
+            Object feedback = receive(stream);
+            turnLatency.record(System.nanoTime() - start);
+            if (feedback instanceof TimeoutEvent timeoutEvent) {
+                // the server resolved the turn before the attack arrived
+                if (timeoutEvent.coordinates() != null) {
+                    strategy.onResult(timeoutEvent.coordinates(), timeoutEvent.hitStatus());
+                }
+                return;
+            }
+            if (feedback instanceof SalvoResultEvent result) {
+                turns++;
+                for (int i = 0; i < targets.length; i++) {
+                    strategy.onResult(targets[i], result.hitStatuses()[i]);
+                }
+                return;
+            }
+            AttackerFeedbackEvent feedbackEvent = (AttackerFeedbackEvent) feedback;
+            if (feedbackEvent.attackSuccess()) {
+                turns++;
+                strategy.onResult(target, feedbackEvent.hitStatus());
+                return;
+            }
+            if (targets != null) {
+                throw new ProtocolException("Salvo rejected: " + feedbackEvent.exception().getMessage());
+            }
+        }
+    }
+
+    /**
+     * Receives a message, turning the disconnect notification into an exception.
+     * Bots do not resume matches, so a match token is skipped.
+     */
+    private static Object receive(ProtocolStream stream) throws IOException, ClientDisconnectException {
+        Object obj = stream.read();
+        if (obj instanceof MatchTokenEvent) {
+            obj = stream.read();
+        }
+        if (obj instanceof ClientDisconnectException) {
+            throw (ClientDisconnectException) obj;
+        }
+        return obj;
+    }
+}
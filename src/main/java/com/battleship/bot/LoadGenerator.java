@@ -0,0 +1,170 @@
+package com.battleship.bot;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.battleship.client.ShipStorageBuilder;
+import com.battleship.metrics.LatencyHistogram;
+import com.battleship.server.Server;
+
+/**
+ * Load generator that runs many {@link BotClient}s against a server at once.
+ * Every bot plays matches back to back until the configured duration is over,
+ * then the generator reports match throughput, turn latency percentiles and
+ * error counts.
+ *
+ * Options: {@code --host=H --port=N --clients=N --duration=SECONDS
+ * --strategy=random|density --seed=N}.
+ */
+public class LoadGenerator {
+
+    private static final String ERR_UNKNOWN_OPTION = "Unknown option %s";
+    // time given to running matches after the duration before bots are closed
+    private static final int GRACE_SECONDS = 10;
+
+    private String hostName = "localhost";
+    private int port = 8080;
+    private int clients = 2;
+    private int durationSeconds = 10;
+    private String strategyName = "random";
+    private long seed = System.nanoTime();
+    private int salvo = 1;
+
+    private final LatencyHistogram turnLatency = new LatencyHistogram();
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder turns = new LongAdder();
+    private final LongAdder opponentDisconnects = new LongAdder();
+    private final LongAdder connectErrors = new LongAdder();
+    private final LongAdder protocolErrors = new LongAdder();
+
+    /**
+     * Runs all bots until the duration is over and prints the report.
+     *
+     * @throws InterruptedException if interrupted while waiting for the bots
+     */
+    public void run() throws InterruptedException {
+        ExecutorService executor;
+        try {
+            executor = Server.newVirtualThreadExecutor();
+        } catch (UnsupportedOperationException e) {
+            executor = Executors.newFixedThreadPool(clients);
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        BotClient[] bots = new BotClient[clients];
+        for (int i = 0; i < clients; i++) {
+            Random random = new Random(seed + i);
+            TargetingStrategy strategy = Strategies.create(strategyName, random, new ShipStorageBuilder().getShips());
+            BotClient bot = new BotClient(hostName, port, strategy, random, turnLatency);
+            bot.setSalvo(salvo);
+            bots[i] = bot;
+            executor.execute(() -> playUntil(bot, deadline));
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(durationSeconds + GRACE_SECONDS, TimeUnit.SECONDS)) {
+            // bots left without an opponent wait forever, abort them
+            for (BotClient bot : bots) {
+                bot.close();
+            }
+            executor.awaitTermination(GRACE_SECONDS, TimeUnit.SECONDS);
+        }
+        report(Math.min(System.nanoTime(), deadline) - start);
+    }
+
+    /**
+     * Lets one bot play matches until the deadline has passed.
+     */
+    private void playUntil(BotClient bot, long deadline) {
+        while (System.nanoTime() < deadline) {
+            try {
+                BotClient.Outcome outcome = bot.playMatch();
+                if (outcome == BotClient.Outcome.OPPONENT_DISCONNECTED) {
+                    opponentDisconnects.increment();
+                } else {
+                    // each match is counted by its winner only
+                    if (outcome == BotClient.Outcome.WON) {
+                        matches.increment();
+                    }
+                    turns.add(bot.getTurns());
+                }
+            } catch (ConnectException e) {
+                connectErrors.increment();
+            } catch (IOException e) {
+                if (System.nanoTime() < deadline) {
+                    protocolErrors.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the results of the run.
+     */
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("clients=%d duration=%.1fs strategy=%s salvo=%d%n", clients, seconds, strategyName, salvo);
+        System.out.printf("matches=%d (%.1f/s) turns=%d (%.1f/s)%n", matches.sum(), matches.sum() / seconds,
+                turns.sum(), turns.sum() / seconds);
+        System.out.println("turn latency: " + turnLatency);
+        System.out.printf("errors: connect=%d io=%d opponent-disconnects=%d%n", connectErrors.sum(),
+                protocolErrors.sum(), opponentDisconnects.sum());
+    }
+
+    /**
+     * Parses the command-line arguments.
+     *
+     * @param args the command-line arguments
+     * @return the configured load generator
+     */
+    static LoadGenerator parse(String[] args) {
+        LoadGenerator generator = new LoadGenerator();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException(String.format(ERR_UNKNOWN_OPTION, arg));
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "host":
+                    generator.hostName = value;
+                    break;
+                case "port":
+                    generator.port = Integer.parseInt(value);
+                    break;
+                case "clients":
+                    generator.clients = Integer.parseInt(value);
+                    break;
+                case "duration":
+                    generator.durationSeconds = Integer.parseInt(value);
+                    break;
+                case "strategy":
+                    generator.strategyName = value;
+                    break;
+                case "seed":
+                    generator.seed = Long.parseLong(value);
+                    break;
+                case "salvo":
+                    generator.salvo = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format(ERR_UNKNOWN_OPTION, arg));
+            }
+        }
+        return generator;
+    }
+
+    /**
+     * The main method to start the load generator.
+     *
+     * @param args the command-line arguments
+     * @throws InterruptedException if interrupted while waiting for the bots
+     */
+    public static void main(String[] args) throws InterruptedException {
+        parse(args).run();
+    }
+}
@@ -0,0 +1,72 @@
+package com.battleship.bot;
+
+import java.util.random.RandomGenerator;
+
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+
+/**
+ * Attacks every cell exactly once, in random order.
+ */
+public class RandomTargeting implements TargetingStrategy {
+
+    private final RandomGenerator random;
+    private int width;
+    private int[] remainingCells = new int[0];
+    private int remaining;
+
+    /**
+     * Constructs a RandomTargeting strategy.
+     *
+     * @param random the source of randomness
+     */
+    public RandomTargeting(RandomGenerator random) {
+        this.random = random;
+    }
+
+    /**
+     * Prepares the strategy for a new match.
+     *
+     * @param width  the width of the opponent's board
+     * @param height the height of the opponent's board
+     */
+    @Override
+    public void reset(int width, int height) {
+        this.width = width;
+        if (remainingCells.length != width * height) {
+            remainingCells = new int[width * height];
+        }
+        for (int i = 0; i < remainingCells.length; i++) {
+            remainingCells[i] = i;
+        }
+        remaining = remainingCells.length;
+    }
+
+    /**
+     * Draws a cell that was not attacked yet.
+     *
+     * @return the coordinates to attack
+     */
+    @Override
+    public Coordinates nextTarget() {
+        if (remaining == 0) {
+            throw new IllegalStateException("Every cell has been attacked");
+        }
+        // partial Fisher-Yates shuffle, the drawn cell moves behind the remaining ones
+        int pick = random.nextInt(remaining);
+        int cell = remainingCells[pick];
+        remainingCells[pick] = remainingCells[--remaining];
+        remainingCells[remaining] = cell;
+        return Coordinates.of(cell % width, cell / width);
+    }
+
+    /**
+     * Ignores the result, random targeting does not learn.
+     *
+     * @param target    the attacked coordinates
+     * @param hitStatus the result of the attack
+     */
+    @Override
+    public void onResult(Coordinates target, HitStatus hitStatus) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.battleship.bot;
+
+import java.util.random.RandomGenerator;
+
+import com.battleship.ai.ProbabilityDensityTargeting;
+import com.battleship.client.Ship;
+
+/**
+ * Creates targeting strategies by name.
+ */
+public final class Strategies {
+
+    /**
+     * Names of all available strategies.
+     */
+    public static final String[] NAMES = { "random", "density" };
+
+    private Strategies() {
+    }
+
+    /**
+     * Creates a targeting strategy.
+     *
+     * @param name   the name of the strategy
+     * @param random the source of randomness of the player
+     * @param fleet  the ships of the opponent
+     * @return the strategy
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static TargetingStrategy create(String name, RandomGenerator random, Ship[] fleet) {
+        switch (name) {
+            case "random":
+                return new RandomTargeting(random);
+            case "density":
+                return new ProbabilityDensityTargeting(fleet);
+            default:
+                throw new IllegalArgumentException("Unknown strategy " + name);
+        }
+    }
+}
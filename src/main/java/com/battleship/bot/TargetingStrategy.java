@@ -0,0 +1,59 @@
+package com.battleship.bot;
+
+import java.util.Arrays;
+
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+
+/**
+ * A TargetingStrategy decides where an automated player attacks next. One
+ * instance plays one match at a time and is reset before every match.
+ */
+public interface TargetingStrategy {
+
+    /**
+     * Prepares the strategy for a new match.
+     *
+     * @param width  the width of the opponent's board
+     * @param height the height of the opponent's board
+     */
+    void reset(int width, int height);
+
+    /**
+     * Chooses the next cell to attack.
+     *
+     * @return the coordinates to attack
+     */
+    Coordinates nextTarget();
+
+    /**
+     * Chooses the cells of a salvo, all different. Strategies that keep choosing
+     * the same cell until they learn its result have to override this.
+     *
+     * @param shots the number of shots of the salvo
+     * @return the coordinates to attack, fewer than shots only if the board has
+     *         no more cells left to attack
+     */
+    default Coordinates[] nextTargets(int shots) {
+        Coordinates[] targets = new Coordinates[shots];
+        for (int i = 0; i < shots; i++) {
+            try {
+                targets[i] = nextTarget();
+            } catch (IllegalStateException e) {
+                if (i == 0) {
+                    throw e;
+                }
+                return Arrays.copyOf(targets, i);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Informs the strategy about the result of its last attack.
+     *
+     * @param target    the attacked coordinates
+     * @param hitStatus the result of the attack
+     */
+    void onResult(Coordinates target, HitStatus hitStatus);
+}
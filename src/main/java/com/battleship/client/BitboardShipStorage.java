@@ -0,0 +1,232 @@
+package com.battleship.client;
+
+import java.util.Arrays;
+
+/**
+ * The BitboardShipStorage class is a ShipStorage that keeps the board in packed
+ * bit masks instead of one entry object per cell.
+ *
+ * Cell (x, y) is bit (y * width + x) of a long[] mask. The storage keeps one
+ * occupancy mask, one attacked mask, one destroyed mask and one mask per ship,
+ * so a 10x10 board costs a handful of long arrays. Every ship also counts the
+ * hits it can still take, so an attack detects a destroyed ship without
+ * comparing masks.
+ */
+public class BitboardShipStorage extends ShipStorage {
+
+    private final int words;
+    private final long[] occupied;
+    private final long[] attacked;
+    private final long[] destroyed;
+
+    // parallel arrays, index is the order in which ships were added
+    private int shipCount;
+    private int[] shipIds = new int[0];
+    private String[] shipSymbols = new String[0];
+    private long[][] shipMasks = new long[0][];
+    private int[] shipRemainingHits = new int[0];
+
+    /**
+     * Constructs a BitboardShipStorage object with the specified width and height.
+     *
+     * @param width  The width of the storage.
+     * @param height The height of the storage.
+     */
+    public BitboardShipStorage(int width, int height) {
+        super(width, height, false);
+        this.words = (width * height + 63) >>> 6;
+        this.occupied = new long[words];
+        this.attacked = new long[words];
+        this.destroyed = new long[words];
+    }
+
+    /**
+     * Adds a ship to the storage starting from the specified coordinates.
+     *
+     * @param startCoordinates The starting coordinates of the ship.
+     * @param vertical         Flag indicating whether the ship is placed vertically
+     *                         or horizontally.
+     * @param ship             The ship to be added.
+     * @throws BattleshipException if the ship placement is invalid.
+     */
+    @Override
+    public void addShip(Coordinates startCoordinates, boolean vertical, Ship ship) throws BattleshipException {
+        int x = startCoordinates.getX();
+        int y = startCoordinates.getY();
+        int length = ship.getLength();
+        int endX = vertical ? x : x + length - 1;
+        int endY = vertical ? y + length - 1 : y;
+        if (x < 0 || y < 0 || endX >= width || endY >= height) {
+            throw new BattleshipException(ERR_BOARD_END);
+        }
+        long[] mask = new long[words];
+        int step = vertical ? width : 1;
+        for (int i = 0, bit = index(x, y); i < length; i++, bit += step) {
+            mask[bit >>> 6] |= 1L << bit;
+        }
+        for (int w = 0; w < words; w++) {
+            if ((mask[w] & occupied[w]) != 0) {
+                throw new BattleshipException(ERR_OVERLAP);
+            }
+        }
+        for (int w = 0; w < words; w++) {
+            occupied[w] |= mask[w];
+        }
+        if (shipCount == shipIds.length) {
+            int capacity = Math.max(4, shipCount * 2);
+            shipIds = Arrays.copyOf(shipIds, capacity);
+            shipSymbols = Arrays.copyOf(shipSymbols, capacity);
+            shipMasks = Arrays.copyOf(shipMasks, capacity);
+            shipRemainingHits = Arrays.copyOf(shipRemainingHits, capacity);
+        }
+        shipIds[shipCount] = ship.getId();
+        shipSymbols[shipCount] = ship.getSymbol();
+        shipMasks[shipCount] = mask;
+        shipRemainingHits[shipCount] = length;
+        shipCount++;
+        recordPlacement(startCoordinates, vertical, ship);
+    }
+
+    /**
+     * Retrieves the ship ID at the specified coordinates.
+     *
+     * @param coordinates The coordinates to check.
+     * @return The ship ID at the specified coordinates, or null if no ship is
+     *         present.
+     */
+    @Override
+    public Integer getValue(Coordinates coordinates) {
+        int ship = shipAt(index(coordinates.getX(), coordinates.getY()));
+        return ship < 0 ? null : shipIds[ship];
+    }
+
+    /**
+     * Retrieves the hit status at the specified coordinates.
+     *
+     * @param coordinates The coordinates to check.
+     * @return The hit status at the specified coordinates.
+     */
+    @Override
+    public HitStatus getHitStatus(Coordinates coordinates) {
+        return hitStatusAt(index(coordinates.getX(), coordinates.getY()));
+    }
+
+    /**
+     * Attacks the cell at the specified coordinates and returns the hit status.
+     * Assuming board is completely build up.
+     *
+     * @param coordinates The coordinates to attack.
+     * @return The hit status after the attack.
+     * @throws BattleshipException if the attack is invalid.
+     */
+    @Override
+    public HitStatus attack(Coordinates coordinates) throws BattleshipException {
+        int x = coordinates.getX();
+        int y = coordinates.getY();
+        if (x >= width || y >= height || x < 0 || y < 0) {
+            throw new BattleshipException(ERR_ATTACK_END);
+        }
+        int bit = index(x, y);
+        int w = bit >>> 6;
+        long b = 1L << bit;
+        if ((attacked[w] & b) != 0) {
+            throw new BattleshipException(ERR_ALREADY_ATTACKED);
+        }
+        attacked[w] |= b;
+        if ((occupied[w] & b) == 0) {
+            return HitStatus.MISSED;
+        }
+        int ship = shipAt(bit);
+        if (--shipRemainingHits[ship] > 0) {
+            return HitStatus.HIT;
+        }
+        long[] mask = shipMasks[ship];
+        for (int i = 0; i < words; i++) {
+            destroyed[i] |= mask[i];
+        }
+        recordDestroyed();
+        return HitStatus.DESTROYED;
+    }
+
+    /**
+     * Retrieves the hit status of the cell at (x, y).
+     *
+     * @param x The X-coordinate of the cell.
+     * @param y The Y-coordinate of the cell.
+     * @return The hit status of the cell.
+     */
+    @Override
+    public HitStatus getHitStatus(int x, int y) {
+        return hitStatusAt(index(x, y));
+    }
+
+    /**
+     * Retrieves the symbol of the ship on the cell at (x, y).
+     *
+     * @param x The X-coordinate of the cell.
+     * @param y The Y-coordinate of the cell.
+     * @return The symbol of the ship, " " if no ship is present.
+     */
+    @Override
+    public String getSymbol(int x, int y) {
+        int ship = shipAt(index(x, y));
+        return ship < 0 ? " " : shipSymbols[ship];
+    }
+
+    /**
+     * Marks the attacked cells, copying the attacked mask.
+     *
+     * @param mask Receives bit (y * width + x) of every attacked cell.
+     */
+    @Override
+    public void markAttacked(long[] mask) {
+        for (int w = 0; w < words; w++) {
+            mask[w] |= attacked[w];
+        }
+    }
+
+    /**
+     * Returns the bit index of the cell at (x, y), failing for a cell off the
+     * board as the array of the dense storage does instead of reading the bit
+     * of another cell.
+     */
+    private int index(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            throw new ArrayIndexOutOfBoundsException("Cell (" + x + ", " + y + ") is off the board");
+        }
+        return y * width + x;
+    }
+
+    /**
+     * Returns the hit status of the cell at the given bit index.
+     */
+    private HitStatus hitStatusAt(int bit) {
+        int w = bit >>> 6;
+        long b = 1L << bit;
+        if ((attacked[w] & b) == 0) {
+            return HitStatus.NOT_ATTTACKED;
+        }
+        if ((destroyed[w] & b) != 0) {
+            return HitStatus.DESTROYED;
+        }
+        return (occupied[w] & b) != 0 ? HitStatus.HIT : HitStatus.MISSED;
+    }
+
+    /**
+     * Returns the index of the ship covering the given bit, or -1 if the cell is
+     * empty.
+     */
+    private int shipAt(int bit) {
+        int w = bit >>> 6;
+        long b = 1L << bit;
+        if ((occupied[w] & b) == 0) {
+            return -1;
+        }
+        for (int i = 0; i < shipCount; i++) {
+            if ((shipMasks[i][w] & b) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,242 @@
+package com.battleship.client;
+
+import org.fusesource.jansi.Ansi;
+
+/**
+ * The BoardRenderer class draws boards for the console.
+ *
+ * The frame is written straight into a reused buffer with the ANSI background
+ * sequence of every hit status computed once. The renderer remembers the
+ * symbol and status of every drawn cell: {@link #render(BoardView)} patches
+ * only the changed cells of the cached frame and returns the cached text if
+ * nothing changed, and {@link #redraw(BoardView)} keeps a frame at a fixed
+ * line of an ANSI terminal up to date by moving the cursor to the changed
+ * cells only.
+ *
+ * Columns are as wide as their longest label, so boards wider than 26 columns
+ * line up under labels such as AA, and the row numbers are right-aligned.
+ */
+public class BoardRenderer {
+
+    private static final String CLEAR_SCREEN = "\u001B[H\u001B[2J";
+    private static final String SAVE_CURSOR = "\u001B7";
+    private static final String RESTORE_CURSOR = "\u001B8";
+    private static final HitStatus[] STATUSES = HitStatus.values();
+    // lines above the first row of cells: column letters and separator
+    private static final int HEADER_LINES = 2;
+
+    private final boolean ansi;
+    // screen line of the first line of the frame, 1-based
+    private final int top;
+    private final String[] backgrounds = new String[STATUSES.length];
+    private final String reset;
+    private final String legend;
+
+    private final StringBuilder frame = new StringBuilder();
+    private final StringBuilder changes = new StringBuilder();
+    // null if the frame changed since it was last converted
+    private String frameText;
+    private int width = -1;
+    private int height = -1;
+    // characters per column of cells and of the row numbers before the '|'
+    private int columnWidth;
+    private int rowLabelWidth;
+    // last drawn state and frame position of every cell, cell (x, y) at y * width + x
+    private String[] symbols;
+    private HitStatus[] statuses;
+    private int[] offsets;
+    // whether the frame was drawn by redraw at its line of the screen
+    private boolean onScreen;
+
+    /**
+     * Constructs a renderer using colors and cursor movement if the console is
+     * an ANSI terminal.
+     */
+    public BoardRenderer() {
+        this(JansiHelper.isAnsiTerminal());
+    }
+
+    /**
+     * Constructs a renderer.
+     *
+     * @param ansi Whether to use ANSI colors and cursor movement, else plain
+     *             text is drawn.
+     */
+    public BoardRenderer(boolean ansi) {
+        this(ansi, 1);
+    }
+
+    /**
+     * Constructs a renderer that redraws its board at the given line of the
+     * screen, for example below another board.
+     *
+     * @param ansi Whether to use ANSI colors and cursor movement, else plain
+     *             text is drawn.
+     * @param top  The screen line of the first line of the frame, 1 for the top
+     *             of the screen.
+     */
+    public BoardRenderer(boolean ansi, int top) {
+        this.ansi = ansi;
+        this.top = top;
+        for (HitStatus status : STATUSES) {
+            backgrounds[status.ordinal()] = ansi ? new Ansi().bg(HitStatusColorizer.getColor(status)).toString() : "";
+        }
+        this.reset = ansi ? new Ansi().reset().toString() : "";
+        this.legend = ansi ? new Ansi().render(HitStatusColorizer.EXPLICATION).toString()
+                : HitStatusColorizer.EXPLICATION.replaceAll("@\\|\\w+ (.*?)\\|@", "$1");
+    }
+
+    /**
+     * Draws a whole board, reusing the previous frame for unchanged cells.
+     *
+     * @param board The board to draw.
+     * @return The frame: column letters and row numbers around the cells and the
+     *         color legend below them.
+     */
+    public String render(BoardView board) {
+        onScreen = false;
+        if (board.getWidth() != width || board.getHeight() != height || !patch(board, null)) {
+            build(board);
+        }
+        if (frameText == null) {
+            frameText = frame.toString();
+        }
+        return frameText;
+    }
+
+    /**
+     * Keeps a board drawn at its line of the screen up to date. On an ANSI
+     * terminal the first call draws the whole board, clearing the screen first
+     * if the board is at the top, later calls only draw the cells changed since
+     * and put the cursor back where it was. Without ANSI support the whole board
+     * is drawn every time.
+     *
+     * @param board The board to draw.
+     * @return The text to print, empty if nothing changed.
+     */
+    public String redraw(BoardView board) {
+        if (!ansi) {
+            return render(board);
+        }
+        changes.setLength(0);
+        if (!onScreen || board.getWidth() != width || board.getHeight() != height || !patch(board, changes)) {
+            String home = top == 1 ? CLEAR_SCREEN : "\u001B[" + top + ";1H";
+            String text = home + render(board);
+            onScreen = true;
+            return text;
+        }
+        if (changes.length() == 0) {
+            return "";
+        }
+        return SAVE_CURSOR + changes + RESTORE_CURSOR;
+    }
+
+    /**
+     * Writes the changed cells of a board of the current size into the frame.
+     *
+     * @param board The board to draw.
+     * @param moves Receives the cursor movements and cells to draw on the
+     *              screen, or null.
+     * @return false if a changed cell does not fit the place of the old one and
+     *         the frame has to be built again.
+     */
+    private boolean patch(BoardView board, StringBuilder moves) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int cell = y * width + x;
+                String symbol = board.getSymbol(x, y);
+                HitStatus status = board.getHitStatus(x, y);
+                if (statuses[cell] == status && symbols[cell].equals(symbol)) {
+                    continue;
+                }
+                String background = backgrounds[status.ordinal()];
+                if (symbol.length() != symbols[cell].length()
+                        || background.length() != backgrounds[statuses[cell].ordinal()].length()) {
+                    return false;
+                }
+                symbols[cell] = symbol;
+                statuses[cell] = status;
+                int start = offsets[cell];
+                frame.replace(start, start + background.length(), background);
+                start += background.length();
+                frame.replace(start, start + symbol.length(), symbol);
+                frameText = null;
+                if (moves != null) {
+                    // ANSI positions are 1-based, the cells follow the row number and '|'
+                    moves.append("\u001B[").append(top + HEADER_LINES + y).append(';')
+                            .append(rowLabelWidth + 2 + columnWidth * x).append('H');
+                    appendCell(moves, cell);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Draws the whole frame and remembers every cell.
+     */
+    private void build(BoardView board) {
+        width = board.getWidth();
+        height = board.getHeight();
+        symbols = new String[width * height];
+        statuses = new HitStatus[width * height];
+        offsets = new int[width * height];
+        columnWidth = Coordinates.columnLabelLength(width - 1) + 1;
+        rowLabelWidth = stringSize(height - 1);
+        frame.setLength(0);
+        pad(frame, rowLabelWidth).append('|');
+        for (int x = 0; x < width; x++) {
+            Coordinates.appendColumnLabel(frame, x);
+            pad(frame, columnWidth - Coordinates.columnLabelLength(x));
+        }
+        frame.append('\n');
+        for (int i = rowLabelWidth + 1 + columnWidth * width; i > 0; i--) {
+            frame.append('-');
+        }
+        frame.append('\n');
+        for (int y = 0; y < height; y++) {
+            pad(frame, rowLabelWidth - stringSize(y)).append(y).append('|');
+            for (int x = 0; x < width; x++) {
+                int cell = y * width + x;
+                symbols[cell] = board.getSymbol(x, y);
+                statuses[cell] = board.getHitStatus(x, y);
+                offsets[cell] = frame.length();
+                appendCell(frame, cell);
+            }
+            frame.append('\n');
+        }
+        frame.append(legend);
+        frameText = null;
+    }
+
+    /**
+     * Appends the remembered symbol and status of a cell, followed by spaces up
+     * to the next column.
+     */
+    private void appendCell(StringBuilder text, int cell) {
+        text.append(backgrounds[statuses[cell].ordinal()]).append(symbols[cell]).append(reset);
+        pad(text, columnWidth - 1);
+    }
+
+    /**
+     * Appends the given number of spaces.
+     */
+    private static StringBuilder pad(StringBuilder text, int spaces) {
+        for (int i = 0; i < spaces; i++) {
+            text.append(' ');
+        }
+        return text;
+    }
+
+    /**
+     * Returns the number of digits of a row number.
+     */
+    private static int stringSize(int y) {
+        int digits = 1;
+        while (y >= 10) {
+            y /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,40 @@
+package com.battleship.client;
+
+/**
+ * A board as seen by the {@link BoardRenderer}: a grid of cells, each with a
+ * symbol and a hit status, addressed by primitive coordinates.
+ */
+public interface BoardView {
+
+    /**
+     * Retrieves the width of the board.
+     *
+     * @return The width of the board.
+     */
+    int getWidth();
+
+    /**
+     * Retrieves the height of the board.
+     *
+     * @return The height of the board.
+     */
+    int getHeight();
+
+    /**
+     * Retrieves the symbol shown in a cell.
+     *
+     * @param x The X-coordinate of the cell.
+     * @param y The Y-coordinate of the cell.
+     * @return The symbol, " " for an empty cell.
+     */
+    String getSymbol(int x, int y);
+
+    /**
+     * Retrieves the hit status of a cell.
+     *
+     * @param x The X-coordinate of the cell.
+     * @param y The Y-coordinate of the cell.
+     * @return The hit status of the cell.
+     */
+    HitStatus getHitStatus(int x, int y);
+}
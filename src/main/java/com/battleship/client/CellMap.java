@@ -0,0 +1,133 @@
+package com.battleship.client;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The CellMap class maps cells of a board, given by their index
+ * {@code y * width + x}, to non-negative ints. It is an open-addressing hash
+ * table on two primitive arrays, so it costs a few bytes per stored cell and
+ * nothing per empty one, and looking up a cell does not allocate.
+ */
+final class CellMap implements Serializable {
+
+    /**
+     * Returned by {@link #get(long)} for a cell without a value.
+     */
+    static final int ABSENT = -1;
+
+    private static final long EMPTY = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    // slot i holds keys[i] -> values[i], at most half of the slots are used
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructs an empty map.
+     */
+    CellMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Retrieves the value of a cell.
+     *
+     * @param cell the index of the cell
+     * @return the value, or {@link #ABSENT}
+     */
+    int get(long cell) {
+        for (int slot = slot(cell);; slot = (slot + 1) & (keys.length - 1)) {
+            if (keys[slot] == cell) {
+                return values[slot];
+            }
+            if (keys[slot] == EMPTY) {
+                return ABSENT;
+            }
+        }
+    }
+
+    /**
+     * Sets the value of a cell.
+     *
+     * @param cell  the index of the cell
+     * @param value the value, not negative
+     */
+    void put(long cell, int value) {
+        int slot = slot(cell);
+        while (keys[slot] != EMPTY && keys[slot] != cell) {
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        if (keys[slot] == EMPTY) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                put(cell, value);
+                return;
+            }
+            keys[slot] = cell;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Retrieves the number of cells with a value.
+     *
+     * @return the number of cells
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the number of slots, the bound of {@link #cellAt(int)}.
+     *
+     * @return the number of slots
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Retrieves the cell stored in a slot, to visit every cell with a value.
+     *
+     * @param slot the slot, below {@link #capacity()}
+     * @return the index of the cell, or -1 for an unused slot
+     */
+    long cellAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Returns the first slot to probe for a cell.
+     */
+    private int slot(long cell) {
+        long hash = cell * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (keys.length - 1);
+    }
+
+    /**
+     * Doubles the number of slots and stores every cell again.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Replaces the slots by empty ones.
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+        size = 0;
+    }
+}
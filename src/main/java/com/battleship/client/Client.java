@@ -3,11 +3,20 @@ package com.battleship.client;
 import java.net.*;
 import java.util.Scanner;
 
+import com.battleship.events.AttackEvent;
 import com.battleship.events.AttackerFeedbackEvent;
 import com.battleship.events.DefenderFeedbackEvent;
+import com.battleship.events.FleetLayoutEvent;
+import com.battleship.events.JoinEvent;
+import com.battleship.events.MatchTokenEvent;
+import com.battleship.events.ResumeEvent;
 import com.battleship.events.RoundStartEvent;
 import com.battleship.events.RoundStartEvent.AttackStatus;
 import com.battleship.events.RoundStartEvent.GameStatus;
+import com.battleship.events.SalvoEvent;
+import com.battleship.events.SalvoResultEvent;
+import com.battleship.events.TimeoutEvent;
+import com.battleship.protocol.ProtocolStream;
 
 // use colorful console output
 import org.fusesource.jansi.AnsiConsole;
@@ -15,12 +24,36 @@ import org.fusesource.jansi.AnsiConsole;
 import java.io.*;
 
 public class Client {
+    private static final String HOST_NAME = "localhost";
+    private static final int PORT = 8080;
+    private static final int RECONNECT_ATTEMPTS = 30;
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+    private static final int RESEND_CAPACITY = 16;
+    // the standard fleet needs at least ten rows and columns
+    private static final int MIN_BOARD_SIZE = 10;
+    private static final String ERR_UNKNOWN_OPTION = "Unknown option %s, expected --width=, --height= or --salvo=";
+    private static final String ERR_BOARD_SIZE = "Board sizes range from %d to %d, got %s";
+    private static final String ERR_SALVO = "Salvos have 1 to 255 shots, got %s";
+
+    private int width = JoinEvent.DEFAULT_WIDTH;
+    private int height = JoinEvent.DEFAULT_HEIGHT;
+    // shots fired per turn, more than one only against a server allowing salvos
+    private int salvo = 1;
+
     private Socket socket;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+    private ProtocolStream stream;
+    // token to resume the match after a lost connection, 0 if the server does not offer it
+    private long matchToken = 0;
+    // messages of the match in both directions, the latest sent ones kept for resending
+    private long sent = 0;
+    private long received = 0;
+    private final Object[] resend = new Object[RESEND_CAPACITY];
 
     private ShipStorage shipStorage;
     private ShipStorage.AttackHistory attackHistory;
+    // keep the last frame of each board, only changed cells are drawn again
+    private final BoardRenderer ownBoardRenderer = new BoardRenderer();
+    private final BoardRenderer historyRenderer = new BoardRenderer();
 
     private static final String COMMAND_SHOW_OWN = "showown";
     private static final String COMMAND_SHOW_HISTORY = "history";
@@ -43,108 +76,225 @@ public class Client {
         JansiHelper.print("Connected to server at " + socket.getRemoteSocketAddress());
         JansiHelper.print("Waiting for another player to join the lobby...");
 
-        out = new ObjectOutputStream(socket.getOutputStream());
-        in = new ObjectInputStream(socket.getInputStream());
+        stream = new ProtocolStream(socket);
     }
 
     /**
-     * Sends an object to the server.
+     * Reconnects after the connection was lost and presents the match token,
+     * retrying while the server is down. The server sends the missed messages
+     * again, the messages the server missed are sent again here.
+     *
+     * @param cause the failure of the lost connection
+     * @throws MatchRestartedException if the server restarted the current round
+     *                                 from a snapshot
+     * @throws IOException             if the game cannot be resumed
+     */
+    private void reconnect(IOException cause) throws IOException {
+        if (matchToken == 0) {
+            throw cause;
+        }
+        JansiHelper.print("Connection to server lost, trying to resume the game...");
+        stream.close();
+        for (int attempt = 0; attempt < RECONNECT_ATTEMPTS; attempt++) {
+            try {
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+                socket = new Socket(HOST_NAME, PORT);
+            } catch (ConnectException e) {
+                // server not up yet
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw cause;
+            }
+            stream = new ProtocolStream(socket);
+            stream.write(new ResumeEvent(matchToken, received));
+            ResumeEvent acknowledgement = (ResumeEvent) stream.read();
+            JansiHelper.print("Reconnected to the game.");
+            if (acknowledgement.received() == ResumeEvent.RESTARTED) {
+                sent = 0;
+                received = 0;
+                throw new MatchRestartedException();
+            }
+            if (sent - acknowledgement.received() > RESEND_CAPACITY) {
+                throw new IOException("Too many messages lost to resume the game");
+            }
+            for (long n = acknowledgement.received(); n < sent; n++) {
+                stream.write(resend[(int) (n % RESEND_CAPACITY)]);
+            }
+            return;
+        }
+        throw cause;
+    }
+
+    /**
+     * Sends an object to the server, reconnecting if the connection was lost.
      *
      * @param obj the object to send
      * @throws IOException if an I/O error occurs while sending the object
      */
     private void sendObject(Object obj) throws IOException {
-        out.writeObject(obj);
-        out.flush();
+        resend[(int) (sent % RESEND_CAPACITY)] = obj;
+        sent++;
+        try {
+            stream.write(obj);
+        } catch (IOException e) {
+            // the reconnect sends the object again
+            reconnect(e);
+        }
     }
 
     /**
-     * Receives an object from the server.
+     * Receives an object from the server. A match token is kept for reconnecting
+     * and not returned.
      *
      * @return the received object
      * @throws ClientDisconnectException if the opponent has disconnected from the game
      * @throws IOException               if an I/O error occurs while receiving the object
-     * @throws ClassNotFoundException  if error in protocol occurs
      */
-    private Object receiveObject() throws ClientDisconnectException, IOException, ClassNotFoundException {
-        Object obj = in.readObject();
+    private Object receiveObject() throws ClientDisconnectException, IOException {
+        Object obj = readCounted();
+        if (obj instanceof MatchTokenEvent tokenEvent) {
+            matchToken = tokenEvent.token();
+            obj = readCounted();
+        }
         if (obj instanceof ClientDisconnectException) {
             throw (ClientDisconnectException) obj;
         }
         return obj;
     }
 
+    /**
+     * Reads the next message of the match, reconnecting if the connection was
+     * lost.
+     *
+     * @return the received object
+     * @throws IOException if the game cannot be resumed
+     */
+    private Object readCounted() throws IOException {
+        while (true) {
+            try {
+                Object obj = stream.read();
+                received++;
+                return obj;
+            } catch (IOException e) {
+                reconnect(e);
+            }
+        }
+    }
+
     /**
      * Closes the client's connection and resources.
      *
      * @throws IOException if an I/O error occurs while closing the connection
      */
     private void close() throws IOException {
-        in.close();
-        out.close();
-        socket.close();
+        stream.close();
         scanner.close();
     }
 
     /**
      * Runs the client-side game logic.
      *
-     * @throws ClassNotFoundException if error in protocol occurs
      */
-    public void run() throws ClassNotFoundException {
+    public void run() {
         try {
             // Connect to the server
-            connect("localhost", 8080);
-            
+            connect(HOST_NAME, PORT);
+
+            // Ask the lobby for an opponent on the same board size
+            sendObject(new JoinEvent(JoinEvent.DEFAULT_RATING, width, height));
+
             // Build the ship storage
             ShipStorageBuilder storageBuilder = new ShipStorageBuilder();
-            shipStorage = storageBuilder.buildShipStorage(scanner, 10, 10);
+            shipStorage = storageBuilder.buildShipStorage(scanner, width, height);
             
-            // Send ship storage to the server
-            sendObject(shipStorage);
+            // Send where the ships are, the server builds its own board from it
+            sendObject(FleetLayoutEvent.of(shipStorage));
 
             // Create attack history
             attackHistory = shipStorage.new AttackHistory();
 
             while (true) {
-                // Receive round start event from the server
-                final RoundStartEvent roundStartEvent = (RoundStartEvent) receiveObject();
-                if (roundStartEvent.gameStatus() == GameStatus.YOU_LOST) {
-                    JansiHelper.print("You lost!");
-                    break;
-                } else if (roundStartEvent.gameStatus() == GameStatus.YOU_WON) {
-                    JansiHelper.print("You won!");
+                try {
+                    playRounds();
                     break;
+                } catch (MatchRestartedException e) {
+                    // a restarted server continues the match with the round of its snapshot
                 }
+            }
+            close();
+        } catch (ClientDisconnectException e) {
+            JansiHelper.print("The other player disconnected, you won.");
+        } catch (IOException e) {
+            JansiHelper.print("Communication with server failed, game terminated.");
+        }
+    }
+
+    /**
+     * Plays rounds until the game is decided.
+     *
+     * @throws ClientDisconnectException if the opponent has disconnected from the game
+     * @throws IOException               if an I/O error occurs while playing
+     */
+    private void playRounds() throws ClientDisconnectException, IOException {
+        while (true) {
+            // Receive round start event from the server, a placement that took too long is forfeited first
+            Object message = receiveObject();
+            if (message instanceof TimeoutEvent timeoutEvent) {
+                JansiHelper.print(timeoutEvent.toString());
+                continue;
+            }
+            final RoundStartEvent roundStartEvent = (RoundStartEvent) message;
+            if (roundStartEvent.gameStatus() == GameStatus.YOU_LOST) {
+                JansiHelper.print("You lost!");
+                break;
+            } else if (roundStartEvent.gameStatus() == GameStatus.YOU_WON) {
+                JansiHelper.print("You won!");
+                break;
+            }
 
-                // Determine if it's the client's turn to attack
-                final boolean attacking = (roundStartEvent.attackStatus() == AttackStatus.ATTACK
-                        || roundStartEvent.attackStatus() == AttackStatus.ATTACK_AGAIN);
+            // Determine if it's the client's turn to attack
+            final boolean attacking = (roundStartEvent.attackStatus() == AttackStatus.ATTACK
+                    || roundStartEvent.attackStatus() == AttackStatus.ATTACK_AGAIN);
 
-                JansiHelper.print(roundStartEvent.toString());
+            JansiHelper.print(roundStartEvent.toString());
 
-                if (attacking) {
-                    // Perform the attack
-                    performAttack();
+            if (attacking) {
+                // Perform the attack
+                performAttack(roundStartEvent.turn());
+            } else {
+                // Receive feedback from the defender, or learn that the other player timed out
+                Object feedback = receiveObject();
+                Coordinates attacked;
+                if (feedback instanceof SalvoResultEvent result) {
+                    JansiHelper.print(result + " Your remaining ships: " + result.shipsRemaining() + ".");
+                    for (Coordinates target : result.targets()) {
+                        try {
+                            shipStorage.attack(target);
+                        } catch (BattleshipException e) {
+                            // never thrown, the server ensures that the salvo was legal
+                        }
+                    }
+                    continue;
+                } else if (feedback instanceof TimeoutEvent timeoutEvent) {
+                    JansiHelper.print(timeoutEvent.toString());
+                    attacked = timeoutEvent.coordinates();
                 } else {
-                    // Receive feedback from the defender
-                    DefenderFeedbackEvent feedbackEvent = (DefenderFeedbackEvent) receiveObject();
-                    JansiHelper.print(String.format("Cell %s was attacked. Result: %s.%n",
+                    DefenderFeedbackEvent feedbackEvent = (DefenderFeedbackEvent) feedback;
+                    JansiHelper.print(String.format("Cell %s was attacked. Result: %s. Your remaining ships: %d.%n",
                             feedbackEvent.coordinates().toString(),
-                            feedbackEvent.hitStatus().toString()));
-                    // Update own ship storage accordingly
+                            feedbackEvent.hitStatus().toString(), feedbackEvent.shipsRemaining()));
+                    attacked = feedbackEvent.coordinates();
+                }
+                // Update own ship storage accordingly
+                if (attacked != null) {
                     try {
-                        shipStorage.attack(feedbackEvent.coordinates());
+                        shipStorage.attack(attacked);
                     } catch (BattleshipException e) {
                         // This exception should never be thrown since the server ensures that the attack was legal
                     }
                 }
             }
-            close();
-        } catch (ClientDisconnectException e) {
-            JansiHelper.print("The other player disconnected, you won.");
-        } catch (IOException e) {
-            JansiHelper.print("Communication with server failed, game terminated.");
         }
     }
 
@@ -152,18 +302,44 @@ public class Client {
      * Performs an attack by sending the coordinates to the server and receiving feedback.
      * Synatex check of the inputed coordinates happens on the client side.
      *
+     * @param turn the turn of the round, sent back with the attack
      * @throws ClientDisconnectException if the opponent has disconnected from the game
      * @throws IOException               if an I/O error occurs while performing the attack
-     * @throws ClassNotFoundException  if error in protocol occurs
      */
-    private void performAttack() throws ClientDisconnectException, IOException, ClassNotFoundException {
+    private void performAttack(int turn) throws ClientDisconnectException, IOException {
         while (true) {
-            // Parse the input coordinates from the scanner
+            // Parse the input coordinates from the scanner, one per shot of a salvo
             Coordinates coordinates = parseCoordinatesToScanner();
-            sendObject(coordinates);
-            AttackerFeedbackEvent feedbackEvent = (AttackerFeedbackEvent) receiveObject();
+            Coordinates[] targets = new Coordinates[salvo];
+            targets[0] = coordinates;
+            for (int i = 1; i < salvo; i++) {
+                JansiHelper.print(String.format("Shot %d of %d:", i + 1, salvo));
+                targets[i] = parseCoordinatesToScanner();
+            }
+            sendObject(salvo == 1 ? new AttackEvent(turn, coordinates) : new SalvoEvent(turn, targets));
+            Object feedback = receiveObject();
+            if (feedback instanceof SalvoResultEvent result) {
+                JansiHelper.print(result.toString());
+                JansiHelper.print("Remaining ships of your opponent: " + result.shipsRemaining());
+                for (int i = 0; i < targets.length; i++) {
+                    attackHistory.setHitStatus(targets[i], result.hitStatuses()[i]);
+                }
+                return;
+            }
+            if (feedback instanceof TimeoutEvent timeoutEvent) {
+                // the server resolved the turn before the attack arrived and drops it by its turn
+                JansiHelper.print(timeoutEvent.toString());
+                if (timeoutEvent.coordinates() != null) {
+                    attackHistory.setHitStatus(timeoutEvent.coordinates(), timeoutEvent.hitStatus());
+                }
+                return;
+            }
+            AttackerFeedbackEvent feedbackEvent = (AttackerFeedbackEvent) feedback;
             if (feedbackEvent.attackSuccess()) {
                 JansiHelper.print("Result of your attack: " + feedbackEvent.hitStatus().toString());
+                if (feedbackEvent.hitStatus() == HitStatus.DESTROYED) {
+                    JansiHelper.print("Remaining ships of your opponent: " + feedbackEvent.shipsRemaining());
+                }
                 // Update attack history
                 attackHistory.setHitStatus(coordinates, feedbackEvent.hitStatus());
                 return;
@@ -203,9 +379,9 @@ public class Client {
             JansiHelper.print(INPUT_DEMAND_ATTACK);
             String input = scanner.next();
             if (input.equals(COMMAND_SHOW_OWN)) {
-                JansiHelper.print(shipStorage.toString());
+                System.out.println(ownBoardRenderer.render(shipStorage));
             } else if (input.equals(COMMAND_SHOW_HISTORY)) {
-                JansiHelper.print(attackHistory.toString());
+                System.out.println(historyRenderer.render(attackHistory));
             } else {
                 return input;
             }
@@ -213,19 +389,77 @@ public class Client {
     }
 
     /**
-     * The main method to start the Battleship game client.
+     * Parses the command-line arguments.
+     *
+     * @param args the command-line arguments
+     * @return the configured client
+     */
+    static Client parse(String[] args) {
+        Client client = new Client();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException(String.format(ERR_UNKNOWN_OPTION, arg));
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "width":
+                    client.width = parseBoardSize(value);
+                    break;
+                case "height":
+                    client.height = parseBoardSize(value);
+                    break;
+                case "salvo":
+                    client.salvo = Integer.parseInt(value);
+                    if (client.salvo < 1 || client.salvo > 255) {
+                        throw new IllegalArgumentException(String.format(ERR_SALVO, value));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format(ERR_UNKNOWN_OPTION, arg));
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Parses the width or height of the board.
+     *
+     * @param value the option value
+     * @return the number of columns or rows
+     */
+    private static int parseBoardSize(String value) {
+        int size = Integer.parseInt(value);
+        if (size < MIN_BOARD_SIZE || size > CoordinateParser.MAX_SIZE) {
+            throw new IllegalArgumentException(
+                    String.format(ERR_BOARD_SIZE, MIN_BOARD_SIZE, CoordinateParser.MAX_SIZE, value));
+        }
+        return size;
+    }
+
+    /**
+     * The main method to start the Battleship game client. Accepts
+     * {@code --width=N} and {@code --height=N} to play on a board other than
+     * 10x10; only players asking for the same size are paired. With
+     * {@code --salvo=N} every turn fires N shots at once, the server has to
+     * allow salvos of that size.
      *
      * @param args the command-line arguments
      * @throws IOException              if an I/O error occurs while running the game
-     * @throws ClassNotFoundException if a class cannot be found while running the game (error in protocol)
      */
-    public static void main(String[] args) throws IOException, ClassNotFoundException {
+    public static void main(String[] args) throws IOException {
         // Allow for colorful console output
         AnsiConsole.systemInstall();
 
         // Create and run the client
-        Client client = new Client();
+        Client client = parse(args);
         client.run();
     }
 
+    /**
+     * Signals that the server restarted the current round from a snapshot after
+     * a reconnect.
+     */
+    private static class MatchRestartedException extends IOException {
+    }
 }
@@ -2,6 +2,16 @@ package com.battleship.client;
 
 import org.javatuples.Triplet;
 
+/**
+ * Parses user input such as "b4" or "b4h" into coordinates. Columns beyond Z
+ * take several letters, for example "ab12" for column AB, see
+ * {@link Coordinates#columnLabel(int)}.
+ *
+ * {@link #parse(CharSequence)} is the allocation-free form: it packs column,
+ * row and the horizontal flag into one int and signals invalid input with
+ * {@link #INVALID} instead of an exception. The other methods wrap it and
+ * create their exception only when the input is invalid.
+ */
 public class CoordinateParser {
 
     private static final String ERR_INVALID_INPUT = """
@@ -14,66 +24,174 @@ public class CoordinateParser {
     private static final char HORIZONTAL_SPECIFIER = 'h';
 
     /**
-     * 
-     * Splits a string composed of a char and a number, for example "a14" into the
-     * char and the number.
-     * 
-     * Throws an error if this is not possible.
-     * 
-     * If the string ends with the letter 'h', the method returns a triplet of the
-     * form (char, number, true).
-     * 
-     * If not, the method returns a triplet of the form (char, number, false).
-     * 
-     * @param s the string to split
-     * 
-     * @return a triplet of the form (char, number, hasH) representing the split
-     *         string
-     * 
-     * @throws IllegalArgumentException if the string cannot be split into a char
-     *                                  and a number
+     * Returned by {@link #parse(CharSequence)} for invalid input.
      */
-    public static Triplet<Character, Integer, Boolean> splitString(String str) throws BattleshipException {
-        BattleshipException exception = new BattleshipException(ERR_INVALID_INPUT);
+    public static final int INVALID = -1;
+
+    // packed layout: row in bits 0-14, column in bits 15-29, horizontal flag in bit 30
+    private static final int Y_BITS = 15;
+    private static final int X_BITS = 15;
+    private static final int MAX_Y = (1 << Y_BITS) - 1;
+    private static final int MAX_X = (1 << X_BITS) - 1;
+    private static final int HORIZONTAL_BIT = 1 << (Y_BITS + X_BITS);
+    private static final int LETTERS = 26;
+
+    /**
+     * The largest board width and height whose cells can all be parsed.
+     */
+    public static final int MAX_SIZE = 1 << X_BITS;
+
+    /**
+     * Parses a string composed of one or more letters, a number and an optional
+     * trailing 'h', for example "a14", "a14h" or "ab7", without allocating.
+     * The number is required: "ah" is column AH without a row, so unlike the
+     * single letter parser this replaced it no longer reads as "a0h".
+     *
+     * @param str the string to parse
+     * @return the packed column, row and horizontal flag, read with
+     *         {@link #packedX(int)}, {@link #packedY(int)} and
+     *         {@link #isHorizontal(int)}, or {@link #INVALID}
+     */
+    public static int parse(CharSequence str) {
         if (str == null || str.length() < 2) {
-            throw exception;
+            return INVALID;
         }
-        char character = str.charAt(0);
-        if (!Character.isLetter(character)) {
-            throw exception;
+        // column label in bijective base 26, A is 1 and Z is 26
+        int label = 0;
+        int index = 0;
+        while (index < str.length()) {
+            char character = str.charAt(index);
+            int letter;
+            if (character >= 'a' && character <= 'z') {
+                letter = character - 'a' + 1;
+            } else if (character >= 'A' && character <= 'Z') {
+                letter = character - 'A' + 1;
+            } else {
+                break;
+            }
+            label = label * LETTERS + letter;
+            if (label - 1 > MAX_X) {
+                return INVALID;
+            }
+            index++;
         }
+        if (index == 0 || index == str.length()) {
+            return INVALID;
+        }
+        int x = label - 1;
 
         int number = 0;
-        int index = 1;
-        while (index < str.length() && Character.isDigit(str.charAt(index))) {
-            number = number * 10 + Character.getNumericValue(str.charAt(index));
+        while (index < str.length() && str.charAt(index) >= '0' && str.charAt(index) <= '9') {
+            number = number * 10 + (str.charAt(index) - '0');
+            if (number > MAX_Y) {
+                return INVALID;
+            }
             index++;
         }
-        boolean horizontal = false;
+        int packed = x << Y_BITS | number;
         if (index < str.length() && str.charAt(index) == HORIZONTAL_SPECIFIER) {
-            horizontal = true;
+            packed |= HORIZONTAL_BIT;
             index++;
         }
         // check if string too long
         if (index != str.length()) {
-            throw exception;
+            return INVALID;
         }
-        return new Triplet<>(character, number, horizontal);
+        return packed;
     }
 
-    /*
+    /**
+     * Parses a string like {@link #parse(CharSequence)}, for input that has to
+     * be valid.
+     *
+     * @param str the string to parse
+     * @return the packed column, row and horizontal flag
+     * @throws BattleshipException if the string is not a column label followed
+     *                             by a number and an optional 'h'
+     */
+    public static int parseValid(String str) throws BattleshipException {
+        int packed = parse(str);
+        if (packed == INVALID) {
+            throw new BattleshipException(ERR_INVALID_INPUT);
+        }
+        return packed;
+    }
+
+    /**
+     * Retrieves the column of a parse result.
+     *
+     * @param packed the result of {@link #parse(CharSequence)}
+     * @return the integer representation of the X-coordinate
+     */
+    public static int packedX(int packed) {
+        return packed >>> Y_BITS & ((1 << X_BITS) - 1);
+    }
+
+    /**
+     * Retrieves the row of a parse result.
+     *
+     * @param packed the result of {@link #parse(CharSequence)}
+     * @return the Y-coordinate
+     */
+    public static int packedY(int packed) {
+        return packed & MAX_Y;
+    }
+
+    /**
+     * Retrieves whether a parse result ends with the horizontal specifier.
+     *
+     * @param packed the result of {@link #parse(CharSequence)}
+     * @return true if the input ended with 'h'
+     */
+    public static boolean isHorizontal(int packed) {
+        return (packed & HORIZONTAL_BIT) != 0;
+    }
+
+    /**
+     *
+     * Splits a string composed of a char and a number, for example "a14" into the
+     * char and the number.
+     *
+     * Throws an error if this is not possible.
+     *
+     * If the string ends with the letter 'h', the method returns a triplet of the
+     * form (char, number, true).
+     *
+     * If not, the method returns a triplet of the form (char, number, false).
+     *
+     * Only columns labeled with a single letter can be split, use
+     * {@link #parse(CharSequence)} for the others.
+     *
+     * @param str the string to split
+     *
+     * @return a triplet of the form (char, number, hasH) representing the split
+     *         string
+     *
+     * @throws BattleshipException if the string cannot be split into a char and a
+     *                             number
+     */
+    public static Triplet<Character, Integer, Boolean> splitString(String str) throws BattleshipException {
+        int packed = parse(str);
+        if (packed == INVALID || packedX(packed) >= LETTERS) {
+            throw new BattleshipException(ERR_INVALID_INPUT);
+        }
+        return new Triplet<>(str.charAt(0), packedY(packed), isHorizontal(packed));
+    }
+
+    /**
      * Parses coordinates
-     * 
+     *
      * @param str the string to parse to coordinates
-     * @return the parsed coordinates if successful
+     * @return the parsed coordinates if successful, shared for cells within
+     *         {@link Coordinates#CACHE_SIZE} columns and rows
+     * @throws BattleshipException if the string is not a column label followed
+     *                             by a number
      */
     public static Coordinates parseCoordinates(String str) throws BattleshipException {
-        Triplet<Character, Integer, Boolean> triplet = CoordinateParser.splitString(str);
-        if (triplet.getValue2()) {
+        int packed = parseValid(str);
+        if (isHorizontal(packed)) {
             throw new BattleshipException(ERR_INVALID_INPUT_SIMPLE_COORDINATES);
         }
-        return new Coordinates(triplet.getValue0(), triplet.getValue1());
+        return Coordinates.of(packedX(packed), packedY(packed));
     }
-
-    
 }
@@ -5,9 +5,36 @@ import java.io.Serializable;
 /**
  * The Coordinates class represents a pair of coordinates on a grid.
  * It provides methods for creating and accessing coordinates.
+ *
+ * Coordinates are immutable, so {@link #of(int, int)} hands out one shared
+ * instance per cell instead of allocating. The shared instances only cover the
+ * first {@link #CACHE_SIZE} columns and rows, whatever size the board is
+ * configured to: cells beyond them, on boards larger than 26 by 26, get a new
+ * instance on every call. The cache is not sized from the board, as a board
+ * may be up to {@link CoordinateParser#MAX_SIZE} cells wide and high.
+ *
+ * Columns are labeled like spreadsheet columns: A to Z, then AA, AB and so on,
+ * see {@link #columnLabel(int)}.
  */
 public class Coordinates implements Serializable {
 
+    /**
+     * The number of columns and rows covered by the shared instances, one column
+     * per letter.
+     */
+    public static final int CACHE_SIZE = 26;
+
+    private static final int LETTERS = 26;
+
+    // cell (x, y) at y * CACHE_SIZE + x
+    private static final Coordinates[] CACHE = new Coordinates[CACHE_SIZE * CACHE_SIZE];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new Coordinates(i % CACHE_SIZE, i / CACHE_SIZE);
+        }
+    }
+
     private final char textX;
     private final int x;
     private final int y;
@@ -37,6 +64,21 @@ public class Coordinates implements Serializable {
         this.textX = (char) (x + 65);
     }
 
+    /**
+     * Retrieves the coordinates of a cell, shared if the cell lies within
+     * {@link #CACHE_SIZE} columns and rows.
+     *
+     * @param x The integer representation of the X-coordinate.
+     * @param y The integer representation of the Y-coordinate.
+     * @return The coordinates.
+     */
+    public static Coordinates of(int x, int y) {
+        if (x >= 0 && y >= 0 && x < CACHE_SIZE && y < CACHE_SIZE) {
+            return CACHE[y * CACHE_SIZE + x];
+        }
+        return new Coordinates(x, y);
+    }
+
     /**
      * Retrieves the integer representation of the X-coordinate.
      *
@@ -47,7 +89,9 @@ public class Coordinates implements Serializable {
     }
 
     /**
-     * Retrieves the character representation of the X-coordinate.
+     * Retrieves the character representation of the X-coordinate. Only columns
+     * labeled with a single letter have one, see {@link #columnLabel(int)} for
+     * the others.
      *
      * @return The character representation of the X-coordinate.
      */
@@ -81,14 +125,55 @@ public class Coordinates implements Serializable {
         }
     }
 
+    /**
+     * Returns the label of a column: A to Z for the first 26 columns, then AA to
+     * AZ, BA to BZ and so on up to ZZ, followed by AAA.
+     *
+     * @param x The integer representation of the X-coordinate.
+     * @return The letters of the column.
+     */
+    public static String columnLabel(int x) {
+        return appendColumnLabel(new StringBuilder(), x).toString();
+    }
+
+    /**
+     * Appends the label of a column, see {@link #columnLabel(int)}.
+     *
+     * @param text The text to append to.
+     * @param x    The integer representation of the X-coordinate.
+     * @return The text.
+     */
+    public static StringBuilder appendColumnLabel(StringBuilder text, int x) {
+        int start = text.length();
+        // bijective base 26: A is 1 and Z is 26, there is no zero digit
+        for (int n = x + 1; n > 0; n = (n - 1) / LETTERS) {
+            text.insert(start, (char) ('A' + (n - 1) % LETTERS));
+        }
+        return text;
+    }
+
+    /**
+     * Returns the number of letters of the label of a column.
+     *
+     * @param x The integer representation of the X-coordinate.
+     * @return The length of {@link #columnLabel(int)}.
+     */
+    public static int columnLabelLength(int x) {
+        int letters = 1;
+        for (int n = x + 1; n > LETTERS; n = (n - 1) / LETTERS) {
+            letters++;
+        }
+        return letters;
+    }
+
     /**
      * Returns a string representation of the Coordinates object.
-     * The string consists of the X-coordinate followed by the Y-coordinate.
+     * The string consists of the column label followed by the Y-coordinate.
      *
      * @return The string representation of the Coordinates object.
      */
     @Override
     public String toString() {
-        return String.valueOf(textX) + String.valueOf(y);
+        return appendColumnLabel(new StringBuilder(), x).append(y).toString();
     }
 }
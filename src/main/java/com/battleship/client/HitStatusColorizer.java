@@ -2,6 +2,8 @@ package com.battleship.client;
 
 import java.util.Map;
 
+import org.fusesource.jansi.Ansi;
+
 /**
  * The HitStatusColorizer class provides mapping of hit statuses to their
  * respective colors.
@@ -32,4 +34,14 @@ public class HitStatusColorizer {
     public static String getColorString(HitStatus hitStatus) {
         return hitStatusMap.get(hitStatus);
     }
+
+    /**
+     * Retrieves the ANSI color associated with the specified hit status.
+     *
+     * @param hitStatus The hit status for which to retrieve the color.
+     * @return The color associated with the hit status.
+     */
+    public static Ansi.Color getColor(HitStatus hitStatus) {
+        return Ansi.Color.valueOf(getColorString(hitStatus).toUpperCase());
+    }
 }
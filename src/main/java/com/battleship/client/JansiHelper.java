@@ -2,6 +2,9 @@ package com.battleship.client;
 
 import static org.fusesource.jansi.Ansi.*;
 
+import org.fusesource.jansi.AnsiConsole;
+import org.fusesource.jansi.AnsiType;
+
 /**
  * The JansiHelper class provides utility methods for manipulating text colors
  * using the Jansi library.
@@ -55,4 +58,17 @@ public class JansiHelper {
         System.out.println(ansi().render(text));
     }
 
-}
\ No newline at end of file
+    /**
+     * Checks whether the console understands ANSI escape sequences, that is
+     * whether colors and cursor movements show up instead of being printed.
+     *
+     * @return true if the standard output is an ANSI terminal.
+     */
+    public static boolean isAnsiTerminal() {
+        if (!isEnabled()) {
+            return false;
+        }
+        AnsiType type = AnsiConsole.out().getType();
+        return type != AnsiType.Redirected && type != AnsiType.Unsupported;
+    }
+}
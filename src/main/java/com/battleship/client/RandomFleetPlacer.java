@@ -0,0 +1,203 @@
+package com.battleship.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * The RandomFleetPlacer class places a whole fleet at random legal positions
+ * without user input, for bots, simulations and load tests.
+ *
+ * Ships are placed longest first on a bit mask of the occupied cells. Each ship
+ * takes a position drawn uniformly among the positions that are legal given
+ * the ships placed before it: a few cheap draws among all positions on the
+ * board are tried first, and if they all collide the legal positions are
+ * counted and one of them is picked by index. No placement is ever retried
+ * through {@link ShipStorage#addShip(Coordinates, boolean, Ship)}; the whole
+ * fleet is only drawn again in the rare case that a ship has no legal position
+ * left.
+ */
+public class RandomFleetPlacer {
+
+    private static final String ERR_DOES_NOT_FIT = "The fleet does not fit on a %dx%d board.";
+    // draws among all positions before the legal positions are enumerated
+    private static final int MAX_DRAWS = 8;
+    // attempts for the whole fleet before it is considered impossible to place
+    private static final int MAX_ATTEMPTS = 1000;
+
+    private final Ship[] ships;
+    private final int width;
+    private final int height;
+
+    /**
+     * Constructs a RandomFleetPlacer for a fleet and a board size.
+     *
+     * @param fleet  the ships to place
+     * @param width  the width of the board
+     * @param height the height of the board
+     * @throws IllegalArgumentException if a ship is longer than the board or the
+     *                                  fleet covers more cells than the board has
+     */
+    public RandomFleetPlacer(Ship[] fleet, int width, int height) {
+        this.ships = fleet.clone();
+        // long ships first, they are the hardest to fit
+        Arrays.sort(ships, (a, b) -> Integer.compare(b.getLength(), a.getLength()));
+        this.width = width;
+        this.height = height;
+        long cells = 0;
+        for (Ship ship : ships) {
+            cells += ship.getLength();
+            if (ship.getLength() > Math.max(width, height)) {
+                throw new IllegalArgumentException(String.format(ERR_DOES_NOT_FIT, width, height));
+            }
+        }
+        if (cells > (long) width * height) {
+            throw new IllegalArgumentException(String.format(ERR_DOES_NOT_FIT, width, height));
+        }
+    }
+
+    /**
+     * Places the fleet on an empty ship storage.
+     *
+     * @param shipStorage the storage to place the ships on, of the board size of
+     *                    this placer
+     * @param random      the source of randomness
+     */
+    public void place(ShipStorage shipStorage, RandomGenerator random) {
+        for (ShipStorage.Placement placement : sample(random)) {
+            try {
+                shipStorage.addShip(placement.start(), placement.vertical(), placement.ship());
+            } catch (BattleshipException e) {
+                throw new IllegalStateException("Sampled an illegal placement: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Draws the positions of the whole fleet.
+     *
+     * @param random the source of randomness
+     * @return one placement per ship, longest ship first
+     * @throws IllegalArgumentException if no legal layout was found
+     */
+    public List<ShipStorage.Placement> sample(RandomGenerator random) {
+        long[] occupied = new long[(int) (((long) width * height + 63) >>> 6)];
+        int[] starts = new int[ships.length];
+        boolean[] vertical = new boolean[ships.length];
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                Arrays.fill(occupied, 0);
+            }
+            if (sampleInto(occupied, starts, vertical, random)) {
+                List<ShipStorage.Placement> placements = new ArrayList<>(ships.length);
+                for (int i = 0; i < ships.length; i++) {
+                    placements.add(new ShipStorage.Placement(new Coordinates(starts[i] % width, starts[i] / width),
+                            vertical[i], ships[i]));
+                }
+                return placements;
+            }
+        }
+        throw new IllegalArgumentException(String.format(ERR_DOES_NOT_FIT, width, height));
+    }
+
+    /**
+     * Streams independent random layouts. Layout i is drawn from its own
+     * generator seeded from one seed and i, so the stream may be run in parallel
+     * and still gives the same layouts in the same order.
+     *
+     * @param count  the number of layouts
+     * @param random the source of the seed
+     * @return the layouts
+     */
+    public Stream<List<ShipStorage.Placement>> stream(long count, RandomGenerator random) {
+        long seed = random.nextLong();
+        return LongStream.range(0, count).mapToObj(i -> sample(new SplittableRandom(seed + i)));
+    }
+
+    /**
+     * Places every ship on the occupancy mask.
+     *
+     * @return false if a ship found no legal position
+     */
+    private boolean sampleInto(long[] occupied, int[] starts, boolean[] vertical, RandomGenerator random) {
+        for (int i = 0; i < ships.length; i++) {
+            int length = ships[i].getLength();
+            int horizontalCount = width >= length ? height * (width - length + 1) : 0;
+            int verticalCount = height >= length ? width * (height - length + 1) : 0;
+            int position = -1;
+            for (int draw = 0; draw < MAX_DRAWS && position < 0; draw++) {
+                int candidate = random.nextInt(horizontalCount + verticalCount);
+                if (isFree(occupied, candidate, length, horizontalCount)) {
+                    position = candidate;
+                }
+            }
+            if (position < 0) {
+                position = pickLegal(occupied, length, horizontalCount, verticalCount, random);
+                if (position < 0) {
+                    return false;
+                }
+            }
+            vertical[i] = position >= horizontalCount;
+            starts[i] = startCell(position, length, horizontalCount);
+            int step = vertical[i] ? width : 1;
+            for (int k = 0, cell = starts[i]; k < length; k++, cell += step) {
+                occupied[cell >>> 6] |= 1L << cell;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the legal positions of a ship and picks one of them uniformly.
+     *
+     * @return the position, -1 if there is none
+     */
+    private int pickLegal(long[] occupied, int length, int horizontalCount, int verticalCount,
+            RandomGenerator random) {
+        int legal = 0;
+        for (int position = 0; position < horizontalCount + verticalCount; position++) {
+            if (isFree(occupied, position, length, horizontalCount)) {
+                legal++;
+            }
+        }
+        if (legal == 0) {
+            return -1;
+        }
+        int chosen = random.nextInt(legal);
+        for (int position = 0;; position++) {
+            if (isFree(occupied, position, length, horizontalCount) && chosen-- == 0) {
+                return position;
+            }
+        }
+    }
+
+    /**
+     * Checks that no cell of a position is occupied.
+     */
+    private boolean isFree(long[] occupied, int position, int length, int horizontalCount) {
+        int step = position >= horizontalCount ? width : 1;
+        for (int k = 0, cell = startCell(position, length, horizontalCount); k < length; k++, cell += step) {
+            if ((occupied[cell >>> 6] & (1L << cell)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Maps a position index to the cell of the ship's first square. Positions
+     * below {@code horizontalCount} are horizontal, row by row; the others are
+     * vertical.
+     */
+    private int startCell(int position, int length, int horizontalCount) {
+        if (position < horizontalCount) {
+            int columns = width - length + 1;
+            return (position / columns) * width + position % columns;
+        }
+        return position - horizontalCount;
+    }
+}
@@ -1,10 +1,12 @@
 package com.battleship.client;
 
+import java.io.Serializable;
+
 /**
  * The Ship class represents a ship in a battleship game.
  * It provides methods for accessing ship properties.
  */
-public class Ship {
+public class Ship implements Serializable {
 
     private final int id;
     private final int length;
@@ -1,27 +1,50 @@
 package com.battleship.client;
 
-import java.util.Map;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.io.Serializable;
 
 /**
  * The ShipStorage class represents the storage for ships in a battleship game.
  * It provides methods for adding ships, retrieving ship information, attacking
  * cells, and checking game completion status.
+ *
+ * Every ship counts the hits it can still take and the storage counts the
+ * ships still afloat, so an attack detects a destroyed ship and the game-over
+ * check answers without looking at any other cell or ship.
  */
-public class ShipStorage implements Serializable {
+public class ShipStorage implements Serializable, BoardView {
 
-    private static final String ERR_OVERLAP = "Cannot place ship there, it is overlapping with an existant one";
-    private static final String ERR_BOARD_END = "Cannot place ship there, board is too small";
-    private static final String ERR_ATTACK_END = "Cannot attack here, board is too small";
-    private static final String ERR_ALREADY_ATTACKED = "You already attacked this spot!";
+    static final String ERR_OVERLAP = "Cannot place ship there, it is overlapping with an existant one";
+    static final String ERR_BOARD_END = "Cannot place ship there, board is too small";
+    public static final String ERR_ATTACK_END = "Cannot attack here, board is too small";
+    public static final String ERR_ALREADY_ATTACKED = "You already attacked this spot!";
 
-    private int height;
-    private int width;
+    /**
+     * The number of cells above which {@link #create(int, int)} stores only the
+     * ship cells and the shots instead of every cell.
+     */
+    public static final int SPARSE_THRESHOLD = 64 * 64;
+
+    protected final int height;
+    protected final int width;
     private StorageEntry[][] shipsArray;
 
-    // maps a ship id to the array of storage entries where the ship is placed on
-    Map<Integer, StorageEntry[]> shipToEntriesMap = new HashMap<>();
+    // ships in the order they were added, used to transmit the fleet layout
+    private final List<Placement> placements = new ArrayList<>();
+    // ships with at least one cell not hit yet
+    private int remainingShips;
+
+    /**
+     * A ship together with the position it was placed at.
+     *
+     * @param start    The starting coordinates of the ship.
+     * @param vertical Whether the ship is placed vertically.
+     * @param ship     The placed ship.
+     */
+    public record Placement(Coordinates start, boolean vertical, Ship ship) implements Serializable {
+    }
 
     /**
      * Constructs a ShipStorage object with the specified width and height.
@@ -30,8 +53,23 @@ public class ShipStorage implements Serializable {
      * @param height The height of the storage.
      */
     public ShipStorage(int width, int height) {
+        this(width, height, true);
+    }
+
+    /**
+     * Constructs a ShipStorage object, optionally without the per-cell entry grid.
+     * Subclasses that keep their own representation of the board skip the grid.
+     *
+     * @param width     The width of the storage.
+     * @param height    The height of the storage.
+     * @param allocGrid Whether to allocate the per-cell entry grid.
+     */
+    protected ShipStorage(int width, int height, boolean allocGrid) {
         this.height = height;
         this.width = width;
+        if (!allocGrid) {
+            return;
+        }
         this.shipsArray = new StorageEntry[width][height];
         // init ships array
         for (int x = 0; x < width; x++) {
@@ -41,6 +79,23 @@ public class ShipStorage implements Serializable {
         }
     }
 
+    /**
+     * Constructs a ShipStorage object suited to the board size: one entry per
+     * cell for standard boards, a {@link SparseShipStorage} for boards with more
+     * than {@link #SPARSE_THRESHOLD} cells, so their memory grows with the ships
+     * and shots rather than with the area.
+     *
+     * @param width  The width of the storage.
+     * @param height The height of the storage.
+     * @return The empty ship storage.
+     */
+    public static ShipStorage create(int width, int height) {
+        if ((long) width * height > SPARSE_THRESHOLD) {
+            return new SparseShipStorage(width, height);
+        }
+        return new ShipStorage(width, height);
+    }
+
     /**
      * Adds a ship to the storage starting from the specified coordinates.
      *
@@ -70,8 +125,7 @@ public class ShipStorage implements Serializable {
             shipRemainingLength--;
         }
         // second iteration: place ship
-        // update shipToEntriesMap as well
-        StorageEntry[] usedEntries = new StorageEntry[ship.getLength()];
+        PlacedShip placedShip = new PlacedShip(ship.getLength());
         int currentEntryIndex = 0;
 
         x = startCoordinates.getX();
@@ -81,7 +135,8 @@ public class ShipStorage implements Serializable {
             StorageEntry currentEntry = shipsArray[x][y];
             currentEntry.shipId = ship.getId();
             currentEntry.symbol = ship.getSymbol();
-            usedEntries[currentEntryIndex++] = currentEntry;
+            currentEntry.ship = placedShip;
+            placedShip.entries[currentEntryIndex++] = currentEntry;
             // prepare to look at next entry
             if (vertical) {
                 y++;
@@ -90,7 +145,37 @@ public class ShipStorage implements Serializable {
             }
             shipRemainingLength--;
         }
-        shipToEntriesMap.put(Integer.valueOf(ship.getId()), usedEntries);
+        recordPlacement(startCoordinates, vertical, ship);
+    }
+
+    /**
+     * Remembers a successfully added ship and counts it as afloat. Called by
+     * every addShip implementation.
+     *
+     * @param startCoordinates The starting coordinates of the ship.
+     * @param vertical         Whether the ship is placed vertically.
+     * @param ship             The added ship.
+     */
+    protected void recordPlacement(Coordinates startCoordinates, boolean vertical, Ship ship) {
+        placements.add(new Placement(startCoordinates, vertical, ship));
+        remainingShips++;
+    }
+
+    /**
+     * Counts a ship as destroyed. Called by every attack implementation when the
+     * last cell of a ship is hit.
+     */
+    protected void recordDestroyed() {
+        remainingShips--;
+    }
+
+    /**
+     * Retrieves the ships of the storage in the order they were added.
+     *
+     * @return The placements of all ships.
+     */
+    public List<Placement> getPlacements() {
+        return Collections.unmodifiableList(placements);
     }
 
     /**
@@ -114,6 +199,30 @@ public class ShipStorage implements Serializable {
         return shipsArray[coordinates.getX()][coordinates.getY()].hitStatus;
     }
 
+    /**
+     * Retrieves the hit status of the cell at (x, y).
+     *
+     * @param x The X-coordinate of the cell.
+     * @param y The Y-coordinate of the cell.
+     * @return The hit status of the cell.
+     */
+    @Override
+    public HitStatus getHitStatus(int x, int y) {
+        return shipsArray[x][y].hitStatus;
+    }
+
+    /**
+     * Retrieves the symbol of the ship on the cell at (x, y).
+     *
+     * @param x The X-coordinate of the cell.
+     * @param y The Y-coordinate of the cell.
+     * @return The symbol of the ship, " " if no ship is present.
+     */
+    @Override
+    public String getSymbol(int x, int y) {
+        return shipsArray[x][y].symbol;
+    }
+
     /**
      * Attacks the cell at the specified coordinates and returns the hit status.
      * Assuming board is completely build up.
@@ -137,32 +246,82 @@ public class ShipStorage implements Serializable {
             return HitStatus.MISSED;
         } else {
             entry.hitStatus = HitStatus.HIT;
-            for (StorageEntry shipEntry : shipToEntriesMap.get(entry.shipId)) {
-                // check if the ship was destroyed
-                if (shipEntry.hitStatus != HitStatus.HIT) {
-                    return HitStatus.HIT;
-                }
+            if (--entry.ship.remainingHits > 0) {
+                return HitStatus.HIT;
             }
             // the ship was destroyed
-            for (StorageEntry shipEntry : shipToEntriesMap.get(entry.shipId)) {
+            for (StorageEntry shipEntry : entry.ship.entries) {
                 shipEntry.hitStatus = HitStatus.DESTROYED;
             }
+            recordDestroyed();
             return HitStatus.DESTROYED;
         }
     }
 
+    /**
+     * Attacks several cells as one salvo. The whole salvo is checked before the
+     * first cell is attacked, so a rejected salvo leaves the board unchanged.
+     *
+     * @param targets The coordinates to attack, each at most once.
+     * @return The hit status after each attack, in the order of the targets.
+     * @throws BattleshipException if any of the attacks is invalid.
+     */
+    public HitStatus[] attack(Coordinates[] targets) throws BattleshipException {
+        for (int i = 0; i < targets.length; i++) {
+            int x = targets[i].getX();
+            int y = targets[i].getY();
+            if (x >= width || y >= height || x < 0 || y < 0) {
+                throw new BattleshipException(ERR_ATTACK_END);
+            }
+            if (getHitStatus(x, y) != HitStatus.NOT_ATTTACKED) {
+                throw new BattleshipException(ERR_ALREADY_ATTACKED);
+            }
+            for (int j = 0; j < i; j++) {
+                if (targets[j].getX() == x && targets[j].getY() == y) {
+                    throw new BattleshipException(ERR_ALREADY_ATTACKED);
+                }
+            }
+        }
+        HitStatus[] hitStatuses = new HitStatus[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            hitStatuses[i] = attack(targets[i]);
+        }
+        return hitStatuses;
+    }
+
+    /**
+     * Marks the attacked cells in a bit mask of the board.
+     *
+     * @param mask Receives bit (y * width + x) of every attacked cell, at least
+     *             width * height bits long.
+     */
+    public void markAttacked(long[] mask) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (getHitStatus(x, y) != HitStatus.NOT_ATTTACKED) {
+                    int cell = y * width + x;
+                    mask[cell >>> 6] |= 1L << cell;
+                }
+            }
+        }
+    }
+
     /**
      * Checks if all ships in the storage are completely destroyed.
      *
      * @return true if all ships are destroyed, false otherwise.
      */
     public boolean isCompletelyDestroyed() {
-        for (Integer ShipId : shipToEntriesMap.keySet()) {
-            if (shipToEntriesMap.get(ShipId)[0].hitStatus != HitStatus.DESTROYED) {
-                return false;
-            }
-        }
-        return true;
+        return remainingShips == 0;
+    }
+
+    /**
+     * Retrieves the number of ships that are not destroyed yet.
+     *
+     * @return the number of remaining ships
+     */
+    public int getRemainingShips() {
+        return remainingShips;
     }
 
     /**
@@ -172,28 +331,25 @@ public class ShipStorage implements Serializable {
      */
     @Override
     public String toString() {
-        return storageEntryArrayVisualizer(this.shipsArray);
+        return new BoardRenderer().render(this);
     }
 
     /**
      * The AttackHistory class represents the attack history of the ship storage.
-     * It keeps track of the hit status of each cell in the storage.
+     * It keeps track of the hit status of each cell in the storage, storing only
+     * the attacked cells.
      */
-    class AttackHistory {
+    public class AttackHistory implements BoardView {
 
-        private StorageEntry[][] attackHistory;
+        private static final HitStatus[] STATUSES = HitStatus.values();
+
+        // attacked cell -> ordinal of its hit status
+        private final CellMap attackHistory = new CellMap();
 
         /**
          * Constructs an AttackHistory object.
          */
         public AttackHistory() {
-            this.attackHistory = new StorageEntry[width][height];
-            // init ships array
-            for (int x = 0; x < width; x++) {
-                for (int y = 0; y < height; y++) {
-                    attackHistory[x][y] = new StorageEntry();
-                }
-            }
         }
 
         /**
@@ -203,18 +359,76 @@ public class ShipStorage implements Serializable {
          * @param hitStatus   The hit status to set.
          */
         public void setHitStatus(Coordinates coordinates, HitStatus hitStatus) {
-            attackHistory[coordinates.getX()][coordinates.getY()].hitStatus = hitStatus;
+            long cell = (long) coordinates.getY() * width + coordinates.getX();
+            if (hitStatus != HitStatus.NOT_ATTTACKED || attackHistory.get(cell) != CellMap.ABSENT) {
+                attackHistory.put(cell, hitStatus.ordinal());
+            }
         }
 
         /**
-         * Sets the hit status at the specified coordinates in the attack history.
+         * Retrieves the hit status at the specified coordinates in the attack history.
          *
-         * @param coordinates The coordinates to set the hit status.
-         * @param hitStatus   The hit status to set.
+         * @param coordinates The coordinates to check.
+         * @return The hit status at the specified coordinates.
+         */
+        public HitStatus getHitStatus(Coordinates coordinates) {
+            return getHitStatus(coordinates.getX(), coordinates.getY());
+        }
+
+        /**
+         * Retrieves the hit status of the cell at (x, y) in the attack history.
+         *
+         * @param x The X-coordinate of the cell.
+         * @param y The Y-coordinate of the cell.
+         * @return The hit status of the cell.
+         */
+        @Override
+        public HitStatus getHitStatus(int x, int y) {
+            int status = attackHistory.get((long) y * width + x);
+            return status == CellMap.ABSENT ? HitStatus.NOT_ATTTACKED : STATUSES[status];
+        }
+
+        /**
+         * Retrieves the symbol of the cell at (x, y), the ships of the opponent
+         * are not known.
+         *
+         * @param x The X-coordinate of the cell.
+         * @param y The Y-coordinate of the cell.
+         * @return The symbol of the cell.
+         */
+        @Override
+        public String getSymbol(int x, int y) {
+            return " ";
+        }
+
+        /**
+         * Retrieves the width of the attacked board.
+         *
+         * @return The width of the board.
+         */
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * Retrieves the height of the attacked board.
+         *
+         * @return The height of the board.
+         */
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Returns a string representation of the attack history.
+         *
+         * @return The string representation of the attack history.
          */
         @Override
         public String toString() {
-            return storageEntryArrayVisualizer(attackHistory);
+            return new BoardRenderer().render(this);
         }
     }
 
@@ -229,38 +443,42 @@ public class ShipStorage implements Serializable {
         private Integer shipId;
         private String symbol = " ";
         private HitStatus hitStatus = HitStatus.NOT_ATTTACKED;
+        // null if no ship is present
+        private PlacedShip ship;
     }
 
     /**
-     * Converts a 2D array of storage entries to a string representation that can be
-     * displayed.
-     *
-     * @param storageEntries The 2D array of storage entries.
-     * @return The string representation of the storage entries.
+     * The PlacedShip class holds the storage entries a ship is placed on and the
+     * number of its cells not hit yet.
      */
-    private static String storageEntryArrayVisualizer(StorageEntry[][] storageEntries) {
-        final int width = storageEntries.length;
-        final int height = storageEntries[0].length;
-        String text = " |";
-        String secondLine = "--";
-        for (int i = 0; i < width; i++) {
-            char current = (char) (65 + i);
-            text += String.valueOf(current) + " ";
-            secondLine += "--";
-        }
-        text += "\n" + secondLine + "\n";
-        // print row by row
-        for (int y = 0; y < height; y++) {
-            String newline = String.valueOf(y) + "|";
-            for (int x = 0; x < width; x++) {
-                String backgroundColor = HitStatusColorizer.getColorString(storageEntries[x][y].hitStatus);
-                String symbol = JansiHelper.colorizeBackground(storageEntries[x][y].symbol, backgroundColor);
-                newline += symbol + " ";
-            }
-            text += newline + "\n";
+    static class PlacedShip implements Serializable {
+
+        private final StorageEntry[] entries;
+        private int remainingHits;
+
+        PlacedShip(int length) {
+            this.entries = new StorageEntry[length];
+            this.remainingHits = length;
         }
-        // add explication in green
-        text += HitStatusColorizer.EXPLICATION;
-        return text;
+    }
+
+    /**
+     * Retrieves the width of the storage.
+     *
+     * @return The width of the storage.
+     */
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Retrieves the height of the storage.
+     *
+     * @return The height of the storage.
+     */
+    @Override
+    public int getHeight() {
+        return height;
     }
 }
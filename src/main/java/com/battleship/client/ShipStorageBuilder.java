@@ -1,7 +1,6 @@
 package com.battleship.client;
 
 import java.util.Scanner;
-import org.javatuples.Triplet;
 
 /**
  * The ShipStorageBuilder class is responsible for building a ShipStorage object by interactively
@@ -24,8 +23,19 @@ public class ShipStorageBuilder {
         prepareNormalGame();
     }
 
+    /**
+     * Retrieves the ships that have to be placed.
+     *
+     * @return a copy of the ship configuration
+     */
+    public Ship[] getShips() {
+        return shipArray.clone();
+    }
+
     /**
      * Builds a ShipStorage object by interactively receiving user input for ship placement.
+     * Large boards get a storage that only keeps the ship cells and the shots, see
+     * {@link ShipStorage#create(int, int)}.
      *
      * @param scanner the Scanner object for receiving user input
      * @param width   the width of the ship storage
@@ -33,7 +43,7 @@ public class ShipStorageBuilder {
      * @return the constructed ShipStorage object
      */
     public ShipStorage buildShipStorage(Scanner scanner, int width, int height) {
-        ShipStorage shipStorage = new ShipStorage(width, height);
+        ShipStorage shipStorage = ShipStorage.create(width, height);
         JansiHelper.print(PLACEMENT_INFO);
         int counter = shipArray.length;
         for (Ship ship : shipArray) {
@@ -45,9 +55,10 @@ public class ShipStorageBuilder {
                     JansiHelper.print(shipStorage.toString());
                 } else {
                     try {
-                        Triplet<Character, Integer, Boolean> triplet = CoordinateParser.splitString(input);
-                        Coordinates startCoordinates = new Coordinates(triplet.getValue0(), triplet.getValue1());
-                        boolean horizontal = triplet.getValue2();
+                        int packed = CoordinateParser.parseValid(input);
+                        Coordinates startCoordinates = Coordinates.of(CoordinateParser.packedX(packed),
+                                CoordinateParser.packedY(packed));
+                        boolean horizontal = CoordinateParser.isHorizontal(packed);
                         shipStorage.addShip(startCoordinates, !horizontal, ship);
                         // if success, move to the next ship
                         break;
@@ -0,0 +1,196 @@
+package com.battleship.client;
+
+import java.util.Arrays;
+
+/**
+ * The SparseShipStorage class is a ShipStorage that only stores the cells
+ * covered by ships and the attacked cells, for boards far larger than their
+ * fleets.
+ *
+ * Both sets of cells are kept in {@link CellMap}s keyed by (y * width + x), so
+ * a 1000x1000 board with ten ships costs memory for the ship cells and the
+ * shots, not for the million empty cells. The hit status of a cell follows
+ * from the two maps and the hits its ship can still take, so destroying a ship
+ * does not touch its cells.
+ */
+public class SparseShipStorage extends ShipStorage {
+
+    // cell -> index of the covering ship
+    private final CellMap shipCells = new CellMap();
+    // attacked cells, the values are unused
+    private final CellMap shots = new CellMap();
+
+    // parallel arrays, index is the order in which ships were added
+    private int shipCount;
+    private int[] shipIds = new int[0];
+    private String[] shipSymbols = new String[0];
+    private int[] shipRemainingHits = new int[0];
+
+    /**
+     * Constructs a SparseShipStorage object with the specified width and height.
+     *
+     * @param width  The width of the storage.
+     * @param height The height of the storage.
+     */
+    public SparseShipStorage(int width, int height) {
+        super(width, height, false);
+    }
+
+    /**
+     * Adds a ship to the storage starting from the specified coordinates.
+     *
+     * @param startCoordinates The starting coordinates of the ship.
+     * @param vertical         Flag indicating whether the ship is placed vertically
+     *                         or horizontally.
+     * @param ship             The ship to be added.
+     * @throws BattleshipException if the ship placement is invalid.
+     */
+    @Override
+    public void addShip(Coordinates startCoordinates, boolean vertical, Ship ship) throws BattleshipException {
+        int x = startCoordinates.getX();
+        int y = startCoordinates.getY();
+        int length = ship.getLength();
+        int endX = vertical ? x : x + length - 1;
+        int endY = vertical ? y + length - 1 : y;
+        if (x < 0 || y < 0 || endX >= width || endY >= height) {
+            throw new BattleshipException(ERR_BOARD_END);
+        }
+        long step = vertical ? width : 1;
+        long start = index(x, y);
+        for (int i = 0; i < length; i++) {
+            if (shipCells.get(start + i * step) != CellMap.ABSENT) {
+                throw new BattleshipException(ERR_OVERLAP);
+            }
+        }
+        if (shipCount == shipIds.length) {
+            int capacity = Math.max(4, shipCount * 2);
+            shipIds = Arrays.copyOf(shipIds, capacity);
+            shipSymbols = Arrays.copyOf(shipSymbols, capacity);
+            shipRemainingHits = Arrays.copyOf(shipRemainingHits, capacity);
+        }
+        for (int i = 0; i < length; i++) {
+            shipCells.put(start + i * step, shipCount);
+        }
+        shipIds[shipCount] = ship.getId();
+        shipSymbols[shipCount] = ship.getSymbol();
+        shipRemainingHits[shipCount] = length;
+        shipCount++;
+        recordPlacement(startCoordinates, vertical, ship);
+    }
+
+    /**
+     * Retrieves the ship ID at the specified coordinates.
+     *
+     * @param coordinates The coordinates to check.
+     * @return The ship ID at the specified coordinates, or null if no ship is
+     *         present.
+     */
+    @Override
+    public Integer getValue(Coordinates coordinates) {
+        int ship = shipCells.get(index(coordinates.getX(), coordinates.getY()));
+        return ship == CellMap.ABSENT ? null : shipIds[ship];
+    }
+
+    /**
+     * Retrieves the hit status at the specified coordinates.
+     *
+     * @param coordinates The coordinates to check.
+     * @return The hit status at the specified coordinates.
+     */
+    @Override
+    public HitStatus getHitStatus(Coordinates coordinates) {
+        return hitStatusAt(index(coordinates.getX(), coordinates.getY()));
+    }
+
+    /**
+     * Attacks the cell at the specified coordinates and returns the hit status.
+     * Assuming board is completely build up.
+     *
+     * @param coordinates The coordinates to attack.
+     * @return The hit status after the attack.
+     * @throws BattleshipException if the attack is invalid.
+     */
+    @Override
+    public HitStatus attack(Coordinates coordinates) throws BattleshipException {
+        int x = coordinates.getX();
+        int y = coordinates.getY();
+        if (x >= width || y >= height || x < 0 || y < 0) {
+            throw new BattleshipException(ERR_ATTACK_END);
+        }
+        long cell = index(x, y);
+        if (shots.get(cell) != CellMap.ABSENT) {
+            throw new BattleshipException(ERR_ALREADY_ATTACKED);
+        }
+        shots.put(cell, 0);
+        int ship = shipCells.get(cell);
+        if (ship == CellMap.ABSENT) {
+            return HitStatus.MISSED;
+        }
+        if (--shipRemainingHits[ship] > 0) {
+            return HitStatus.HIT;
+        }
+        recordDestroyed();
+        return HitStatus.DESTROYED;
+    }
+
+    /**
+     * Retrieves the hit status of the cell at (x, y).
+     *
+     * @param x The X-coordinate of the cell.
+     * @param y The Y-coordinate of the cell.
+     * @return The hit status of the cell.
+     */
+    @Override
+    public HitStatus getHitStatus(int x, int y) {
+        return hitStatusAt(index(x, y));
+    }
+
+    /**
+     * Retrieves the symbol of the ship on the cell at (x, y).
+     *
+     * @param x The X-coordinate of the cell.
+     * @param y The Y-coordinate of the cell.
+     * @return The symbol of the ship, " " if no ship is present.
+     */
+    @Override
+    public String getSymbol(int x, int y) {
+        int ship = shipCells.get(index(x, y));
+        return ship == CellMap.ABSENT ? " " : shipSymbols[ship];
+    }
+
+    /**
+     * Marks the attacked cells, visiting the shots only.
+     *
+     * @param mask Receives bit (y * width + x) of every attacked cell.
+     */
+    @Override
+    public void markAttacked(long[] mask) {
+        for (int slot = 0; slot < shots.capacity(); slot++) {
+            long cell = shots.cellAt(slot);
+            if (cell >= 0) {
+                mask[(int) (cell >>> 6)] |= 1L << cell;
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the cell at (x, y).
+     */
+    private long index(int x, int y) {
+        return (long) y * width + x;
+    }
+
+    /**
+     * Returns the hit status of the cell at the given index.
+     */
+    private HitStatus hitStatusAt(long cell) {
+        if (shots.get(cell) == CellMap.ABSENT) {
+            return HitStatus.NOT_ATTTACKED;
+        }
+        int ship = shipCells.get(cell);
+        if (ship == CellMap.ABSENT) {
+            return HitStatus.MISSED;
+        }
+        return shipRemainingHits[ship] == 0 ? HitStatus.DESTROYED : HitStatus.HIT;
+    }
+}
@@ -0,0 +1,262 @@
+package com.battleship.client;
+
+import static org.fusesource.jansi.Ansi.ansi;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+
+import org.fusesource.jansi.AnsiConsole;
+
+import com.battleship.events.SpectatorAttackEvent;
+import com.battleship.events.SpectatorBoardEvent;
+import com.battleship.events.WatchEvent;
+import com.battleship.protocol.ProtocolStream;
+
+/**
+ * The Spectator class watches a running match: the attacked cells of both
+ * boards and the ships each player has left, nothing the players do not know
+ * of each other. On an ANSI terminal both boards stay in place and only the
+ * attacked cells are drawn again; otherwise every attack is printed as a line
+ * and the boards, marking the cells with letters instead of colors, only when
+ * the whole state is received.
+ */
+public class Spectator {
+
+    private static final String ERR_UNKNOWN_OPTION = "Unknown option %s, expected --host=, --port= or --match=";
+    private static final String TITLE = "Board of player %d";
+    // symbols of the cells by hit status where colors are not available
+    private static final String[] MARKERS = { " ", "o", "x", "#" };
+
+    private String hostName = "localhost";
+    private int port = 8080;
+    private long matchId = WatchEvent.LATEST;
+
+    private final boolean ansi = JansiHelper.isAnsiTerminal();
+    private final ShipStorage.AttackHistory[] boards = new ShipStorage.AttackHistory[2];
+    private final BoardRenderer[] renderers = new BoardRenderer[2];
+    private final int[] shipsRemaining = new int[2];
+    // screen line of the status below both boards
+    private int statusLine;
+
+    /**
+     * Watches the match until it ends or the server stops broadcasting it.
+     *
+     * @throws IOException if the connection fails
+     */
+    public void run() throws IOException {
+        try (ProtocolStream stream = new ProtocolStream(new Socket(hostName, port))) {
+            stream.write(new WatchEvent(matchId));
+            boolean watching = false;
+            while (true) {
+                Object message;
+                try {
+                    message = stream.read();
+                } catch (EOFException e) {
+                    status(watching ? "The match is no longer broadcast." : "No such match is running.");
+                    return;
+                }
+                watching = true;
+                if (message instanceof SpectatorBoardEvent board) {
+                    show(board);
+                    if (board.winner() != SpectatorBoardEvent.RUNNING) {
+                        status(String.format("Player %d won!", board.winner() + 1));
+                        return;
+                    }
+                } else if (message instanceof SpectatorAttackEvent attack) {
+                    show(attack);
+                }
+            }
+        }
+    }
+
+    /**
+     * Shows the whole state of the match, after joining or skipping ahead.
+     *
+     * @param board the state of the match
+     */
+    private void show(SpectatorBoardEvent board) {
+        if (board.width() == 0) {
+            status("Waiting for the players to place their fleets.");
+            return;
+        }
+        if (boards[0] == null || boards[0].getWidth() != board.width() || boards[0].getHeight() != board.height()) {
+            layOut(board.width(), board.height());
+        }
+        for (int player = 0; player < 2; player++) {
+            for (int y = 0; y < board.height(); y++) {
+                for (int x = 0; x < board.width(); x++) {
+                    boards[player].setHitStatus(Coordinates.of(x, y), board.getHitStatus(player, x, y));
+                }
+            }
+            shipsRemaining[player] = board.shipsRemaining()[player];
+            draw(player);
+        }
+        status(String.format("Ships left of player 1: %d, of player 2: %d.", shipsRemaining[0],
+                shipsRemaining[1]));
+    }
+
+    /**
+     * Shows an attack on the board it hit.
+     *
+     * @param attack the attack
+     */
+    private void show(SpectatorAttackEvent attack) {
+        int defender = (attack.attacker() + 1) % 2;
+        shipsRemaining[defender] = attack.shipsRemaining();
+        if (boards[defender] != null && attack.coordinates().getX() < boards[defender].getWidth()
+                && attack.coordinates().getY() < boards[defender].getHeight()) {
+            boards[defender].setHitStatus(attack.coordinates(), attack.hitStatus());
+            if (ansi) {
+                draw(defender);
+            }
+        }
+        status(String.format("Player %d attacked %s: %s. Ships left of player %d: %d.", attack.attacker() + 1,
+                attack.coordinates(), attack.hitStatus(), defender + 1, attack.shipsRemaining()));
+    }
+
+    /**
+     * Creates both boards and, on an ANSI terminal, places them on the cleared
+     * screen with their titles above them.
+     *
+     * @param width  the board width
+     * @param height the board height
+     */
+    private void layOut(int width, int height) {
+        // title, column letters, separator, rows and legend
+        int boardLines = height + 4;
+        for (int player = 0; player < 2; player++) {
+            boards[player] = new ShipStorage(width, height).new AttackHistory();
+            renderers[player] = new BoardRenderer(ansi, player * boardLines + 2);
+        }
+        statusLine = 2 * boardLines + 1;
+        if (ansi) {
+            System.out.print("\u001B[H\u001B[2J");
+            for (int player = 0; player < 2; player++) {
+                System.out.print("\u001B[" + (player * boardLines + 1) + ";1H" + String.format(TITLE, player + 1));
+            }
+        }
+    }
+
+    /**
+     * Draws the changes of the board of a player.
+     *
+     * @param player the ID of the player
+     */
+    private void draw(int player) {
+        if (ansi) {
+            System.out.print(renderers[player].redraw(boards[player]));
+        } else {
+            System.out.println(String.format(TITLE, player + 1));
+            System.out.println(renderers[player].render(new MarkedBoard(boards[player])));
+        }
+    }
+
+    /**
+     * Shows a line of text below the boards, replacing the previous one on an
+     * ANSI terminal.
+     *
+     * @param text the text, may contain color markup
+     */
+    private void status(String text) {
+        if (ansi && statusLine > 0) {
+            System.out.print("\u001B[" + statusLine + ";1H\u001B[2K");
+        }
+        System.out.println(ansi().render(text));
+    }
+
+    /**
+     * Parses the command-line arguments.
+     *
+     * @param args the command-line arguments
+     * @return the configured spectator
+     */
+    static Spectator parse(String[] args) {
+        Spectator spectator = new Spectator();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException(String.format(ERR_UNKNOWN_OPTION, arg));
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "host":
+                    spectator.hostName = value;
+                    break;
+                case "port":
+                    spectator.port = Integer.parseInt(value);
+                    break;
+                case "match":
+                    spectator.matchId = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format(ERR_UNKNOWN_OPTION, arg));
+            }
+        }
+        return spectator;
+    }
+
+    /**
+     * The main method to watch a match. Accepts {@code --host=NAME},
+     * {@code --port=N} and {@code --match=ID}, the ID from the event log of the
+     * server; without it the most recently started match is watched.
+     *
+     * @param args the command-line arguments
+     * @throws IOException if the connection fails
+     */
+    public static void main(String[] args) throws IOException {
+        AnsiConsole.systemInstall();
+        parse(args).run();
+    }
+
+    /**
+     * A board showing the hit status of every cell as a letter, for consoles
+     * without colors.
+     */
+    private record MarkedBoard(ShipStorage.AttackHistory board) implements BoardView {
+
+        /**
+         * Retrieves the width of the board.
+         *
+         * @return The width of the board.
+         */
+        @Override
+        public int getWidth() {
+            return board.getWidth();
+        }
+
+        /**
+         * Retrieves the height of the board.
+         *
+         * @return The height of the board.
+         */
+        @Override
+        public int getHeight() {
+            return board.getHeight();
+        }
+
+        /**
+         * Retrieves the letter of the hit status of a cell.
+         *
+         * @param x The X-coordinate of the cell.
+         * @param y The Y-coordinate of the cell.
+         * @return The letter, " " for a cell not attacked yet.
+         */
+        @Override
+        public String getSymbol(int x, int y) {
+            return MARKERS[board.getHitStatus(x, y).ordinal()];
+        }
+
+        /**
+         * Retrieves the hit status of a cell.
+         *
+         * @param x The X-coordinate of the cell.
+         * @param y The Y-coordinate of the cell.
+         * @return The hit status of the cell.
+         */
+        @Override
+        public HitStatus getHitStatus(int x, int y) {
+            return board.getHitStatus(x, y);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.battleship.events;
+
+import java.io.Serializable;
+
+import com.battleship.client.Coordinates;
+
+/**
+ * Event class representing an attack on one cell. It carries the turn of the
+ * {@link RoundStartEvent} it answers, so the server can tell a late answer to
+ * a turn that already expired from an answer to the current turn.
+ */
+public record AttackEvent(int turn, Coordinates coordinates) implements Serializable {
+}
@@ -6,8 +6,9 @@ import com.battleship.client.BattleshipException;
 import com.battleship.client.HitStatus;
 
 /**
- * Event class representing the feedback from an attacker's attack.
+ * Event class representing the feedback from an attacker's attack, including
+ * the number of ships the defender has left.
  */
-public record AttackerFeedbackEvent(boolean attackSuccess, HitStatus hitStatus, BattleshipException exception)
-        implements Serializable {
+public record AttackerFeedbackEvent(boolean attackSuccess, HitStatus hitStatus, BattleshipException exception,
+        int shipsRemaining) implements Serializable {
 }
@@ -6,9 +6,11 @@ import com.battleship.client.Coordinates;
 import com.battleship.client.HitStatus;
 
 /**
- * Event class representing the feedback for the defender after being attacked.
+ * Event class representing the feedback for the defender after being attacked,
+ * including the number of ships the defender has left.
  */
-public record DefenderFeedbackEvent(Coordinates coordinates, HitStatus hitStatus) implements Serializable {
+public record DefenderFeedbackEvent(Coordinates coordinates, HitStatus hitStatus, int shipsRemaining)
+        implements Serializable {
 
     /**
      * Returns a string representation of the DefenderFeedbackEvent.
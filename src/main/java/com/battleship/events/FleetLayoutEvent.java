@@ -0,0 +1,44 @@
+package com.battleship.events;
+
+import java.io.Serializable;
+import java.util.List;
+
+import com.battleship.client.ShipStorage;
+
+/**
+ * Event class representing the placement of a fleet as the client sends it:
+ * the board size and the start and orientation of every ship, in the order of
+ * the fleet the server plays with. The server builds the board itself from its
+ * own ships, so a client cannot choose its ships, only where they go.
+ */
+public record FleetLayoutEvent(int width, int height, int[] x, int[] y, boolean[] vertical) implements Serializable {
+
+    /**
+     * Describes where the ships of a board were placed.
+     *
+     * @param shipStorage the board, ships added in the order of the fleet
+     * @return the layout of the board
+     */
+    public static FleetLayoutEvent of(ShipStorage shipStorage) {
+        List<ShipStorage.Placement> placements = shipStorage.getPlacements();
+        int[] x = new int[placements.size()];
+        int[] y = new int[placements.size()];
+        boolean[] vertical = new boolean[placements.size()];
+        for (int i = 0; i < placements.size(); i++) {
+            ShipStorage.Placement placement = placements.get(i);
+            x[i] = placement.start().getX();
+            y[i] = placement.start().getY();
+            vertical[i] = placement.vertical();
+        }
+        return new FleetLayoutEvent(shipStorage.getWidth(), shipStorage.getHeight(), x, y, vertical);
+    }
+
+    /**
+     * Retrieves the number of placed ships.
+     *
+     * @return the number of ships
+     */
+    public int size() {
+        return x.length;
+    }
+}
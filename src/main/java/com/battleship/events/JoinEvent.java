@@ -0,0 +1,35 @@
+package com.battleship.events;
+
+import java.io.Serializable;
+
+/**
+ * Event class representing a request to be matched with an opponent, sent by a
+ * client right after connecting.
+ */
+public record JoinEvent(int rating, int width, int height) implements Serializable {
+
+    /**
+     * Rating of players that do not send one.
+     */
+    public static final int DEFAULT_RATING = 1500;
+
+    /**
+     * Width of the board of players that do not ask for one.
+     */
+    public static final int DEFAULT_WIDTH = 10;
+
+    /**
+     * Height of the board of players that do not ask for one.
+     */
+    public static final int DEFAULT_HEIGHT = 10;
+
+    /**
+     * Returns a string representation of the JoinEvent.
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        return String.format("rating %d on a %dx%d board", rating, width, height);
+    }
+}
@@ -0,0 +1,11 @@
+package com.battleship.events;
+
+import java.io.Serializable;
+
+/**
+ * Event class representing the secret token of a player for the running
+ * match, sent by the server when the match starts. A client presents it in a
+ * {@link ResumeEvent} to continue the match after the connection was lost.
+ */
+public record MatchTokenEvent(long token) implements Serializable {
+}
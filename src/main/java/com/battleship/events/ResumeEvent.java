@@ -0,0 +1,20 @@
+package com.battleship.events;
+
+import java.io.Serializable;
+
+/**
+ * Event class representing the request of a reconnecting client to continue
+ * the match identified by its token, and the acknowledgement of the server.
+ * Both sides state how many messages of the match they have received, so the
+ * other side can send the missed ones again. The server acknowledges with
+ * {@link #RESTARTED} if the match was restored from a snapshot and restarts
+ * the current round.
+ */
+public record ResumeEvent(long token, long received) implements Serializable {
+
+    /**
+     * Acknowledgement of a match restarted from a snapshot; both sides count
+     * their messages from zero again.
+     */
+    public static final long RESTARTED = -1;
+}
@@ -3,9 +3,10 @@ package com.battleship.events;
 import java.io.Serializable;
 
 /**
- * Event class representing the start of a round.
+ * Event class representing the start of a round. The turn numbers the rounds
+ * of a match; an attack sent in this round carries it back to the server.
  */
-public record RoundStartEvent(GameStatus gameStatus, AttackStatus attackStatus) implements Serializable {
+public record RoundStartEvent(GameStatus gameStatus, AttackStatus attackStatus, int turn) implements Serializable {
 
     /**
      * Enum representing the game status.
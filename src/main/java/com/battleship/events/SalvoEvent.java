@@ -0,0 +1,13 @@
+package com.battleship.events;
+
+import java.io.Serializable;
+
+import com.battleship.client.Coordinates;
+
+/**
+ * Event class representing a salvo: several cells attacked at once in one
+ * turn. The server resolves the whole salvo or rejects it as a whole. Like an
+ * {@link AttackEvent} it carries the turn it answers.
+ */
+public record SalvoEvent(int turn, Coordinates[] targets) implements Serializable {
+}
@@ -0,0 +1,43 @@
+package com.battleship.events;
+
+import java.io.Serializable;
+
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+
+/**
+ * Event class representing the result of a salvo, sent to both players in
+ * place of one feedback per shot; ownSalvo tells the attacker. It carries the
+ * hit status of every target and the number of ships the defender has left.
+ */
+public record SalvoResultEvent(boolean ownSalvo, Coordinates[] targets, HitStatus[] hitStatuses, int shipsRemaining)
+        implements Serializable {
+
+    /**
+     * Checks whether any shot of the salvo hit a ship.
+     *
+     * @return true if at least one target was hit or destroyed
+     */
+    public boolean anyHit() {
+        for (HitStatus hitStatus : hitStatuses) {
+            if (hitStatus == HitStatus.HIT || hitStatus == HitStatus.DESTROYED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a string representation of the SalvoResultEvent.
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(ownSalvo ? "Result of your salvo:" : "The other player fired a salvo:");
+        for (int i = 0; i < targets.length; i++) {
+            text.append(i == 0 ? " " : ", ").append(targets[i]).append(' ').append(hitStatuses[i]);
+        }
+        return text.append('.').toString();
+    }
+}
@@ -0,0 +1,14 @@
+package com.battleship.events;
+
+import java.io.Serializable;
+
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+
+/**
+ * Event class representing an attack as seen by the spectators of a match:
+ * only what both players learn from it.
+ */
+public record SpectatorAttackEvent(int attacker, Coordinates coordinates, HitStatus hitStatus, int shipsRemaining)
+        implements Serializable {
+}
@@ -0,0 +1,33 @@
+package com.battleship.events;
+
+import java.io.Serializable;
+
+import com.battleship.client.HitStatus;
+
+/**
+ * Event class representing the state of a match as seen by its spectators:
+ * the attacked cells of both boards, the ships each player has left and the
+ * winner once the match is over. Sent when a spectator starts watching, when
+ * a slow spectator skips ahead, when the attack phase starts and when the
+ * match ends. The board size is 0x0 while the players place their fleets.
+ */
+public record SpectatorBoardEvent(int width, int height, int winner, int[] shipsRemaining, HitStatus[] cells)
+        implements Serializable {
+
+    /**
+     * Winner of a match that is not over yet.
+     */
+    public static final int RUNNING = -1;
+
+    /**
+     * Retrieves the hit status of a cell of the board of a player.
+     *
+     * @param player the ID of the player owning the board
+     * @param x      the x-coordinate of the cell
+     * @param y      the y-coordinate of the cell
+     * @return the hit status of the cell
+     */
+    public HitStatus getHitStatus(int player, int x, int y) {
+        return cells[(player * height + y) * width + x];
+    }
+}
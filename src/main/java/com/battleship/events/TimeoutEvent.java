@@ -0,0 +1,50 @@
+package com.battleship.events;
+
+import java.io.Serializable;
+
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+
+/**
+ * Event class representing a turn or placement the server resolved because the
+ * player did not answer in time. Both players receive it instead of the
+ * feedback of the expired turn; ownTurn tells the player who let it expire.
+ * A random shot carries its cell and result, the other policies null.
+ */
+public record TimeoutEvent(Policy policy, boolean ownTurn, Coordinates coordinates, HitStatus hitStatus,
+        int shipsRemaining) implements Serializable {
+
+    /**
+     * Enum representing how an expired turn is resolved. An expired placement is
+     * always forfeited.
+     */
+    public enum Policy {
+        // the other player attacks next
+        SKIP,
+        // the server attacks a random cell not attacked yet for the player
+        RANDOM_SHOT,
+        // the player loses the match
+        FORFEIT
+    }
+
+    /**
+     * Returns a string representation of the TimeoutEvent.
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        String whose = ownTurn ? "Your turn" : "The turn of the other player";
+        switch (policy) {
+            case SKIP:
+                return whose + " timed out and was skipped.";
+            case RANDOM_SHOT:
+                return String.format("%s timed out, cell %s was attacked at random. Result: %s.", whose, coordinates,
+                        hitStatus);
+            case FORFEIT:
+                return whose + " timed out and the match was forfeited.";
+            default:
+                return "";
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.battleship.events;
+
+import java.io.Serializable;
+
+/**
+ * Event class representing the request of a spectator to watch a running
+ * match, sent right after connecting instead of a join request.
+ */
+public record WatchEvent(long matchId) implements Serializable {
+
+    /**
+     * Match ID asking for the most recently started match.
+     */
+    public static final long LATEST = 0;
+}
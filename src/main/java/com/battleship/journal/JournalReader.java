@@ -0,0 +1,178 @@
+package com.battleship.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * The JournalReader class reads the records of a journal directory in the
+ * order they were appended. Like {@link com.battleship.protocol.Frame} it is a
+ * reused holder: {@link #next()} overwrites the fields of the previous record.
+ */
+public class JournalReader implements Closeable {
+
+    private final List<Path> segments;
+    private int nextSegment = 0;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+
+    private long matchId;
+    private byte type;
+    private int player;
+    private int x;
+    private int y;
+    private int value;
+    private int length;
+    private boolean flag;
+    private char symbol;
+
+    /**
+     * Opens a journal directory for reading.
+     *
+     * @param directory the journal directory
+     * @throws IOException if the directory cannot be listed
+     */
+    public JournalReader(Path directory) throws IOException {
+        this.segments = MatchJournal.segments(directory);
+    }
+
+    /**
+     * Advances to the next record.
+     *
+     * @return false if there are no more records
+     * @throws IOException if a segment cannot be read
+     */
+    public boolean next() throws IOException {
+        while (segment == null || segment.remaining() < MatchJournal.RECORD_LENGTH
+                || segment.get(segment.position() + 8) == 0) {
+            if (nextSegment == segments.size()) {
+                return false;
+            }
+            close();
+            channel = FileChannel.open(segments.get(nextSegment++), StandardOpenOption.READ);
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int position = segment.position();
+        matchId = segment.getLong(position);
+        type = segment.get(position + 8);
+        player = segment.get(position + 9) & 0xFF;
+        x = segment.getChar(position + 10);
+        y = segment.getChar(position + 12);
+        value = segment.get(position + 14) & 0xFF;
+        length = segment.get(position + 15) & 0xFF;
+        flag = segment.get(position + 16) != 0;
+        symbol = (char) (segment.get(position + 17) & 0xFF);
+        segment.position(position + MatchJournal.RECORD_LENGTH);
+        return true;
+    }
+
+    /**
+     * Closes the segment being read.
+     *
+     * @throws IOException if the segment cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Retrieves the ID of the match of the record.
+     *
+     * @return the match ID
+     */
+    public long getMatchId() {
+        return matchId;
+    }
+
+    /**
+     * Retrieves the type of the record, one of the record type constants of
+     * {@link MatchJournal}.
+     *
+     * @return the record type
+     */
+    public byte getType() {
+        return type;
+    }
+
+    /**
+     * Retrieves the placing player, the attacker or the winner.
+     *
+     * @return the ID of the player
+     */
+    public int getPlayer() {
+        return player;
+    }
+
+    /**
+     * Retrieves the x-coordinate, or the board width of a MATCH_START record.
+     *
+     * @return the x-coordinate
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Retrieves the y-coordinate, or the board height of a MATCH_START record.
+     *
+     * @return the y-coordinate
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Retrieves the ship ID of a PLACEMENT record or the hit status ordinal of an
+     * ATTACK record.
+     *
+     * @return the value
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * Retrieves the ship length of a PLACEMENT record.
+     *
+     * @return the ship length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Retrieves whether the ship of a PLACEMENT record is vertical.
+     *
+     * @return true if vertical
+     */
+    public boolean isVertical() {
+        return flag;
+    }
+
+    /**
+     * Retrieves whether an ATTACK record is a further shot of the salvo of the
+     * previous attack of its match.
+     *
+     * @return true if the attack continues a salvo
+     */
+    public boolean isSalvo() {
+        return flag;
+    }
+
+    /**
+     * Retrieves the ship symbol of a PLACEMENT record.
+     *
+     * @return the symbol
+     */
+    public char getSymbol() {
+        return symbol;
+    }
+}
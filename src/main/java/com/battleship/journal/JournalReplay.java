@@ -0,0 +1,234 @@
+package com.battleship.journal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.battleship.client.BattleshipException;
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.Ship;
+import com.battleship.client.ShipStorage;
+
+/**
+ * Replay tool that rebuilds the ship storages of every match of a journal by
+ * placing the recorded ships and repeating the recorded attacks. Every attack
+ * result is compared with the recorded one.
+ *
+ * Usage: {@code JournalReplay DIRECTORY [--boards]}.
+ */
+public class JournalReplay {
+
+    private static final HitStatus[] HIT_STATUSES = HitStatus.values();
+
+    /**
+     * The state of one match rebuilt from the journal.
+     */
+    public static class ReplayedMatch {
+        private final long matchId;
+        private final ShipStorage[] shipStorages = new ShipStorage[2];
+        private int attacks;
+        private int attackingPlayer = 0;
+        private boolean attackAgain = false;
+        private int winner = -1;
+        private int mismatches;
+
+        /**
+         * Constructs an empty replayed match.
+         *
+         * @param matchId the ID of the match
+         * @param width   the board width
+         * @param height  the board height
+         */
+        ReplayedMatch(long matchId, int width, int height) {
+            this.matchId = matchId;
+            for (int i = 0; i < 2; i++) {
+                shipStorages[i] = ShipStorage.create(width, height);
+            }
+        }
+
+        /**
+         * Places a recorded ship.
+         */
+        void place(JournalReader record) {
+            Ship ship = new Ship(record.getValue(), record.getLength(), String.valueOf(record.getSymbol()));
+            try {
+                shipStorages[record.getPlayer()].addShip(new Coordinates(record.getX(), record.getY()),
+                        record.isVertical(), ship);
+            } catch (BattleshipException e) {
+                mismatches++;
+            }
+        }
+
+        /**
+         * Repeats a recorded attack and updates whose turn it is. The attacker
+         * keeps the turn if any shot of its salvo hit.
+         */
+        void attack(JournalReader record) {
+            int defender = 1 - record.getPlayer();
+            HitStatus recorded = HIT_STATUSES[record.getValue()];
+            try {
+                HitStatus hitStatus = shipStorages[defender].attack(Coordinates.of(record.getX(), record.getY()));
+                if (hitStatus != recorded) {
+                    mismatches++;
+                }
+            } catch (BattleshipException e) {
+                mismatches++;
+            }
+            attacks++;
+            boolean hit = recorded == HitStatus.HIT || recorded == HitStatus.DESTROYED;
+            attackAgain = hit || record.isSalvo() && attackAgain;
+            attackingPlayer = attackAgain ? record.getPlayer() : defender;
+        }
+
+        /**
+         * Passes the turn of a skipped player to the other player.
+         */
+        void skip(JournalReader record) {
+            attackAgain = false;
+            attackingPlayer = 1 - record.getPlayer();
+        }
+
+        /**
+         * Retrieves the ID of the match.
+         *
+         * @return the match ID
+         */
+        public long getMatchId() {
+            return matchId;
+        }
+
+        /**
+         * Retrieves the rebuilt ship storage of a player.
+         *
+         * @param player the ID of the player
+         * @return the ship storage with all recorded attacks applied
+         */
+        public ShipStorage getShipStorage(int player) {
+            return shipStorages[player];
+        }
+
+        /**
+         * Retrieves the number of recorded attacks.
+         *
+         * @return the number of attacks
+         */
+        public int getAttacks() {
+            return attacks;
+        }
+
+        /**
+         * Retrieves the player whose turn it is after the last recorded attack.
+         *
+         * @return the ID of the attacking player
+         */
+        public int getAttackingPlayer() {
+            return attackingPlayer;
+        }
+
+        /**
+         * Retrieves whether the attacking player attacks again after a hit.
+         *
+         * @return true if the last attack, or any shot of the last salvo, hit
+         *         a ship
+         */
+        public boolean isAttackAgain() {
+            return attackAgain;
+        }
+
+        /**
+         * Retrieves the winner of the match.
+         *
+         * @return the ID of the winner, -1 if the match did not end
+         */
+        public int getWinner() {
+            return winner;
+        }
+
+        /**
+         * Retrieves the number of records that did not replay as recorded.
+         *
+         * @return the number of mismatches
+         */
+        public int getMismatches() {
+            return mismatches;
+        }
+    }
+
+    private JournalReplay() {
+    }
+
+    /**
+     * Replays every match of a journal directory.
+     *
+     * @param directory the journal directory
+     * @return the replayed matches by ID, in the order they started
+     * @throws IOException if the journal cannot be read
+     */
+    public static Map<Long, ReplayedMatch> replay(Path directory) throws IOException {
+        Map<Long, ReplayedMatch> matches = new LinkedHashMap<>();
+        try (JournalReader record = new JournalReader(directory)) {
+            while (record.next()) {
+                if (record.getType() == MatchJournal.MATCH_START) {
+                    matches.put(record.getMatchId(), new ReplayedMatch(record.getMatchId(), record.getX(),
+                            record.getY()));
+                    continue;
+                }
+                ReplayedMatch match = matches.get(record.getMatchId());
+                if (match == null) {
+                    // the start lies before the journal, for example in a deleted segment
+                    continue;
+                }
+                switch (record.getType()) {
+                    case MatchJournal.PLACEMENT:
+                        match.place(record);
+                        break;
+                    case MatchJournal.ATTACK:
+                        match.attack(record);
+                        break;
+                    case MatchJournal.SKIP:
+                        match.skip(record);
+                        break;
+                    case MatchJournal.MATCH_END:
+                        match.winner = record.getPlayer();
+                        break;
+                    default:
+                        match.mismatches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * The main method of the replay tool.
+     *
+     * @param args the journal directory, optionally followed by
+     *             {@code --boards} to print the final boards
+     * @throws IOException if the journal cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: JournalReplay DIRECTORY [--boards]");
+            return;
+        }
+        boolean boards = args.length > 1 && args[1].equals("--boards");
+        Map<Long, ReplayedMatch> matches = replay(Path.of(args[0]));
+        long attacks = 0;
+        long mismatches = 0;
+        for (ReplayedMatch match : matches.values()) {
+            System.out.printf("match %d: %d attacks, %s, %d mismatches%n", match.getMatchId(), match.getAttacks(),
+                    match.getWinner() < 0 ? "not ended" : "won by player " + match.getWinner(),
+                    match.getMismatches());
+            if (boards) {
+                for (int player = 0; player < 2; player++) {
+                    System.out.println(match.getShipStorage(player));
+                }
+            }
+            attacks += match.getAttacks();
+            mismatches += match.getMismatches();
+        }
+        System.out.printf("%d matches, %d attacks, %d mismatches%n", matches.size(), attacks, mismatches);
+    }
+}
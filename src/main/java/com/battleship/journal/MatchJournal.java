@@ -0,0 +1,295 @@
+package com.battleship.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The MatchJournal class appends the events of all matches to fixed-size
+ * binary records in a directory of memory-mapped segment files.
+ *
+ * Appending a record is a short synchronized copy into the mapped segment, no
+ * system call is made on the path of a turn. A background thread forces dirty
+ * segments to disk every {@link #FLUSH_INTERVAL_MILLIS} milliseconds, so a
+ * crash loses at most that much of the journal. When a segment is full the
+ * next one is mapped; a reopened journal continues after the last record of
+ * the last segment.
+ *
+ * Every record is {@link #RECORD_LENGTH} bytes, all numbers big-endian:
+ *
+ * <pre>
+ *  0  match id            8 bytes
+ *  8  record type         1 byte, 0 marks the unwritten end of a segment
+ *  9  player              1 byte, the placing player, attacker, skipped player or winner
+ * 10  x                   2 bytes, board width for MATCH_START
+ * 12  y                   2 bytes, board height for MATCH_START
+ * 14  ship id / hit status ordinal
+ * 15  ship length
+ * 16  vertical flag / salvo flag, set on every shot of a salvo but the first
+ * 17  ship symbol
+ * 18  reserved            6 bytes
+ * </pre>
+ */
+public class MatchJournal implements Closeable {
+
+    /**
+     * Size of one record in bytes.
+     */
+    public static final int RECORD_LENGTH = 24;
+
+    /**
+     * Interval of the background fsync.
+     */
+    public static final long FLUSH_INTERVAL_MILLIS = 50;
+
+    // record types
+    static final byte MATCH_START = 1;
+    static final byte PLACEMENT = 2;
+    static final byte ATTACK = 3;
+    static final byte MATCH_END = 4;
+    static final byte SKIP = 5;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".bin";
+    private static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+
+    private final Path directory;
+    private final int segmentLength;
+    private int segmentNumber;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long nextMatchId;
+    private volatile boolean dirty;
+    private volatile boolean closed;
+    private final Thread flusher;
+
+    /**
+     * Opens the journal in a directory with segments of about 24 MiB.
+     *
+     * @param directory the directory of the segment files, created if missing
+     * @throws IOException if the directory or a segment cannot be opened
+     */
+    public MatchJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    /**
+     * Opens the journal in a directory.
+     *
+     * @param directory      the directory of the segment files, created if
+     *                       missing
+     * @param segmentRecords the number of records per segment file
+     * @throws IOException if the directory or a segment cannot be opened
+     */
+    public MatchJournal(Path directory, int segmentRecords) throws IOException {
+        this.directory = directory;
+        this.segmentLength = segmentRecords * RECORD_LENGTH;
+        Files.createDirectories(directory);
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            map(0);
+        } else {
+            // continue after the last record of the last segment
+            Path last = segments.get(segments.size() - 1);
+            map(segmentNumber(last));
+            while (segment.remaining() >= RECORD_LENGTH && segment.get(segment.position() + 8) != 0) {
+                nextMatchId = Math.max(nextMatchId, segment.getLong(segment.position()) + 1);
+                segment.position(segment.position() + RECORD_LENGTH);
+            }
+        }
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Starts a new match in the journal.
+     *
+     * @param width  the board width
+     * @param height the board height
+     * @return the ID of the match, used for all its records
+     */
+    public synchronized long startMatch(int width, int height) {
+        long matchId = nextMatchId++;
+        append(matchId, MATCH_START, 0, width, height, 0, 0, false, 0);
+        return matchId;
+    }
+
+    /**
+     * Records the placement of one ship.
+     *
+     * @param matchId  the ID of the match
+     * @param player   the ID of the player
+     * @param x        the x-coordinate of the start of the ship
+     * @param y        the y-coordinate of the start of the ship
+     * @param vertical whether the ship is placed vertically
+     * @param shipId   the ID of the ship
+     * @param length   the length of the ship
+     * @param symbol   the symbol of the ship
+     */
+    public synchronized void recordPlacement(long matchId, int player, int x, int y, boolean vertical, int shipId,
+            int length, char symbol) {
+        append(matchId, PLACEMENT, player, x, y, shipId, length, vertical, symbol);
+    }
+
+    /**
+     * Records the outcome of a legal attack. The shots of a salvo are recorded
+     * one after the other, all but the first marked as continuing it.
+     *
+     * @param matchId   the ID of the match
+     * @param attacker  the ID of the attacking player
+     * @param x         the x-coordinate of the attacked cell
+     * @param y         the y-coordinate of the attacked cell
+     * @param hitStatus the ordinal of the resulting HitStatus
+     * @param salvo     whether the attack is a further shot of the salvo of the
+     *                  previous attack of the match
+     */
+    public synchronized void recordAttack(long matchId, int attacker, int x, int y, int hitStatus, boolean salvo) {
+        append(matchId, ATTACK, attacker, x, y, hitStatus, 0, salvo, 0);
+    }
+
+    /**
+     * Records a turn skipped because the attacker did not answer in time.
+     *
+     * @param matchId the ID of the match
+     * @param player  the ID of the skipped player
+     */
+    public synchronized void recordSkip(long matchId, int player) {
+        append(matchId, SKIP, player, 0, 0, 0, 0, false, 0);
+    }
+
+    /**
+     * Records the end of a match.
+     *
+     * @param matchId the ID of the match
+     * @param winner  the ID of the winning player
+     */
+    public synchronized void endMatch(long matchId, int winner) {
+        append(matchId, MATCH_END, winner, 0, 0, 0, 0, false, 0);
+    }
+
+    /**
+     * Forces all appended records to disk.
+     *
+     * @throws IOException if the segment cannot be forced
+     */
+    public void flush() throws IOException {
+        MappedByteBuffer current;
+        synchronized (this) {
+            current = segment;
+            dirty = false;
+        }
+        current.force();
+    }
+
+    /**
+     * Forces all records to disk and stops the background flusher.
+     *
+     * @throws IOException if the segment cannot be forced or closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        flusher.interrupt();
+        synchronized (this) {
+            segment.force();
+            channel.close();
+        }
+    }
+
+    /**
+     * Lists the segment files of a journal directory in order.
+     *
+     * @param directory the journal directory
+     * @return the segment files
+     * @throws IOException if the directory cannot be listed
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    /**
+     * Writes one record at the position of the current segment. Must be called
+     * holding the lock.
+     */
+    private void append(long matchId, byte type, int player, int x, int y, int a, int length, boolean flag,
+            int symbol) {
+        if (segment.remaining() < RECORD_LENGTH) {
+            roll();
+        }
+        int position = segment.position();
+        segment.putLong(position, matchId);
+        segment.put(position + 9, (byte) player);
+        segment.putChar(position + 10, (char) x);
+        segment.putChar(position + 12, (char) y);
+        segment.put(position + 14, (byte) a);
+        segment.put(position + 15, (byte) length);
+        segment.put(position + 16, (byte) (flag ? 1 : 0));
+        segment.put(position + 17, (byte) symbol);
+        // the type last, a record with a type is complete
+        segment.put(position + 8, type);
+        segment.position(position + RECORD_LENGTH);
+        dirty = true;
+    }
+
+    /**
+     * Forces the full segment and maps the next one.
+     */
+    private void roll() {
+        try {
+            segment.force();
+            channel.close();
+            map(segmentNumber + 1);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open the next journal segment", e);
+        }
+    }
+
+    /**
+     * Maps the segment file with the given number.
+     */
+    private void map(int number) throws IOException {
+        segmentNumber = number;
+        Path path = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentLength);
+    }
+
+    /**
+     * Parses the number of a segment file.
+     */
+    private static int segmentNumber(Path segmentPath) {
+        String name = segmentPath.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Forces the journal to disk whenever records were appended.
+     */
+    private void flushLoop() {
+        while (!closed) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(FLUSH_INTERVAL_MILLIS);
+                if (dirty) {
+                    flush();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.battleship.logging;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The EventLog class writes structured events as logfmt lines, for example
+ * {@code 2026-10-18T09:15:02.118Z match=12 player=1 event=attacked latency_ns=57343}.
+ *
+ * Publishing threads claim a slot of a preallocated ring buffer with one
+ * compare-and-set, fill in the primitive fields of the event and mark the slot
+ * as published. A single background thread drains the buffer, formats a batch
+ * of lines and writes it with one call. Publishing therefore never blocks on
+ * I/O and allocates nothing; if the writer falls behind by a full buffer, new
+ * events are dropped and counted instead of waiting.
+ */
+public class EventLog implements Closeable {
+
+    /**
+     * Marks an event without match, player or value.
+     */
+    public static final long NONE = -1;
+
+    /**
+     * The kinds of events, each naming the meaning of its value.
+     */
+    public enum Action {
+        // value: the remote port of the client
+        CONNECTED("port"),
+        // the first message was neither a join request, a placement nor a resume request
+        UNEXPECTED_MESSAGE(null),
+        // a resume request with a token of no running or recovered match
+        UNKNOWN_TOKEN(null),
+        // value: the number of players still waiting in the lobby
+        MATCH_STARTED("waiting"),
+        // value: the ID of the match in the snapshot store
+        MATCH_RESUMED("snapshot"),
+        PLACED(null),
+        // value: the time from receiving the attack to sending its first answer
+        ATTACKED("latency_ns"),
+        // value: the grace period the player has to reconnect
+        CONNECTION_LOST("grace_ms"),
+        // value: the number of messages sent again
+        RECONNECTED("replayed"),
+        // the missed messages of a reconnecting player were no longer buffered
+        RESUME_FAILED(null),
+        // the player left the match before it was decided
+        DISCONNECTED(null),
+        // the player sent a malformed or unexpected message
+        PROTOCOL_ERROR(null),
+        // value: the ordinal of the policy resolving the expired turn or placement
+        TIMED_OUT("policy"),
+        // player: the winner
+        MATCH_ENDED(null),
+        // a watch request for a match that is not running
+        UNKNOWN_MATCH(null),
+        SPECTATOR_JOINED(null),
+        // value: how often the spectator fell behind and skipped to the latest board
+        SPECTATOR_LEFT("skipped"),
+        // value: the number of events dropped because the buffer was full
+        DROPPED("count");
+
+        private final byte[] prefix;
+        private final byte[] valuePrefix;
+
+        Action(String valueName) {
+            this.prefix = ascii("event=" + name().toLowerCase());
+            this.valuePrefix = valueName == null ? null : ascii(" " + valueName + "=");
+        }
+    }
+
+    private static final Action[] ACTIONS = Action.values();
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int BATCH_BYTES = 64 * 1024;
+    // longest line: timestamp, three longs with their keys and the event
+    private static final int MAX_LINE_BYTES = 160;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static EventLog standardOutput;
+
+    private final WritableByteChannel out;
+    private final int mask;
+    private final long[] times;
+    private final long[] matchIds;
+    private final long[] players;
+    private final long[] values;
+    private final byte[] actions;
+    // sequence of the event in each slot, set last to publish it
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    // all events below this sequence are formatted, their slots are free
+    private volatile long consumed = 0;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    // writer state
+    private final ByteBuffer batch = ByteBuffer.allocate(BATCH_BYTES);
+    private long cachedSecond = Long.MIN_VALUE;
+    private final byte[] secondPrefix = new byte[20];
+    private long reportedDrops = 0;
+
+    /**
+     * Starts an event log writing to a channel.
+     *
+     * @param out      the destination of the lines
+     * @param capacity the number of events the buffer holds, rounded up to a
+     *                 power of two
+     */
+    public EventLog(WritableByteChannel out, int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.out = out;
+        this.mask = size - 1;
+        this.times = new long[size];
+        this.matchIds = new long[size];
+        this.players = new long[size];
+        this.values = new long[size];
+        this.actions = new byte[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.writer = new Thread(this::writeLoop, "event-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Starts an event log appending to a file.
+     *
+     * @param file the log file, created if missing
+     * @return the event log
+     * @throws IOException if the file cannot be opened
+     */
+    public static EventLog toFile(Path file) throws IOException {
+        return new EventLog(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Retrieves the event log writing to the standard output, started on first
+     * use.
+     *
+     * @return the shared event log
+     */
+    public static synchronized EventLog standardOutput() {
+        if (standardOutput == null) {
+            standardOutput = new EventLog(Channels.newChannel(new FileOutputStream(FileDescriptor.out)),
+                    DEFAULT_CAPACITY);
+        }
+        return standardOutput;
+    }
+
+    /**
+     * Publishes an event. Never blocks and allocates nothing.
+     *
+     * @param matchId the ID of the match, {@link #NONE} for none
+     * @param player  the ID of the player, {@link #NONE} for none
+     * @param action  what happened
+     * @param value   the value named by the action, ignored if it names none
+     */
+    public void publish(long matchId, long player, Action action, long value) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= times.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        int slot = (int) sequence & mask;
+        times[slot] = System.currentTimeMillis();
+        matchIds[slot] = matchId;
+        players[slot] = player;
+        actions[slot] = (byte) action.ordinal();
+        values[slot] = value;
+        published.set(slot, sequence);
+    }
+
+    /**
+     * Retrieves the number of events dropped because the buffer was full.
+     *
+     * @return the number of dropped events
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Writes all published events and stops the writer. Closes the channel
+     * unless it is the standard output.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+            if (this != standardOutput) {
+                out.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Drains the buffer until the log is closed.
+     */
+    private void writeLoop() {
+        long next = 0;
+        while (true) {
+            boolean stopping = closed;
+            long start = next;
+            while (published.get((int) next & mask) == next) {
+                if (batch.remaining() < MAX_LINE_BYTES) {
+                    flush();
+                }
+                format((int) next & mask);
+                next++;
+            }
+            consumed = next;
+            reportDrops();
+            flush();
+            if (next == start) {
+                if (stopping) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Writes a line about dropped events since the last report.
+     */
+    private void reportDrops() {
+        long drops = dropped.sum();
+        if (drops != reportedDrops) {
+            if (batch.remaining() < MAX_LINE_BYTES) {
+                flush();
+            }
+            formatLine(System.currentTimeMillis(), NONE, NONE, Action.DROPPED, drops - reportedDrops);
+            reportedDrops = drops;
+        }
+    }
+
+    /**
+     * Formats the event of a slot into the batch.
+     */
+    private void format(int slot) {
+        formatLine(times[slot], matchIds[slot], players[slot], ACTIONS[actions[slot]], values[slot]);
+    }
+
+    /**
+     * Formats one line into the batch.
+     */
+    private void formatLine(long time, long matchId, long player, Action action, long value) {
+        long second = Math.floorDiv(time, 1000);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            byte[] text = ascii(LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC).toString());
+            // LocalDateTime omits zero seconds
+            System.arraycopy(text, 0, secondPrefix, 0, Math.min(text.length, 19));
+            if (text.length == 16) {
+                secondPrefix[16] = ':';
+                secondPrefix[17] = '0';
+                secondPrefix[18] = '0';
+            }
+            secondPrefix[19] = '.';
+        }
+        batch.put(secondPrefix);
+        long millis = Math.floorMod(time, 1000);
+        batch.put((byte) ('0' + millis / 100)).put((byte) ('0' + millis / 10 % 10)).put((byte) ('0' + millis % 10));
+        batch.put((byte) 'Z');
+        if (matchId != NONE) {
+            putAscii(" match=");
+            putLong(matchId);
+        }
+        if (player != NONE) {
+            putAscii(" player=");
+            putLong(player);
+        }
+        batch.put((byte) ' ').put(action.prefix);
+        if (action.valuePrefix != null) {
+            batch.put(action.valuePrefix);
+            putLong(value);
+        }
+        batch.put((byte) '\n');
+    }
+
+    /**
+     * Writes the batch to the channel.
+     */
+    private void flush() {
+        batch.flip();
+        try {
+            while (batch.hasRemaining()) {
+                out.write(batch);
+            }
+        } catch (IOException e) {
+            // the log is best effort, the lines are lost
+        }
+        batch.clear();
+    }
+
+    /**
+     * Appends an ASCII string to the batch.
+     */
+    private void putAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            batch.put((byte) text.charAt(i));
+        }
+    }
+
+    /**
+     * Appends the decimal digits of a number to the batch.
+     */
+    private void putLong(long value) {
+        if (value < 0) {
+            batch.put((byte) '-');
+            if (value == Long.MIN_VALUE) {
+                putAscii("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        int start = batch.position();
+        do {
+            batch.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while (value != 0);
+        // digits were appended in reverse
+        for (int i = start, j = batch.position() - 1; i < j; i++, j--) {
+            byte digit = batch.get(i);
+            batch.put(i, batch.get(j));
+            batch.put(j, digit);
+        }
+    }
+
+    /**
+     * Encodes an ASCII string.
+     */
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,150 @@
+package com.battleship.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram class records durations into log-linear buckets, in the
+ * manner of an HDR histogram: every power of two is split into 16 linear
+ * sub-buckets, so any recorded value is reported with an error below 6.25%.
+ * Recording is lock-free and does not allocate, it may be called from any
+ * number of threads.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos the duration in nanoseconds, negative values count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        max.accumulate(value);
+        sum.add(value);
+    }
+
+    /**
+     * Retrieves the number of recorded values.
+     *
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Retrieves the sum of all recorded values.
+     *
+     * @return the sum, in the unit of the recorded values
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Retrieves the largest recorded value.
+     *
+     * @return the maximum in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Computes a percentile of the recorded values.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the upper bound of the bucket holding the percentile in
+     *         nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Adds all values recorded by another histogram to this one.
+     *
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        max.accumulate(other.getMax());
+        sum.add(other.getSum());
+    }
+
+    /**
+     * Returns a one-line summary with count, p50, p99, p99.9 and max in
+     * milliseconds.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return String.format("count=%d p50=%.3fms p99=%.3fms p999=%.3fms max=%.3fms", getCount(),
+                millis(getPercentile(50)), millis(getPercentile(99)), millis(getPercentile(99.9)), millis(getMax()));
+    }
+
+    /**
+     * Converts nanoseconds to fractional milliseconds.
+     */
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Returns the bucket of a non-negative value.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) | subBucket;
+    }
+
+    /**
+     * Returns the largest value falling into a bucket.
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket & (SUB_BUCKETS - 1);
+        long lowerBound = (SUB_BUCKETS | subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,63 @@
+package com.battleship.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The MetricsEndpoint class serves a {@link MetricsRegistry} in the Prometheus
+ * text format at {@code /metrics}. It listens on the loopback interface only,
+ * scrapes from other hosts go through a local agent or proxy.
+ */
+public class MetricsEndpoint {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+
+    /**
+     * Starts serving the registry on a single background thread.
+     *
+     * @param registry the metrics to serve
+     * @param port     the local port, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public MetricsEndpoint(MetricsRegistry registry, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> serve(exchange, registry));
+        server.start();
+    }
+
+    /**
+     * Retrieves the port the endpoint listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops serving.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * Answers one scrape.
+     */
+    private static void serve(HttpExchange exchange, MetricsRegistry registry) throws IOException {
+        byte[] body = registry.toPrometheus().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.battleship.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * The MetricsMBean class exposes a {@link MetricsRegistry} over JMX. Every
+ * counter and gauge is a read-only attribute named like the series, every
+ * histogram contributes its count and its p50, p99 and maximum in the unit of
+ * the metric. The attributes are read from the registry on every access.
+ */
+public class MetricsMBean implements DynamicMBean {
+
+    private final MetricsRegistry registry;
+
+    /**
+     * Constructs an MBean over a registry.
+     *
+     * @param registry the metrics to expose
+     */
+    public MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Registers an MBean over a registry with the platform MBean server.
+     *
+     * @param registry   the metrics to expose
+     * @param objectName the JMX name, for example
+     *                   {@code com.battleship:type=Server}
+     * @throws JMException if the name is invalid or already registered
+     */
+    public static void register(MetricsRegistry registry, String objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(registry),
+                new ObjectName(objectName));
+    }
+
+    /**
+     * Reads one attribute.
+     *
+     * @param name the name of the attribute
+     * @return the current value
+     * @throws AttributeNotFoundException if there is no such attribute
+     */
+    @Override
+    public Object getAttribute(String name) throws AttributeNotFoundException {
+        Supplier<Object> value = attributes().get(name);
+        if (value == null) {
+            throw new AttributeNotFoundException(name);
+        }
+        return value.get();
+    }
+
+    /**
+     * Rejects writes, all attributes are read-only.
+     *
+     * @param attribute the attribute to write
+     * @throws AttributeNotFoundException always
+     */
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Read-only attribute " + attribute.getName());
+    }
+
+    /**
+     * Reads several attributes, skipping unknown names.
+     *
+     * @param names the names of the attributes
+     * @return the found attributes
+     */
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        Map<String, Supplier<Object>> attributes = attributes();
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            Supplier<Object> value = attributes.get(name);
+            if (value != null) {
+                list.add(new Attribute(name, value.get()));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Rejects writes, all attributes are read-only.
+     *
+     * @param attributes the attributes to write
+     * @return an empty list, nothing was written
+     */
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    /**
+     * Rejects operations, the MBean has none.
+     *
+     * @param actionName the name of the operation
+     * @param params     the arguments
+     * @param signature  the argument types
+     * @return never
+     * @throws ReflectionException always
+     */
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    /**
+     * Describes the attributes of all metrics registered so far.
+     *
+     * @return the MBean description
+     */
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> infos = new ArrayList<>();
+        for (MetricsRegistry.Metric metric : registry.getMetrics()) {
+            if (metric.type() != MetricsRegistry.Type.SUMMARY) {
+                infos.add(new MBeanAttributeInfo(metric.name(), "long", metric.help(), true, false, false));
+                continue;
+            }
+            infos.add(new MBeanAttributeInfo(metric.name() + ".count", "long", metric.help(), true, false, false));
+            for (String statistic : new String[] { ".p50", ".p99", ".max" }) {
+                infos.add(new MBeanAttributeInfo(metric.name() + statistic, "double", metric.help(), true, false,
+                        false));
+            }
+        }
+        return new MBeanInfo(getClass().getName(), "Metrics registry", infos.toArray(new MBeanAttributeInfo[0]),
+                null, null, null);
+    }
+
+    /**
+     * Maps every attribute name to a reader of its current value.
+     */
+    private Map<String, Supplier<Object>> attributes() {
+        Map<String, Supplier<Object>> attributes = new LinkedHashMap<>();
+        for (MetricsRegistry.Metric metric : registry.getMetrics()) {
+            if (metric.type() != MetricsRegistry.Type.SUMMARY) {
+                attributes.put(metric.name(), () -> metric.value().getAsLong());
+                continue;
+            }
+            LatencyHistogram histogram = metric.histogram();
+            attributes.put(metric.name() + ".count", histogram::getCount);
+            attributes.put(metric.name() + ".p50", () -> histogram.getPercentile(50) * metric.scale());
+            attributes.put(metric.name() + ".p99", () -> histogram.getPercentile(99) * metric.scale());
+            attributes.put(metric.name() + ".max", () -> histogram.getMax() * metric.scale());
+        }
+        return attributes;
+    }
+}
@@ -0,0 +1,179 @@
+package com.battleship.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The MetricsRegistry class holds the counters, gauges and histograms of a
+ * process and renders them in the Prometheus text format.
+ *
+ * Registration hands out the recording objects themselves, a {@link LongAdder}
+ * or a {@link LatencyHistogram}, so hot paths record through a field without
+ * any lookup or allocation. Names may carry Prometheus labels, for example
+ * {@code disconnects_total{cause="protocol_error"}}; series of the same name
+ * are rendered as one metric family and should be registered one after
+ * another.
+ */
+public class MetricsRegistry {
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    /**
+     * The kind of a metric, named as in the Prometheus text format.
+     */
+    public enum Type {
+        COUNTER, GAUGE, SUMMARY;
+
+        /**
+         * Returns the name of the type in the Prometheus text format.
+         *
+         * @return the lower case name
+         */
+        @Override
+        public String toString() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * A registered series.
+     *
+     * @param name      the name, including labels
+     * @param help      the description
+     * @param type      the kind of metric
+     * @param value     the current value of a counter or gauge
+     * @param histogram the values of a summary
+     * @param scale     the factor converting recorded histogram values into
+     *                  the unit of the metric
+     */
+    public record Metric(String name, String help, Type type, LongSupplier value, LatencyHistogram histogram,
+            double scale) {
+
+        /**
+         * Retrieves the name without labels.
+         *
+         * @return the family name
+         */
+        public String family() {
+            int labels = name.indexOf('{');
+            return labels < 0 ? name : name.substring(0, labels);
+        }
+
+        /**
+         * Retrieves the labels, without braces.
+         *
+         * @return the labels, empty if there are none
+         */
+        public String labels() {
+            int labels = name.indexOf('{');
+            return labels < 0 ? "" : name.substring(labels + 1, name.length() - 1);
+        }
+    }
+
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers a counter.
+     *
+     * @param name the name, by convention ending in {@code _total}
+     * @param help the description
+     * @return the counter to increment
+     */
+    public LongAdder counter(String name, String help) {
+        LongAdder counter = new LongAdder();
+        metrics.add(new Metric(name, help, Type.COUNTER, counter::sum, null, 1));
+        return counter;
+    }
+
+    /**
+     * Registers a gauge whose value is read on demand.
+     *
+     * @param name  the name
+     * @param help  the description
+     * @param value supplies the current value, called from the reading thread
+     */
+    public void gauge(String name, String help, LongSupplier value) {
+        metrics.add(new Metric(name, help, Type.GAUGE, value, null, 1));
+    }
+
+    /**
+     * Registers a histogram, rendered as a summary with quantiles.
+     *
+     * @param name  the name, by convention ending in the unit
+     * @param help  the description
+     * @param scale the factor converting recorded values into the unit, for
+     *              example {@code 1e-9} for nanoseconds recorded as seconds
+     * @return the histogram to record into
+     */
+    public LatencyHistogram histogram(String name, String help, double scale) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram(name, help, scale, histogram);
+        return histogram;
+    }
+
+    /**
+     * Registers a histogram recorded elsewhere, rendered as a summary with
+     * quantiles.
+     *
+     * @param name      the name, by convention ending in the unit
+     * @param help      the description
+     * @param scale     the factor converting recorded values into the unit
+     * @param histogram the histogram
+     */
+    public void histogram(String name, String help, double scale, LatencyHistogram histogram) {
+        metrics.add(new Metric(name, help, Type.SUMMARY, histogram::getCount, histogram, scale));
+    }
+
+    /**
+     * Retrieves all registered series in the order they were registered.
+     *
+     * @return a snapshot of the series
+     */
+    public List<Metric> getMetrics() {
+        return new ArrayList<>(metrics);
+    }
+
+    /**
+     * Renders all series in the Prometheus text exposition format.
+     *
+     * @return the text
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder(4096);
+        String family = null;
+        for (Metric metric : metrics) {
+            if (!metric.family().equals(family)) {
+                family = metric.family();
+                text.append("# HELP ").append(family).append(' ').append(metric.help()).append('\n');
+                text.append("# TYPE ").append(family).append(' ').append(metric.type()).append('\n');
+            }
+            if (metric.type() != Type.SUMMARY) {
+                text.append(metric.name()).append(' ').append(metric.value().getAsLong()).append('\n');
+                continue;
+            }
+            LatencyHistogram histogram = metric.histogram();
+            for (double quantile : QUANTILES) {
+                text.append(family).append('{');
+                if (!metric.labels().isEmpty()) {
+                    text.append(metric.labels()).append(',');
+                }
+                text.append("quantile=\"").append(quantile).append("\"} ")
+                        .append(histogram.getPercentile(quantile * 100) * metric.scale()).append('\n');
+            }
+            text.append(series(metric, "_sum")).append(' ').append(histogram.getSum() * metric.scale()).append('\n');
+            text.append(series(metric, "_count")).append(' ').append(histogram.getCount()).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns the name of a derived series of a summary, keeping the labels.
+     */
+    private static String series(Metric metric, String suffix) {
+        String labels = metric.labels();
+        return metric.family() + suffix + (labels.isEmpty() ? "" : "{" + labels + "}");
+    }
+}
@@ -0,0 +1,429 @@
+package com.battleship.protocol;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.battleship.client.BattleshipException;
+import com.battleship.client.ClientDisconnectException;
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.Ship;
+import com.battleship.client.ShipStorage;
+import com.battleship.events.AttackEvent;
+import com.battleship.events.AttackerFeedbackEvent;
+import com.battleship.events.DefenderFeedbackEvent;
+import com.battleship.events.FleetLayoutEvent;
+import com.battleship.events.JoinEvent;
+import com.battleship.events.MatchTokenEvent;
+import com.battleship.events.ResumeEvent;
+import com.battleship.events.RoundStartEvent;
+import com.battleship.events.RoundStartEvent.AttackStatus;
+import com.battleship.events.RoundStartEvent.GameStatus;
+import com.battleship.events.SalvoEvent;
+import com.battleship.events.SalvoResultEvent;
+import com.battleship.events.SpectatorAttackEvent;
+import com.battleship.events.SpectatorBoardEvent;
+import com.battleship.events.TimeoutEvent;
+import com.battleship.events.WatchEvent;
+
+/**
+ * The Frame class is a reusable holder for one decoded frame. Decoding only
+ * overwrites primitive fields, so a connection can decode every frame into the
+ * same instance without allocating. {@link #toMessage()} turns the frame into
+ * the event objects used by the game logic.
+ */
+public class Frame {
+
+    private FrameType type;
+    // the turn of a round start, or the turn an attack or salvo answers
+    private int turn;
+    private int x;
+    private int y;
+    private GameStatus gameStatus;
+    private AttackStatus attackStatus;
+    private HitStatus hitStatus;
+    private boolean attackSuccess;
+    private int rejectReason;
+    private int shipsRemaining;
+    private int disconnectId;
+    private int rating;
+    private long token;
+    private long received;
+    private int attacker;
+    private int winner;
+    private final int[] boardShipsRemaining = new int[2];
+    private long matchId;
+    private TimeoutEvent.Policy policy;
+    private boolean ownTurn;
+
+    // board size of a placement or join
+    private int width;
+    private int height;
+    // placement, parallel arrays grown on demand
+    private int shipCount;
+    private int[] shipIds = new int[16];
+    private int[] shipLengths = new int[16];
+    private int[] shipX = new int[16];
+    private int[] shipY = new int[16];
+    private boolean[] shipVertical = new boolean[16];
+    private char[] shipSymbols = new char[16];
+    // salvo and its result, parallel arrays grown on demand
+    private int shotCount;
+    private int[] shotX = new int[16];
+    private int[] shotY = new int[16];
+    private HitStatus[] shotHitStatuses = new HitStatus[16];
+    // spectator board, both boards one after the other, grown on demand
+    private HitStatus[] cells = new HitStatus[200];
+
+    /**
+     * Decodes one complete frame starting at the buffer position and advances the
+     * position past it. Use {@link ProtocolCodec#requiredLength(ByteBuffer)} to
+     * check that the frame is complete.
+     *
+     * @param buffer the buffer holding the frame
+     * @throws ProtocolException if the frame is malformed
+     */
+    public void decode(ByteBuffer buffer) throws ProtocolException {
+        ProtocolCodec.requiredLength(buffer);
+        buffer.get(); // version, checked above
+        type = FrameType.fromId(buffer.get() & 0xFF);
+        switch (type) {
+            case COORDINATES:
+                turn = buffer.getInt();
+                x = buffer.getChar();
+                y = buffer.getChar();
+                break;
+            case ROUND_START:
+                gameStatus = enumAt(ProtocolCodec.GAME_STATUSES, buffer.get());
+                attackStatus = enumAt(ProtocolCodec.ATTACK_STATUSES, buffer.get());
+                turn = buffer.getInt();
+                break;
+            case ATTACKER_FEEDBACK:
+                attackSuccess = buffer.get() != 0;
+                hitStatus = enumAt(ProtocolCodec.HIT_STATUSES, buffer.get());
+                rejectReason = buffer.get() & 0xFF;
+                shipsRemaining = buffer.get() & 0xFF;
+                break;
+            case DEFENDER_FEEDBACK:
+                x = buffer.getChar();
+                y = buffer.getChar();
+                hitStatus = enumAt(ProtocolCodec.HIT_STATUSES, buffer.get());
+                shipsRemaining = buffer.get() & 0xFF;
+                break;
+            case DISCONNECT:
+                disconnectId = buffer.get() & 0xFF;
+                break;
+            case PLACEMENT:
+                decodePlacement(buffer);
+                break;
+            case FLEET_LAYOUT:
+                decodeFleetLayout(buffer);
+                break;
+            case JOIN:
+                rating = buffer.getChar();
+                width = buffer.getChar();
+                height = buffer.getChar();
+                break;
+            case MATCH_TOKEN:
+                token = buffer.getLong();
+                break;
+            case RESUME:
+                token = buffer.getLong();
+                received = buffer.getLong();
+                break;
+            case WATCH:
+                matchId = buffer.getLong();
+                break;
+            case SPECTATOR_ATTACK:
+                attacker = buffer.get() & 0xFF;
+                x = buffer.getChar();
+                y = buffer.getChar();
+                hitStatus = enumAt(ProtocolCodec.HIT_STATUSES, buffer.get());
+                shipsRemaining = buffer.get() & 0xFF;
+                break;
+            case SPECTATOR_BOARD:
+                decodeBoard(buffer);
+                break;
+            case SALVO:
+                turn = buffer.getInt();
+                decodeShots(buffer, false);
+                break;
+            case SALVO_RESULT:
+                ownTurn = buffer.get() != 0;
+                shipsRemaining = buffer.get() & 0xFF;
+                decodeShots(buffer, true);
+                break;
+            case TIMEOUT:
+                policy = enumAt(ProtocolCodec.POLICIES, buffer.get());
+                ownTurn = buffer.get() != 0;
+                x = buffer.getChar();
+                y = buffer.getChar();
+                hitStatus = enumAt(ProtocolCodec.HIT_STATUSES, buffer.get());
+                shipsRemaining = buffer.get() & 0xFF;
+                break;
+            default:
+                throw new ProtocolException("Unknown frame type " + type);
+        }
+    }
+
+    /**
+     * Decodes the body of a placement frame.
+     */
+    private void decodePlacement(ByteBuffer buffer) {
+        width = buffer.getChar();
+        height = buffer.getChar();
+        shipCount = buffer.get() & 0xFF;
+        if (shipCount > shipIds.length) {
+            shipIds = Arrays.copyOf(shipIds, shipCount);
+            shipLengths = Arrays.copyOf(shipLengths, shipCount);
+            shipX = Arrays.copyOf(shipX, shipCount);
+            shipY = Arrays.copyOf(shipY, shipCount);
+            shipVertical = Arrays.copyOf(shipVertical, shipCount);
+            shipSymbols = Arrays.copyOf(shipSymbols, shipCount);
+        }
+        for (int i = 0; i < shipCount; i++) {
+            shipIds[i] = buffer.get() & 0xFF;
+            shipLengths[i] = buffer.get() & 0xFF;
+            shipX[i] = buffer.getChar();
+            shipY[i] = buffer.getChar();
+            shipVertical[i] = buffer.get() != 0;
+            shipSymbols[i] = (char) (buffer.get() & 0xFF);
+        }
+    }
+
+    /**
+     * Decodes the body of a fleet layout frame into the placement arrays.
+     */
+    private void decodeFleetLayout(ByteBuffer buffer) {
+        width = buffer.getChar();
+        height = buffer.getChar();
+        shipCount = buffer.get() & 0xFF;
+        if (shipCount > shipX.length) {
+            shipX = Arrays.copyOf(shipX, shipCount);
+            shipY = Arrays.copyOf(shipY, shipCount);
+            shipVertical = Arrays.copyOf(shipVertical, shipCount);
+        }
+        for (int i = 0; i < shipCount; i++) {
+            shipX[i] = buffer.getChar();
+            shipY[i] = buffer.getChar();
+            shipVertical[i] = buffer.get() != 0;
+        }
+    }
+
+    /**
+     * Decodes the shots of a salvo or of its result.
+     */
+    private void decodeShots(ByteBuffer buffer, boolean withHitStatus) throws ProtocolException {
+        shotCount = buffer.get() & 0xFF;
+        if (shotCount > shotX.length) {
+            shotX = Arrays.copyOf(shotX, shotCount);
+            shotY = Arrays.copyOf(shotY, shotCount);
+            shotHitStatuses = Arrays.copyOf(shotHitStatuses, shotCount);
+        }
+        for (int i = 0; i < shotCount; i++) {
+            shotX[i] = buffer.getChar();
+            shotY[i] = buffer.getChar();
+            shotHitStatuses[i] = withHitStatus ? enumAt(ProtocolCodec.HIT_STATUSES, buffer.get()) : null;
+        }
+    }
+
+    /**
+     * Decodes the body of a spectator board frame.
+     */
+    private void decodeBoard(ByteBuffer buffer) throws ProtocolException {
+        width = buffer.getChar();
+        height = buffer.getChar();
+        int winnerId = buffer.get() & 0xFF;
+        winner = winnerId == ProtocolCodec.NONE ? SpectatorBoardEvent.RUNNING : winnerId;
+        boardShipsRemaining[0] = buffer.get() & 0xFF;
+        boardShipsRemaining[1] = buffer.get() & 0xFF;
+        int count = 2 * width * height;
+        if (count > cells.length) {
+            cells = new HitStatus[count];
+        }
+        for (int i = 0; i < count; i += FrameType.CELLS_PER_BYTE) {
+            int packed = buffer.get() & 0xFF;
+            for (int j = 0; j < FrameType.CELLS_PER_BYTE && i + j < count; j++) {
+                cells[i + j] = enumAt(ProtocolCodec.HIT_STATUSES, (byte) (packed >>> (2 * j) & 3));
+            }
+        }
+    }
+
+    /**
+     * Converts the decoded frame into the message object of the game.
+     *
+     * @return the message
+     * @throws ProtocolException if the frame does not describe a valid message
+     */
+    public Object toMessage() throws ProtocolException {
+        switch (type) {
+            case COORDINATES:
+                return new AttackEvent(turn, Coordinates.of(x, y));
+            case ROUND_START:
+                return new RoundStartEvent(gameStatus, attackStatus, turn);
+            case ATTACKER_FEEDBACK:
+                return new AttackerFeedbackEvent(attackSuccess, hitStatus, ProtocolCodec.rejection(rejectReason),
+                        shipsRemaining);
+            case DEFENDER_FEEDBACK:
+                return new DefenderFeedbackEvent(Coordinates.of(x, y), hitStatus, shipsRemaining);
+            case DISCONNECT:
+                return new ClientDisconnectException(disconnectId);
+            case PLACEMENT:
+                return toShipStorage();
+            case FLEET_LAYOUT:
+                return new FleetLayoutEvent(width, height, Arrays.copyOf(shipX, shipCount),
+                        Arrays.copyOf(shipY, shipCount), Arrays.copyOf(shipVertical, shipCount));
+            case JOIN:
+                return new JoinEvent(rating, width, height);
+            case MATCH_TOKEN:
+                return new MatchTokenEvent(token);
+            case RESUME:
+                return new ResumeEvent(token, received);
+            case WATCH:
+                return new WatchEvent(matchId);
+            case SPECTATOR_ATTACK:
+                return new SpectatorAttackEvent(attacker, Coordinates.of(x, y), hitStatus, shipsRemaining);
+            case SPECTATOR_BOARD:
+                return new SpectatorBoardEvent(width, height, winner, boardShipsRemaining.clone(),
+                        Arrays.copyOf(cells, 2 * width * height));
+            case SALVO:
+                return new SalvoEvent(turn, targets());
+            case SALVO_RESULT:
+                return new SalvoResultEvent(ownTurn, targets(), Arrays.copyOf(shotHitStatuses, shotCount),
+                        shipsRemaining);
+            case TIMEOUT:
+                return new TimeoutEvent(policy, ownTurn, hitStatus == null ? null : Coordinates.of(x, y), hitStatus,
+                        shipsRemaining);
+            default:
+                throw new ProtocolException("Unknown frame type " + type);
+        }
+    }
+
+    /**
+     * Returns the cells of the decoded shots.
+     */
+    private Coordinates[] targets() {
+        Coordinates[] targets = new Coordinates[shotCount];
+        for (int i = 0; i < shotCount; i++) {
+            targets[i] = Coordinates.of(shotX[i], shotY[i]);
+        }
+        return targets;
+    }
+
+    /**
+     * Rebuilds a ship storage from a decoded placement.
+     *
+     * @return the ship storage
+     * @throws ProtocolException if the ships do not fit on the board
+     */
+    private ShipStorage toShipStorage() throws ProtocolException {
+        ShipStorage shipStorage = ShipStorage.create(width, height);
+        for (int i = 0; i < shipCount; i++) {
+            Ship ship = new Ship(shipIds[i], shipLengths[i], String.valueOf(shipSymbols[i]));
+            try {
+                shipStorage.addShip(new Coordinates(shipX[i], shipY[i]), shipVertical[i], ship);
+            } catch (BattleshipException e) {
+                throw new ProtocolException("Invalid placement: " + e.getMessage());
+            }
+        }
+        return shipStorage;
+    }
+
+    /**
+     * Returns the constant at the given wire value, null for NONE.
+     */
+    private static <E> E enumAt(E[] values, byte value) throws ProtocolException {
+        int ordinal = value & 0xFF;
+        if (ordinal == ProtocolCodec.NONE) {
+            return null;
+        }
+        if (ordinal >= values.length) {
+            throw new ProtocolException("Invalid enum value " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    /**
+     * Retrieves the type of the decoded frame.
+     *
+     * @return the frame type
+     */
+    public FrameType getType() {
+        return type;
+    }
+
+    /**
+     * Retrieves the turn of a ROUND_START frame, or the turn a COORDINATES or
+     * SALVO frame answers.
+     *
+     * @return the turn number
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Retrieves the x-coordinate of a COORDINATES or DEFENDER_FEEDBACK frame.
+     *
+     * @return the x-coordinate
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Retrieves the y-coordinate of a COORDINATES or DEFENDER_FEEDBACK frame.
+     *
+     * @return the y-coordinate
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Retrieves the game status of a ROUND_START frame.
+     *
+     * @return the game status
+     */
+    public GameStatus getGameStatus() {
+        return gameStatus;
+    }
+
+    /**
+     * Retrieves the attack status of a ROUND_START frame.
+     *
+     * @return the attack status, null once the game is over
+     */
+    public AttackStatus getAttackStatus() {
+        return attackStatus;
+    }
+
+    /**
+     * Retrieves the hit status of an ATTACKER_FEEDBACK or DEFENDER_FEEDBACK frame.
+     *
+     * @return the hit status
+     */
+    public HitStatus getHitStatus() {
+        return hitStatus;
+    }
+
+    /**
+     * Retrieves whether the attack of an ATTACKER_FEEDBACK frame was legal.
+     *
+     * @return true if the attack was legal
+     */
+    public boolean isAttackSuccess() {
+        return attackSuccess;
+    }
+
+    /**
+     * Retrieves the number of ships the defender has left, carried by
+     * ATTACKER_FEEDBACK and DEFENDER_FEEDBACK frames.
+     *
+     * @return the number of remaining ships
+     */
+    public int getShipsRemaining() {
+        return shipsRemaining;
+    }
+}
@@ -0,0 +1,119 @@
+package com.battleship.protocol;
+
+/**
+ * The FrameType enum lists the message types of the binary protocol together
+ * with the size of their frame body.
+ */
+public enum FrameType {
+
+    // client -> server: the turn the attack answers, then the attacked cell, x and y as unsigned shorts
+    COORDINATES(1, 8),
+    // server -> client: game status, attack status and turn
+    ROUND_START(2, 6),
+    // server -> attacker: success flag, hit status, rejection reason and ships the defender has left
+    ATTACKER_FEEDBACK(3, 4),
+    // server -> defender: attacked cell, hit status and ships the defender has left
+    DEFENDER_FEEDBACK(4, 6),
+    // server -> client: the opponent disconnected, id of the disconnected player
+    DISCONNECT(5, 1),
+    // client -> server: board size and ship count, followed by one entry per ship
+    PLACEMENT(6, 5),
+    // client -> server: skill rating and requested board size as unsigned shorts
+    JOIN(7, 6),
+    // server -> client: the token for resuming the match
+    MATCH_TOKEN(8, 8),
+    // client -> server: resume the match of the token; server -> client: acknowledgement
+    RESUME(9, 16),
+    // client -> server: ID of the match to watch, 0 for the latest
+    WATCH(10, 8),
+    // server -> spectator: attacker, attacked cell, hit status and ships the defender has left
+    SPECTATOR_ATTACK(11, 7),
+    // server -> spectator: board size, winner and ships left of both players, followed by the cells
+    SPECTATOR_BOARD(12, 7),
+    // server -> client: policy, own turn flag, randomly attacked cell, hit status and ships the defender has left
+    TIMEOUT(13, 8),
+    // client -> server: board size and ship count, followed by the start and orientation of every ship of the fleet
+    FLEET_LAYOUT(14, 5),
+    // client -> server: the turn the salvo answers and shot count, followed by the attacked cells
+    SALVO(15, 5),
+    // server -> client: own salvo flag, ships the defender has left and shot count, followed by every cell and its result
+    SALVO_RESULT(16, 3);
+
+    /**
+     * Size of one ship entry of a PLACEMENT frame: id, length, x, y, vertical flag
+     * and symbol.
+     */
+    public static final int PLACEMENT_ENTRY_LENGTH = 8;
+
+    /**
+     * Size of one ship entry of a FLEET_LAYOUT frame: x, y and vertical flag.
+     */
+    public static final int LAYOUT_ENTRY_LENGTH = 5;
+
+    /**
+     * Size of one shot of a SALVO frame: x and y.
+     */
+    public static final int SALVO_ENTRY_LENGTH = 4;
+
+    /**
+     * Size of one shot of a SALVO_RESULT frame: x, y and hit status.
+     */
+    public static final int SALVO_RESULT_ENTRY_LENGTH = 5;
+
+    /**
+     * Number of cells packed into one byte of a SPECTATOR_BOARD frame.
+     */
+    public static final int CELLS_PER_BYTE = 4;
+
+    private static final FrameType[] BY_ID = new FrameType[32];
+
+    static {
+        for (FrameType type : values()) {
+            BY_ID[type.id] = type;
+        }
+    }
+
+    private final int id;
+    private final int bodyLength;
+
+    /**
+     * Constructs a FrameType constant.
+     *
+     * @param id         the type id written on the wire
+     * @param bodyLength the size of the fixed part of the body
+     */
+    FrameType(int id, int bodyLength) {
+        this.id = id;
+        this.bodyLength = bodyLength;
+    }
+
+    /**
+     * Retrieves the type id written on the wire.
+     *
+     * @return the type id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Retrieves the size of the fixed part of the body. For every type but
+     * PLACEMENT, FLEET_LAYOUT, SALVO, SALVO_RESULT and SPECTATOR_BOARD this is
+     * the whole body.
+     *
+     * @return the body length in bytes
+     */
+    public int getBodyLength() {
+        return bodyLength;
+    }
+
+    /**
+     * Looks up the frame type with the given wire id.
+     *
+     * @param id the type id
+     * @return the frame type, or null if the id is unknown
+     */
+    public static FrameType fromId(int id) {
+        return id >= 0 && id < BY_ID.length ? BY_ID[id] : null;
+    }
+}
@@ -0,0 +1,527 @@
+package com.battleship.protocol;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.battleship.client.BattleshipException;
+import com.battleship.client.ClientDisconnectException;
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.ShipStorage;
+import com.battleship.events.AttackEvent;
+import com.battleship.events.AttackerFeedbackEvent;
+import com.battleship.events.DefenderFeedbackEvent;
+import com.battleship.events.FleetLayoutEvent;
+import com.battleship.events.JoinEvent;
+import com.battleship.events.MatchTokenEvent;
+import com.battleship.events.ResumeEvent;
+import com.battleship.events.RoundStartEvent;
+import com.battleship.events.RoundStartEvent.AttackStatus;
+import com.battleship.events.RoundStartEvent.GameStatus;
+import com.battleship.events.SalvoEvent;
+import com.battleship.events.SalvoResultEvent;
+import com.battleship.events.SpectatorAttackEvent;
+import com.battleship.events.SpectatorBoardEvent;
+import com.battleship.events.TimeoutEvent;
+import com.battleship.events.WatchEvent;
+
+/**
+ * The ProtocolCodec class encodes the messages of the game into binary frames.
+ *
+ * Every frame starts with a two byte header, the protocol version and the
+ * {@link FrameType} id, followed by a body of fixed size per type. Only the
+ * PLACEMENT and FLEET_LAYOUT frames carry a ship count and one fixed-size
+ * entry per ship, the SALVO and SALVO_RESULT frames a shot count and one
+ * fixed-size entry per shot, and the SPECTATOR_BOARD frame the cells of both
+ * boards, two bits each. The
+ * encode methods write into a buffer supplied by the caller and allocate
+ * nothing; decoding is done by {@link Frame}.
+ */
+public final class ProtocolCodec {
+
+    /**
+     * Version of the protocol, written into every frame header.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Size of the frame header: version and type.
+     */
+    public static final int HEADER_LENGTH = 2;
+
+    /**
+     * Size of the largest frame, a placement of 255 ships.
+     */
+    public static final int MAX_FRAME_LENGTH = HEADER_LENGTH + FrameType.PLACEMENT.getBodyLength()
+            + 255 * FrameType.PLACEMENT_ENTRY_LENGTH;
+
+    // wire value of a null enum
+    static final int NONE = 0xFF;
+
+    // reasons for rejecting an attack, sent instead of the exception message
+    static final int REJECT_NONE = 0;
+    static final int REJECT_OTHER = 1;
+    static final int REJECT_OUT_OF_BOARD = 2;
+    static final int REJECT_ALREADY_ATTACKED = 3;
+
+    private static final String ERR_INVALID_ATTACK = "Invalid attack.";
+
+    // cached, values() copies the array on every call
+    static final GameStatus[] GAME_STATUSES = GameStatus.values();
+    static final AttackStatus[] ATTACK_STATUSES = AttackStatus.values();
+    static final HitStatus[] HIT_STATUSES = HitStatus.values();
+    static final TimeoutEvent.Policy[] POLICIES = TimeoutEvent.Policy.values();
+
+    private ProtocolCodec() {
+    }
+
+    /**
+     * Encodes any message of the game.
+     *
+     * @param buffer  the buffer to write the frame to
+     * @param message the message to encode
+     * @throws IllegalArgumentException if the message type is not part of the
+     *                                  protocol
+     */
+    public static void encode(ByteBuffer buffer, Object message) {
+        if (message instanceof AttackEvent event) {
+            encodeCoordinates(buffer, event.turn(), event.coordinates().getX(), event.coordinates().getY());
+        } else if (message instanceof RoundStartEvent event) {
+            encodeRoundStart(buffer, event.gameStatus(), event.attackStatus(), event.turn());
+        } else if (message instanceof AttackerFeedbackEvent event) {
+            encodeAttackerFeedback(buffer, event.attackSuccess(), event.hitStatus(), rejectReason(event.exception()),
+                    event.shipsRemaining());
+        } else if (message instanceof DefenderFeedbackEvent event) {
+            encodeDefenderFeedback(buffer, event.coordinates().getX(), event.coordinates().getY(), event.hitStatus(),
+                    event.shipsRemaining());
+        } else if (message instanceof ClientDisconnectException exception) {
+            encodeDisconnect(buffer, exception.getDisconnectId());
+        } else if (message instanceof ShipStorage shipStorage) {
+            encodePlacement(buffer, shipStorage);
+        } else if (message instanceof SalvoEvent event) {
+            encodeSalvo(buffer, event.turn(), event.targets());
+        } else if (message instanceof SalvoResultEvent event) {
+            encodeSalvoResult(buffer, event);
+        } else if (message instanceof FleetLayoutEvent event) {
+            encodeFleetLayout(buffer, event);
+        } else if (message instanceof JoinEvent event) {
+            encodeJoin(buffer, event.rating(), event.width(), event.height());
+        } else if (message instanceof MatchTokenEvent event) {
+            encodeToken(buffer, event.token());
+        } else if (message instanceof ResumeEvent event) {
+            encodeResume(buffer, event.token(), event.received());
+        } else if (message instanceof WatchEvent event) {
+            encodeWatch(buffer, event.matchId());
+        } else if (message instanceof SpectatorAttackEvent event) {
+            encodeSpectatorAttack(buffer, event.attacker(), event.coordinates().getX(), event.coordinates().getY(),
+                    event.hitStatus(), event.shipsRemaining());
+        } else if (message instanceof SpectatorBoardEvent event) {
+            encodeSpectatorBoard(buffer, event.width(), event.height(), event.winner(), event.shipsRemaining(),
+                    event.cells());
+        } else if (message instanceof TimeoutEvent event) {
+            Coordinates coordinates = event.coordinates();
+            encodeTimeout(buffer, event.policy(), event.ownTurn(), coordinates == null ? 0 : coordinates.getX(),
+                    coordinates == null ? 0 : coordinates.getY(), event.hitStatus(), event.shipsRemaining());
+        } else {
+            throw new IllegalArgumentException("Cannot encode " + message);
+        }
+    }
+
+    /**
+     * Encodes the coordinates of an attack.
+     *
+     * @param buffer the buffer to write the frame to
+     * @param turn   the turn the attack answers
+     * @param x      the x-coordinate
+     * @param y      the y-coordinate
+     */
+    public static void encodeCoordinates(ByteBuffer buffer, int turn, int x, int y) {
+        header(buffer, FrameType.COORDINATES);
+        buffer.putInt(turn);
+        buffer.putChar((char) x);
+        buffer.putChar((char) y);
+    }
+
+    /**
+     * Encodes the start of a round.
+     *
+     * @param buffer       the buffer to write the frame to
+     * @param gameStatus   the game status
+     * @param attackStatus the attack status, null once the game is over
+     * @param turn         the number of the round
+     */
+    public static void encodeRoundStart(ByteBuffer buffer, GameStatus gameStatus, AttackStatus attackStatus,
+            int turn) {
+        header(buffer, FrameType.ROUND_START);
+        buffer.put((byte) gameStatus.ordinal());
+        buffer.put((byte) ordinal(attackStatus));
+        buffer.putInt(turn);
+    }
+
+    /**
+     * Encodes the feedback for the attacker.
+     *
+     * @param buffer       the buffer to write the frame to
+     * @param success      whether the attack was legal
+     * @param hitStatus    the result of the attack, null if it was rejected
+     * @param rejectReason   why the attack was rejected
+     * @param shipsRemaining the number of ships the defender has left
+     */
+    public static void encodeAttackerFeedback(ByteBuffer buffer, boolean success, HitStatus hitStatus,
+            int rejectReason, int shipsRemaining) {
+        header(buffer, FrameType.ATTACKER_FEEDBACK);
+        buffer.put((byte) (success ? 1 : 0));
+        buffer.put((byte) ordinal(hitStatus));
+        buffer.put((byte) rejectReason);
+        buffer.put((byte) shipsRemaining);
+    }
+
+    /**
+     * Encodes the feedback for the defender.
+     *
+     * @param buffer    the buffer to write the frame to
+     * @param x         the x-coordinate of the attacked cell
+     * @param y         the y-coordinate of the attacked cell
+     * @param hitStatus      the result of the attack
+     * @param shipsRemaining the number of ships the defender has left
+     */
+    public static void encodeDefenderFeedback(ByteBuffer buffer, int x, int y, HitStatus hitStatus,
+            int shipsRemaining) {
+        header(buffer, FrameType.DEFENDER_FEEDBACK);
+        buffer.putChar((char) x);
+        buffer.putChar((char) y);
+        buffer.put((byte) ordinal(hitStatus));
+        buffer.put((byte) shipsRemaining);
+    }
+
+    /**
+     * Encodes the notification that a player disconnected.
+     *
+     * @param buffer       the buffer to write the frame to
+     * @param disconnectId the ID of the disconnected player
+     */
+    public static void encodeDisconnect(ByteBuffer buffer, int disconnectId) {
+        header(buffer, FrameType.DISCONNECT);
+        buffer.put((byte) disconnectId);
+    }
+
+    /**
+     * Encodes the fleet layout of a ship storage: board size and the placement of
+     * every ship.
+     *
+     * @param buffer      the buffer to write the frame to
+     * @param shipStorage the ship storage to encode
+     */
+    public static void encodePlacement(ByteBuffer buffer, ShipStorage shipStorage) {
+        List<ShipStorage.Placement> placements = shipStorage.getPlacements();
+        header(buffer, FrameType.PLACEMENT);
+        buffer.putChar((char) shipStorage.getWidth());
+        buffer.putChar((char) shipStorage.getHeight());
+        buffer.put((byte) placements.size());
+        for (int i = 0; i < placements.size(); i++) {
+            ShipStorage.Placement placement = placements.get(i);
+            buffer.put((byte) placement.ship().getId());
+            buffer.put((byte) placement.ship().getLength());
+            buffer.putChar((char) placement.start().getX());
+            buffer.putChar((char) placement.start().getY());
+            buffer.put((byte) (placement.vertical() ? 1 : 0));
+            buffer.put((byte) placement.ship().getSymbol().charAt(0));
+        }
+    }
+
+    /**
+     * Encodes the cells attacked by a salvo.
+     *
+     * @param buffer  the buffer to write the frame to
+     * @param turn    the turn the salvo answers
+     * @param targets the attacked cells, at most 255
+     */
+    public static void encodeSalvo(ByteBuffer buffer, int turn, Coordinates[] targets) {
+        header(buffer, FrameType.SALVO);
+        buffer.putInt(turn);
+        buffer.put((byte) targets.length);
+        for (Coordinates target : targets) {
+            buffer.putChar((char) target.getX());
+            buffer.putChar((char) target.getY());
+        }
+    }
+
+    /**
+     * Encodes the result of a salvo.
+     *
+     * @param buffer the buffer to write the frame to
+     * @param result the result to encode
+     */
+    public static void encodeSalvoResult(ByteBuffer buffer, SalvoResultEvent result) {
+        header(buffer, FrameType.SALVO_RESULT);
+        buffer.put((byte) (result.ownSalvo() ? 1 : 0));
+        buffer.put((byte) result.shipsRemaining());
+        buffer.put((byte) result.targets().length);
+        for (int i = 0; i < result.targets().length; i++) {
+            buffer.putChar((char) result.targets()[i].getX());
+            buffer.putChar((char) result.targets()[i].getY());
+            buffer.put((byte) result.hitStatuses()[i].ordinal());
+        }
+    }
+
+    /**
+     * Encodes the layout of a fleet: board size and the start and orientation of
+     * every ship, the ships themselves are known to the server.
+     *
+     * @param buffer the buffer to write the frame to
+     * @param layout the layout to encode
+     */
+    public static void encodeFleetLayout(ByteBuffer buffer, FleetLayoutEvent layout) {
+        header(buffer, FrameType.FLEET_LAYOUT);
+        buffer.putChar((char) layout.width());
+        buffer.putChar((char) layout.height());
+        buffer.put((byte) layout.size());
+        for (int i = 0; i < layout.size(); i++) {
+            buffer.putChar((char) layout.x()[i]);
+            buffer.putChar((char) layout.y()[i]);
+            buffer.put((byte) (layout.vertical()[i] ? 1 : 0));
+        }
+    }
+
+    /**
+     * Encodes the request to be matched with an opponent.
+     *
+     * @param buffer the buffer to write the frame to
+     * @param rating the skill rating of the player
+     * @param width  the requested board width
+     * @param height the requested board height
+     */
+    public static void encodeJoin(ByteBuffer buffer, int rating, int width, int height) {
+        header(buffer, FrameType.JOIN);
+        buffer.putChar((char) rating);
+        buffer.putChar((char) width);
+        buffer.putChar((char) height);
+    }
+
+    /**
+     * Encodes a MATCH_TOKEN frame.
+     *
+     * @param buffer the buffer to write the frame to
+     * @param token  the match token
+     */
+    public static void encodeToken(ByteBuffer buffer, long token) {
+        header(buffer, FrameType.MATCH_TOKEN);
+        buffer.putLong(token);
+    }
+
+    /**
+     * Encodes a RESUME frame.
+     *
+     * @param buffer   the buffer to write the frame to
+     * @param token    the match token
+     * @param received the number of messages the sender received in the match
+     */
+    public static void encodeResume(ByteBuffer buffer, long token, long received) {
+        header(buffer, FrameType.RESUME);
+        buffer.putLong(token);
+        buffer.putLong(received);
+    }
+
+    /**
+     * Encodes a WATCH frame.
+     *
+     * @param buffer  the buffer to write the frame to
+     * @param matchId the ID of the match to watch, {@link WatchEvent#LATEST} for
+     *                the latest
+     */
+    public static void encodeWatch(ByteBuffer buffer, long matchId) {
+        header(buffer, FrameType.WATCH);
+        buffer.putLong(matchId);
+    }
+
+    /**
+     * Encodes an attack for the spectators.
+     *
+     * @param buffer         the buffer to write the frame to
+     * @param attacker       the ID of the attacking player
+     * @param x              the x-coordinate of the attacked cell
+     * @param y              the y-coordinate of the attacked cell
+     * @param hitStatus      the result of the attack
+     * @param shipsRemaining the number of ships the defender has left
+     */
+    public static void encodeSpectatorAttack(ByteBuffer buffer, int attacker, int x, int y, HitStatus hitStatus,
+            int shipsRemaining) {
+        header(buffer, FrameType.SPECTATOR_ATTACK);
+        buffer.put((byte) attacker);
+        buffer.putChar((char) x);
+        buffer.putChar((char) y);
+        buffer.put((byte) ordinal(hitStatus));
+        buffer.put((byte) shipsRemaining);
+    }
+
+    /**
+     * Encodes a turn the server resolved after it expired.
+     *
+     * @param buffer         the buffer to write the frame to
+     * @param policy         how the turn was resolved
+     * @param ownTurn        whether the receiving player let the turn expire
+     * @param x              the x-coordinate of the randomly attacked cell
+     * @param y              the y-coordinate of the randomly attacked cell
+     * @param hitStatus      the result of the random shot, null without one
+     * @param shipsRemaining the number of ships the defender has left
+     */
+    public static void encodeTimeout(ByteBuffer buffer, TimeoutEvent.Policy policy, boolean ownTurn, int x, int y,
+            HitStatus hitStatus, int shipsRemaining) {
+        header(buffer, FrameType.TIMEOUT);
+        buffer.put((byte) ordinal(policy));
+        buffer.put((byte) (ownTurn ? 1 : 0));
+        buffer.putChar((char) x);
+        buffer.putChar((char) y);
+        buffer.put((byte) ordinal(hitStatus));
+        buffer.put((byte) shipsRemaining);
+    }
+
+    /**
+     * Encodes the state of a match for the spectators.
+     *
+     * @param buffer         the buffer to write the frame to
+     * @param width          the board width
+     * @param height         the board height
+     * @param winner         the ID of the winner, {@link SpectatorBoardEvent#RUNNING}
+     *                       while the match is not over
+     * @param shipsRemaining the number of ships each player has left
+     * @param cells          the cells of the board of player 0 followed by those
+     *                       of player 1, row by row
+     */
+    public static void encodeSpectatorBoard(ByteBuffer buffer, int width, int height, int winner,
+            int[] shipsRemaining, HitStatus[] cells) {
+        header(buffer, FrameType.SPECTATOR_BOARD);
+        buffer.putChar((char) width);
+        buffer.putChar((char) height);
+        buffer.put((byte) (winner == SpectatorBoardEvent.RUNNING ? NONE : winner));
+        buffer.put((byte) shipsRemaining[0]);
+        buffer.put((byte) shipsRemaining[1]);
+        int count = 2 * width * height;
+        for (int i = 0; i < count; i += FrameType.CELLS_PER_BYTE) {
+            int packed = 0;
+            for (int j = 0; j < FrameType.CELLS_PER_BYTE && i + j < count; j++) {
+                packed |= cells[i + j].ordinal() << (2 * j);
+            }
+            buffer.put((byte) packed);
+        }
+    }
+
+    /**
+     * Computes the length of a SPECTATOR_BOARD frame.
+     *
+     * @param width  the board width
+     * @param height the board height
+     * @return the frame length in bytes
+     */
+    public static int spectatorBoardLength(int width, int height) {
+        return HEADER_LENGTH + FrameType.SPECTATOR_BOARD.getBodyLength()
+                + (2 * width * height + FrameType.CELLS_PER_BYTE - 1) / FrameType.CELLS_PER_BYTE;
+    }
+
+    /**
+     * Computes how many bytes of the frame starting at the buffer position must be
+     * available before it can be decoded. Reads absolutely, the buffer position is
+     * not changed.
+     *
+     * While the header is incomplete this is the header length, and for a
+     * placement whose ship count is not yet available it is the length up to the
+     * ship count, likewise for a board whose size is not yet available. Either
+     * way fewer bytes are available than returned, so the frame is complete
+     * exactly when {@code buffer.remaining() >= requiredLength(buffer)}.
+     *
+     * @param buffer the buffer holding the start of the frame
+     * @return the number of bytes needed
+     * @throws ProtocolException if the header has a wrong version or unknown type,
+     *                           or the frame is longer than
+     *                           {@link #MAX_FRAME_LENGTH}
+     */
+    public static int requiredLength(ByteBuffer buffer) throws ProtocolException {
+        int available = buffer.remaining();
+        int position = buffer.position();
+        if (available < HEADER_LENGTH) {
+            return HEADER_LENGTH;
+        }
+        int version = buffer.get(position) & 0xFF;
+        if (version != VERSION) {
+            throw new ProtocolException("Unsupported protocol version " + version);
+        }
+        FrameType type = FrameType.fromId(buffer.get(position + 1) & 0xFF);
+        if (type == null) {
+            throw new ProtocolException("Unknown frame type " + (buffer.get(position + 1) & 0xFF));
+        }
+        int length = HEADER_LENGTH + type.getBodyLength();
+        if (type == FrameType.PLACEMENT && available >= length) {
+            int shipCount = buffer.get(position + length - 1) & 0xFF;
+            length += shipCount * FrameType.PLACEMENT_ENTRY_LENGTH;
+        } else if (type == FrameType.FLEET_LAYOUT && available >= length) {
+            int shipCount = buffer.get(position + length - 1) & 0xFF;
+            length += shipCount * FrameType.LAYOUT_ENTRY_LENGTH;
+        } else if (type == FrameType.SALVO && available >= length) {
+            int shotCount = buffer.get(position + length - 1) & 0xFF;
+            length += shotCount * FrameType.SALVO_ENTRY_LENGTH;
+        } else if (type == FrameType.SALVO_RESULT && available >= length) {
+            int shotCount = buffer.get(position + length - 1) & 0xFF;
+            length += shotCount * FrameType.SALVO_RESULT_ENTRY_LENGTH;
+        } else if (type == FrameType.SPECTATOR_BOARD && available >= length) {
+            length = spectatorBoardLength(buffer.getChar(position + 2), buffer.getChar(position + 4));
+            if (length > MAX_FRAME_LENGTH) {
+                throw new ProtocolException("Board of " + length + " bytes exceeds the frame limit");
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Maps the exception of a rejected attack to the reason sent on the wire.
+     *
+     * @param exception the exception, null if the attack was not rejected
+     * @return the reject reason
+     */
+    static int rejectReason(BattleshipException exception) {
+        if (exception == null) {
+            return REJECT_NONE;
+        }
+        if (ShipStorage.ERR_ATTACK_END.equals(exception.getMessage())) {
+            return REJECT_OUT_OF_BOARD;
+        }
+        if (ShipStorage.ERR_ALREADY_ATTACKED.equals(exception.getMessage())) {
+            return REJECT_ALREADY_ATTACKED;
+        }
+        return REJECT_OTHER;
+    }
+
+    /**
+     * Recreates the exception of a rejected attack from its reason.
+     *
+     * @param rejectReason the reject reason
+     * @return the exception, null if the attack was not rejected
+     */
+    static BattleshipException rejection(int rejectReason) {
+        switch (rejectReason) {
+            case REJECT_NONE:
+                return null;
+            case REJECT_OUT_OF_BOARD:
+                return new BattleshipException(ShipStorage.ERR_ATTACK_END);
+            case REJECT_ALREADY_ATTACKED:
+                return new BattleshipException(ShipStorage.ERR_ALREADY_ATTACKED);
+            default:
+                return new BattleshipException(ERR_INVALID_ATTACK);
+        }
+    }
+
+    /**
+     * Writes the frame header.
+     */
+    private static void header(ByteBuffer buffer, FrameType type) {
+        buffer.put((byte) VERSION);
+        buffer.put((byte) type.getId());
+    }
+
+    /**
+     * Returns the wire value of a possibly null enum constant.
+     */
+    private static int ordinal(Enum<?> value) {
+        return value == null ? NONE : value.ordinal();
+    }
+}
@@ -0,0 +1,142 @@
+package com.battleship.protocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * The ProtocolStream class sends and receives binary frames over a blocking
+ * socket. It owns one read buffer, one write buffer and one {@link Frame}, all
+ * reused for every message.
+ */
+public class ProtocolStream implements Closeable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(ProtocolCodec.MAX_FRAME_LENGTH);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(ProtocolCodec.MAX_FRAME_LENGTH);
+    private final Frame frame = new Frame();
+    private int lastReadLength;
+
+    /**
+     * Constructs a ProtocolStream over the given socket.
+     *
+     * @param socket the connected socket
+     * @throws IOException if the socket streams cannot be opened
+     */
+    public ProtocolStream(Socket socket) throws IOException {
+        this.socket = socket;
+        // frames are written whole, waiting for more data only delays them
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    /**
+     * Encodes a message, writes it as one frame and flushes the stream.
+     *
+     * @param message the message to send
+     * @return the length of the frame in bytes
+     * @throws IOException if an I/O error occurs
+     */
+    public int write(Object message) throws IOException {
+        int length = buffer(message);
+        out.flush();
+        return length;
+    }
+
+    /**
+     * Encodes a message and appends it to the output buffer without flushing,
+     * so several frames can leave in one write of the socket.
+     *
+     * @param message the message to send
+     * @return the length of the frame in bytes
+     * @throws IOException if an I/O error occurs
+     */
+    public int buffer(Object message) throws IOException {
+        writeBuffer.clear();
+        ProtocolCodec.encode(writeBuffer, message);
+        out.write(writeBuffer.array(), 0, writeBuffer.position());
+        return writeBuffer.position();
+    }
+
+    /**
+     * Writes the buffered frames to the socket.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes bytes that already hold encoded frames and flushes the stream.
+     *
+     * @param bytes  the encoded frames
+     * @param offset the start of the frames in the array
+     * @param length the number of bytes to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeEncoded(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length);
+        out.flush();
+    }
+
+    /**
+     * Reads the next frame. The returned frame is reused by the next call.
+     *
+     * @return the decoded frame
+     * @throws IOException if an I/O error occurs or the frame is malformed
+     */
+    public Frame readFrame() throws IOException {
+        byte[] bytes = readBuffer.array();
+        int available = 0;
+        int needed = ProtocolCodec.HEADER_LENGTH;
+        while (available < needed) {
+            in.readFully(bytes, available, needed - available);
+            available = needed;
+            readBuffer.position(0).limit(available);
+            needed = ProtocolCodec.requiredLength(readBuffer);
+        }
+        frame.decode(readBuffer);
+        lastReadLength = available;
+        return frame;
+    }
+
+    /**
+     * Reads the next frame and converts it into a message object.
+     *
+     * @return the received message
+     * @throws IOException if an I/O error occurs or the frame is malformed
+     */
+    public Object read() throws IOException {
+        return readFrame().toMessage();
+    }
+
+    /**
+     * Retrieves the length of the frame read last.
+     *
+     * @return the length in bytes
+     */
+    public int getLastReadLength() {
+        return lastReadLength;
+    }
+
+    /**
+     * Closes the streams and the socket.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+        out.close();
+        socket.close();
+    }
+}
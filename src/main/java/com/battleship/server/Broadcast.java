@@ -0,0 +1,375 @@
+package com.battleship.server;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.ShipStorage;
+import com.battleship.events.SpectatorBoardEvent;
+import com.battleship.protocol.ProtocolCodec;
+
+/**
+ * Streams one match to its spectators. As a {@link Match.Listener} it encodes
+ * every attack once, as the spectators see it, into a ring of bytes shared by
+ * all of them. Each spectator reads the ring through its own {@link Cursor}
+ * and writes the bytes to its socket as they are, so adding spectators costs
+ * no encoding and the match never waits for them.
+ *
+ * Only the match thread writes the ring; cursors copy from it without a lock
+ * and discard the copy if the match overwrote it meanwhile. A spectator that
+ * falls more than the ring behind skips ahead: it receives the board of the
+ * latest state instead of the missed attacks. That board is encoded at most
+ * once per state and shared by every spectator that needs it, including new
+ * ones. The cursor encodes it from the state of the match without a lock as
+ * well: the match thread counts every change of the state, and the cursor
+ * encodes again if a change began meanwhile, so the match never waits for a
+ * spectator.
+ */
+final class Broadcast implements Match.Listener {
+
+    /**
+     * The ring size of a match by default, several hundred attacks.
+     */
+    static final int DEFAULT_CAPACITY = 16 * 1024;
+
+    // longest frame the match may be writing beyond the published end
+    private static final int MAX_FRAME = ProtocolCodec.MAX_FRAME_LENGTH;
+
+    private final long matchId;
+    private final byte[] ring;
+    private final int mask;
+    // encodes one frame before it is copied into the ring, only used by the match thread
+    private final ByteBuffer frame = ByteBuffer.allocate(MAX_FRAME);
+    // number of bytes published, the ring holds the latest ring.length of them
+    private volatile long written;
+    private boolean closed;
+
+    // the match as the spectators see it, only changed by the match thread
+    private ShipStorage[] shipStorages;
+    private Layout layout = new Layout(0, 0, new HitStatus[0]);
+    private final int[] shipsRemaining = new int[2];
+    private int winner = SpectatorBoardEvent.RUNNING;
+    // number of begun and ended changes of the state, odd while one is under way
+    private volatile long version;
+    // the latest board encoded by a cursor, shared by every cursor that skips ahead
+    private volatile Board board;
+
+    /**
+     * Constructs the broadcast of a match.
+     *
+     * @param matchId  the ID of the match
+     * @param capacity the size of the ring in bytes, a power of two of at least
+     *                 four frames of the largest size
+     */
+    Broadcast(long matchId, int capacity) {
+        if (Integer.bitCount(capacity) != 1 || capacity < 4 * MAX_FRAME) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        this.matchId = matchId;
+        this.ring = new byte[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Retrieves the ID of the match.
+     *
+     * @return the match ID
+     */
+    long getMatchId() {
+        return matchId;
+    }
+
+    /**
+     * Adds this broadcast to the observers of the match.
+     *
+     * @param listeners the other observers of the match
+     * @return a copy of the observers including this broadcast
+     */
+    Match.Listener[] attachTo(Match.Listener[] listeners) {
+        Match.Listener[] all = Arrays.copyOf(listeners, listeners.length + 1);
+        all[listeners.length] = this;
+        return all;
+    }
+
+    /**
+     * Starts a spectator at the current state of the match.
+     *
+     * @return the cursor of the spectator
+     */
+    Cursor watch() {
+        return new Cursor();
+    }
+
+    /**
+     * Publishes the boards when the attack phase starts, as fresh or as restored
+     * from a snapshot.
+     *
+     * @param match the match
+     */
+    @Override
+    public void roundStarted(Match match) {
+        if (shipStorages != null) {
+            return;
+        }
+        synchronized (this) {
+            beginChange();
+            shipStorages = new ShipStorage[] { match.getShipStorage(0), match.getShipStorage(1) };
+            int width = 0;
+            int height = 0;
+            // boards too large for one frame are not shown, only the attacks
+            if (ProtocolCodec.spectatorBoardLength(shipStorages[0].getWidth(),
+                    shipStorages[0].getHeight()) <= MAX_FRAME) {
+                width = shipStorages[0].getWidth();
+                height = shipStorages[0].getHeight();
+            }
+            HitStatus[] cells = new HitStatus[2 * width * height];
+            for (int player = 0; player < 2; player++) {
+                shipsRemaining[player] = shipStorages[player].getRemainingShips();
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        cells[(player * height + y) * width + x] = shipStorages[player].getHitStatus(x, y);
+                    }
+                }
+            }
+            layout = new Layout(width, height, cells);
+            publishBoard();
+            endChange();
+        }
+    }
+
+    /**
+     * Publishes an attack.
+     *
+     * @param attacker  the ID of the attacking player
+     * @param target    the attacked coordinates
+     * @param hitStatus the result of the attack
+     */
+    @Override
+    public synchronized void attacked(int attacker, Coordinates target, HitStatus hitStatus) {
+        int defender = Match.otherPlayer(attacker);
+        beginChange();
+        if (target.getX() < layout.width() && target.getY() < layout.height()) {
+            layout.cells()[layout.cell(defender, target.getX(), target.getY())] = hitStatus;
+        }
+        shipsRemaining[defender] = shipStorages[defender].getRemainingShips();
+        frame.clear();
+        ProtocolCodec.encodeSpectatorAttack(frame, attacker, target.getX(), target.getY(), hitStatus,
+                shipsRemaining[defender]);
+        publish();
+        endChange();
+    }
+
+    /**
+     * Publishes the final board with the winner and ends the broadcast.
+     *
+     * @param winner the ID of the winning player
+     */
+    @Override
+    public synchronized void ended(int winner) {
+        beginChange();
+        this.winner = winner;
+        publishBoard();
+        endChange();
+        close();
+    }
+
+    /**
+     * Ends the broadcast: the cursors return the remaining bytes and then stop.
+     */
+    synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Marks the start of a change of the state the cursors encode boards from.
+     */
+    private void beginChange() {
+        version++;
+        // the changes must not become visible before the odd version
+        VarHandle.storeStoreFence();
+    }
+
+    /**
+     * Marks the end of a change of the state, publishing it to the cursors.
+     */
+    private void endChange() {
+        version++;
+    }
+
+    /**
+     * Encodes the current board into the frame buffer and publishes it.
+     */
+    private void publishBoard() {
+        frame.clear();
+        encodeBoard(frame);
+        publish();
+    }
+
+    /**
+     * Encodes the current board.
+     */
+    private void encodeBoard(ByteBuffer buffer) {
+        Layout current = layout;
+        ProtocolCodec.encodeSpectatorBoard(buffer, current.width(), current.height(), winner, shipsRemaining,
+                current.cells());
+    }
+
+    /**
+     * Encodes the board of the latest state on the thread of a cursor, while the
+     * match thread may change it. Encodes again until no change began meanwhile.
+     *
+     * @return the board and the position it was encoded at
+     */
+    private Board snapshotBoard() {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_FRAME);
+        while (true) {
+            long before = version;
+            if ((before & 1) == 0) {
+                long end = written;
+                buffer.clear();
+                encodeBoard(buffer);
+                // the encoding is only valid if the match did not change the state meanwhile
+                VarHandle.acquireFence();
+                if (version == before) {
+                    return new Board(Arrays.copyOf(buffer.array(), buffer.position()), end);
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Copies the encoded frame into the ring and wakes the waiting cursors.
+     */
+    private void publish() {
+        int length = frame.position();
+        int start = (int) (written & mask);
+        int first = Math.min(length, ring.length - start);
+        System.arraycopy(frame.array(), 0, ring, start, first);
+        System.arraycopy(frame.array(), first, ring, 0, length - first);
+        written += length;
+        notifyAll();
+    }
+
+    /**
+     * The size of the boards as the spectators see them and their cells: those
+     * of player 0 followed by those of player 1, row by row. Replaced once the
+     * boards are placed, so a cursor never sees a size and cells that do not
+     * fit each other.
+     */
+    private record Layout(int width, int height, HitStatus[] cells) {
+
+        /**
+         * Returns the index of a cell of the board of a player.
+         */
+        int cell(int player, int x, int y) {
+            return (player * height + y) * width + x;
+        }
+    }
+
+    /**
+     * An encoded board and the number of bytes published when it was encoded,
+     * where the ring continues after it.
+     */
+    private record Board(byte[] frame, long end) {
+    }
+
+    /**
+     * The position of one spectator in the broadcast. Only used by the thread
+     * serving the spectator.
+     */
+    final class Cursor {
+
+        // next byte to send, -1 before the first board
+        private long position = -1;
+        private int skips;
+
+        /**
+         * Copies the next bytes to send to the spectator, waiting until there are
+         * any. The first call returns the current board.
+         *
+         * @param chunk receives the bytes, at least
+         *              {@link ProtocolCodec#MAX_FRAME_LENGTH} long
+         * @return the number of bytes copied, -1 once the broadcast has ended and
+         *         every byte was returned
+         * @throws InterruptedException if the thread is interrupted while waiting
+         */
+        int next(byte[] chunk) throws InterruptedException {
+            while (true) {
+                long end = written;
+                if (position < 0 || lapped(end)) {
+                    return skipAhead(chunk);
+                }
+                if (end == position) {
+                    if (!awaitBytes()) {
+                        return -1;
+                    }
+                    continue;
+                }
+                int length = (int) Math.min(end - position, chunk.length);
+                int start = (int) (position & mask);
+                int first = Math.min(length, ring.length - start);
+                System.arraycopy(ring, start, chunk, 0, first);
+                System.arraycopy(ring, 0, chunk, first, length - first);
+                // the copy is only valid if the match did not overwrite it meanwhile
+                VarHandle.acquireFence();
+                if (lapped(written)) {
+                    continue;
+                }
+                position += length;
+                return length;
+            }
+        }
+
+        /**
+         * Retrieves how often the spectator fell behind and skipped ahead.
+         *
+         * @return the number of skips
+         */
+        int getSkips() {
+            return skips;
+        }
+
+        /**
+         * Checks whether the match may have overwritten the byte at the position,
+         * counting the frame it may be writing beyond the published end.
+         */
+        private boolean lapped(long end) {
+            return end - position > ring.length - MAX_FRAME;
+        }
+
+        /**
+         * Copies the board of the latest state and continues after it.
+         */
+        private int skipAhead(byte[] chunk) {
+            if (position >= 0) {
+                skips++;
+            }
+            Board latest = board;
+            if (latest == null || latest.end() != written) {
+                latest = snapshotBoard();
+                board = latest;
+            }
+            System.arraycopy(latest.frame(), 0, chunk, 0, latest.frame().length);
+            position = latest.end();
+            return latest.frame().length;
+        }
+
+        /**
+         * Waits until bytes beyond the position are published.
+         *
+         * @return false if the broadcast ended without further bytes
+         */
+        private boolean awaitBytes() throws InterruptedException {
+            synchronized (Broadcast.this) {
+                while (written == position && !closed) {
+                    Broadcast.this.wait();
+                }
+                return written != position;
+            }
+        }
+    }
+}
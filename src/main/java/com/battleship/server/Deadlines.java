@@ -0,0 +1,109 @@
+package com.battleship.server;
+
+import java.util.function.LongConsumer;
+
+import com.battleship.events.TimeoutEvent;
+
+/**
+ * The time limits of the matches of a server, run on one shared
+ * {@link TimingWheel}. Each match keeps a {@link Timer} for the deadline of
+ * its current turn; the wheel only reports the expired turn, the thread
+ * driving the match resolves it with {@link Match#expire(TimeoutEvent.Policy)}
+ * if the match is still in that turn.
+ */
+final class Deadlines {
+
+    private final TimingWheel wheel;
+    private final long turnMillis;
+    private final long placementMillis;
+    private final TimeoutEvent.Policy policy;
+
+    /**
+     * Constructs the time limits.
+     *
+     * @param wheel           the started wheel running the deadlines
+     * @param turnMillis      the time an attacking player has to attack, 0 for
+     *                        no limit
+     * @param placementMillis the time both players have to place their fleets
+     *                        once paired, 0 for no limit
+     * @param policy          how an expired turn is resolved
+     */
+    Deadlines(TimingWheel wheel, long turnMillis, long placementMillis, TimeoutEvent.Policy policy) {
+        this.wheel = wheel;
+        this.turnMillis = turnMillis;
+        this.placementMillis = placementMillis;
+        this.policy = policy;
+    }
+
+    /**
+     * Checks whether any phase of a match has a time limit.
+     *
+     * @return true if turns or placements expire
+     */
+    boolean isEnabled() {
+        return turnMillis > 0 || placementMillis > 0;
+    }
+
+    /**
+     * Retrieves how an expired turn is resolved.
+     *
+     * @return the timeout policy
+     */
+    TimeoutEvent.Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * The deadline of the current turn of one match. Only used by the thread
+     * driving the match.
+     */
+    final class Timer {
+
+        private final Match match;
+        private final LongConsumer expired;
+        private TimingWheel.Timeout timeout;
+        // the turn the timeout belongs to, -1 before the first update
+        private long turn = -1;
+
+        /**
+         * Constructs the timer of a match.
+         *
+         * @param match   the match
+         * @param expired receives the number of an expired turn on the wheel
+         *                thread, it must hand the turn over to the thread
+         *                driving the match
+         */
+        Timer(Match match, LongConsumer expired) {
+            this.match = match;
+            this.expired = expired;
+        }
+
+        /**
+         * Replaces the deadline once the match has moved on to another turn. Call
+         * after every message or expiry fed into the match.
+         */
+        void update() {
+            long current = match.getTurn();
+            if (current == turn) {
+                return;
+            }
+            cancel();
+            turn = current;
+            long millis = match.getPhase() == Match.Phase.PLACEMENT ? placementMillis
+                    : match.getPhase() == Match.Phase.ATTACK ? turnMillis : 0;
+            if (millis > 0) {
+                timeout = wheel.schedule(() -> expired.accept(current), millis);
+            }
+        }
+
+        /**
+         * Cancels the pending deadline.
+         */
+        void cancel() {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.battleship.server;
+
+import java.util.List;
+
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.ShipStorage;
+import com.battleship.events.TimeoutEvent;
+import com.battleship.journal.MatchJournal;
+
+/**
+ * Writes the events of one match to the {@link MatchJournal}. The match is
+ * started in the journal with the first placement, which carries the board
+ * size.
+ */
+class JournalListener implements Match.Listener {
+
+    private final MatchJournal journal;
+    private long matchId = -1;
+    // whether an attack of the current round was recorded, further ones are shots of its salvo
+    private boolean roundAttacked = false;
+
+    /**
+     * Constructs a JournalListener for a new match.
+     *
+     * @param journal the journal to write to
+     */
+    JournalListener(MatchJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Records the placement of every ship of a player.
+     *
+     * @param player      the ID of the player
+     * @param shipStorage the fleet of the player
+     */
+    @Override
+    public void placed(int player, ShipStorage shipStorage) {
+        if (matchId < 0) {
+            matchId = journal.startMatch(shipStorage.getWidth(), shipStorage.getHeight());
+        }
+        List<ShipStorage.Placement> placements = shipStorage.getPlacements();
+        for (int i = 0; i < placements.size(); i++) {
+            ShipStorage.Placement placement = placements.get(i);
+            journal.recordPlacement(matchId, player, placement.start().getX(), placement.start().getY(),
+                    placement.vertical(), placement.ship().getId(), placement.ship().getLength(),
+                    placement.ship().getSymbol().charAt(0));
+        }
+    }
+
+    /**
+     * Records the outcome of an attack.
+     *
+     * @param attacker  the ID of the attacking player
+     * @param target    the attacked coordinates
+     * @param hitStatus the result of the attack
+     */
+    @Override
+    public void attacked(int attacker, Coordinates target, HitStatus hitStatus) {
+        journal.recordAttack(matchId, attacker, target.getX(), target.getY(), hitStatus.ordinal(), roundAttacked);
+        roundAttacked = true;
+    }
+
+    /**
+     * Starts a new salvo with the next recorded attack.
+     *
+     * @param match the match
+     */
+    @Override
+    public void roundStarted(Match match) {
+        roundAttacked = false;
+    }
+
+    /**
+     * Records a skipped turn; a random shot is recorded as an attack.
+     *
+     * @param player the ID of the player whose turn expired
+     * @param policy how the turn is resolved
+     */
+    @Override
+    public void timedOut(int player, TimeoutEvent.Policy policy) {
+        if (policy == TimeoutEvent.Policy.SKIP) {
+            journal.recordSkip(matchId, player);
+        }
+    }
+
+    /**
+     * Records the end of the match.
+     *
+     * @param winner the ID of the winning player
+     */
+    @Override
+    public void ended(int winner) {
+        if (matchId >= 0) {
+            journal.endMatch(matchId, winner);
+        }
+    }
+}
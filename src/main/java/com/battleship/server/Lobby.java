@@ -0,0 +1,268 @@
+package com.battleship.server;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.battleship.events.JoinEvent;
+import com.battleship.metrics.LatencyHistogram;
+
+/**
+ * The Lobby class collects players waiting for an opponent and pairs them on a
+ * matcher thread of its own.
+ *
+ * {@link #enqueue(Object, Ticket)} only adds the player to a concurrent queue,
+ * so the accepting thread never waits for pairing. The matcher drains the queue
+ * and pairs players that asked for the same board size. If a rating window is
+ * configured, two players are only paired if their ratings differ by at most
+ * the window, which widens by one window per second the older player has
+ * waited; otherwise players are paired in arrival order.
+ *
+ * @param <T> the type of the waiting connections
+ */
+public class Lobby<T> {
+
+    /**
+     * Rating of players that do not send one.
+     */
+    public static final int DEFAULT_RATING = JoinEvent.DEFAULT_RATING;
+
+    /**
+     * The request of a waiting player: skill rating and board size.
+     */
+    public record Ticket(int rating, int width, int height) {
+
+        /**
+         * Ticket of a player that did not ask for anything.
+         */
+        public static final Ticket DEFAULT = new Ticket(DEFAULT_RATING, JoinEvent.DEFAULT_WIDTH,
+                JoinEvent.DEFAULT_HEIGHT);
+    }
+
+    /**
+     * Receives the pairs formed by the lobby, on the matcher thread.
+     *
+     * @param <T> the type of the waiting connections
+     */
+    public interface PairHandler<T> {
+
+        /**
+         * Starts a match between two players. May block, the matcher pauses
+         * meanwhile, but accepting continues.
+         *
+         * @param playerA the player who waited longer
+         * @param playerB the other player
+         */
+        void paired(T playerA, T playerB);
+    }
+
+    // how often waiting players are matched again although nobody arrived
+    private static final long SWEEP_INTERVAL_MILLIS = 100;
+    private static final Comparator<Waiting<?>> BY_RATING = Comparator.comparingInt(w -> w.ticket.rating());
+
+    private final PairHandler<T> handler;
+    private final int ratingWindow;
+    private final BlockingQueue<Waiting<T>> arrivals = new LinkedBlockingQueue<>();
+    // players taken from the queue, by board size, only used by the matcher
+    private final Map<Long, List<Waiting<T>>> waitingBySize = new HashMap<>();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final LongAdder pairs = new LongAdder();
+
+    /**
+     * Constructs a Lobby.
+     *
+     * @param handler      receives the pairs
+     * @param ratingWindow the largest rating difference of a pair when neither
+     *                     player has waited yet, 0 to ignore ratings
+     */
+    public Lobby(PairHandler<T> handler, int ratingWindow) {
+        this.handler = handler;
+        this.ratingWindow = ratingWindow;
+    }
+
+    /**
+     * Starts the matcher thread.
+     */
+    public void start() {
+        Thread matcher = new Thread(this::run, "lobby-matcher");
+        matcher.setDaemon(true);
+        matcher.start();
+    }
+
+    /**
+     * Adds a player to the lobby. Thread-safe and never blocks.
+     *
+     * @param player the connection of the player
+     * @param ticket what the player asked for
+     */
+    public void enqueue(T player, Ticket ticket) {
+        queueDepth.incrementAndGet();
+        arrivals.add(new Waiting<>(player, ticket, System.nanoTime()));
+    }
+
+    /**
+     * Retrieves the number of players waiting for an opponent.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Retrieves the time paired players waited for their opponent.
+     *
+     * @return the wait time histogram in nanoseconds
+     */
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * Retrieves the number of board sizes players are waiting for. Only for the
+     * matcher thread.
+     *
+     * @return the number of board sizes
+     */
+    int getWaitingBoardSizes() {
+        return waitingBySize.size();
+    }
+
+    /**
+     * Retrieves the number of pairs formed so far.
+     *
+     * @return the number of pairs
+     */
+    public long getPairs() {
+        return pairs.sum();
+    }
+
+    /**
+     * Runs the matcher until the thread dies with the JVM.
+     */
+    private void run() {
+        while (true) {
+            try {
+                Waiting<T> arrival = arrivals.poll(SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (arrival != null) {
+                    add(arrival);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            matchWaiting(System.nanoTime());
+        }
+    }
+
+    /**
+     * Takes all players out of the queue and pairs as many as possible.
+     *
+     * @param now the current time of {@link System#nanoTime()}
+     */
+    void matchWaiting(long now) {
+        Waiting<T> arrival;
+        while ((arrival = arrivals.poll()) != null) {
+            add(arrival);
+        }
+        Iterator<List<Waiting<T>>> sizes = waitingBySize.values().iterator();
+        while (sizes.hasNext()) {
+            List<Waiting<T>> waiting = sizes.next();
+            if (waiting.size() >= 2) {
+                matchBoardSize(waiting, now);
+            }
+            if (waiting.isEmpty()) {
+                // board sizes nobody waits for any more are not kept around
+                sizes.remove();
+            }
+        }
+    }
+
+    /**
+     * Sorts the players of one board size by rating, a stable sort that keeps the
+     * arrival order among equal ratings, and pairs neighbours that are close
+     * enough. Without a rating window the players stay in arrival order.
+     */
+    private void matchBoardSize(List<Waiting<T>> waiting, long now) {
+        if (ratingWindow > 0) {
+            waiting.sort(BY_RATING);
+        }
+        List<Waiting<T>> unpaired = new ArrayList<>();
+        Waiting<T> previous = null;
+        for (Waiting<T> current : waiting) {
+            if (previous != null && closeEnough(previous, current, now)) {
+                pair(previous, current, now);
+                previous = null;
+            } else {
+                if (previous != null) {
+                    unpaired.add(previous);
+                }
+                previous = current;
+            }
+        }
+        if (previous != null) {
+            unpaired.add(previous);
+        }
+        waiting.clear();
+        waiting.addAll(unpaired);
+    }
+
+    /**
+     * Checks whether two players of the same board size may be paired.
+     */
+    private boolean closeEnough(Waiting<T> a, Waiting<T> b, long now) {
+        if (ratingWindow <= 0) {
+            return true;
+        }
+        long waitedSeconds = TimeUnit.NANOSECONDS.toSeconds(now - Math.min(a.since, b.since));
+        long window = ratingWindow * (1 + waitedSeconds);
+        return Math.abs(a.ticket.rating() - b.ticket.rating()) <= window;
+    }
+
+    /**
+     * Hands a pair to the handler, the player who waited longer first.
+     */
+    private void pair(Waiting<T> a, Waiting<T> b, long now) {
+        queueDepth.addAndGet(-2);
+        waitTime.record(now - a.since);
+        waitTime.record(now - b.since);
+        pairs.increment();
+        if (a.since <= b.since) {
+            handler.paired(a.player, b.player);
+        } else {
+            handler.paired(b.player, a.player);
+        }
+    }
+
+    /**
+     * Files a player under its board size.
+     */
+    private void add(Waiting<T> waiting) {
+        long size = ((long) waiting.ticket.width() << 32) | waiting.ticket.height();
+        waitingBySize.computeIfAbsent(size, key -> new ArrayList<>()).add(waiting);
+    }
+
+    /**
+     * A player waiting in the lobby.
+     */
+    private static class Waiting<T> {
+        private final T player;
+        private final Ticket ticket;
+        private final long since;
+
+        Waiting(T player, Ticket ticket, long since) {
+            this.player = player;
+            this.ticket = ticket;
+            this.since = since;
+        }
+    }
+}
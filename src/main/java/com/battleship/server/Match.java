@@ -0,0 +1,691 @@
+package com.battleship.server;
+
+import java.net.ProtocolException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.battleship.client.BattleshipException;
+import com.battleship.client.ClientDisconnectException;
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.Ship;
+import com.battleship.client.ShipStorage;
+import com.battleship.client.ShipStorageBuilder;
+import com.battleship.events.AttackEvent;
+import com.battleship.events.AttackerFeedbackEvent;
+import com.battleship.events.DefenderFeedbackEvent;
+import com.battleship.events.FleetLayoutEvent;
+import com.battleship.events.JoinEvent;
+import com.battleship.events.RoundStartEvent;
+import com.battleship.events.RoundStartEvent.AttackStatus;
+import com.battleship.events.RoundStartEvent.GameStatus;
+import com.battleship.events.SalvoEvent;
+import com.battleship.events.SalvoResultEvent;
+import com.battleship.events.TimeoutEvent;
+
+/**
+ * The Match class holds the rules of a match between two players as a state
+ * machine. It does no I/O itself: received messages are fed in with
+ * {@link #receive(int, Object)} and every answer is handed to an {@link Outbox},
+ * so the blocking and the non-blocking server share the same rules.
+ */
+class Match {
+
+    /**
+     * Destination of the messages produced by a match.
+     */
+    interface Outbox {
+
+        /**
+         * Sends a message to the specified player.
+         *
+         * @param message the message to send
+         * @param player  the ID of the player
+         * @throws ClientDisconnectException if the player has disconnected
+         */
+        void send(Object message, int player) throws ClientDisconnectException;
+    }
+
+    /**
+     * Observer of the state changes of a match, called on the thread driving the
+     * match before the players are informed.
+     */
+    interface Listener {
+
+        /**
+         * Called when a player has placed the fleet.
+         *
+         * @param player      the ID of the player
+         * @param shipStorage the fleet of the player
+         */
+        default void placed(int player, ShipStorage shipStorage) {
+        }
+
+        /**
+         * Called after every legal attack.
+         *
+         * @param attacker  the ID of the attacking player
+         * @param target    the attacked coordinates
+         * @param hitStatus the result of the attack
+         */
+        default void attacked(int attacker, Coordinates target, HitStatus hitStatus) {
+        }
+
+        /**
+         * Called at the start of every round of the attack phase, before the
+         * players are told whose turn it is.
+         *
+         * @param match the match, in a consistent state between two turns
+         */
+        default void roundStarted(Match match) {
+        }
+
+        /**
+         * Called when the server resolved a turn or placement the player did not
+         * answer in time, before the resolution takes effect.
+         *
+         * @param player the ID of the player whose turn expired
+         * @param policy how the turn is resolved
+         */
+        default void timedOut(int player, TimeoutEvent.Policy policy) {
+        }
+
+        /**
+         * Called once when the match is over.
+         *
+         * @param winner the ID of the winning player
+         */
+        default void ended(int winner) {
+        }
+    }
+
+    /**
+     * Phases of a match.
+     */
+    enum Phase {
+        PLACEMENT,
+        ATTACK,
+        OVER
+    }
+
+    /**
+     * The ships of a normal game, as the servers require them.
+     */
+    static final Ship[] STANDARD_FLEET = new ShipStorageBuilder().getShips();
+
+    /**
+     * The most shots of a salvo, as its frame counts them in one byte.
+     */
+    static final int MAX_SALVO = 255;
+
+    static final String ERR_SALVO_SIZE = "A salvo has between 1 and %d shots.";
+
+    private final Outbox outbox;
+    private final Listener[] listeners;
+    private final ShipStorage[] shipStorages = new ShipStorage[2];
+    private Phase phase = Phase.PLACEMENT;
+
+    private int attackingPlayer = 0;
+    // remembers whether the attacking player is attacking or even attacking again
+    // because the last attack was successful
+    private AttackStatus currentAttackStatus = AttackStatus.ATTACK;
+    private AttackStatus currentDefendStatus = AttackStatus.DEFEND;
+    // the placement phase and every round of the attack phase, see getTurn()
+    private long turn;
+    // the ships every player has to place, null to accept any fleet
+    private Ship[] fleet;
+    // the most cells an attacker may attack in one turn
+    private int salvo = 1;
+    // the board size the players were paired on, 0 to accept any size
+    private int width;
+    private int height;
+
+    /**
+     * Constructs a Match that sends its messages to the given outbox.
+     *
+     * @param outbox    the destination of the messages of the match
+     * @param listeners the observers of the match
+     */
+    Match(Outbox outbox, Listener... listeners) {
+        this.outbox = outbox;
+        this.listeners = listeners;
+    }
+
+    /**
+     * Sets the ships every player has to place. A fleet layout is then built
+     * into a board of these ships, and a placed board must hold ships of the
+     * same lengths in the same order. Call before the first placement arrives.
+     *
+     * @param fleet the ships of each player
+     */
+    void setFleet(Ship[] fleet) {
+        this.fleet = fleet;
+    }
+
+    /**
+     * Sets the board size the players were paired on. A fleet layout or a
+     * placed board of another size is then rejected like a wrong fleet, so
+     * neither player can hide a fleet on a larger board. Call before the first
+     * placement arrives.
+     *
+     * @param width  the width of both boards
+     * @param height the height of both boards
+     */
+    void setBoardSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Lets attackers fire salvos: up to the given number of shots in one turn,
+     * resolved together and answered with one result for both players. A
+     * single attack stays a salvo of one shot.
+     *
+     * @param salvo the most shots per turn, 1 for single attacks only
+     */
+    void setSalvo(int salvo) {
+        this.salvo = salvo;
+    }
+
+    /**
+     * Rebuilds a match in the attack phase from a snapshot. Call
+     * {@link #resume()} once both players are connected again.
+     *
+     * @param outbox    the destination of the messages of the match
+     * @param snapshot  the checkpoint of the match
+     * @param listeners the observers of the match
+     * @return the restored match
+     */
+    static Match restore(Outbox outbox, MatchSnapshot snapshot, Listener... listeners) {
+        Match match = new Match(outbox, listeners);
+        for (int i = 0; i < 2; i++) {
+            match.shipStorages[i] = snapshot.getShipStorage(i);
+        }
+        match.phase = Phase.ATTACK;
+        match.attackingPlayer = snapshot.getAttackingPlayer();
+        match.currentAttackStatus = snapshot.getAttackStatus();
+        match.currentDefendStatus = snapshot.getAttackStatus() == AttackStatus.ATTACK_AGAIN
+                ? AttackStatus.DEFEND_AGAIN
+                : AttackStatus.DEFEND;
+        return match;
+    }
+
+    /**
+     * Continues a restored match by starting the round it was checkpointed in.
+     *
+     * @throws ClientDisconnectException if a client has disconnected
+     */
+    void resume() throws ClientDisconnectException {
+        nextRound();
+    }
+
+    /**
+     * Encodes a snapshot of the match. Only valid in the attack phase.
+     *
+     * @param matchId the ID of the match
+     * @param tokens  the resume tokens of both players
+     * @return the encoded snapshot
+     */
+    byte[] snapshot(long matchId, long[] tokens) {
+        return MatchSnapshot.encode(matchId, tokens, shipStorages, attackingPlayer, currentAttackStatus);
+    }
+
+    /**
+     * Returns the fleet of a player.
+     *
+     * @param player the ID of the player
+     * @return the ship storage, null while the player has not placed the fleet
+     */
+    ShipStorage getShipStorage(int player) {
+        return shipStorages[player];
+    }
+
+    /**
+     * Returns the current phase of the match.
+     *
+     * @return the current phase
+     */
+    Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Returns the number of the current turn. The placement phase is one turn
+     * and every round of the attack phase another, so a deadline scheduled for
+     * one turn can tell that it has passed. Every round start tells the players
+     * the turn, and their attacks carry it back.
+     *
+     * @return the turn number
+     */
+    long getTurn() {
+        return turn;
+    }
+
+    /**
+     * Checks whether the match is over.
+     *
+     * @return true if the match is over, false otherwise
+     */
+    boolean isOver() {
+        return phase == Phase.OVER;
+    }
+
+    /**
+     * Checks whether the match waits for a message of the specified player.
+     *
+     * @param player the ID of the player
+     * @return true if a message of the player is expected
+     */
+    boolean isAwaiting(int player) {
+        switch (phase) {
+            case PLACEMENT:
+                return shipStorages[player] == null;
+            case ATTACK:
+                return player == attackingPlayer;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the player whose message should be read next by a server that reads
+     * one player at a time.
+     *
+     * @return the ID of the player, or -1 if the match is over
+     */
+    int awaitedPlayer() {
+        for (int i = 0; i < 2; i++) {
+            if (isAwaiting(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Feeds a message received from a player into the match.
+     *
+     * @param player  the ID of the sending player
+     * @param message the received message
+     * @throws ClientDisconnectException if a client has disconnected
+     * @throws ProtocolException         if the message was not expected
+     */
+    void receive(int player, Object message) throws ClientDisconnectException, ProtocolException {
+        if (message instanceof AttackEvent attack && isStale(player, attack.turn())
+                || message instanceof SalvoEvent salvoEvent && isStale(player, salvoEvent.turn())) {
+            // sent before the player learnt that its turn expired
+            return;
+        }
+        if (!isAwaiting(player)) {
+            throw new ProtocolException("Unexpected message from player " + player);
+        }
+        if (phase == Phase.PLACEMENT && message instanceof JoinEvent) {
+            // the join request was already handled by the lobby
+            return;
+        } else if (phase == Phase.PLACEMENT
+                && (message instanceof ShipStorage || message instanceof FleetLayoutEvent)) {
+            // phase one: wait for ship storages of both players
+            ShipStorage shipStorage = message instanceof FleetLayoutEvent layout ? build(player, layout)
+                    : checkFleet(player, (ShipStorage) message);
+            shipStorages[player] = shipStorage;
+            for (Listener listener : listeners) {
+                listener.placed(player, shipStorage);
+            }
+            if (shipStorages[otherPlayer(player)] != null) {
+                // phase two: game, players attack each other and receive feedback
+                phase = Phase.ATTACK;
+                nextRound();
+            }
+        } else if (phase == Phase.ATTACK && message instanceof AttackEvent attack) {
+            handleAttack(attack.coordinates());
+        } else if (phase == Phase.ATTACK && message instanceof SalvoEvent salvoEvent) {
+            handleSalvo(salvoEvent.targets());
+        } else {
+            throw new ProtocolException("Unexpected message type from player " + player);
+        }
+    }
+
+    /**
+     * Checks whether an attack answers a turn before the current one. Such an
+     * answer arrived after the turn expired and is dropped, whoever is awaited
+     * now.
+     *
+     * @param player the ID of the attacking player
+     * @param turn   the turn the attack answers
+     * @return true if the attack answers an earlier turn
+     * @throws ProtocolException if the attack answers a turn not started yet
+     */
+    private boolean isStale(int player, int turn) throws ProtocolException {
+        if (turn > (int) this.turn) {
+            throw new ProtocolException("Attack of player " + player + " answers turn " + turn + " of "
+                    + this.turn);
+        }
+        return turn < (int) this.turn;
+    }
+
+    /**
+     * Builds the board of a player from the layout of its fleet, placing the
+     * ships of the match where the layout puts them.
+     *
+     * @param player the ID of the placing player
+     * @param layout the received layout
+     * @return the board of the player
+     * @throws ProtocolException if the layout does not fit the fleet, the
+     *                           fleet rules or the board size of the match
+     */
+    private ShipStorage build(int player, FleetLayoutEvent layout) throws ProtocolException {
+        if (fleet == null || layout.size() != fleet.length) {
+            throw new ProtocolException("Fleet layout of player " + player + " does not match the fleet");
+        }
+        checkBoardSize(player, layout.width(), layout.height());
+        ShipStorage shipStorage = ShipStorage.create(layout.width(), layout.height());
+        try {
+            for (int i = 0; i < fleet.length; i++) {
+                shipStorage.addShip(Coordinates.of(layout.x()[i], layout.y()[i]), layout.vertical()[i], fleet[i]);
+            }
+        } catch (BattleshipException e) {
+            throw new ProtocolException("Invalid fleet layout of player " + player + ": " + e.getMessage());
+        }
+        return shipStorage;
+    }
+
+    /**
+     * Checks that a board placed by a player holds the ships of the match.
+     *
+     * @param player      the ID of the placing player
+     * @param shipStorage the received board
+     * @return the board
+     * @throws ProtocolException if the board holds other ships than the fleet
+     *                           or has another size than the match
+     */
+    private ShipStorage checkFleet(int player, ShipStorage shipStorage) throws ProtocolException {
+        checkBoardSize(player, shipStorage.getWidth(), shipStorage.getHeight());
+        if (fleet == null) {
+            return shipStorage;
+        }
+        boolean valid = shipStorage.getPlacements().size() == fleet.length;
+        for (int i = 0; valid && i < fleet.length; i++) {
+            valid = shipStorage.getPlacements().get(i).ship().getLength() == fleet[i].getLength();
+        }
+        if (!valid) {
+            throw new ProtocolException("Placement of player " + player + " does not match the fleet");
+        }
+        return shipStorage;
+    }
+
+    /**
+     * Checks that a player placed the fleet on a board of the size the players
+     * were paired on.
+     *
+     * @param player the ID of the placing player
+     * @param width  the width of the placed board
+     * @param height the height of the placed board
+     * @throws ProtocolException if the board has another size
+     */
+    private void checkBoardSize(int player, int width, int height) throws ProtocolException {
+        if (this.width > 0 && (width != this.width || height != this.height)) {
+            throw new ProtocolException(String.format("Board of player %d is %dx%d instead of %dx%d", player, width,
+                    height, this.width, this.height));
+        }
+    }
+
+    /**
+     * Resolves the current turn because the awaited player did not answer in
+     * time. An expired placement is always forfeited, by the first player if
+     * neither has placed. A late answer to the expired turn still carries its
+     * turn, so it is dropped when it arrives, even if the player attacks again
+     * in the next turn.
+     *
+     * @param policy how to resolve an expired attack
+     * @throws ClientDisconnectException if a client has disconnected
+     */
+    void expire(TimeoutEvent.Policy policy) throws ClientDisconnectException {
+        int player = awaitedPlayer();
+        if (player < 0) {
+            return;
+        }
+        if (phase == Phase.PLACEMENT) {
+            policy = TimeoutEvent.Policy.FORFEIT;
+        }
+        for (Listener listener : listeners) {
+            listener.timedOut(player, policy);
+        }
+        int other = otherPlayer(player);
+        switch (policy) {
+            case SKIP:
+                sendTimeout(policy, player, null, null);
+                attackingPlayer = other;
+                currentAttackStatus = AttackStatus.ATTACK;
+                currentDefendStatus = AttackStatus.DEFEND;
+                nextRound();
+                break;
+            case RANDOM_SHOT:
+                Coordinates target = randomTarget(shipStorages[other]);
+                HitStatus hitStatus;
+                try {
+                    hitStatus = shipStorages[other].attack(target);
+                } catch (BattleshipException e) {
+                    throw new IllegalStateException("Random shot at an attacked cell " + target, e);
+                }
+                for (Listener listener : listeners) {
+                    listener.attacked(player, target, hitStatus);
+                }
+                sendTimeout(policy, player, target, hitStatus);
+                updateAttacker(hitStatus);
+                nextRound();
+                break;
+            case FORFEIT:
+                phase = Phase.OVER;
+                for (Listener listener : listeners) {
+                    listener.ended(other);
+                }
+                sendTimeout(policy, player, null, null);
+                outbox.send(new RoundStartEvent(GameStatus.YOU_WON, null, (int) turn), other);
+                outbox.send(new RoundStartEvent(GameStatus.YOU_LOST, null, (int) turn), player);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown policy " + policy);
+        }
+    }
+
+    /**
+     * Ends the match because a player disconnected and informs the other player.
+     *
+     * @param e the exception describing the disconnect
+     */
+    void playerDisconnected(ClientDisconnectException e) {
+        if (phase == Phase.OVER) {
+            return;
+        }
+        phase = Phase.OVER;
+        for (Listener listener : listeners) {
+            listener.ended(otherPlayer(e.getDisconnectId()));
+        }
+        // inform other client that he won because of disconnect of the first client
+        try {
+            outbox.send(e, otherPlayer(e.getDisconnectId()));
+        } catch (ClientDisconnectException e2) {
+            // both clients disconnected, don't do anything
+        }
+    }
+
+    /**
+     * Starts the next round, or ends the match if a player lost all ships.
+     *
+     * @throws ClientDisconnectException if a client has disconnected
+     */
+    private void nextRound() throws ClientDisconnectException {
+        turn++;
+        if (isGameOver()) {
+            phase = Phase.OVER;
+            return;
+        }
+        for (Listener listener : listeners) {
+            listener.roundStarted(this);
+        }
+        // inform players who is attacking
+        outbox.send(new RoundStartEvent(GameStatus.GAME_ON, currentAttackStatus, (int) turn), attackingPlayer);
+        outbox.send(new RoundStartEvent(GameStatus.GAME_ON, currentDefendStatus, (int) turn),
+                otherPlayer(attackingPlayer));
+    }
+
+    /**
+     * Checks if the game is over.
+     *
+     * @return true if the game is over, false otherwise
+     * @throws ClientDisconnectException if a client has disconnected
+     */
+    private boolean isGameOver() throws ClientDisconnectException {
+        // invariant: only one player may win at once (never a tie)
+        for (int i = 0; i < 2; i++) {
+            if (shipStorages[i].isCompletelyDestroyed()) {
+                int looser = i;
+                int winner = otherPlayer(i);
+                for (Listener listener : listeners) {
+                    listener.ended(winner);
+                }
+                outbox.send(new RoundStartEvent(GameStatus.YOU_WON, null, (int) turn), winner);
+                outbox.send(new RoundStartEvent(GameStatus.YOU_LOST, null, (int) turn), looser);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Handles an attack of the attacking player.
+     *
+     * @param attackCoordinates the attacked coordinates
+     * @throws ClientDisconnectException if a client has disconnected
+     */
+    private void handleAttack(Coordinates attackCoordinates) throws ClientDisconnectException {
+        int defendingPlayer = otherPlayer(attackingPlayer);
+        HitStatus hitStatus;
+        try {
+            hitStatus = shipStorages[defendingPlayer].attack(attackCoordinates);
+        } catch (BattleshipException e) {
+            // attack was semantically incorrect, the attacker tries again
+            outbox.send(new AttackerFeedbackEvent(false, null, e, shipStorages[defendingPlayer].getRemainingShips()),
+                    attackingPlayer);
+            return;
+        }
+        for (Listener listener : listeners) {
+            listener.attacked(attackingPlayer, attackCoordinates, hitStatus);
+        }
+        // inform both players about attack
+        int shipsRemaining = shipStorages[defendingPlayer].getRemainingShips();
+        outbox.send(new AttackerFeedbackEvent(true, hitStatus, null, shipsRemaining), attackingPlayer);
+        outbox.send(new DefenderFeedbackEvent(attackCoordinates, hitStatus, shipsRemaining), defendingPlayer);
+
+        updateAttacker(hitStatus);
+        nextRound();
+    }
+
+    /**
+     * Handles a salvo of the attacking player. The attacker attacks again if any
+     * shot hit a ship.
+     *
+     * @param targets the attacked coordinates
+     * @throws ClientDisconnectException if a client has disconnected
+     */
+    private void handleSalvo(Coordinates[] targets) throws ClientDisconnectException {
+        int defendingPlayer = otherPlayer(attackingPlayer);
+        HitStatus[] hitStatuses;
+        try {
+            if (targets.length == 0 || targets.length > salvo) {
+                throw new BattleshipException(String.format(ERR_SALVO_SIZE, salvo));
+            }
+            hitStatuses = shipStorages[defendingPlayer].attack(targets);
+        } catch (BattleshipException e) {
+            // the salvo is rejected as a whole, the attacker tries again
+            outbox.send(new AttackerFeedbackEvent(false, null, e, shipStorages[defendingPlayer].getRemainingShips()),
+                    attackingPlayer);
+            return;
+        }
+        for (int i = 0; i < targets.length; i++) {
+            for (Listener listener : listeners) {
+                listener.attacked(attackingPlayer, targets[i], hitStatuses[i]);
+            }
+        }
+        int shipsRemaining = shipStorages[defendingPlayer].getRemainingShips();
+        SalvoResultEvent result = new SalvoResultEvent(true, targets, hitStatuses, shipsRemaining);
+        outbox.send(result, attackingPlayer);
+        outbox.send(new SalvoResultEvent(false, targets, hitStatuses, shipsRemaining), defendingPlayer);
+
+        updateAttacker(result.anyHit() ? HitStatus.HIT : HitStatus.MISSED);
+        nextRound();
+    }
+
+    /**
+     * Decides who attacks in the next round after an attack.
+     *
+     * @param hitStatus the result of the attack
+     */
+    private void updateAttacker(HitStatus hitStatus) {
+        // use hitStatus to find out who attacks afterwards, and update variables to
+        // inform players precisely in next round whether they are defending or
+        // attacking (again)
+        if (hitStatus == HitStatus.HIT || hitStatus == HitStatus.DESTROYED) {
+            currentAttackStatus = AttackStatus.ATTACK_AGAIN;
+            currentDefendStatus = AttackStatus.DEFEND_AGAIN;
+        } else {
+            attackingPlayer = otherPlayer(attackingPlayer);
+            currentAttackStatus = AttackStatus.ATTACK;
+            currentDefendStatus = AttackStatus.DEFEND;
+        }
+    }
+
+    /**
+     * Informs both players of an expired turn.
+     *
+     * @param policy    how the turn was resolved
+     * @param player    the ID of the player whose turn expired
+     * @param target    the randomly attacked cell, null for none
+     * @param hitStatus the result of the random shot, null for none
+     * @throws ClientDisconnectException if a client has disconnected
+     */
+    private void sendTimeout(TimeoutEvent.Policy policy, int player, Coordinates target, HitStatus hitStatus)
+            throws ClientDisconnectException {
+        int other = otherPlayer(player);
+        int shipsRemaining = shipStorages[other] == null ? 0 : shipStorages[other].getRemainingShips();
+        outbox.send(new TimeoutEvent(policy, true, target, hitStatus, shipsRemaining), player);
+        outbox.send(new TimeoutEvent(policy, false, target, hitStatus, shipsRemaining), other);
+    }
+
+    /**
+     * Picks a cell of a board that was not attacked yet: a few random guesses,
+     * then the first such cell from a random start, so a nearly full board is
+     * not probed forever.
+     *
+     * @param shipStorage the attacked board, not completely destroyed
+     * @return the coordinates of the cell
+     */
+    private static Coordinates randomTarget(ShipStorage shipStorage) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int width = shipStorage.getWidth();
+        long cells = (long) width * shipStorage.getHeight();
+        for (int i = 0; i < 16; i++) {
+            long cell = random.nextLong(cells);
+            if (shipStorage.getHitStatus((int) (cell % width), (int) (cell / width)) == HitStatus.NOT_ATTTACKED) {
+                return Coordinates.of((int) (cell % width), (int) (cell / width));
+            }
+        }
+        long start = random.nextLong(cells);
+        for (long i = 0; i < cells; i++) {
+            long cell = (start + i) % cells;
+            if (shipStorage.getHitStatus((int) (cell % width), (int) (cell / width)) == HitStatus.NOT_ATTTACKED) {
+                return Coordinates.of((int) (cell % width), (int) (cell / width));
+            }
+        }
+        throw new IllegalStateException("Every cell was attacked");
+    }
+
+    /**
+     * Returns the ID of the other player.
+     *
+     * @param player the ID of the player
+     * @return the ID of the other player
+     */
+    static int otherPlayer(int player) {
+        return (player + 1) % 2;
+    }
+}
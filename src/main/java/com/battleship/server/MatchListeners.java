@@ -0,0 +1,90 @@
+package com.battleship.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.battleship.journal.MatchJournal;
+
+/**
+ * The optional observers attached to every new match of a server.
+ */
+final class MatchListeners {
+
+    private volatile MatchJournal journal;
+    private volatile SnapshotStore snapshots;
+    private volatile ServerMetrics metrics;
+
+    /**
+     * Sets the journal recording every new match.
+     *
+     * @param journal the journal, null to record nothing
+     */
+    void setJournal(MatchJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Sets the store checkpointing every new match.
+     *
+     * @param snapshots the snapshot store, null to checkpoint nothing
+     */
+    void setSnapshots(SnapshotStore snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * Sets the metrics counting the turns and ends of every match.
+     *
+     * @param metrics the metrics of the server, null to count nothing
+     */
+    void setMetrics(ServerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Retrieves the store checkpointing every new match.
+     *
+     * @return the snapshot store, null if matches are not checkpointed
+     */
+    SnapshotStore getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Creates the listeners of a new match.
+     *
+     * @param tokens the resume tokens of both players, stored with the snapshots
+     * @return the listeners
+     */
+    Match.Listener[] forNewMatch(long[] tokens) {
+        List<Match.Listener> listeners = new ArrayList<>(3);
+        ServerMetrics currentMetrics = metrics;
+        if (currentMetrics != null) {
+            listeners.add(currentMetrics);
+        }
+        MatchJournal currentJournal = journal;
+        if (currentJournal != null) {
+            listeners.add(new JournalListener(currentJournal));
+        }
+        SnapshotStore currentSnapshots = snapshots;
+        if (currentSnapshots != null) {
+            listeners.add(new SnapshotListener(currentSnapshots, currentSnapshots.newMatchId(), tokens));
+        }
+        return listeners.toArray(new Match.Listener[0]);
+    }
+
+    /**
+     * Creates the listeners of a match restored from a snapshot. The journal is
+     * not attached, it only holds the restored match up to the crash.
+     *
+     * @param snapshot the snapshot of the match
+     * @return the listeners
+     */
+    Match.Listener[] forRestoredMatch(MatchSnapshot snapshot) {
+        SnapshotListener snapshotListener = new SnapshotListener(snapshots, snapshot.getMatchId(),
+                snapshot.getTokens());
+        ServerMetrics currentMetrics = metrics;
+        return currentMetrics == null ? new Match.Listener[] { snapshotListener }
+                : new Match.Listener[] { currentMetrics, snapshotListener };
+    }
+}
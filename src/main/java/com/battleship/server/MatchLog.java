@@ -0,0 +1,152 @@
+package com.battleship.server;
+
+import java.util.Arrays;
+
+import com.battleship.client.ShipStorage;
+import com.battleship.events.TimeoutEvent;
+import com.battleship.logging.EventLog;
+
+/**
+ * The events of one match in the {@link EventLog} of its server. As a
+ * {@link Match.Listener} it logs placements, expired turns and the end of the
+ * match, the
+ * match handler and the sessions log what only they see: answer latencies and
+ * broken, resumed and lost connections. Every call publishes straight into the
+ * ring buffer of the event log, without blocking or allocating.
+ */
+final class MatchLog implements Match.Listener {
+
+    private final EventLog log;
+    private final long matchId;
+
+    /**
+     * Constructs the log of a match.
+     *
+     * @param log     the event log of the server
+     * @param matchId the ID of the match in the log
+     */
+    MatchLog(EventLog log, long matchId) {
+        this.log = log;
+        this.matchId = matchId;
+    }
+
+    /**
+     * Adds this log to the observers of the match.
+     *
+     * @param listeners the other observers of the match
+     * @return a copy of the observers including this log
+     */
+    Match.Listener[] attachTo(Match.Listener[] listeners) {
+        Match.Listener[] all = Arrays.copyOf(listeners, listeners.length + 1);
+        all[listeners.length] = this;
+        return all;
+    }
+
+    /**
+     * Logs the start of a new match.
+     *
+     * @param waiting the number of players left in the lobby
+     */
+    void started(int waiting) {
+        log.publish(matchId, EventLog.NONE, EventLog.Action.MATCH_STARTED, waiting);
+    }
+
+    /**
+     * Logs the continuation of a match restored from a snapshot.
+     *
+     * @param snapshotId the ID of the match in the snapshot store
+     */
+    void resumed(long snapshotId) {
+        log.publish(matchId, EventLog.NONE, EventLog.Action.MATCH_RESUMED, snapshotId);
+    }
+
+    /**
+     * Logs the first answer to an attack.
+     *
+     * @param attacker     the ID of the attacking player
+     * @param latencyNanos the time from receiving the attack to the answer
+     */
+    void answered(int attacker, long latencyNanos) {
+        log.publish(matchId, attacker, EventLog.Action.ATTACKED, latencyNanos);
+    }
+
+    /**
+     * Logs a broken connection the player may resume.
+     *
+     * @param player      the ID of the player
+     * @param graceMillis the time the player has to reconnect
+     */
+    void connectionLost(int player, long graceMillis) {
+        log.publish(matchId, player, EventLog.Action.CONNECTION_LOST, graceMillis);
+    }
+
+    /**
+     * Logs a resumed connection.
+     *
+     * @param player   the ID of the player
+     * @param replayed the number of messages sent again
+     */
+    void reconnected(int player, long replayed) {
+        log.publish(matchId, player, EventLog.Action.RECONNECTED, replayed);
+    }
+
+    /**
+     * Logs a reconnect that failed because the missed messages are no longer
+     * buffered.
+     *
+     * @param player the ID of the player
+     */
+    void resumeFailed(int player) {
+        log.publish(matchId, player, EventLog.Action.RESUME_FAILED, 0);
+    }
+
+    /**
+     * Logs a player leaving the match before it was decided.
+     *
+     * @param player the ID of the player
+     */
+    void disconnected(int player) {
+        log.publish(matchId, player, EventLog.Action.DISCONNECTED, 0);
+    }
+
+    /**
+     * Logs a malformed or unexpected message.
+     *
+     * @param player the ID of the sending player
+     */
+    void protocolError(int player) {
+        log.publish(matchId, player, EventLog.Action.PROTOCOL_ERROR, 0);
+    }
+
+    /**
+     * Logs a received placement.
+     *
+     * @param player      the ID of the placing player
+     * @param shipStorage the placed ships
+     */
+    @Override
+    public void placed(int player, ShipStorage shipStorage) {
+        log.publish(matchId, player, EventLog.Action.PLACED, 0);
+    }
+
+    /**
+     * Logs a turn or placement the player did not answer in time.
+     *
+     * @param player the ID of the player whose turn expired
+     * @param policy how the turn is resolved
+     */
+    @Override
+    public void timedOut(int player, TimeoutEvent.Policy policy) {
+        log.publish(matchId, player, EventLog.Action.TIMED_OUT, policy.ordinal());
+    }
+
+    /**
+     * Logs the end of the match.
+     *
+     * @param winner the ID of the winner
+     */
+    @Override
+    public void ended(int winner) {
+        log.publish(matchId, winner, EventLog.Action.MATCH_ENDED, 0);
+    }
+}
@@ -0,0 +1,199 @@
+package com.battleship.server;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.battleship.client.BattleshipException;
+import com.battleship.client.Coordinates;
+import com.battleship.client.Ship;
+import com.battleship.client.ShipStorage;
+import com.battleship.events.RoundStartEvent.AttackStatus;
+
+/**
+ * The MatchSnapshot class holds the checkpoint of a running match: both fleets,
+ * the attacked cells of both boards and whose turn it is, together with the
+ * resume tokens of the players.
+ *
+ * The binary form is a header followed, per player, by the ship placements in
+ * the layout of a PLACEMENT frame and a bit mask of the attacked cells. A
+ * standard 10x10 match takes about 230 bytes. The hit statuses are not stored,
+ * repeating the attacks on the rebuilt boards restores them.
+ */
+class MatchSnapshot {
+
+    private static final int MAGIC = 0x42534e50; // "BSNP"
+    private static final int VERSION = 1;
+    private static final AttackStatus[] ATTACK_STATUSES = AttackStatus.values();
+
+    private final long matchId;
+    private final long[] tokens;
+    private final ShipStorage[] shipStorages;
+    private final int attackingPlayer;
+    private final AttackStatus attackStatus;
+
+    /**
+     * Constructs a MatchSnapshot.
+     *
+     * @param matchId         the ID of the match
+     * @param tokens          the resume tokens of both players
+     * @param shipStorages    the boards of both players
+     * @param attackingPlayer the ID of the attacking player
+     * @param attackStatus    ATTACK or ATTACK_AGAIN
+     */
+    MatchSnapshot(long matchId, long[] tokens, ShipStorage[] shipStorages, int attackingPlayer,
+            AttackStatus attackStatus) {
+        this.matchId = matchId;
+        this.tokens = tokens;
+        this.shipStorages = shipStorages;
+        this.attackingPlayer = attackingPlayer;
+        this.attackStatus = attackStatus;
+    }
+
+    /**
+     * Encodes the state of a match.
+     *
+     * @param matchId         the ID of the match
+     * @param tokens          the resume tokens of both players
+     * @param shipStorages    the boards of both players
+     * @param attackingPlayer the ID of the attacking player
+     * @param attackStatus    ATTACK or ATTACK_AGAIN
+     * @return the encoded snapshot
+     */
+    static byte[] encode(long matchId, long[] tokens, ShipStorage[] shipStorages, int attackingPlayer,
+            AttackStatus attackStatus) {
+        int width = shipStorages[0].getWidth();
+        int height = shipStorages[0].getHeight();
+        int words = (width * height + 63) >>> 6;
+        int length = 4 + 1 + 3 * 8 + 2 + 2 + 1 + 1;
+        for (ShipStorage shipStorage : shipStorages) {
+            length += 1 + shipStorage.getPlacements().size() * 8 + words * 8;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(MAGIC).put((byte) VERSION);
+        buffer.putLong(matchId).putLong(tokens[0]).putLong(tokens[1]);
+        buffer.putChar((char) width).putChar((char) height);
+        buffer.put((byte) attackingPlayer).put((byte) attackStatus.ordinal());
+        for (ShipStorage shipStorage : shipStorages) {
+            List<ShipStorage.Placement> placements = shipStorage.getPlacements();
+            buffer.put((byte) placements.size());
+            for (int i = 0; i < placements.size(); i++) {
+                ShipStorage.Placement placement = placements.get(i);
+                buffer.put((byte) placement.ship().getId());
+                buffer.put((byte) placement.ship().getLength());
+                buffer.putChar((char) placement.start().getX());
+                buffer.putChar((char) placement.start().getY());
+                buffer.put((byte) (placement.vertical() ? 1 : 0));
+                buffer.put((byte) placement.ship().getSymbol().charAt(0));
+            }
+            long[] attacked = new long[words];
+            shipStorage.markAttacked(attacked);
+            for (long word : attacked) {
+                buffer.putLong(word);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a snapshot and rebuilds both boards.
+     *
+     * @param bytes the encoded snapshot
+     * @return the snapshot
+     * @throws IllegalArgumentException if the bytes are not a valid snapshot
+     */
+    static MatchSnapshot decode(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                throw new IllegalArgumentException("Not a match snapshot");
+            }
+            long matchId = buffer.getLong();
+            long[] tokens = { buffer.getLong(), buffer.getLong() };
+            int width = buffer.getChar();
+            int height = buffer.getChar();
+            int attackingPlayer = buffer.get();
+            AttackStatus attackStatus = ATTACK_STATUSES[buffer.get()];
+            ShipStorage[] shipStorages = new ShipStorage[2];
+            for (int player = 0; player < 2; player++) {
+                shipStorages[player] = decodeBoard(buffer, width, height);
+            }
+            return new MatchSnapshot(matchId, tokens, shipStorages, attackingPlayer, attackStatus);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | BattleshipException e) {
+            throw new IllegalArgumentException("Corrupt match snapshot", e);
+        }
+    }
+
+    /**
+     * Places the ships of one player and repeats the attacks on its board.
+     */
+    private static ShipStorage decodeBoard(ByteBuffer buffer, int width, int height) throws BattleshipException {
+        ShipStorage shipStorage = ShipStorage.create(width, height);
+        int shipCount = buffer.get() & 0xFF;
+        for (int i = 0; i < shipCount; i++) {
+            int id = buffer.get() & 0xFF;
+            int length = buffer.get() & 0xFF;
+            int x = buffer.getChar();
+            int y = buffer.getChar();
+            boolean vertical = buffer.get() != 0;
+            char symbol = (char) (buffer.get() & 0xFF);
+            shipStorage.addShip(new Coordinates(x, y), vertical, new Ship(id, length, String.valueOf(symbol)));
+        }
+        int words = (width * height + 63) >>> 6;
+        for (int word = 0; word < words; word++) {
+            long attacked = buffer.getLong();
+            while (attacked != 0) {
+                int cell = word * 64 + Long.numberOfTrailingZeros(attacked);
+                shipStorage.attack(Coordinates.of(cell % width, cell / width));
+                attacked &= attacked - 1;
+            }
+        }
+        return shipStorage;
+    }
+
+    /**
+     * Retrieves the ID of the match.
+     *
+     * @return the match ID
+     */
+    long getMatchId() {
+        return matchId;
+    }
+
+    /**
+     * Retrieves the resume tokens of both players.
+     *
+     * @return the tokens, indexed by player
+     */
+    long[] getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Retrieves the rebuilt board of a player.
+     *
+     * @param player the ID of the player
+     * @return the ship storage
+     */
+    ShipStorage getShipStorage(int player) {
+        return shipStorages[player];
+    }
+
+    /**
+     * Retrieves the player whose turn it is.
+     *
+     * @return the ID of the attacking player
+     */
+    int getAttackingPlayer() {
+        return attackingPlayer;
+    }
+
+    /**
+     * Retrieves whether the attacking player attacks for the first time or again.
+     *
+     * @return ATTACK or ATTACK_AGAIN
+     */
+    AttackStatus getAttackStatus() {
+        return attackStatus;
+    }
+}
@@ -0,0 +1,761 @@
+package com.battleship.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.battleship.client.ClientDisconnectException;
+import com.battleship.events.AttackEvent;
+import com.battleship.events.FleetLayoutEvent;
+import com.battleship.events.JoinEvent;
+import com.battleship.events.SalvoEvent;
+import com.battleship.events.TimeoutEvent;
+import com.battleship.journal.MatchJournal;
+import com.battleship.logging.EventLog;
+import com.battleship.metrics.MetricsRegistry;
+import com.battleship.protocol.Frame;
+import com.battleship.protocol.ProtocolCodec;
+
+/**
+ * Non-blocking server core. A selector on the starting thread accepts
+ * connections and reads their first frame, a join request or a placement, into
+ * a {@link Lobby} ticket. Every pair the lobby forms is then handed to one of a
+ * fixed number of event loops. The first frame stays in the read buffer of the
+ * connection, so the match still receives an early placement and skips the join
+ * request. An event loop owns the connections and the
+ * {@link Match} of its pairs, so the rules of a match always run on one thread
+ * and idle players cost no thread at all. Deadlines of turns expire on the
+ * shared {@link TimingWheel} and are handed to the event loop of their match.
+ */
+public class NioServer {
+
+    private static final int READ_BUFFER_LENGTH = 2 * ProtocolCodec.MAX_FRAME_LENGTH;
+    private static final int WRITE_BUFFER_LENGTH = 2 * ProtocolCodec.MAX_FRAME_LENGTH;
+
+    private final EventLoop[] eventLoops;
+    // only used by the lobby matcher thread
+    private int nextEventLoop = 0;
+    private final Lobby<Player> lobby;
+    // only used by the accepting thread
+    private final Frame firstFrame = new Frame();
+    private final MatchListeners listeners = new MatchListeners();
+    private final ServerMetrics metrics;
+    private volatile EventLog log = EventLog.standardOutput();
+    private final AtomicLong matchIds = new AtomicLong();
+    private final TimingWheel wheel = new TimingWheel(TimingWheel.DEFAULT_TICK_MILLIS,
+            TimingWheel.DEFAULT_WHEEL_SIZE);
+    private volatile Deadlines deadlines = null;
+    private volatile int salvo = 1;
+
+    /**
+     * Constructs a NioServer with the given number of event loops.
+     *
+     * @param eventLoops the number of event-loop threads
+     * @throws IOException if a selector cannot be opened
+     */
+    public NioServer(int eventLoops) throws IOException {
+        this(eventLoops, 0);
+    }
+
+    /**
+     * Constructs a NioServer with the given number of event loops and lobby
+     * rating window.
+     *
+     * @param eventLoops   the number of event-loop threads
+     * @param ratingWindow the largest rating difference of a new pair, 0 to
+     *                     ignore ratings
+     * @throws IOException if a selector cannot be opened
+     */
+    public NioServer(int eventLoops, int ratingWindow) throws IOException {
+        this.lobby = new Lobby<>(this::startMatch, ratingWindow);
+        this.metrics = new ServerMetrics(lobby);
+        listeners.setMetrics(metrics);
+        this.eventLoops = new EventLoop[eventLoops];
+        for (int i = 0; i < eventLoops; i++) {
+            this.eventLoops[i] = new EventLoop(metrics);
+        }
+    }
+
+    /**
+     * Sets the journal recording every match started from now on.
+     *
+     * @param journal the journal, null to record nothing
+     */
+    public void setJournal(MatchJournal journal) {
+        listeners.setJournal(journal);
+    }
+
+    /**
+     * Sets the log receiving the connection and match events from now on.
+     *
+     * @param log the event log
+     */
+    public void setLog(EventLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Limits the time players have to answer in every match started from now
+     * on. An expired turn is resolved by the policy and the match goes on, an
+     * expired placement is forfeited.
+     *
+     * @param turnMillis      the time an attacking player has to attack, 0 for
+     *                        no limit
+     * @param placementMillis the time both players have to place their fleets
+     *                        once paired, 0 for no limit
+     * @param policy          how an expired turn is resolved
+     */
+    public void setDeadlines(long turnMillis, long placementMillis, TimeoutEvent.Policy policy) {
+        Deadlines newDeadlines = new Deadlines(wheel, turnMillis, placementMillis, policy);
+        if (newDeadlines.isEnabled()) {
+            wheel.start();
+        }
+        this.deadlines = newDeadlines.isEnabled() ? newDeadlines : null;
+    }
+
+    /**
+     * Sets the number of shots an attacker may fire in one turn in every match
+     * started from now on.
+     *
+     * @param salvo the most shots per turn, 1 for single attacks only
+     */
+    public void setSalvo(int salvo) {
+        this.salvo = salvo;
+    }
+
+    /**
+     * Retrieves the metrics of the server.
+     *
+     * @return the metrics registry
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics.getRegistry();
+    }
+
+    /**
+     * Retrieves the lobby of players waiting for an opponent.
+     *
+     * @return the lobby
+     */
+    public Lobby<?> getLobby() {
+        return lobby;
+    }
+
+    /**
+     * Starts the server on the specified port. Never returns.
+     *
+     * @param port the port to start the server on
+     * @throws IOException if an I/O error occurs when opening the server socket
+     */
+    public void start(int port) throws IOException {
+        for (int i = 0; i < eventLoops.length; i++) {
+            Thread t = new Thread(eventLoops[i], "event-loop-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        lobby.start();
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        Selector acceptSelector = Selector.open();
+        serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+        System.out.println("Server started on port " + port + " with " + eventLoops.length + " event loops");
+
+        while (true) {
+            acceptSelector.select();
+            Iterator<SelectionKey> keys = acceptSelector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (key.isValid() && key.isAcceptable()) {
+                    SocketChannel channel;
+                    while ((channel = serverChannel.accept()) != null) {
+                        accept(channel, acceptSelector);
+                    }
+                } else if (key.isValid() && key.isReadable()) {
+                    join(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Configures an accepted client and waits for its first frame.
+     *
+     * @param channel        the accepted client
+     * @param acceptSelector the selector of the accepting thread
+     * @throws IOException if the channel cannot be configured
+     */
+    private void accept(SocketChannel channel, Selector acceptSelector) throws IOException {
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        metrics.accepts.increment();
+        log.publish(EventLog.NONE, EventLog.NONE, EventLog.Action.CONNECTED, channel.socket().getPort());
+        channel.register(acceptSelector, SelectionKey.OP_READ, ByteBuffer.allocate(READ_BUFFER_LENGTH));
+    }
+
+    /**
+     * Reads the first frame of a client and puts the client into the lobby once
+     * the frame is complete. A client that sends its placement right away,
+     * without a join request, waits for an opponent with the same board size.
+     * The frame is left in the read buffer for the match.
+     *
+     * @param key the key of the client with the accepting selector
+     */
+    private void join(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer readBuffer = (ByteBuffer) key.attachment();
+        try {
+            if (channel.read(readBuffer) < 0) {
+                key.cancel();
+                channel.close();
+                return;
+            }
+            readBuffer.flip();
+            if (readBuffer.remaining() < ProtocolCodec.requiredLength(readBuffer)) {
+                readBuffer.compact();
+                return;
+            }
+            firstFrame.decode(readBuffer);
+            Object first = firstFrame.toMessage();
+            readBuffer.rewind();
+            readBuffer.compact();
+            Lobby.Ticket ticket;
+            if (first instanceof JoinEvent join) {
+                ticket = new Lobby.Ticket(join.rating(), join.width(), join.height());
+            } else if (first instanceof FleetLayoutEvent layout) {
+                ticket = new Lobby.Ticket(Lobby.DEFAULT_RATING, layout.width(), layout.height());
+            } else {
+                log.publish(EventLog.NONE, EventLog.NONE, EventLog.Action.UNEXPECTED_MESSAGE,
+                        channel.socket().getPort());
+                key.cancel();
+                channel.close();
+                return;
+            }
+            // the event loop registers the channel with its own selector
+            key.cancel();
+            lobby.enqueue(new Player(channel, readBuffer, ticket), ticket);
+        } catch (IOException e) {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e2) {
+                // already closed by the peer
+            }
+        }
+    }
+
+    /**
+     * Hands a pair formed by the lobby to the next event loop.
+     *
+     * @param playerA the client who waited longer
+     * @param playerB the other client
+     */
+    private void startMatch(Player playerA, Player playerB) {
+        MatchLog matchLog = new MatchLog(log, matchIds.incrementAndGet());
+        matchLog.started(lobby.getQueueDepth());
+        metrics.matchesStarted.increment();
+        eventLoops[nextEventLoop].submit(new Player[] { playerA, playerB }, listeners.forNewMatch(new long[2]),
+                matchLog, deadlines, salvo);
+        nextEventLoop = (nextEventLoop + 1) % eventLoops.length;
+    }
+
+    /**
+     * A client whose first frame was read, with the bytes it sent so far.
+     */
+    private record Player(SocketChannel channel, ByteBuffer readBuffer, Lobby.Ticket ticket) {
+    }
+
+    /**
+     * A selector thread driving the connections of many matches.
+     */
+    private static class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<NewMatch> newMatches = new ConcurrentLinkedQueue<>();
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final ServerMetrics metrics;
+
+        /**
+         * Constructs an EventLoop with its own selector.
+         *
+         * @param metrics the metrics of the server
+         * @throws IOException if the selector cannot be opened
+         */
+        EventLoop(ServerMetrics metrics) throws IOException {
+            this.selector = Selector.open();
+            this.metrics = metrics;
+        }
+
+        /**
+         * Hands a pair of clients over to this event loop. Thread-safe.
+         *
+         * @param players   both clients
+         * @param listeners the observers of the match
+         * @param matchLog  the log of the match
+         * @param deadlines the time limits of the match, null for none
+         * @param salvo     the most shots per turn
+         */
+        void submit(Player[] players, Match.Listener[] listeners, MatchLog matchLog, Deadlines deadlines,
+                int salvo) {
+            newMatches.add(new NewMatch(players, listeners, matchLog, deadlines, salvo));
+            selector.wakeup();
+        }
+
+        /**
+         * Runs a task on this event loop. Thread-safe.
+         *
+         * @param task the task
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        /**
+         * Runs the event loop.
+         */
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return;
+                }
+                NewMatch newMatch;
+                while ((newMatch = newMatches.poll()) != null) {
+                    new NioMatch(this, newMatch.players(), newMatch.listeners(), metrics, newMatch.matchLog(),
+                            newMatch.deadlines(), newMatch.salvo());
+                }
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isValid() && key.isWritable()) {
+                        connection.onWritable();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        connection.onReadable();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A pair of clients on its way to an event loop.
+     */
+    private record NewMatch(Player[] players, Match.Listener[] listeners, MatchLog matchLog,
+            Deadlines deadlines, int salvo) {
+    }
+
+    /**
+     * Glue between a {@link Match} and the two connections of its players.
+     */
+    private static class NioMatch implements Match.Outbox {
+
+        private final Connection[] connections = new Connection[2];
+        private final Match match;
+        private final ServerMetrics metrics;
+        private final MatchLog matchLog;
+        // null if the match has no time limits
+        private final Deadlines deadlines;
+        private final Deadlines.Timer timer;
+        // the player whose attack is being answered
+        private int attacker = 0;
+        // when the attack being answered was received, 0 if none is
+        private long attackReceivedAt = 0;
+        // while the match handles one message its answers are only encoded, then
+        // written with one write per player
+        private boolean corked = false;
+
+        /**
+         * Registers the channels of both players with the selector and feeds
+         * the frames they already sent into the match.
+         *
+         * @param eventLoop the owning event loop
+         * @param players   both players
+         * @param listeners the observers of the match
+         * @param metrics   the metrics of the server
+         * @param matchLog  the log of the match
+         * @param deadlines the time limits of the match, null for none
+         * @param salvo     the most shots per turn
+         */
+        NioMatch(EventLoop eventLoop, Player[] players, Match.Listener[] listeners, ServerMetrics metrics,
+                MatchLog matchLog, Deadlines deadlines, int salvo) {
+            this.match = new Match(this, matchLog.attachTo(listeners));
+            match.setFleet(Match.STANDARD_FLEET);
+            // the lobby only pairs players that asked for the same board size
+            Lobby.Ticket ticket = players[0].ticket();
+            match.setBoardSize(ticket.width(), ticket.height());
+            match.setSalvo(salvo);
+            this.metrics = metrics;
+            this.matchLog = matchLog;
+            this.deadlines = deadlines;
+            this.timer = deadlines == null ? null
+                    : deadlines.new Timer(match, turn -> eventLoop.execute(() -> expired(turn)));
+            for (int i = 0; i < players.length; i++) {
+                connections[i] = new Connection(this, players[i].channel(), players[i].readBuffer(), i);
+            }
+            for (Connection connection : connections) {
+                try {
+                    connection.key = connection.channel.register(eventLoop.selector, SelectionKey.OP_READ,
+                            connection);
+                } catch (IOException e) {
+                    disconnected(connection.player);
+                }
+            }
+            updateDeadline();
+            for (Connection connection : connections) {
+                if (!connection.closed) {
+                    // the selector only reports bytes that arrive from now on
+                    connection.onReadable();
+                }
+            }
+        }
+
+        /**
+         * Sends an object to the specified client.
+         *
+         * @param obj the object to send
+         * @param id  the ID of the client
+         * @throws ClientDisconnectException if the client has disconnected
+         */
+        @Override
+        public void send(Object obj, int id) throws ClientDisconnectException {
+            Connection connection = connections[id];
+            if (connection.closed) {
+                throw new ClientDisconnectException(id);
+            }
+            try {
+                connection.write(obj, !corked);
+            } catch (IOException e) {
+                connection.close();
+                throw new ClientDisconnectException(id);
+            }
+            if (!corked) {
+                answered();
+            }
+        }
+
+        /**
+         * Writes the messages encoded while the match was busy, one write per
+         * player. A connection that fails ends the match.
+         */
+        private void flush() {
+            for (Connection connection : connections) {
+                if (connection.closed) {
+                    continue;
+                }
+                try {
+                    connection.flushQueued();
+                } catch (IOException e) {
+                    disconnected(connection.player);
+                }
+            }
+            answered();
+        }
+
+        /**
+         * Records the latency of an attack once its first answer was written.
+         */
+        private void answered() {
+            if (attackReceivedAt != 0) {
+                long latency = System.nanoTime() - attackReceivedAt;
+                metrics.attackLatency.record(latency);
+                matchLog.answered(attacker, latency);
+                attackReceivedAt = 0;
+            }
+        }
+
+        /**
+         * Feeds a received object into the match.
+         *
+         * @param obj the received object
+         * @param id  the ID of the client
+         */
+        void received(Object obj, int id) {
+            if (obj instanceof AttackEvent || obj instanceof SalvoEvent) {
+                attacker = id;
+                attackReceivedAt = System.nanoTime();
+            }
+            corked = true;
+            try {
+                match.receive(id, obj);
+            } catch (ClientDisconnectException e) {
+                countDisconnect(e.getDisconnectId(), ServerMetrics.DisconnectCause.CONNECTION_LOST);
+                match.playerDisconnected(e);
+            } catch (IOException e) {
+                violated(id);
+            } finally {
+                corked = false;
+            }
+            flush();
+            closeIfOver();
+        }
+
+        /**
+         * Ends the match because a client sent a malformed or unexpected
+         * message, treating the client as gone.
+         *
+         * @param id the ID of the client
+         */
+        void violated(int id) {
+            countDisconnect(id, ServerMetrics.DisconnectCause.PROTOCOL_ERROR);
+            connections[id].close();
+            match.playerDisconnected(new ClientDisconnectException(id));
+        }
+
+        /**
+         * Resolves a turn whose deadline passed, unless the player answered in
+         * time after all.
+         *
+         * @param turn the number of the expired turn
+         */
+        void expired(long turn) {
+            if (match.isOver() || match.getTurn() != turn) {
+                return;
+            }
+            corked = true;
+            try {
+                match.expire(deadlines.getPolicy());
+            } catch (ClientDisconnectException e) {
+                countDisconnect(e.getDisconnectId(), ServerMetrics.DisconnectCause.CONNECTION_LOST);
+                match.playerDisconnected(e);
+            } finally {
+                corked = false;
+            }
+            flush();
+            closeIfOver();
+        }
+
+        /**
+         * Ends the match because a client disconnected.
+         *
+         * @param id the ID of the client
+         */
+        void disconnected(int id) {
+            connections[id].close();
+            countDisconnect(id, ServerMetrics.DisconnectCause.CONNECTION_LOST);
+            match.playerDisconnected(new ClientDisconnectException(id));
+            closeIfOver();
+        }
+
+        /**
+         * Counts and logs a player leaving, unless the match was already decided.
+         *
+         * @param id    the ID of the client
+         * @param cause why the player left
+         */
+        private void countDisconnect(int id, ServerMetrics.DisconnectCause cause) {
+            if (!match.isOver()) {
+                metrics.disconnected(cause);
+                if (cause == ServerMetrics.DisconnectCause.PROTOCOL_ERROR) {
+                    matchLog.protocolError(id);
+                } else {
+                    matchLog.disconnected(id);
+                }
+            }
+        }
+
+        /**
+         * Closes both connections once the match is over and all messages are
+         * written, else moves the deadline to the current turn.
+         */
+        private void closeIfOver() {
+            updateDeadline();
+            if (match.isOver()) {
+                for (Connection connection : connections) {
+                    connection.closeWhenFlushed();
+                }
+            }
+        }
+
+        /**
+         * Schedules the deadline of the current turn, or cancels it once the
+         * match is over.
+         */
+        private void updateDeadline() {
+            if (timer == null) {
+                return;
+            }
+            if (match.isOver()) {
+                timer.cancel();
+            } else {
+                timer.update();
+            }
+        }
+    }
+
+    /**
+     * The non-blocking state of one client connection: a buffer collecting
+     * incoming frames, a buffer of outgoing ones and a reused decoded frame.
+     */
+    private static class Connection {
+
+        private final NioMatch owner;
+        private final SocketChannel channel;
+        private final int player;
+        private SelectionKey key;
+        // in write mode: holds the bytes not yet decoded
+        private final ByteBuffer readBuffer;
+        // in write mode: holds the bytes not yet written to the channel
+        private ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_LENGTH);
+        private final Frame frame = new Frame();
+        private boolean closed = false;
+        private boolean closeWhenFlushed = false;
+
+        /**
+         * Constructs a Connection of a player.
+         *
+         * @param owner      the match the connection belongs to
+         * @param channel    the channel of the player
+         * @param readBuffer the bytes received while the player waited in the
+         *                   lobby, in write mode
+         * @param player     the ID of the player
+         */
+        Connection(NioMatch owner, SocketChannel channel, ByteBuffer readBuffer, int player) {
+            this.owner = owner;
+            this.channel = channel;
+            this.readBuffer = readBuffer;
+            this.player = player;
+        }
+
+        /**
+         * Reads available bytes and feeds every complete frame to the match.
+         */
+        void onReadable() {
+            try {
+                if (channel.read(readBuffer) < 0) {
+                    owner.disconnected(player);
+                    return;
+                }
+                readBuffer.flip();
+                while (!closed && readBuffer.remaining() >= ProtocolCodec.requiredLength(readBuffer)) {
+                    int start = readBuffer.position();
+                    frame.decode(readBuffer);
+                    owner.metrics.receivedBytes.record(readBuffer.position() - start);
+                    owner.received(frame.toMessage(), player);
+                }
+                readBuffer.compact();
+            } catch (ProtocolException e) {
+                owner.violated(player);
+                owner.closeIfOver();
+            } catch (IOException e) {
+                owner.disconnected(player);
+            }
+        }
+
+        /**
+         * Encodes a message into the write buffer behind the frames not written
+         * yet.
+         *
+         * @param message the message to write
+         * @param flush   whether to write as much as the socket accepts right
+         *                away, else the frame waits for {@link #flushQueued()}
+         * @throws IOException if an I/O error occurs
+         */
+        void write(Object message, boolean flush) throws IOException {
+            if (writeBuffer.remaining() < ProtocolCodec.MAX_FRAME_LENGTH) {
+                // slow reader, keep the backlog instead of dropping messages
+                ByteBuffer larger = ByteBuffer.allocate(writeBuffer.capacity() * 2);
+                writeBuffer.flip();
+                larger.put(writeBuffer);
+                writeBuffer = larger;
+            }
+            int start = writeBuffer.position();
+            ProtocolCodec.encode(writeBuffer, message);
+            owner.metrics.sentBytes.record(writeBuffer.position() - start);
+            if (flush) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes the encoded frames in one write, unless the socket is full and
+         * the selector already waits to continue.
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        void flushQueued() throws IOException {
+            if (writeBuffer.position() > 0 && (key == null || (key.interestOps() & SelectionKey.OP_WRITE) == 0)) {
+                flush();
+            }
+        }
+
+        /**
+         * Continues writing once the socket accepts data again.
+         */
+        void onWritable() {
+            try {
+                flush();
+            } catch (IOException e) {
+                owner.disconnected(player);
+            }
+        }
+
+        /**
+         * Writes buffered bytes until the buffer is empty or the socket is full.
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        private void flush() throws IOException {
+            writeBuffer.flip();
+            channel.write(writeBuffer);
+            owner.metrics.socketWrites.increment();
+            boolean pending = writeBuffer.hasRemaining();
+            writeBuffer.compact();
+            if (pending) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } else if (closeWhenFlushed) {
+                close();
+            } else if (key != null && key.isValid()) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * Closes the connection as soon as all buffered bytes are written.
+         */
+        void closeWhenFlushed() {
+            closeWhenFlushed = true;
+            if (writeBuffer.position() == 0) {
+                close();
+            }
+        }
+
+        /**
+         * Closes the connection immediately.
+         */
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // already closed by the peer
+            }
+        }
+    }
+}
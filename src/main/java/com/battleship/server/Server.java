@@ -2,17 +2,38 @@ package com.battleship.server;
 
 import java.io.*;
 import java.net.*;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
 
-import com.battleship.client.BattleshipException;
 import com.battleship.client.ClientDisconnectException;
-import com.battleship.client.Coordinates;
-import com.battleship.client.ShipStorage;
-import com.battleship.client.HitStatus;
-import com.battleship.events.AttackerFeedbackEvent;
-import com.battleship.events.DefenderFeedbackEvent;
-import com.battleship.events.RoundStartEvent;
-import com.battleship.events.RoundStartEvent.AttackStatus;
-import com.battleship.events.RoundStartEvent.GameStatus;
+import com.battleship.events.AttackEvent;
+import com.battleship.events.FleetLayoutEvent;
+import com.battleship.events.JoinEvent;
+import com.battleship.events.MatchTokenEvent;
+import com.battleship.events.ResumeEvent;
+import com.battleship.events.SalvoEvent;
+import com.battleship.events.TimeoutEvent;
+import com.battleship.events.WatchEvent;
+import com.battleship.journal.MatchJournal;
+import com.battleship.logging.EventLog;
+import com.battleship.metrics.MetricsEndpoint;
+import com.battleship.metrics.MetricsMBean;
+import com.battleship.metrics.MetricsRegistry;
+import com.battleship.protocol.ProtocolCodec;
+import com.battleship.protocol.ProtocolStream;
 
 /**
  * Server class that handles the game logic for a Battleship game.
@@ -21,64 +42,702 @@ public class Server {
     private ServerSocket serverSocket;
 
     /**
-     * Starts the server on the specified port.
+     * The number of sent messages kept per player for a reconnect by default,
+     * many rounds of a match.
+     */
+    public static final int DEFAULT_REPLAY_CAPACITY = 64;
+
+    /**
+     * The time the first player back in a recovered match waits for the other
+     * one if no grace period is set.
+     */
+    public static final long DEFAULT_RECOVERY_GRACE_MILLIS = 30_000;
+
+    private final ExecutorService matchExecutor;
+    // null if the number of concurrent matches is unbounded
+    private final Semaphore matchAdmission;
+    private final AtomicInteger activeMatches = new AtomicInteger();
+    private final Lobby<Player> lobby;
+    private final ServerMetrics metrics;
+    private final MatchListeners listeners = new MatchListeners();
+    // recovered matches waiting for their players, by resume token
+    private final Map<Long, RecoveredMatch> resumable = new ConcurrentHashMap<>();
+    // sessions of running matches, by resume token
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    // broadcasts of running matches, by match ID
+    private final Map<Long, Broadcast> broadcasts = new ConcurrentHashMap<>();
+    private volatile long latestMatchId = 0;
+    private volatile long gracePeriodMillis = 0;
+    private volatile int replayCapacity = DEFAULT_REPLAY_CAPACITY;
+    // shared by the deadlines of all matches, started with the first deadline
+    private final TimingWheel wheel = new TimingWheel(TimingWheel.DEFAULT_TICK_MILLIS,
+            TimingWheel.DEFAULT_WHEEL_SIZE);
+    private volatile Deadlines deadlines = null;
+    private volatile int salvo = 1;
+    private volatile EventLog log = EventLog.standardOutput();
+    private final AtomicLong matchIds = new AtomicLong();
+
+    /**
+     * Constructs a Server that runs every match on its own platform thread, without
+     * a limit on concurrent matches.
+     */
+    public Server() {
+        this(Executors.newCachedThreadPool(), 0);
+    }
+
+    /**
+     * Constructs a Server that runs matches on the given executor.
+     *
+     * @param matchExecutor the executor running the match handlers
+     * @param maxMatches    the maximum number of concurrent matches, 0 for no
+     *                      limit. Pairing of new clients waits while the limit is
+     *                      reached.
+     */
+    public Server(ExecutorService matchExecutor, int maxMatches) {
+        this(matchExecutor, maxMatches, 0);
+    }
+
+    /**
+     * Constructs a Server that runs matches on the given executor and pairs
+     * players by rating.
+     *
+     * @param matchExecutor the executor running the join handshakes and the match
+     *                      handlers
+     * @param maxMatches    the maximum number of concurrent matches, 0 for no
+     *                      limit. Pairing of new clients waits while the limit is
+     *                      reached.
+     * @param ratingWindow  the largest rating difference of a new pair, 0 to
+     *                      ignore ratings
+     */
+    public Server(ExecutorService matchExecutor, int maxMatches, int ratingWindow) {
+        this.matchExecutor = matchExecutor;
+        this.matchAdmission = maxMatches > 0 ? new Semaphore(maxMatches) : null;
+        this.lobby = new Lobby<>(this::startMatch, ratingWindow);
+        this.metrics = new ServerMetrics(lobby);
+        listeners.setMetrics(metrics);
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for every task.
+     * Looked up reflectively so the project still compiles for Java 18.
+     *
+     * @return the executor
+     * @throws UnsupportedOperationException if the runtime has no virtual threads
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer", e);
+        }
+    }
+
+    /**
+     * Retrieves the number of matches currently running.
+     *
+     * @return the number of active matches
+     */
+    public int getActiveMatches() {
+        return activeMatches.get();
+    }
+
+    /**
+     * Retrieves the number of matches started since the server started.
+     *
+     * @return the number of started matches
+     */
+    public long getStartedMatches() {
+        return metrics.matchesStarted.sum();
+    }
+
+    /**
+     * Retrieves the metrics of the server.
+     *
+     * @return the metrics registry
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics.getRegistry();
+    }
+
+    /**
+     * Sets the journal recording every match started from now on.
+     *
+     * @param journal the journal, null to record nothing
+     */
+    public void setJournal(MatchJournal journal) {
+        listeners.setJournal(journal);
+    }
+
+    /**
+     * Sets the store checkpointing every match. Matches found in the store are
+     * restored when the server starts and continue once both players have
+     * reconnected with their match tokens.
+     *
+     * @param snapshots the snapshot store, null to checkpoint nothing
+     */
+    public void setSnapshots(SnapshotStore snapshots) {
+        listeners.setSnapshots(snapshots);
+    }
+
+    /**
+     * Lets players whose connection breaks reconnect with their match token
+     * instead of losing the match. The match pauses while it waits for the
+     * player, messages sent meanwhile are replayed after the reconnect. The
+     * grace period also bounds the wait of a recovered match for its second
+     * player, {@link #DEFAULT_RECOVERY_GRACE_MILLIS} if it is 0.
+     *
+     * @param gracePeriodMillis the time a player has to reconnect, 0 to end the
+     *                          match on the first broken connection
+     * @param replayCapacity    the number of sent messages kept per player
+     */
+    public void setReconnect(long gracePeriodMillis, int replayCapacity) {
+        this.gracePeriodMillis = gracePeriodMillis;
+        this.replayCapacity = replayCapacity;
+    }
+
+    /**
+     * Limits the time players have to answer in every match started from now
+     * on. An expired turn is resolved by the policy and the match goes on, an
+     * expired placement is forfeited. While deadlines are set, each player of
+     * a match is read on a thread of its own, so the match thread can resolve
+     * a turn while the awaited player stays silent.
+     *
+     * @param turnMillis      the time an attacking player has to attack, 0 for
+     *                        no limit
+     * @param placementMillis the time both players have to place their fleets
+     *                        once paired, 0 for no limit
+     * @param policy          how an expired turn is resolved
+     */
+    public void setDeadlines(long turnMillis, long placementMillis, TimeoutEvent.Policy policy) {
+        Deadlines newDeadlines = new Deadlines(wheel, turnMillis, placementMillis, policy);
+        if (newDeadlines.isEnabled()) {
+            wheel.start();
+        }
+        this.deadlines = newDeadlines.isEnabled() ? newDeadlines : null;
+    }
+
+    /**
+     * Sets the number of shots an attacker may fire in one turn in every match
+     * started from now on.
+     *
+     * @param salvo the most shots per turn, 1 for single attacks only
+     */
+    public void setSalvo(int salvo) {
+        this.salvo = salvo;
+    }
+
+    /**
+     * Sets the log receiving the connection and match events from now on.
+     *
+     * @param log the event log
+     */
+    public void setLog(EventLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Retrieves the lobby of players waiting for an opponent.
+     *
+     * @return the lobby
+     */
+    public Lobby<?> getLobby() {
+        return lobby;
+    }
+
+    /**
+     * Starts the server on the specified port. The accepting thread only hands
+     * every connection to the executor, which reads the join request and puts the
+     * player into the lobby.
      *
      * @param port the port to start the server on
      * @throws IOException if an I/O error occurs when opening the server socket
      */
     public void start(int port) throws IOException {
         serverSocket = new ServerSocket(port);
+        if (listeners.getSnapshots() != null) {
+            recover();
+        }
+        lobby.start();
         System.out.println("Server started on port " + port);
 
         while (true) {
-            Socket clientSocketA = serverSocket.accept();
-            System.out.println("Client A connected from " + clientSocketA.getRemoteSocketAddress());
+            Socket clientSocket = serverSocket.accept();
+            metrics.accepts.increment();
+            log.publish(EventLog.NONE, EventLog.NONE, EventLog.Action.CONNECTED, clientSocket.getPort());
+            matchExecutor.execute(() -> join(clientSocket));
+        }
+    }
 
-            Socket clientSocketB = serverSocket.accept();
-            System.out.println("Client B connected from " + clientSocketB.getRemoteSocketAddress());
-            System.out.println("Game starts now!");
+    /**
+     * Loads the snapshots of the matches that were running when the previous
+     * server stopped and waits for their players.
+     *
+     * @throws IOException if the snapshots cannot be read
+     */
+    private void recover() throws IOException {
+        long start = System.nanoTime();
+        List<MatchSnapshot> snapshots = listeners.getSnapshots().loadAll(Runtime.getRuntime().availableProcessors());
+        for (MatchSnapshot snapshot : snapshots) {
+            RecoveredMatch recovered = new RecoveredMatch(snapshot);
+            for (long token : snapshot.getTokens()) {
+                resumable.put(token, recovered);
+            }
+        }
+        System.out.printf("Recovered %d matches in %d ms%n", snapshots.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
 
-            Thread t = new Thread(new MatchHandler(clientSocketA, clientSocketB));
+    /**
+     * Reads the first message of a client and puts the client into the lobby. A
+     * client that sends its placement right away, without a join request, waits
+     * for an opponent with the same board size. A client presenting a match
+     * token rejoins its running or recovered match, and a spectator is served
+     * on this thread until the watched match ends.
+     *
+     * @param socket the socket of the client
+     */
+    private void join(Socket socket) {
+        try {
+            ProtocolStream stream = new ProtocolStream(socket);
+            Object first = stream.read();
+            if (first instanceof JoinEvent join) {
+                Lobby.Ticket ticket = new Lobby.Ticket(join.rating(), join.width(), join.height());
+                lobby.enqueue(new Player(stream, null, ticket), ticket);
+            } else if (first instanceof FleetLayoutEvent layout) {
+                Lobby.Ticket ticket = new Lobby.Ticket(Lobby.DEFAULT_RATING, layout.width(), layout.height());
+                lobby.enqueue(new Player(stream, layout, ticket), ticket);
+            } else if (first instanceof ResumeEvent resume) {
+                resume(stream, resume);
+            } else if (first instanceof WatchEvent watch) {
+                watch(stream, watch);
+            } else {
+                log.publish(EventLog.NONE, EventLog.NONE, EventLog.Action.UNEXPECTED_MESSAGE, socket.getPort());
+                stream.close();
+            }
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException e2) {
+                // already closed by the peer
+            }
+        }
+    }
 
-            // Start a new thread to handle the client connection
-            // Thread t = new Thread(new ConnectionHandler(clientSocket));
-            t.start();
+    /**
+     * Attaches a reconnected player to its running match, or to its recovered
+     * match which continues once both players are back. If the second player of
+     * a recovered match is not back within the grace period, the first one wins.
+     *
+     * @param stream the stream of the player
+     * @param resume the resume request of the player
+     * @throws IOException if the stream fails
+     */
+    private void resume(ProtocolStream stream, ResumeEvent resume) throws IOException {
+        long token = resume.token();
+        Session session = sessions.get(token);
+        if (session != null) {
+            if (session.attach(stream, resume.received())) {
+                metrics.reconnects.increment();
+            } else {
+                stream.close();
+            }
+            return;
+        }
+        // every token of a recovered match is accepted once
+        RecoveredMatch recovered = resumable.remove(token);
+        if (recovered == null) {
+            log.publish(EventLog.NONE, EventLog.NONE, EventLog.Action.UNKNOWN_TOKEN, 0);
+            stream.close();
+            return;
+        }
+        stream.write(new ResumeEvent(token, ResumeEvent.RESTARTED));
+        ProtocolStream[] streams = recovered.attach(token, stream);
+        if (streams != null) {
+            continueRecovered(recovered.snapshot, streams);
+        } else {
+            long graceMillis = gracePeriodMillis > 0 ? gracePeriodMillis : DEFAULT_RECOVERY_GRACE_MILLIS;
+            wheel.start();
+            wheel.schedule(() -> matchExecutor.execute(() -> abandon(recovered)), graceMillis);
+        }
+    }
+
+    /**
+     * Ends a recovered match whose second player did not come back in time, in
+     * favour of the player who did. The match is continued without the absent
+     * player, whose session has no grace period left, so it is decided like a
+     * running match whose player left.
+     *
+     * @param recovered the recovered match
+     */
+    private void abandon(RecoveredMatch recovered) {
+        ProtocolStream[] streams = recovered.expire();
+        if (streams == null) {
+            // both players came back in time
+            return;
+        }
+        for (long token : recovered.snapshot.getTokens()) {
+            resumable.remove(token, recovered);
+        }
+        continueRecovered(recovered.snapshot, streams);
+    }
+
+    /**
+     * Continues a recovered match on the executor.
+     *
+     * @param snapshot the snapshot of the match
+     * @param streams  the streams of both players, null for a player who did not
+     *                 come back
+     */
+    private void continueRecovered(MatchSnapshot snapshot, ProtocolStream[] streams) {
+        if (matchAdmission != null) {
+            matchAdmission.acquireUninterruptibly();
+        }
+        long matchId = matchIds.incrementAndGet();
+        MatchLog matchLog = new MatchLog(log, matchId);
+        matchLog.resumed(snapshot.getMatchId());
+        Broadcast broadcast = new Broadcast(matchId, Broadcast.DEFAULT_CAPACITY);
+        // both sides count from zero again after the acknowledgement
+        Session[] matchSessions = openSessions(snapshot.getTokens(), streams[0], streams[1], 0, matchLog);
+        for (int player = 0; player < 2; player++) {
+            if (streams[player] == null) {
+                try {
+                    // gives up the grace period, the first message to the player ends the match
+                    matchSessions[player].close();
+                } catch (IOException e) {
+                    // there is no connection to close
+                }
+            }
+        }
+        runMatch(new MatchHandler(matchSessions, snapshot, broadcast.attachTo(listeners.forRestoredMatch(snapshot)),
+                metrics, matchLog), broadcast);
+    }
+
+    /**
+     * Streams a running match to a spectator until the match ends or the
+     * spectator disconnects. The spectator falling behind only makes it skip
+     * attacks, the match never waits for it.
+     *
+     * @param stream the stream of the spectator
+     * @param watch  the watch request of the spectator
+     * @throws IOException if the stream fails
+     */
+    private void watch(ProtocolStream stream, WatchEvent watch) throws IOException {
+        long matchId = watch.matchId() == WatchEvent.LATEST ? latestMatchId : watch.matchId();
+        Broadcast broadcast = broadcasts.get(matchId);
+        if (broadcast == null) {
+            log.publish(watch.matchId(), EventLog.NONE, EventLog.Action.UNKNOWN_MATCH, 0);
+            stream.close();
+            return;
+        }
+        metrics.spectators.increment();
+        log.publish(matchId, EventLog.NONE, EventLog.Action.SPECTATOR_JOINED, 0);
+        Broadcast.Cursor cursor = broadcast.watch();
+        byte[] chunk = new byte[ProtocolCodec.MAX_FRAME_LENGTH];
+        try {
+            int length;
+            while ((length = cursor.next(chunk)) >= 0) {
+                stream.writeEncoded(chunk, 0, length);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            metrics.spectatorSkips.add(cursor.getSkips());
+            log.publish(matchId, EventLog.NONE, EventLog.Action.SPECTATOR_LEFT, cursor.getSkips());
+            stream.close();
+        }
+    }
+
+    /**
+     * Starts a match between two players paired by the lobby. Runs on the matcher
+     * thread and waits there while the match limit is reached.
+     *
+     * @param playerA the player who waited longer
+     * @param playerB the other player
+     */
+    private void startMatch(Player playerA, Player playerB) {
+        if (matchAdmission != null) {
+            matchAdmission.acquireUninterruptibly();
+        }
+        long matchId = matchIds.incrementAndGet();
+        MatchLog matchLog = new MatchLog(log, matchId);
+        matchLog.started(lobby.getQueueDepth());
+        Broadcast broadcast = new Broadcast(matchId, Broadcast.DEFAULT_CAPACITY);
+        long[] tokens = new long[2];
+        if (gracePeriodMillis > 0 || listeners.getSnapshots() != null) {
+            tokens[0] = Session.newToken();
+            tokens[1] = Session.newToken();
         }
+        // the lobby has read the first message of each player
+        Session[] matchSessions = openSessions(tokens, playerA.stream(), playerB.stream(), 1, matchLog);
+        FleetLayoutEvent[] earlyPlacements = { playerA.placement(), playerB.placement() };
+        // the lobby only pairs players that asked for the same board size
+        Lobby.Ticket ticket = playerA.ticket();
+        runMatch(new MatchHandler(matchSessions, earlyPlacements, ticket.width(), ticket.height(),
+                broadcast.attachTo(listeners.forNewMatch(tokens)), metrics, matchLog), broadcast);
     }
 
     /**
-     * The main method to start the server.
+     * Creates the sessions of both players of a match and registers those with a
+     * token for reconnects.
+     *
+     * @param tokens   the match tokens of both players, 0 for none
+     * @param streamA  the stream of the first player
+     * @param streamB  the stream of the second player
+     * @param received the number of messages already received from each player
+     * @param matchLog the log of the match
+     * @return the sessions
+     */
+    private Session[] openSessions(long[] tokens, ProtocolStream streamA, ProtocolStream streamB, long received,
+            MatchLog matchLog) {
+        Session[] matchSessions = {
+                new Session(tokens[0], 0, streamA, received, gracePeriodMillis, replayCapacity, matchLog),
+                new Session(tokens[1], 1, streamB, received, gracePeriodMillis, replayCapacity, matchLog) };
+        for (Session session : matchSessions) {
+            if (session.getToken() != 0) {
+                sessions.put(session.getToken(), session);
+            }
+        }
+        return matchSessions;
+    }
+
+    /**
+     * Runs a match on the executor and offers it to spectators. The caller holds
+     * a match permit, which is released when the match ends.
+     *
+     * @param handler   the handler of the match
+     * @param broadcast the broadcast of the match
+     */
+    private void runMatch(MatchHandler handler, Broadcast broadcast) {
+        Deadlines currentDeadlines = deadlines;
+        if (currentDeadlines != null) {
+            handler.setDeadlines(currentDeadlines, matchExecutor);
+        }
+        handler.match.setSalvo(salvo);
+        activeMatches.incrementAndGet();
+        metrics.matchesStarted.increment();
+        broadcasts.put(broadcast.getMatchId(), broadcast);
+        latestMatchId = broadcast.getMatchId();
+        matchExecutor.execute(() -> {
+            try {
+                handler.run();
+            } finally {
+                for (Session session : handler.sessions) {
+                    sessions.remove(session.getToken(), session);
+                }
+                broadcasts.remove(broadcast.getMatchId());
+                broadcast.close();
+                activeMatches.decrementAndGet();
+                if (matchAdmission != null) {
+                    matchAdmission.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * The main method to start the server. Accepts
+     * {@code --mode=blocking|virtual|nio}, {@code --port=N},
+     * {@code --max-matches=N}, {@code --event-loops=N},
+     * {@code --rating-window=N}, {@code --journal=DIRECTORY},
+     * {@code --snapshots=DIRECTORY}, {@code --snapshot-interval=MILLIS},
+     * {@code --grace-period=MILLIS}, {@code --replay-buffer=N},
+     * {@code --turn-timeout=MILLIS}, {@code --placement-timeout=MILLIS},
+     * {@code --timeout-policy=skip|random-shot|forfeit}, {@code --salvo=N},
+     * {@code --metrics-port=N} and {@code --log=FILE}.
      *
      * @param args the command-line arguments
      * @throws IOException if an I/O error occurs when starting the server
      */
     public static void main(String[] args) throws IOException {
-        Server server = new Server();
-        server.start(8080);
+        ServerConfig config = ServerConfig.parse(args);
+        MatchJournal journal = config.getJournal() == null ? null : new MatchJournal(Path.of(config.getJournal()));
+        EventLog log = config.getLog() == null ? EventLog.standardOutput() : EventLog.toFile(Path.of(config.getLog()));
+        // write the buffered events when the server is stopped
+        Runtime.getRuntime().addShutdownHook(new Thread(log::close));
+        if (config.getMode() == ServerConfig.Mode.NIO) {
+            NioServer nioServer = new NioServer(config.getEventLoops(), config.getRatingWindow());
+            nioServer.setJournal(journal);
+            nioServer.setLog(log);
+            nioServer.setDeadlines(config.getTurnTimeout(), config.getPlacementTimeout(), config.getTimeoutPolicy());
+            nioServer.setSalvo(config.getSalvo());
+            exposeMetrics(nioServer.getMetrics(), config.getMetricsPort());
+            nioServer.start(config.getPort());
+            return;
+        }
+        ExecutorService executor = config.getMode() == ServerConfig.Mode.VIRTUAL ? newVirtualThreadExecutor()
+                : Executors.newCachedThreadPool();
+        Server server = new Server(executor, config.getMaxMatches(), config.getRatingWindow());
+        server.setJournal(journal);
+        server.setLog(log);
+        server.setReconnect(config.getGracePeriod(), config.getReplayCapacity());
+        server.setDeadlines(config.getTurnTimeout(), config.getPlacementTimeout(), config.getTimeoutPolicy());
+        server.setSalvo(config.getSalvo());
+        if (config.getSnapshots() != null) {
+            server.setSnapshots(new SnapshotStore(Path.of(config.getSnapshots()), config.getSnapshotInterval()));
+        }
+        exposeMetrics(server.getMetrics(), config.getMetricsPort());
+        server.start(config.getPort());
     }
 
     /**
-     * Runnable class that handles a match between two clients.
+     * Registers the metrics of a server as a JMX MBean and serves them over HTTP.
+     *
+     * @param metrics the metrics of the server
+     * @param port    the local HTTP port, 0 for no HTTP endpoint
+     * @throws IOException if the HTTP port cannot be bound
      */
-    private static class MatchHandler implements Runnable {
-        private final Socket[] clientSockets;
-        private ObjectOutputStream[] outStreams = new ObjectOutputStream[2];
-        private ObjectInputStream[] inStreams = new ObjectInputStream[2];
-        private ShipStorage[] shipStorages = new ShipStorage[2];
+    static void exposeMetrics(MetricsRegistry metrics, int port) throws IOException {
+        try {
+            MetricsMBean.register(metrics, "com.battleship:type=Server");
+        } catch (JMException e) {
+            System.out.println("Metrics are not available over JMX: " + e.getMessage());
+        }
+        if (port > 0) {
+            new MetricsEndpoint(metrics, port);
+            System.out.println("Metrics served at http://localhost:" + port + "/metrics");
+        }
+    }
+
+    /**
+     * A client in the lobby: its stream, the placement it may already have sent
+     * instead of a join request and what it asked the lobby for.
+     */
+    private record Player(ProtocolStream stream, FleetLayoutEvent placement, Lobby.Ticket ticket) {
+    }
+
+    /**
+     * A message read from a player, waiting in the mailbox of its match.
+     */
+    private record Received(int player, Object message, int length) {
+    }
+
+    /**
+     * The deadline of a turn passed, waiting in the mailbox of its match.
+     */
+    private record Expired(long turn) {
+    }
+
+    /**
+     * A match restored from a snapshot, collecting its reconnecting players.
+     */
+    private static class RecoveredMatch {
+        private final MatchSnapshot snapshot;
+        private final ProtocolStream[] streams = new ProtocolStream[2];
+        // the grace period passed before both players were back
+        private boolean expired = false;
+
+        RecoveredMatch(MatchSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
 
         /**
-         * Constructs a MatchHandler with the given client sockets.
+         * Attaches the stream of the player owning a token. A player coming back
+         * after the grace period is turned away.
          *
-         * @param socketA the socket for client A
-         * @param socketB the socket for client B
-         * @throws IOException if an I/O error occurs when creating the object streams
+         * @return the streams of both players once both are attached, else null
          */
-        public MatchHandler(Socket socketA, Socket socketB) throws IOException {
-            clientSockets = new Socket[] { socketA, socketB };
-            for (int i = 0; i < clientSockets.length; i++) {
-                outStreams[i] = new ObjectOutputStream(clientSockets[i].getOutputStream());
-                inStreams[i] = new ObjectInputStream(clientSockets[i].getInputStream());
+        synchronized ProtocolStream[] attach(long token, ProtocolStream stream) {
+            if (expired) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    // already closed by the peer
+                }
+                return null;
             }
+            streams[token == snapshot.getTokens()[0] ? 0 : 1] = stream;
+            return streams[0] != null && streams[1] != null ? streams : null;
+        }
+
+        /**
+         * Ends the wait for the players once the grace period passed.
+         *
+         * @return the streams of the players who came back, null if both did
+         */
+        synchronized ProtocolStream[] expire() {
+            if (expired || streams[0] != null && streams[1] != null) {
+                return null;
+            }
+            expired = true;
+            return streams;
+        }
+    }
+
+    /**
+     * Runnable class that handles a match between two clients.
+     */
+    private static class MatchHandler implements Runnable, Match.Outbox {
+        private final Session[] sessions;
+        private final FleetLayoutEvent[] earlyPlacements;
+        private final boolean restored;
+        private final Match match;
+        private final ServerMetrics metrics;
+        private final MatchLog matchLog;
+        // the player whose message was received last
+        private int sender = 0;
+        // when the attack being answered was received, 0 if none is
+        private long attackReceivedAt = 0;
+        // while the match handles one message its answers are only buffered, then
+        // written with one flush per player
+        private boolean corked = false;
+        private final boolean[] unflushed = new boolean[2];
+        // with deadlines: messages, failures and expired turns in arrival order
+        private Deadlines deadlines;
+        private Executor readers;
+        private final BlockingQueue<Object> mailbox = new LinkedBlockingQueue<>();
+
+        /**
+         * Constructs a MatchHandler for two paired players.
+         *
+         * @param sessions        the sessions of both players
+         * @param earlyPlacements the placements the players sent instead of a join
+         *                        request, null entries for none
+         * @param width           the board width the players were paired on
+         * @param height          the board height the players were paired on
+         * @param listeners       the observers of the match
+         * @param metrics         the metrics of the server
+         * @param matchLog        the log of the match
+         */
+        public MatchHandler(Session[] sessions, FleetLayoutEvent[] earlyPlacements, int width, int height,
+                Match.Listener[] listeners, ServerMetrics metrics, MatchLog matchLog) {
+            match = new Match(this, matchLog.attachTo(listeners));
+            match.setFleet(Match.STANDARD_FLEET);
+            match.setBoardSize(width, height);
+            this.metrics = metrics;
+            this.matchLog = matchLog;
+            this.sessions = sessions;
+            this.earlyPlacements = earlyPlacements;
+            this.restored = false;
+        }
+
+        /**
+         * Constructs a MatchHandler continuing a match restored from a snapshot.
+         *
+         * @param sessions  the sessions of both reconnected players
+         * @param snapshot  the snapshot of the match
+         * @param listeners the observers of the match
+         * @param metrics   the metrics of the server
+         * @param matchLog  the log of the match
+         */
+        public MatchHandler(Session[] sessions, MatchSnapshot snapshot, Match.Listener[] listeners,
+                ServerMetrics metrics, MatchLog matchLog) {
+            match = Match.restore(this, snapshot, matchLog.attachTo(listeners));
+            this.metrics = metrics;
+            this.matchLog = matchLog;
+            this.sessions = sessions;
+            this.earlyPlacements = new FleetLayoutEvent[2];
+            this.restored = true;
+        }
+
+        /**
+         * Limits the time the players have to answer. Call before the match runs.
+         *
+         * @param deadlines the time limits
+         * @param readers   the executor running the reading thread of each player
+         */
+        void setDeadlines(Deadlines deadlines, Executor readers) {
+            this.deadlines = deadlines;
+            this.readers = readers;
         }
 
         /**
@@ -88,12 +747,85 @@ public class Server {
          * @param id  the ID of the client
          * @throws ClientDisconnectException if the client has disconnected
          */
-        public void sendObject(Object obj, int id) throws ClientDisconnectException {
+        @Override
+        public void send(Object obj, int id) throws ClientDisconnectException {
+            int bytes = sessions[id].send(obj, !corked);
+            if (bytes > 0) {
+                metrics.sentBytes.record(bytes);
+            }
+            if (corked) {
+                unflushed[id] = true;
+                return;
+            }
+            if (bytes > 0) {
+                metrics.socketWrites.increment();
+            }
+            answered();
+        }
+
+        /**
+         * Feeds a message into the match and writes all its answers to each
+         * player at once.
+         *
+         * @param player  the ID of the sending player
+         * @param message the received message
+         * @throws ClientDisconnectException if a client has disconnected
+         * @throws ProtocolException         if the message was not expected
+         */
+        private void feed(int player, Object message) throws ClientDisconnectException, ProtocolException {
+            sender = player;
+            corked = true;
             try {
-                outStreams[id].writeObject(obj);
-                outStreams[id].flush();
-            } catch (IOException e) {
-                throw new ClientDisconnectException(id);
+                match.receive(player, message);
+            } finally {
+                corked = false;
+            }
+            flush();
+        }
+
+        /**
+         * Resolves an expired turn and writes all its messages to each player at
+         * once.
+         *
+         * @throws ClientDisconnectException if a client has disconnected
+         */
+        private void expire() throws ClientDisconnectException {
+            corked = true;
+            try {
+                match.expire(deadlines.getPolicy());
+            } finally {
+                corked = false;
+            }
+            flush();
+        }
+
+        /**
+         * Writes the messages buffered while the match was busy, one socket write
+         * per player.
+         *
+         * @throws ClientDisconnectException if a client has disconnected
+         */
+        private void flush() throws ClientDisconnectException {
+            for (int id = 0; id < 2; id++) {
+                if (unflushed[id]) {
+                    unflushed[id] = false;
+                    if (sessions[id].flush()) {
+                        metrics.socketWrites.increment();
+                    }
+                }
+            }
+            answered();
+        }
+
+        /**
+         * Records the latency of an attack once its first answer was written.
+         */
+        private void answered() {
+            if (attackReceivedAt != 0) {
+                long latency = System.nanoTime() - attackReceivedAt;
+                metrics.attackLatency.record(latency);
+                matchLog.answered(sender, latency);
+                attackReceivedAt = 0;
             }
         }
 
@@ -103,141 +835,134 @@ public class Server {
          * @param id the ID of the client
          * @return the received object
          * @throws ClientDisconnectException if the client has disconnected
-         * @throws ClassNotFoundException    if error in protocol occured
          */
-        public Object receiveObject(int id) throws ClientDisconnectException, ClassNotFoundException {
-            try {
-                return inStreams[id].readObject();
-            } catch (IOException e) {
-                throw new ClientDisconnectException(id);
+        public Object receiveObject(int id) throws ClientDisconnectException {
+            Object obj = sessions[id].read();
+            received(id, obj, sessions[id].getLastReadLength());
+            return obj;
+        }
+
+        /**
+         * Records a message read from a player before it is fed into the match.
+         *
+         * @param id     the ID of the client
+         * @param obj    the received object
+         * @param length the length of the frame in bytes
+         */
+        private void received(int id, Object obj, int length) {
+            sender = id;
+            metrics.receivedBytes.record(length);
+            if (obj instanceof AttackEvent || obj instanceof SalvoEvent) {
+                attackReceivedAt = System.nanoTime();
             }
         }
 
         /**
-         * Runs the match handling logic.
+         * Runs the match handling logic: reads from whichever player the match
+         * waits for until the match is over.
          */
         @Override
         public void run() {
             try {
-                // phase one: wait for ship storages of both players
-
-                for (int i = 0; i < clientSockets.length; i++) {
-                    Object obj = receiveObject(i);
-                    shipStorages[i] = (ShipStorage) obj;
-                    System.out.println("received ship storage from player " + i);
-                }
-
-                // phase two: game, players attack each other and receive feedback
-                int attackingPlayer = 0;
-                // remembers whether the attacking player is attacking or even attacking again
-                // because the last attack was successful
-                AttackStatus currentAttackStatus = AttackStatus.ATTACK;
-                AttackStatus currentDefendStatus = AttackStatus.DEFEND;
-                while (true) {
-                    if (isGameOver()) {
-                        break;
+                if (restored) {
+                    match.resume();
+                } else {
+                    for (int player = 0; player < 2; player++) {
+                        if (sessions[player].getToken() != 0) {
+                            send(new MatchTokenEvent(sessions[player].getToken()), player);
+                        }
                     }
-                    // inform players who is attacking
-                    sendObject(new RoundStartEvent(GameStatus.GAME_ON, currentAttackStatus), attackingPlayer);
-                    sendObject(new RoundStartEvent(GameStatus.GAME_ON, currentDefendStatus),
-                            otherPlayer(attackingPlayer));
-
-                    boolean mayAttackAgain = handleAttack(attackingPlayer);
-                    // update variables to inform players precisely in next round whether they are
-                    // defending or attacking (again)
-                    if (mayAttackAgain) {
-                        currentAttackStatus = AttackStatus.ATTACK_AGAIN;
-                        currentDefendStatus = AttackStatus.DEFEND_AGAIN;
-                    } else {
-                        attackingPlayer = otherPlayer(attackingPlayer);
-                        currentAttackStatus = AttackStatus.ATTACK;
-                        currentDefendStatus = AttackStatus.DEFEND;
+                    for (int player = 0; player < 2; player++) {
+                        if (earlyPlacements[player] != null) {
+                            feed(player, earlyPlacements[player]);
+                        }
                     }
                 }
-
-                // cleanup
-                for (int i = 0; i < clientSockets.length; i++) {
-                    inStreams[i].close();
-                    outStreams[i].close();
-                    clientSockets[i].close();
+                if (deadlines != null) {
+                    runWithDeadlines();
+                }
+                while (!match.isOver()) {
+                    int player = match.awaitedPlayer();
+                    feed(player, receiveObject(player));
                 }
             } catch (ClientDisconnectException e) {
-                // inform other client that he won because of disconnect of the first client
-                int disconnectId = e.getDisconnectId();
-                System.out.println("Match ended unexpectedly because a player disconnected.");
-                try {
-                    sendObject(e, otherPlayer(disconnectId));
-                } catch (ClientDisconnectException e2) {
-                    // both clients disconnected, don't do anynight
+                metrics.disconnected(sessions[e.getDisconnectId()].offersReconnect()
+                        ? ServerMetrics.DisconnectCause.GRACE_EXPIRED
+                        : ServerMetrics.DisconnectCause.CONNECTION_LOST);
+                matchLog.disconnected(e.getDisconnectId());
+                match.playerDisconnected(e);
+            } catch (ProtocolException e) {
+                // the violating player is treated as gone: the match ends and the opponent wins
+                match.playerDisconnected(new ClientDisconnectException(sender));
+                metrics.disconnected(ServerMetrics.DisconnectCause.PROTOCOL_ERROR);
+                matchLog.protocolError(sender);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // cleanup, also ends the reading threads
+                for (Session session : sessions) {
+                    try {
+                        session.close();
+                    } catch (IOException e) {
+                        // already broken
+                    }
                 }
-            } catch (IOException | ClassNotFoundException e) {
-                e.printStackTrace();
             }
         }
 
         /**
-         * Checks if the game is over.
+         * Runs the match until it is over, feeding in the messages of both
+         * players and the expired turns in the order they arrive. Each player is
+         * read on a thread of its own, so a silent player only blocks that
+         * thread.
          *
-         * @return true if the game is over, false otherwise
          * @throws ClientDisconnectException if a client has disconnected
+         * @throws ProtocolException         if a message was not expected
+         * @throws InterruptedException      if the thread is interrupted while
+         *                                   waiting
          */
-        private boolean isGameOver() throws ClientDisconnectException {
-            // invariant: only one player may win at once (never a tie)
-            for (int i = 0; i < 2; i++) {
-                if (shipStorages[i].isCompletelyDestroyed()) {
-                    int looser = i;
-                    int winner = otherPlayer(i);
-                    sendObject(new RoundStartEvent(GameStatus.YOU_WON, null), winner);
-                    sendObject(new RoundStartEvent(GameStatus.YOU_LOST, null), looser);
-                    return true;
+        private void runWithDeadlines() throws ClientDisconnectException, ProtocolException, InterruptedException {
+            for (int player = 0; player < 2; player++) {
+                int id = player;
+                readers.execute(() -> readInto(id));
+            }
+            Deadlines.Timer timer = deadlines.new Timer(match, turn -> mailbox.add(new Expired(turn)));
+            try {
+                while (!match.isOver()) {
+                    timer.update();
+                    Object mail = mailbox.take();
+                    if (mail instanceof Received received) {
+                        received(received.player(), received.message(), received.length());
+                        feed(received.player(), received.message());
+                    } else if (mail instanceof Expired expired) {
+                        // the player may have answered after the deadline passed
+                        if (expired.turn() == match.getTurn()) {
+                            expire();
+                        }
+                    } else {
+                        throw (ClientDisconnectException) mail;
+                    }
                 }
+            } finally {
+                timer.cancel();
             }
-            return false;
         }
 
         /**
-         * Handles the attack of the attacking player.
+         * Reads the messages of a player into the mailbox until the connection
+         * is lost for good or the match closes it.
          *
-         * @param attackingPlayer the ID of the attacking player
-         * @return true if the attacking player may attack again, false otherwise
-         * @throws ClientDisconnectException if a client has disconnected
-         * @throws ClassNotFoundException    if the class of the received object cannot
-         *                                   be found
+         * @param id the ID of the client
          */
-        private boolean handleAttack(int attackingPlayer) throws ClientDisconnectException, ClassNotFoundException {
-            int defendingPlayer = otherPlayer(attackingPlayer);
-            HitStatus hitStatus;
-            Coordinates attackCoordinates;
-            while (true) {
-                attackCoordinates = (Coordinates) receiveObject(attackingPlayer);
-                try {
-                    hitStatus = shipStorages[defendingPlayer].attack(attackCoordinates);
-                    // no exception thrown: attack was semantically correct
-                    break;
-                } catch (BattleshipException e) {
-                    AttackerFeedbackEvent event = new AttackerFeedbackEvent(false, null, e);
-                    sendObject(event, attackingPlayer);
+        private void readInto(int id) {
+            try {
+                while (true) {
+                    Object obj = sessions[id].read();
+                    mailbox.add(new Received(id, obj, sessions[id].getLastReadLength()));
                 }
+            } catch (ClientDisconnectException e) {
+                mailbox.add(e);
             }
-            // inform both players about attack
-            AttackerFeedbackEvent attackerEvent = new AttackerFeedbackEvent(true, hitStatus, null);
-            sendObject(attackerEvent, attackingPlayer);
-            DefenderFeedbackEvent defenderEvent = new DefenderFeedbackEvent(attackCoordinates, hitStatus);
-            sendObject(defenderEvent, defendingPlayer);
-
-            // use hitStatus to find out who attacks afterwards
-            return (hitStatus == HitStatus.HIT || hitStatus == HitStatus.DESTROYED);
-        }
-
-        /**
-         * Returns the ID of the other player.
-         *
-         * @param player the ID of the player
-         * @return the ID of the other player
-         */
-        private int otherPlayer(int player) {
-            return (player + 1) % 2;
         }
-
     }
 }
@@ -0,0 +1,307 @@
+package com.battleship.server;
+
+import java.util.Set;
+
+import com.battleship.events.TimeoutEvent;
+
+/**
+ * The ServerConfig class holds the startup options of the server, parsed from
+ * command-line arguments of the form {@code --name=value}.
+ */
+public class ServerConfig {
+
+    /**
+     * The available server cores.
+     */
+    public enum Mode {
+        // one platform thread per match, blocking socket I/O
+        BLOCKING,
+        // one virtual thread per match, blocking socket I/O
+        VIRTUAL,
+        // a few selector event loops multiplexing all connections
+        NIO
+    }
+
+    private static final String ERR_UNKNOWN_OPTION = "Unknown option %s";
+    private static final String ERR_INVALID_VALUE = "Invalid value for option %s: %s";
+    private static final String ERR_UNSUPPORTED_OPTION = "Option %s is not supported in the %s mode";
+
+    // options of the thread-per-match cores the non-blocking core has no counterpart for
+    private static final Set<String> THREAD_PER_MATCH_OPTIONS = Set.of("max-matches", "grace-period",
+            "replay-buffer", "snapshots", "snapshot-interval");
+
+    private Mode mode = Mode.BLOCKING;
+    private int port = 8080;
+    private int eventLoops = Runtime.getRuntime().availableProcessors();
+    private int maxMatches = 0;
+    private int ratingWindow = 0;
+    private String journal = null;
+    private String snapshots = null;
+    private long snapshotInterval = 200;
+    private long gracePeriod = 0;
+    private int replayCapacity = Server.DEFAULT_REPLAY_CAPACITY;
+    private long turnTimeout = 0;
+    private long placementTimeout = 0;
+    private TimeoutEvent.Policy timeoutPolicy = TimeoutEvent.Policy.SKIP;
+    private int salvo = 1;
+    private int metricsPort = 0;
+    private String log = null;
+
+    /**
+     * Parses the command-line arguments.
+     *
+     * @param args the command-line arguments
+     * @return the parsed configuration
+     * @throws IllegalArgumentException if an argument is unknown or invalid, or
+     *                                  not supported in the chosen mode
+     */
+    public static ServerConfig parse(String[] args) {
+        ServerConfig config = new ServerConfig();
+        String threadPerMatchOption = null;
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException(String.format(ERR_UNKNOWN_OPTION, arg));
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            try {
+                config.set(name, value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(String.format(ERR_INVALID_VALUE, name, value));
+            }
+            if (THREAD_PER_MATCH_OPTIONS.contains(name)) {
+                threadPerMatchOption = name;
+            }
+        }
+        if (config.mode == Mode.NIO && threadPerMatchOption != null) {
+            // silently running without them would surprise the operator
+            throw new IllegalArgumentException(String.format(ERR_UNSUPPORTED_OPTION, threadPerMatchOption,
+                    config.mode.name().toLowerCase()));
+        }
+        return config;
+    }
+
+    /**
+     * Sets a single option.
+     *
+     * @param name  the option name
+     * @param value the option value
+     */
+    private void set(String name, String value) {
+        switch (name) {
+            case "mode":
+                mode = Mode.valueOf(value.toUpperCase());
+                break;
+            case "port":
+                port = Integer.parseInt(value);
+                break;
+            case "event-loops":
+                eventLoops = positive(name, Integer.parseInt(value));
+                break;
+            case "max-matches":
+                maxMatches = Integer.parseInt(value);
+                break;
+            case "rating-window":
+                ratingWindow = Integer.parseInt(value);
+                break;
+            case "journal":
+                journal = value;
+                break;
+            case "snapshots":
+                snapshots = value;
+                break;
+            case "snapshot-interval":
+                snapshotInterval = positive(name, Integer.parseInt(value));
+                break;
+            case "grace-period":
+                gracePeriod = Long.parseLong(value);
+                break;
+            case "replay-buffer":
+                replayCapacity = positive(name, Integer.parseInt(value));
+                break;
+            case "turn-timeout":
+                turnTimeout = Long.parseLong(value);
+                break;
+            case "placement-timeout":
+                placementTimeout = Long.parseLong(value);
+                break;
+            case "timeout-policy":
+                timeoutPolicy = TimeoutEvent.Policy.valueOf(value.toUpperCase().replace('-', '_'));
+                break;
+            case "salvo":
+                salvo = positive(name, Integer.parseInt(value));
+                if (salvo > Match.MAX_SALVO) {
+                    throw new IllegalArgumentException(String.format(ERR_INVALID_VALUE, name, value));
+                }
+                break;
+            case "metrics-port":
+                metricsPort = Integer.parseInt(value);
+                break;
+            case "log":
+                log = value;
+                break;
+            default:
+                throw new IllegalArgumentException(String.format(ERR_UNKNOWN_OPTION, name));
+        }
+    }
+
+    /**
+     * Checks that an option value is positive.
+     */
+    private static int positive(String name, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(String.format(ERR_INVALID_VALUE, name, value));
+        }
+        return value;
+    }
+
+    /**
+     * Retrieves the server core to run.
+     *
+     * @return the server mode
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Retrieves the port to listen on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Retrieves the maximum number of concurrent matches of the thread-per-match
+     * modes.
+     *
+     * @return the maximum number of matches, 0 if unbounded
+     */
+    public int getMaxMatches() {
+        return maxMatches;
+    }
+
+    /**
+     * Retrieves the number of event-loop threads of the non-blocking server.
+     *
+     * @return the number of event loops
+     */
+    public int getEventLoops() {
+        return eventLoops;
+    }
+
+    /**
+     * Retrieves the largest rating difference of players paired by the lobby.
+     *
+     * @return the rating window, 0 if ratings are ignored
+     */
+    public int getRatingWindow() {
+        return ratingWindow;
+    }
+
+    /**
+     * Retrieves the directory of the match journal.
+     *
+     * @return the journal directory, null if matches are not recorded
+     */
+    public String getJournal() {
+        return journal;
+    }
+
+    /**
+     * Retrieves the directory of the match snapshots.
+     *
+     * @return the snapshot directory, null if matches are not checkpointed
+     */
+    public String getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Retrieves the time between two writes of the match snapshots.
+     *
+     * @return the interval in milliseconds
+     */
+    public long getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    /**
+     * Retrieves the time a player has to reconnect after the connection broke.
+     *
+     * @return the grace period in milliseconds, 0 if a broken connection ends
+     *         the match
+     */
+    public long getGracePeriod() {
+        return gracePeriod;
+    }
+
+    /**
+     * Retrieves the number of sent messages kept per player for a reconnect.
+     *
+     * @return the replay buffer capacity
+     */
+    public int getReplayCapacity() {
+        return replayCapacity;
+    }
+
+    /**
+     * Retrieves the time an attacking player has to attack.
+     *
+     * @return the turn timeout in milliseconds, 0 if turns never expire
+     */
+    public long getTurnTimeout() {
+        return turnTimeout;
+    }
+
+    /**
+     * Retrieves the time both players have to place their fleets once paired.
+     *
+     * @return the placement timeout in milliseconds, 0 if placements never
+     *         expire
+     */
+    public long getPlacementTimeout() {
+        return placementTimeout;
+    }
+
+    /**
+     * Retrieves how an expired turn is resolved. An expired placement is always
+     * forfeited.
+     *
+     * @return the timeout policy
+     */
+    public TimeoutEvent.Policy getTimeoutPolicy() {
+        return timeoutPolicy;
+    }
+
+    /**
+     * Retrieves the number of shots an attacker may fire in one turn.
+     *
+     * @return the salvo size, 1 for single attacks only
+     */
+    public int getSalvo() {
+        return salvo;
+    }
+
+    /**
+     * Retrieves the local port of the Prometheus metrics endpoint.
+     *
+     * @return the port, 0 if metrics are not served over HTTP
+     */
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    /**
+     * Retrieves the file the connection and match events are appended to.
+     *
+     * @return the path of the log file, null to write the events to the
+     *         standard output
+     */
+    public String getLog() {
+        return log;
+    }
+}
@@ -0,0 +1,127 @@
+package com.battleship.server;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.events.TimeoutEvent;
+import com.battleship.metrics.LatencyHistogram;
+import com.battleship.metrics.MetricsRegistry;
+
+/**
+ * The metrics of a server core. Recording goes straight to counters and
+ * histograms held in fields, so the attack path neither looks anything up nor
+ * allocates. As a {@link Match.Listener} attached to every match it counts
+ * turns, expired turns and ended matches.
+ */
+final class ServerMetrics implements Match.Listener {
+
+    /**
+     * Why a player left a match before it was decided.
+     */
+    enum DisconnectCause {
+        // the connection broke and no reconnect is offered
+        CONNECTION_LOST,
+        // the connection broke and the player did not reconnect in time
+        GRACE_EXPIRED,
+        // the player sent a malformed or unexpected message
+        PROTOCOL_ERROR
+    }
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+    final LongAdder accepts = registry.counter("battleship_accepts_total", "Accepted connections.");
+    final LongAdder matchesStarted = registry.counter("battleship_matches_started_total",
+            "Started or resumed matches.");
+    final LongAdder matchesEnded = registry.counter("battleship_matches_ended_total", "Ended matches.");
+    final LongAdder turns = registry.counter("battleship_turns_total", "Legal attacks.");
+    final LongAdder reconnects = registry.counter("battleship_reconnects_total",
+            "Players who reconnected to their running match.");
+    final LongAdder spectators = registry.counter("battleship_spectators_total", "Spectators who started watching.");
+    final LongAdder spectatorSkips = registry.counter("battleship_spectator_skips_total",
+            "Times a slow spectator skipped the attacks it missed.");
+    private final LongAdder[] disconnects = new LongAdder[DisconnectCause.values().length];
+    private final LongAdder[] timeouts = new LongAdder[TimeoutEvent.Policy.values().length];
+    final LatencyHistogram attackLatency = registry.histogram("battleship_attack_response_seconds",
+            "Time from receiving an attack to writing its answers.", 1e-9);
+    final LatencyHistogram receivedBytes = registry.histogram("battleship_received_message_bytes",
+            "Size of received frames.", 1);
+    final LatencyHistogram sentBytes = registry.histogram("battleship_sent_message_bytes",
+            "Size of sent frames.", 1);
+    final LongAdder socketWrites = registry.counter("battleship_socket_writes_total",
+            "Writes of the frames of a match to the socket of a player.");
+
+    /**
+     * Constructs the metrics and registers them, including the gauges of the
+     * active matches and the lobby.
+     *
+     * @param lobby the lobby of the server
+     */
+    ServerMetrics(Lobby<?> lobby) {
+        for (DisconnectCause cause : DisconnectCause.values()) {
+            disconnects[cause.ordinal()] = registry.counter(
+                    "battleship_disconnects_total{cause=\"" + cause.name().toLowerCase() + "\"}",
+                    "Players who left a match before it was decided, by cause.");
+        }
+        for (TimeoutEvent.Policy policy : TimeoutEvent.Policy.values()) {
+            timeouts[policy.ordinal()] = registry.counter(
+                    "battleship_turn_timeouts_total{policy=\"" + policy.name().toLowerCase() + "\"}",
+                    "Turns and placements resolved after their deadline, by policy.");
+        }
+        registry.gauge("battleship_active_matches", "Matches being played.",
+                () -> matchesStarted.sum() - matchesEnded.sum());
+        registry.gauge("battleship_lobby_waiting", "Players waiting in the lobby.", lobby::getQueueDepth);
+        registry.histogram("battleship_lobby_wait_seconds", "Time from entering the lobby to being paired.", 1e-9,
+                lobby.getWaitTime());
+    }
+
+    /**
+     * Retrieves the registry holding all metrics.
+     *
+     * @return the registry
+     */
+    MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Counts a player who left a match early.
+     *
+     * @param cause why the player left
+     */
+    void disconnected(DisconnectCause cause) {
+        disconnects[cause.ordinal()].increment();
+    }
+
+    /**
+     * Counts a legal attack.
+     *
+     * @param attacker  the ID of the attacking player
+     * @param target    the attacked coordinates
+     * @param hitStatus the result of the attack
+     */
+    @Override
+    public void attacked(int attacker, Coordinates target, HitStatus hitStatus) {
+        turns.increment();
+    }
+
+    /**
+     * Counts an expired turn or placement.
+     *
+     * @param player the ID of the player whose turn expired
+     * @param policy how the turn is resolved
+     */
+    @Override
+    public void timedOut(int player, TimeoutEvent.Policy policy) {
+        timeouts[policy.ordinal()].increment();
+    }
+
+    /**
+     * Counts an ended match.
+     *
+     * @param winner the ID of the winner
+     */
+    @Override
+    public void ended(int winner) {
+        matchesEnded.increment();
+    }
+}
@@ -0,0 +1,283 @@
+package com.battleship.server;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.battleship.client.ClientDisconnectException;
+import com.battleship.events.ResumeEvent;
+import com.battleship.protocol.ProtocolStream;
+
+/**
+ * The Session class is the connection of one player to a match that survives
+ * reconnects. When the connection breaks, the match keeps sending into a
+ * bounded replay buffer and a read waits for the player to reconnect with the
+ * match token. Only if the grace period passes without a reconnect is the
+ * player treated as disconnected.
+ *
+ * Both sides count the messages of the match. A reconnecting client states how
+ * many it has received, the session sends the missed ones again from the
+ * buffer and acknowledges with its own count, so the client can repeat its
+ * lost messages as well.
+ */
+class Session {
+
+    private static final SecureRandom TOKENS = new SecureRandom();
+
+    private final long token;
+    private final int player;
+    private final long gracePeriodNanos;
+    // ring buffer of the latest sent messages, message n at n % length
+    private final Object[] replay;
+    private final MatchLog log;
+
+    private ProtocolStream stream;
+    private long sent;
+    private long received;
+    private long detachedAt;
+    private int lastReadLength;
+
+    /**
+     * Constructs a session on an established connection.
+     *
+     * @param token             the match token of the player
+     * @param player            the ID of the player
+     * @param stream            the connection of the player
+     * @param received          the number of messages already received from the
+     *                          player
+     * @param gracePeriodMillis the time the player has to reconnect, 0 to treat
+     *                          every broken connection as a disconnect
+     * @param replayCapacity    the number of sent messages kept for a reconnect
+     * @param log               the log of the match
+     */
+    Session(long token, int player, ProtocolStream stream, long received, long gracePeriodMillis,
+            int replayCapacity, MatchLog log) {
+        this.token = token;
+        this.player = player;
+        this.stream = stream;
+        this.received = received;
+        this.gracePeriodNanos = TimeUnit.MILLISECONDS.toNanos(gracePeriodMillis);
+        this.replay = new Object[replayCapacity];
+        this.log = log;
+    }
+
+    /**
+     * Creates a secret match token.
+     *
+     * @return a non-zero token
+     */
+    static long newToken() {
+        long token;
+        do {
+            token = TOKENS.nextLong();
+        } while (token == 0);
+        return token;
+    }
+
+    /**
+     * Retrieves the match token of the player.
+     *
+     * @return the token
+     */
+    long getToken() {
+        return token;
+    }
+
+    /**
+     * Retrieves whether a broken connection may be resumed.
+     *
+     * @return true if the player has a grace period to reconnect
+     */
+    boolean offersReconnect() {
+        return gracePeriodNanos > 0;
+    }
+
+    /**
+     * Sends a message to the player, or only buffers it while the player is away.
+     *
+     * @param message the message to send
+     * @return the length of the sent frame in bytes, 0 if it was only buffered
+     * @throws ClientDisconnectException if the grace period of a broken
+     *                                   connection has passed
+     */
+    synchronized int send(Object message) throws ClientDisconnectException {
+        return send(message, true);
+    }
+
+    /**
+     * Sends a message to the player, or only buffers it while the player is away.
+     *
+     * @param message the message to send
+     * @param flush   whether to write the message to the socket right away, else
+     *                it waits in the output buffer for {@link #flush()}
+     * @return the length of the frame in bytes, 0 if it was only kept for a
+     *         reconnect
+     * @throws ClientDisconnectException if the grace period of a broken
+     *                                   connection has passed
+     */
+    synchronized int send(Object message, boolean flush) throws ClientDisconnectException {
+        replay[(int) (sent % replay.length)] = message;
+        sent++;
+        if (stream != null) {
+            try {
+                return flush ? stream.write(message) : stream.buffer(message);
+            } catch (IOException e) {
+                detach(stream);
+            }
+        }
+        checkGracePeriod();
+        return 0;
+    }
+
+    /**
+     * Writes the messages buffered by {@link #send(Object, boolean)} to the
+     * socket.
+     *
+     * @return true if the connection was written to, false while the player is
+     *         away
+     * @throws ClientDisconnectException if the grace period of a broken
+     *                                   connection has passed
+     */
+    synchronized boolean flush() throws ClientDisconnectException {
+        if (stream != null) {
+            try {
+                stream.flush();
+                return true;
+            } catch (IOException e) {
+                detach(stream);
+            }
+        }
+        checkGracePeriod();
+        return false;
+    }
+
+    /**
+     * Throws if the connection is broken for longer than the grace period.
+     */
+    private void checkGracePeriod() throws ClientDisconnectException {
+        if (System.nanoTime() - detachedAt >= gracePeriodNanos) {
+            throw new ClientDisconnectException(player);
+        }
+    }
+
+    /**
+     * Receives the next message of the player, waiting for a reconnect if the
+     * connection breaks.
+     *
+     * @return the received message
+     * @throws ClientDisconnectException if the player did not reconnect within
+     *                                   the grace period
+     */
+    Object read() throws ClientDisconnectException {
+        while (true) {
+            ProtocolStream current = awaitStream();
+            try {
+                Object message = current.read();
+                synchronized (this) {
+                    received++;
+                }
+                lastReadLength = current.getLastReadLength();
+                return message;
+            } catch (IOException e) {
+                detach(current);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the length of the frame read last. Only for the reading thread.
+     *
+     * @return the length in bytes
+     */
+    int getLastReadLength() {
+        return lastReadLength;
+    }
+
+    /**
+     * Continues the session on a new connection: acknowledges the reconnect and
+     * sends the messages the player missed.
+     *
+     * @param newStream      the new connection of the player
+     * @param clientReceived the number of messages the player has received
+     * @return false if the missed messages are no longer buffered
+     * @throws IOException if the new connection fails
+     */
+    synchronized boolean attach(ProtocolStream newStream, long clientReceived) throws IOException {
+        long missed = sent - clientReceived;
+        if (clientReceived < 0 || missed < 0 || missed > replay.length) {
+            log.resumeFailed(player);
+            return false;
+        }
+        newStream.write(new ResumeEvent(token, received));
+        for (long n = clientReceived; n < sent; n++) {
+            newStream.write(replay[(int) (n % replay.length)]);
+        }
+        if (stream != null) {
+            // the old connection is dead even if no read or write noticed it yet
+            stream.close();
+        }
+        stream = newStream;
+        log.reconnected(player, missed);
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Closes the connection of the player.
+     *
+     * @throws IOException if the connection cannot be closed
+     */
+    synchronized void close() throws IOException {
+        // a waiting read gives up right away instead of waiting for a reconnect
+        detachedAt = System.nanoTime() - gracePeriodNanos;
+        try {
+            if (stream != null) {
+                stream.close();
+            }
+        } finally {
+            stream = null;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until the player is connected.
+     *
+     * @return the connection of the player
+     * @throws ClientDisconnectException if the grace period passes
+     */
+    private synchronized ProtocolStream awaitStream() throws ClientDisconnectException {
+        while (stream == null) {
+            long remaining = detachedAt + gracePeriodNanos - System.nanoTime();
+            if (remaining <= 0) {
+                throw new ClientDisconnectException(player);
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ClientDisconnectException(player);
+            }
+        }
+        return stream;
+    }
+
+    /**
+     * Marks a connection as broken, unless the player already reconnected.
+     */
+    private synchronized void detach(ProtocolStream broken) {
+        if (stream != broken) {
+            return;
+        }
+        stream = null;
+        detachedAt = System.nanoTime();
+        try {
+            broken.close();
+        } catch (IOException e) {
+            // already broken
+        }
+        if (gracePeriodNanos > 0) {
+            log.connectionLost(player, TimeUnit.NANOSECONDS.toMillis(gracePeriodNanos));
+        }
+    }
+}
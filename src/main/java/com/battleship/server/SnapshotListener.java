@@ -0,0 +1,45 @@
+package com.battleship.server;
+
+/**
+ * Checkpoints one match into the {@link SnapshotStore} at the start of every
+ * round and removes the checkpoint when the match ends.
+ */
+class SnapshotListener implements Match.Listener {
+
+    private final SnapshotStore store;
+    private final long matchId;
+    private final long[] tokens;
+
+    /**
+     * Constructs a SnapshotListener for a match.
+     *
+     * @param store   the store of the snapshots
+     * @param matchId the ID of the match
+     * @param tokens  the resume tokens of both players
+     */
+    SnapshotListener(SnapshotStore store, long matchId, long[] tokens) {
+        this.store = store;
+        this.matchId = matchId;
+        this.tokens = tokens;
+    }
+
+    /**
+     * Hands the state of the match to the store, which writes it later.
+     *
+     * @param match the match
+     */
+    @Override
+    public void roundStarted(Match match) {
+        store.save(matchId, match.snapshot(matchId, tokens));
+    }
+
+    /**
+     * Removes the snapshot of the match.
+     *
+     * @param winner the ID of the winning player
+     */
+    @Override
+    public void ended(int winner) {
+        store.remove(matchId);
+    }
+}
@@ -0,0 +1,182 @@
+package com.battleship.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * The SnapshotStore class keeps the latest checkpoint of every running match
+ * in a directory, one file per match, so that a restarted server can continue
+ * the matches.
+ *
+ * Matches hand in a new snapshot at the start of every round; only the latest
+ * one per match is kept in memory. A background thread writes the pending
+ * snapshots every interval, each through a temporary file and an atomic rename,
+ * and deletes the files of ended matches. On startup all files are decoded in
+ * parallel.
+ */
+public class SnapshotStore implements Closeable {
+
+    private static final String FILE_PREFIX = "match-";
+    private static final String FILE_SUFFIX = ".snap";
+    // marks a match whose file is to be deleted
+    private static final byte[] ENDED = new byte[0];
+
+    private final Path directory;
+    private final long intervalMillis;
+    private final Map<Long, byte[]> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextMatchId = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Opens the snapshot directory and starts the background writer.
+     *
+     * @param directory      the directory of the snapshot files, created if
+     *                       missing
+     * @param intervalMillis the time between two writes of pending snapshots
+     * @throws IOException if the directory cannot be created
+     */
+    public SnapshotStore(Path directory, long intervalMillis) throws IOException {
+        this.directory = directory;
+        this.intervalMillis = intervalMillis;
+        Files.createDirectories(directory);
+        this.writer = new Thread(this::writeLoop, "snapshot-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Loads the snapshots of all matches that were running when the previous
+     * server stopped, decoding them in parallel. Corrupt files are skipped. Match
+     * IDs handed out afterwards do not collide with the loaded ones.
+     *
+     * @param parallelism the number of threads decoding snapshots
+     * @return the snapshots
+     * @throws IOException if the directory cannot be listed
+     */
+    List<MatchSnapshot> loadAll(int parallelism) throws IOException {
+        List<Path> files;
+        try (var list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().endsWith(FILE_SUFFIX)).toList();
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<MatchSnapshot> snapshots = pool.submit(() -> files.parallelStream().map(this::load)
+                    .filter(snapshot -> snapshot != null).collect(Collectors.toList())).get();
+            for (MatchSnapshot snapshot : snapshots) {
+                nextMatchId.accumulateAndGet(snapshot.getMatchId() + 1, Math::max);
+            }
+            return snapshots;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Loading snapshots failed", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Hands out the ID of a new match.
+     *
+     * @return the match ID
+     */
+    long newMatchId() {
+        return nextMatchId.getAndIncrement();
+    }
+
+    /**
+     * Replaces the pending snapshot of a match. Never blocks on I/O.
+     *
+     * @param matchId  the ID of the match
+     * @param snapshot the encoded snapshot
+     */
+    void save(long matchId, byte[] snapshot) {
+        pending.put(matchId, snapshot);
+    }
+
+    /**
+     * Deletes the snapshot of an ended match with the next write.
+     *
+     * @param matchId the ID of the match
+     */
+    void remove(long matchId) {
+        pending.put(matchId, ENDED);
+    }
+
+    /**
+     * Writes all pending snapshots and stops the background writer.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        writer.interrupt();
+        writePending();
+    }
+
+    /**
+     * Writes the pending snapshots every interval.
+     */
+    private void writeLoop() {
+        while (!closed) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            writePending();
+        }
+    }
+
+    /**
+     * Writes or deletes the file of every match with a pending snapshot.
+     */
+    private synchronized void writePending() {
+        for (Map.Entry<Long, byte[]> entry : pending.entrySet()) {
+            long matchId = entry.getKey();
+            byte[] snapshot = entry.getValue();
+            // a newer snapshot stays pending for the next round
+            if (!pending.remove(matchId, snapshot)) {
+                continue;
+            }
+            Path file = directory.resolve(FILE_PREFIX + matchId + FILE_SUFFIX);
+            try {
+                if (snapshot == ENDED) {
+                    Files.deleteIfExists(file);
+                } else {
+                    Path temporary = directory.resolve(FILE_PREFIX + matchId + ".tmp");
+                    Files.write(temporary, snapshot);
+                    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Reads and decodes one snapshot file.
+     *
+     * @return the snapshot, null if the file is corrupt
+     */
+    private MatchSnapshot load(Path file) {
+        try {
+            return MatchSnapshot.decode(Files.readAllBytes(file));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Skipping corrupt snapshot " + file);
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
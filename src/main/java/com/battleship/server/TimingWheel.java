@@ -0,0 +1,207 @@
+package com.battleship.server;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hashed timing wheel running the deadlines of all matches of a server on
+ * one thread. The wheel is a ring of buckets, each covering one tick; a
+ * timeout is linked into the bucket of its deadline, counting the full turns
+ * of the wheel it has to wait. Every tick the ticker visits one bucket and
+ * runs the timeouts that are due.
+ *
+ * Buckets are doubly linked lists, so scheduling and cancelling are O(1)
+ * however many timeouts are pending, and neither touches a heap or allocates
+ * beyond the timeout itself. Deadlines are rounded up to whole ticks. The
+ * tasks run on the ticker thread outside the lock and must only hand work
+ * over to the thread driving their match.
+ */
+final class TimingWheel {
+
+    /**
+     * The tick of a server by default, fine enough for timeouts of seconds.
+     */
+    static final long DEFAULT_TICK_MILLIS = 10;
+
+    /**
+     * The number of buckets by default, one turn of the wheel every few
+     * seconds at the default tick.
+     */
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    // ticks processed so far, the bucket of the current tick is at tick & mask
+    private long tick;
+    private int pending;
+    private Thread ticker;
+
+    /**
+     * Constructs a wheel. Call {@link #start()} to run it in real time.
+     *
+     * @param tickMillis the duration of one tick
+     * @param wheelSize  the number of buckets, a power of two
+     */
+    TimingWheel(long tickMillis, int wheelSize) {
+        if (tickMillis <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Invalid tick " + tickMillis + " or wheel size " + wheelSize);
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.buckets = new Timeout[wheelSize];
+        this.mask = wheelSize - 1;
+        for (int i = 0; i < wheelSize; i++) {
+            // sentinel, the bucket is empty while it links to itself
+            buckets[i] = new Timeout(null);
+            buckets[i].previous = buckets[i];
+            buckets[i].next = buckets[i];
+        }
+    }
+
+    /**
+     * Starts the daemon thread advancing the wheel once per tick.
+     */
+    synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = new Thread(this::runTicker, "timing-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param task        the task, run on the ticker thread
+     * @param delayMillis the time until the task is run, at least one tick
+     * @return the timeout to cancel the task with
+     */
+    Timeout schedule(Runnable task, long delayMillis) {
+        long ticks = Math.max(1, (TimeUnit.MILLISECONDS.toNanos(delayMillis) + tickNanos - 1) / tickNanos);
+        Timeout timeout = new Timeout(task);
+        synchronized (this) {
+            timeout.rounds = (ticks - 1) / buckets.length;
+            Timeout sentinel = buckets[(int) ((tick + ticks) & mask)];
+            timeout.previous = sentinel.previous;
+            timeout.next = sentinel;
+            sentinel.previous.next = timeout;
+            sentinel.previous = timeout;
+            pending++;
+        }
+        return timeout;
+    }
+
+    /**
+     * Retrieves the number of scheduled tasks that neither ran nor were
+     * cancelled.
+     *
+     * @return the number of pending timeouts
+     */
+    synchronized int getPending() {
+        return pending;
+    }
+
+    /**
+     * Advances the wheel by one tick and runs the tasks that became due.
+     */
+    void tick() {
+        Timeout due = null;
+        synchronized (this) {
+            tick++;
+            Timeout sentinel = buckets[(int) (tick & mask)];
+            Timeout timeout = sentinel.next;
+            while (timeout != sentinel) {
+                Timeout next = timeout.next;
+                if (timeout.rounds > 0) {
+                    timeout.rounds--;
+                } else {
+                    unlink(timeout);
+                    // collected into a list of their own, run below without the lock
+                    timeout.next = due;
+                    due = timeout;
+                }
+                timeout = next;
+            }
+        }
+        while (due != null) {
+            Timeout next = due.next;
+            due.next = null;
+            try {
+                due.task.run();
+            } catch (RuntimeException e) {
+                // one failing task must not stop the others
+                e.printStackTrace();
+            }
+            due = next;
+        }
+    }
+
+    /**
+     * Advances the wheel once per tick, catching up after a late wake-up.
+     */
+    private void runTicker() {
+        long next = System.nanoTime() + tickNanos;
+        while (true) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                continue;
+            }
+            tick();
+            next += tickNanos;
+        }
+    }
+
+    /**
+     * Removes a timeout from its bucket. Only called while holding the lock.
+     */
+    private void unlink(Timeout timeout) {
+        timeout.previous.next = timeout.next;
+        timeout.next.previous = timeout.previous;
+        timeout.previous = null;
+        timeout.next = null;
+        pending--;
+    }
+
+    /**
+     * A scheduled task, linked into the bucket of its deadline until it runs or
+     * is cancelled.
+     */
+    final class Timeout {
+
+        private final Runnable task;
+        // full turns of the wheel left before the task is due
+        private long rounds;
+        // neighbours in the bucket, both null once the timeout left it
+        private Timeout previous;
+        private Timeout next;
+
+        /**
+         * Constructs a timeout for a task.
+         *
+         * @param task the task, null for the sentinel of a bucket
+         */
+        private Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * Cancels the task unless it already ran or is about to run.
+         *
+         * @return true if the task was cancelled
+         */
+        boolean cancel() {
+            synchronized (TimingWheel.this) {
+                if (previous == null) {
+                    return false;
+                }
+                unlink(this);
+                return true;
+            }
+        }
+    }
+}
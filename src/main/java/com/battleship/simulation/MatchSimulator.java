@@ -0,0 +1,278 @@
+package com.battleship.simulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.battleship.bot.Strategies;
+import com.battleship.bot.TargetingStrategy;
+import com.battleship.client.BattleshipException;
+import com.battleship.client.BitboardShipStorage;
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.RandomFleetPlacer;
+import com.battleship.client.Ship;
+import com.battleship.client.ShipStorage;
+import com.battleship.client.ShipStorageBuilder;
+import com.battleship.client.SparseShipStorage;
+
+/**
+ * Monte Carlo simulator that plays a strategy against itself many times without
+ * any network, following the rules of the server: both fleets are placed at
+ * random, player 0 attacks first, a hit or a destroyed ship earns another
+ * attack and the match ends when one fleet is completely destroyed. Attacks
+ * are resolved by {@link ShipStorage#attack(Coordinates)}.
+ *
+ * The matches are split over a fork/join pool. Every task splits its
+ * {@link SplittableRandom} before forking, so the random stream of each match
+ * only depends on the seed and the number of matches, never on the number of
+ * threads or the scheduling: the same seed always gives the same histogram.
+ *
+ * Options: {@code --matches=N --strategies=random,density --width=N --height=N
+ * --seed=N --storage=bitboard|dense|sparse --threads=N}.
+ */
+public class MatchSimulator {
+
+    private static final String ERR_UNKNOWN_OPTION = "Unknown option %s";
+    // matches played by one task without splitting further
+    private static final int MATCHES_PER_TASK = 256;
+
+    private int matches = 100_000;
+    private String[] strategyNames = Strategies.NAMES;
+    private int width = 10;
+    private int height = 10;
+    private long seed = System.nanoTime();
+    private String storage = "bitboard";
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private final Ship[] fleet = new ShipStorageBuilder().getShips();
+
+    /**
+     * Constructs a simulator with the default options, see {@link #parse(String[])}.
+     */
+    public MatchSimulator() {
+    }
+
+    /**
+     * Constructs a simulator for boards of the given size.
+     *
+     * @param width   the width of the boards
+     * @param height  the height of the boards
+     * @param storage the storage of the boards: bitboard, dense or sparse
+     * @throws IllegalArgumentException if the storage is unknown
+     */
+    public MatchSimulator(int width, int height, String storage) {
+        this.width = width;
+        this.height = height;
+        this.storage = storage;
+        // fail on an unknown storage before any match is played
+        newStorage();
+    }
+
+    /**
+     * Simulates matches of a strategy against itself.
+     *
+     * @param strategyName the name of the strategy
+     * @return the number of turns the winners needed
+     */
+    public TurnHistogram simulate(String strategyName) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new SimulationTask(strategyName, 0, matches, new SplittableRandom(seed)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Simulates every configured strategy and prints its histogram.
+     */
+    public void run() {
+        System.out.printf("matches=%d board=%dx%d storage=%s threads=%d seed=%d%n", matches, width, height,
+                storage, threads, seed);
+        for (String strategyName : strategyNames) {
+            long start = System.nanoTime();
+            TurnHistogram histogram = simulate(strategyName);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%n%s (%.0f matches/s)%n", strategyName, matches / seconds);
+            System.out.print(histogram);
+        }
+    }
+
+    /**
+     * Creates an empty board of the configured storage.
+     *
+     * @return the empty ship storage
+     */
+    private ShipStorage newStorage() {
+        switch (storage) {
+            case "bitboard":
+                return new BitboardShipStorage(width, height);
+            case "dense":
+                return new ShipStorage(width, height);
+            case "sparse":
+                return new SparseShipStorage(width, height);
+            default:
+                throw new IllegalArgumentException(String.format(ERR_UNKNOWN_OPTION, "--storage=" + storage));
+        }
+    }
+
+    /**
+     * Plays one match of a strategy against itself.
+     *
+     * @param players the strategies of both players, reset by this method
+     * @param placer  places both fleets
+     * @param random  the source of randomness for both fleets
+     * @return the number of turns the winner needed
+     */
+    int playMatch(TargetingStrategy[] players, RandomFleetPlacer placer, SplittableRandom random) {
+        int[] turns = new int[2];
+        return turns[play(players, placer, random, turns)];
+    }
+
+    /**
+     * Plays one match between two strategies, for example of a tournament.
+     *
+     * @param first  the name of the strategy of player 0, who attacks first
+     * @param second the name of the strategy of player 1
+     * @param random the source of randomness of the match
+     * @return the ID of the winning player
+     */
+    public int play(String first, String second, SplittableRandom random) {
+        TargetingStrategy[] players = { Strategies.create(first, random.split(), fleet),
+                Strategies.create(second, random.split(), fleet) };
+        return play(players, new RandomFleetPlacer(fleet, width, height), random, new int[2]);
+    }
+
+    /**
+     * Plays one match between two strategies.
+     *
+     * @param players the strategies of both players, reset by this method
+     * @param placer  places both fleets
+     * @param random  the source of randomness for both fleets
+     * @param turns   receives the number of turns of each player
+     * @return the ID of the winning player
+     */
+    private int play(TargetingStrategy[] players, RandomFleetPlacer placer, SplittableRandom random, int[] turns) {
+        ShipStorage[] storages = new ShipStorage[2];
+        for (int player = 0; player < 2; player++) {
+            storages[player] = newStorage();
+            placer.place(storages[player], random);
+            players[player].reset(width, height);
+        }
+        int attacker = 0;
+        while (true) {
+            int defender = 1 - attacker;
+            Coordinates target = players[attacker].nextTarget();
+            HitStatus hitStatus;
+            try {
+                hitStatus = storages[defender].attack(target);
+            } catch (BattleshipException e) {
+                throw new IllegalStateException("Strategy attacked an illegal cell: " + e.getMessage(), e);
+            }
+            turns[attacker]++;
+            players[attacker].onResult(target, hitStatus);
+            if (storages[defender].isCompletelyDestroyed()) {
+                return attacker;
+            }
+            if (hitStatus != HitStatus.HIT && hitStatus != HitStatus.DESTROYED) {
+                attacker = defender;
+            }
+        }
+    }
+
+    /**
+     * Plays a range of matches, splitting it in halves while it is large.
+     */
+    private class SimulationTask extends RecursiveTask<TurnHistogram> {
+
+        private final String strategyName;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        SimulationTask(String strategyName, int from, int to, SplittableRandom random) {
+            this.strategyName = strategyName;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected TurnHistogram compute() {
+            if (to - from <= MATCHES_PER_TASK) {
+                TurnHistogram histogram = new TurnHistogram(width * height);
+                RandomFleetPlacer placer = new RandomFleetPlacer(fleet, width, height);
+                TargetingStrategy[] players = new TargetingStrategy[2];
+                for (int player = 0; player < 2; player++) {
+                    players[player] = Strategies.create(strategyName, random.split(), fleet);
+                }
+                for (int i = from; i < to; i++) {
+                    histogram.record(playMatch(players, placer, random));
+                }
+                return histogram;
+            }
+            int middle = (from + to) >>> 1;
+            SimulationTask left = new SimulationTask(strategyName, from, middle, random.split());
+            SimulationTask right = new SimulationTask(strategyName, middle, to, random.split());
+            left.fork();
+            TurnHistogram histogram = right.compute();
+            histogram.add(left.join());
+            return histogram;
+        }
+    }
+
+    /**
+     * Parses the command-line arguments.
+     *
+     * @param args the command-line arguments
+     * @return the configured simulator
+     */
+    static MatchSimulator parse(String[] args) {
+        MatchSimulator simulator = new MatchSimulator();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException(String.format(ERR_UNKNOWN_OPTION, arg));
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "matches":
+                    simulator.matches = Integer.parseInt(value);
+                    break;
+                case "strategies":
+                    simulator.strategyNames = value.split(",");
+                    break;
+                case "width":
+                    simulator.width = Integer.parseInt(value);
+                    break;
+                case "height":
+                    simulator.height = Integer.parseInt(value);
+                    break;
+                case "seed":
+                    simulator.seed = Long.parseLong(value);
+                    break;
+                case "storage":
+                    simulator.storage = value;
+                    // fail on an unknown storage before any match is played
+                    simulator.newStorage();
+                    break;
+                case "threads":
+                    simulator.threads = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format(ERR_UNKNOWN_OPTION, arg));
+            }
+        }
+        return simulator;
+    }
+
+    /**
+     * The main method to start the simulator.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        parse(args).run();
+    }
+}
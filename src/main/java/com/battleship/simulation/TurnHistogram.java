@@ -0,0 +1,150 @@
+package com.battleship.simulation;
+
+/**
+ * The TurnHistogram class counts how many matches were won after each number of
+ * turns. It is filled by one thread at a time; histograms of parallel workers
+ * are combined with {@link #add(TurnHistogram)}.
+ */
+public class TurnHistogram {
+
+    private static final int BAR_WIDTH = 50;
+
+    private final long[] counts;
+
+    /**
+     * Constructs an empty histogram.
+     *
+     * @param maxTurns the largest number of turns that can be recorded
+     */
+    public TurnHistogram(int maxTurns) {
+        this.counts = new long[maxTurns + 1];
+    }
+
+    /**
+     * Records one match.
+     *
+     * @param turns the number of turns the winner needed
+     */
+    public void record(int turns) {
+        counts[turns]++;
+    }
+
+    /**
+     * Adds all matches recorded by another histogram to this one.
+     *
+     * @param other the histogram to add, of the same size
+     */
+    public void add(TurnHistogram other) {
+        for (int turns = 0; turns < counts.length; turns++) {
+            counts[turns] += other.counts[turns];
+        }
+    }
+
+    /**
+     * Retrieves the number of matches won after a number of turns.
+     *
+     * @param turns the number of turns
+     * @return the number of matches
+     */
+    public long getCount(int turns) {
+        return counts[turns];
+    }
+
+    /**
+     * Retrieves the number of recorded matches.
+     *
+     * @return the number of matches
+     */
+    public long getTotal() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Computes the mean number of turns.
+     *
+     * @return the mean, 0 if nothing was recorded
+     */
+    public double getMean() {
+        long total = getTotal();
+        if (total == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int turns = 0; turns < counts.length; turns++) {
+            sum += (double) turns * counts[turns];
+        }
+        return sum / total;
+    }
+
+    /**
+     * Computes a percentile of the number of turns.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the number of turns, 0 if nothing was recorded
+     */
+    public int getPercentile(double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(getTotal() * percentile / 100.0));
+        long seen = 0;
+        for (int turns = 0; turns < counts.length; turns++) {
+            seen += counts[turns];
+            if (seen >= rank) {
+                return turns;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Retrieves the smallest recorded number of turns.
+     *
+     * @return the minimum, -1 if nothing was recorded
+     */
+    public int getMin() {
+        for (int turns = 0; turns < counts.length; turns++) {
+            if (counts[turns] != 0) {
+                return turns;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retrieves the largest recorded number of turns.
+     *
+     * @return the maximum, -1 if nothing was recorded
+     */
+    public int getMax() {
+        for (int turns = counts.length - 1; turns >= 0; turns--) {
+            if (counts[turns] != 0) {
+                return turns;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a summary line followed by one bar per number of turns, from the
+     * minimum to the maximum.
+     *
+     * @return the rendered histogram
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("matches=%d mean=%.2f p50=%d p90=%d p99=%d min=%d max=%d%n", getTotal(), getMean(),
+                getPercentile(50), getPercentile(90), getPercentile(99), getMin(), getMax()));
+        long peak = 0;
+        for (long count : counts) {
+            peak = Math.max(peak, count);
+        }
+        for (int turns = Math.max(0, getMin()); turns <= getMax(); turns++) {
+            int bar = (int) (counts[turns] * BAR_WIDTH / peak);
+            sb.append(String.format("%4d %8d %s%n", turns, counts[turns], "#".repeat(bar)));
+        }
+        return sb.toString();
+    }
+}
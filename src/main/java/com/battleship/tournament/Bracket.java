@@ -0,0 +1,32 @@
+package com.battleship.tournament;
+
+/**
+ * The schedule of a tournament: who meets whom in the next round, and who
+ * advances once the round is played. A bracket only pairs entrants, their
+ * results are recorded in the entrants by the tournament.
+ */
+interface Bracket {
+
+    /**
+     * Pairs the entrants for the next round.
+     *
+     * @return the pairings of the round, empty once the tournament is decided
+     */
+    Pairing[] nextRound();
+
+    /**
+     * Advances the bracket after the round returned by {@link #nextRound()}
+     * was played and recorded.
+     *
+     * @param winners the winner of every pairing of the round, in the same
+     *                order
+     */
+    void advance(Entrant[] winners);
+
+    /**
+     * Ranks the entrants.
+     *
+     * @return all entrants, the best first
+     */
+    Entrant[] standings();
+}
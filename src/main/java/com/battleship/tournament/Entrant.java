@@ -0,0 +1,169 @@
+package com.battleship.tournament;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An entrant of a tournament: a bot playing one targeting strategy, and its
+ * record so far. The record is only changed by the thread running the
+ * tournament, between rounds.
+ */
+public final class Entrant {
+
+    /**
+     * Orders entrants by score, the better first, then by seed.
+     */
+    static final Comparator<Entrant> BY_SCORE = Comparator.comparingInt(Entrant::getScore).reversed()
+            .thenComparingInt(Entrant::getSeed);
+
+    private final int seed;
+    private final String name;
+    private final String strategy;
+    private int wins;
+    private int losses;
+    private int byes;
+    // the opponents in the order they were met
+    private Entrant[] opponents = new Entrant[4];
+    private int opponentCount;
+
+    /**
+     * Constructs an entrant without any result.
+     *
+     * @param seed     the position of the entrant in the roster, 0 for the
+     *                 strongest
+     * @param name     the name of the entrant
+     * @param strategy the name of the targeting strategy it plays
+     */
+    public Entrant(int seed, String name, String strategy) {
+        this.seed = seed;
+        this.name = name;
+        this.strategy = strategy;
+    }
+
+    /**
+     * Records a played match.
+     *
+     * @param opponent the other entrant of the match
+     * @param won      whether this entrant won
+     */
+    void recordMatch(Entrant opponent, boolean won) {
+        if (won) {
+            wins++;
+        } else {
+            losses++;
+        }
+        if (opponentCount == opponents.length) {
+            opponents = Arrays.copyOf(opponents, opponentCount * 2);
+        }
+        opponents[opponentCount++] = opponent;
+    }
+
+    /**
+     * Records a round the entrant sat out, counted as a win.
+     */
+    void recordBye() {
+        byes++;
+    }
+
+    /**
+     * Checks whether the entrant already played another one.
+     *
+     * @param other the other entrant
+     * @return true if they met before
+     */
+    boolean hasMet(Entrant other) {
+        for (int i = 0; i < opponentCount; i++) {
+            if (opponents[i] == other) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the position of the entrant in the roster.
+     *
+     * @return the seed, 0 for the strongest
+     */
+    public int getSeed() {
+        return seed;
+    }
+
+    /**
+     * Retrieves the name of the entrant.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Retrieves the targeting strategy the entrant plays.
+     *
+     * @return the name of the strategy
+     */
+    public String getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Retrieves the number of won matches.
+     *
+     * @return the wins, byes not included
+     */
+    public int getWins() {
+        return wins;
+    }
+
+    /**
+     * Retrieves the number of lost matches.
+     *
+     * @return the losses
+     */
+    public int getLosses() {
+        return losses;
+    }
+
+    /**
+     * Retrieves the number of rounds the entrant sat out.
+     *
+     * @return the byes
+     */
+    public int getByes() {
+        return byes;
+    }
+
+    /**
+     * Computes the score: one point for every win and every bye.
+     *
+     * @return the score
+     */
+    public int getScore() {
+        return wins + byes;
+    }
+
+    /**
+     * Computes the Buchholz tiebreak: the sum of the scores of all opponents,
+     * higher for entrants that met stronger opponents.
+     *
+     * @return the Buchholz score
+     */
+    public int getBuchholz() {
+        int sum = 0;
+        for (int i = 0; i < opponentCount; i++) {
+            sum += opponents[i].getScore();
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the name and strategy of the entrant.
+     *
+     * @return the entrant as text
+     */
+    @Override
+    public String toString() {
+        return name + " (" + strategy + ")";
+    }
+}
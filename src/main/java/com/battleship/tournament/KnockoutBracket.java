@@ -0,0 +1,96 @@
+package com.battleship.tournament;
+
+import java.util.Arrays;
+
+/**
+ * A single elimination bracket: the loser of every match is out, until one
+ * entrant is left.
+ *
+ * The entrants are placed on a bracket of the next power of two in the usual
+ * seeding order, so the two best seeds can only meet in the final. The empty
+ * slots of a bracket that is not full give byes to the best seeds in the first
+ * round. Every round pairs neighbouring slots, O(n).
+ */
+final class KnockoutBracket implements Bracket {
+
+    private final Entrant[] entrants;
+    // the entrants still in, in bracket order, null for an empty slot
+    private Entrant[] slots;
+
+    /**
+     * Constructs a knockout bracket.
+     *
+     * @param entrants the entrants, the best seed first
+     */
+    KnockoutBracket(Entrant[] entrants) {
+        this.entrants = entrants.clone();
+        int size = entrants.length <= 1 ? 1 : Integer.highestOneBit(entrants.length - 1) << 1;
+        int[] order = seedOrder(size);
+        slots = new Entrant[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = order[i] < entrants.length ? entrants[order[i]] : null;
+        }
+    }
+
+    /**
+     * Computes the seeding order of a bracket: seed s meets seed size - 1 - s in
+     * the first round, and every half holds the same share of the best seeds.
+     *
+     * @param size the number of slots, a power of two
+     * @return the seed of every slot, 0 for the best
+     */
+    static int[] seedOrder(int size) {
+        int[] order = { 0 };
+        while (order.length < size) {
+            int[] next = new int[order.length * 2];
+            for (int i = 0; i < order.length; i++) {
+                next[2 * i] = order[i];
+                next[2 * i + 1] = next.length - 1 - order[i];
+            }
+            order = next;
+        }
+        return order;
+    }
+
+    /**
+     * Pairs neighbouring slots of the bracket.
+     *
+     * @return the pairings, empty once one entrant is left
+     */
+    @Override
+    public Pairing[] nextRound() {
+        if (slots.length == 1) {
+            return new Pairing[0];
+        }
+        Pairing[] pairings = new Pairing[slots.length / 2];
+        for (int i = 0; i < pairings.length; i++) {
+            Entrant first = slots[2 * i];
+            Entrant second = slots[2 * i + 1];
+            pairings[i] = first == null ? new Pairing(second, null) : new Pairing(first, second);
+        }
+        return pairings;
+    }
+
+    /**
+     * Moves the winners on to the next round.
+     *
+     * @param winners the winner of every pairing of the round
+     */
+    @Override
+    public void advance(Entrant[] winners) {
+        slots = winners.clone();
+    }
+
+    /**
+     * Ranks the entrants by the round they reached, then by seed.
+     *
+     * @return all entrants, the champion first
+     */
+    @Override
+    public Entrant[] standings() {
+        // every round an entrant reached was a win or a bye, so the score is the round
+        Entrant[] standings = entrants.clone();
+        Arrays.sort(standings, Entrant.BY_SCORE);
+        return standings;
+    }
+}
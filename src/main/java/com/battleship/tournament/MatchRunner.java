@@ -0,0 +1,21 @@
+package com.battleship.tournament;
+
+import java.util.SplittableRandom;
+
+/**
+ * Plays the matches of a tournament. Called concurrently by the worker threads
+ * of the tournament, so an implementation must not share mutable state between
+ * matches.
+ */
+@FunctionalInterface
+interface MatchRunner {
+
+    /**
+     * Plays one match.
+     *
+     * @param pairing the entrants of the match, never a bye
+     * @param random  the source of randomness of the match
+     * @return the winner, the first or the second entrant of the pairing
+     */
+    Entrant play(Pairing pairing, SplittableRandom random);
+}
@@ -0,0 +1,17 @@
+package com.battleship.tournament;
+
+/**
+ * Two entrants meeting in a round of a tournament. An entrant without an
+ * opponent has a bye and wins the round without playing.
+ */
+record Pairing(Entrant first, Entrant second) {
+
+    /**
+     * Checks whether the first entrant sits the round out.
+     *
+     * @return true if there is no second entrant
+     */
+    boolean isBye() {
+        return second == null;
+    }
+}
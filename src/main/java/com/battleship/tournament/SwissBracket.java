@@ -0,0 +1,128 @@
+package com.battleship.tournament;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A Swiss system: every entrant plays every round, against an entrant with the
+ * same or a similar score it has not met yet, for a fixed number of rounds.
+ *
+ * Every round sorts the entrants by score once, O(n log n), and pairs each
+ * entrant with the next free one below it. A rematch is avoided by looking a
+ * few entrants further down; only if all of them were met already is the
+ * rematch played, so a round never takes more than O(n log n). With an odd
+ * number of entrants the lowest ranked entrant without a bye sits out.
+ */
+final class SwissBracket implements Bracket {
+
+    // free entrants looked at below an entrant to find one it has not met
+    private static final int REMATCH_WINDOW = 16;
+
+    // the final ranking breaks ties of the score by the strength of the opponents
+    private static final Comparator<Entrant> BY_BUCHHOLZ = Comparator.comparingInt(Entrant::getScore).reversed()
+            .thenComparing(Comparator.comparingInt(Entrant::getBuchholz).reversed())
+            .thenComparingInt(Entrant::getSeed);
+
+    private final Entrant[] entrants;
+    private final int rounds;
+    private int round;
+
+    /**
+     * Constructs a Swiss bracket.
+     *
+     * @param entrants the entrants
+     * @param rounds   the number of rounds to play
+     */
+    SwissBracket(Entrant[] entrants, int rounds) {
+        this.entrants = entrants.clone();
+        this.rounds = rounds;
+    }
+
+    /**
+     * Computes the number of rounds that separates a single winner from the
+     * rest, as a knockout with the same entrants would.
+     *
+     * @param entrants the number of entrants
+     * @return the number of rounds
+     */
+    static int defaultRounds(int entrants) {
+        return entrants <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(entrants - 1);
+    }
+
+    /**
+     * Pairs the entrants by score.
+     *
+     * @return the pairings, the bye last; empty after the last round
+     */
+    @Override
+    public Pairing[] nextRound() {
+        if (round == rounds || entrants.length < 2) {
+            return new Pairing[0];
+        }
+        Entrant[] order = entrants.clone();
+        Arrays.sort(order, Entrant.BY_SCORE);
+        boolean[] paired = new boolean[order.length];
+        Pairing[] pairings = new Pairing[(order.length + 1) / 2];
+        int count = 0;
+        int bye = -1;
+        if (order.length % 2 == 1) {
+            bye = order.length - 1;
+            while (bye > 0 && order[bye].getByes() > 0) {
+                bye--;
+            }
+            paired[bye] = true;
+        }
+        for (int i = 0; i < order.length; i++) {
+            if (paired[i]) {
+                continue;
+            }
+            int opponent = -1;
+            int nearest = -1;
+            for (int j = i + 1, seen = 0; j < order.length && seen < REMATCH_WINDOW; j++) {
+                if (paired[j]) {
+                    continue;
+                }
+                if (nearest < 0) {
+                    nearest = j;
+                }
+                if (!order[i].hasMet(order[j])) {
+                    opponent = j;
+                    break;
+                }
+                seen++;
+            }
+            if (opponent < 0) {
+                opponent = nearest;
+            }
+            paired[i] = true;
+            paired[opponent] = true;
+            pairings[count++] = new Pairing(order[i], order[opponent]);
+        }
+        if (bye >= 0) {
+            pairings[count] = new Pairing(order[bye], null);
+        }
+        return pairings;
+    }
+
+    /**
+     * Moves on to the next round, the scores are kept by the entrants.
+     *
+     * @param winners the winner of every pairing of the round
+     */
+    @Override
+    public void advance(Entrant[] winners) {
+        round++;
+    }
+
+    /**
+     * Ranks the entrants by score, then by Buchholz, then by seed.
+     *
+     * @return all entrants, the best first
+     */
+    @Override
+    public Entrant[] standings() {
+        Entrant[] standings = entrants.clone();
+        Arrays.sort(standings, BY_BUCHHOLZ);
+        return standings;
+    }
+}
@@ -0,0 +1,338 @@
+package com.battleship.tournament;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.battleship.bot.Strategies;
+import com.battleship.simulation.MatchSimulator;
+
+/**
+ * Runs a tournament of bots offline: takes a roster, pairs it round by round in
+ * a Swiss or a knockout bracket, plays every round on a bounded pool of worker
+ * threads, records the results and advances the bracket until it is decided.
+ *
+ * The matches are played by the {@link MatchSimulator}, under the rules of the
+ * server, with a coin toss deciding who attacks first. The matches of a round
+ * are split over a fork/join pool the same way the simulator splits its
+ * matches, so the results only depend on the seed, never on the number of
+ * threads. Pairing and recording a round takes O(n log n) on the thread
+ * running the tournament, which is small next to playing its n / 2 matches.
+ *
+ * The roster is a file with one entrant per line, its name and its strategy
+ * separated by a comma, the best seed first; blank lines and lines starting
+ * with # are skipped. Without a roster the given number of entrants is made up,
+ * taking turns with the strategies.
+ *
+ * Options: {@code --format=swiss|knockout --roster=FILE --entrants=N
+ * --strategies=random,density --rounds=N --seed=N --threads=N --top=N
+ * --width=N --height=N --storage=bitboard|dense|sparse}.
+ */
+public class Tournament {
+
+    private static final String ERR_UNKNOWN_OPTION = "Unknown option %s";
+    private static final String ERR_ROSTER_LINE = "Invalid roster line %d: %s";
+    // matches played by one task without splitting further
+    private static final int MATCHES_PER_TASK = 64;
+
+    private String format = "swiss";
+    private String roster;
+    private int entrantCount = 1024;
+    private String[] strategyNames = Strategies.NAMES;
+    // 0 for as many rounds as a knockout of the entrants takes
+    private int rounds;
+    private long seed = System.nanoTime();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int top = 10;
+    private int width = 10;
+    private int height = 10;
+    private String storage = "bitboard";
+
+    private MatchRunner runner;
+    private int roundsPlayed;
+    private long matchesPlayed;
+
+    /**
+     * Sets how the matches are played, instead of the simulator.
+     *
+     * @param runner plays the matches of the tournament
+     */
+    void setRunner(MatchRunner runner) {
+        this.runner = runner;
+    }
+
+    /**
+     * Retrieves the number of rounds the last tournament took.
+     *
+     * @return the number of rounds
+     */
+    int getRoundsPlayed() {
+        return roundsPlayed;
+    }
+
+    /**
+     * Retrieves the number of matches the last tournament played, byes not
+     * included.
+     *
+     * @return the number of matches
+     */
+    long getMatchesPlayed() {
+        return matchesPlayed;
+    }
+
+    /**
+     * Reads the roster, or makes up the entrants if there is none.
+     *
+     * @return the entrants, the best seed first
+     * @throws IOException if the roster cannot be read
+     */
+    Entrant[] loadEntrants() throws IOException {
+        List<Entrant> entrants = new ArrayList<>();
+        if (roster == null) {
+            for (int i = 0; i < entrantCount; i++) {
+                entrants.add(new Entrant(i, "bot-" + (i + 1), strategyNames[i % strategyNames.length]));
+            }
+            return entrants.toArray(new Entrant[0]);
+        }
+        List<String> lines = Files.readAllLines(Path.of(roster));
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 2) {
+                throw new IllegalArgumentException(String.format(ERR_ROSTER_LINE, i + 1, line));
+            }
+            String strategy = fields[1].trim();
+            checkStrategy(strategy);
+            entrants.add(new Entrant(entrants.size(), fields[0].trim(), strategy));
+        }
+        return entrants.toArray(new Entrant[0]);
+    }
+
+    /**
+     * Creates the bracket of the configured format.
+     *
+     * @param entrants the entrants, the best seed first
+     * @return the empty bracket
+     */
+    private Bracket newBracket(Entrant[] entrants) {
+        switch (format) {
+            case "swiss":
+                return new SwissBracket(entrants, rounds > 0 ? rounds : SwissBracket.defaultRounds(entrants.length));
+            case "knockout":
+                return new KnockoutBracket(entrants);
+            default:
+                throw new IllegalArgumentException(String.format(ERR_UNKNOWN_OPTION, "--format=" + format));
+        }
+    }
+
+    /**
+     * Plays a whole tournament.
+     *
+     * @param entrants the entrants, the best seed first
+     * @return the final standings, the winner first
+     */
+    Entrant[] play(Entrant[] entrants) {
+        Bracket bracket = newBracket(entrants);
+        MatchRunner matches = runner != null ? runner : simulated();
+        SplittableRandom random = new SplittableRandom(seed);
+        roundsPlayed = 0;
+        matchesPlayed = 0;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Pairing[] pairings;
+            while ((pairings = bracket.nextRound()).length > 0) {
+                Entrant[] winners = new Entrant[pairings.length];
+                pool.invoke(new RoundTask(matches, pairings, winners, 0, pairings.length, random.split()));
+                for (int i = 0; i < pairings.length; i++) {
+                    Pairing pairing = pairings[i];
+                    if (pairing.isBye()) {
+                        pairing.first().recordBye();
+                        continue;
+                    }
+                    pairing.first().recordMatch(pairing.second(), winners[i] == pairing.first());
+                    pairing.second().recordMatch(pairing.first(), winners[i] == pairing.second());
+                    matchesPlayed++;
+                }
+                bracket.advance(winners);
+                roundsPlayed++;
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return bracket.standings();
+    }
+
+    /**
+     * Creates the runner playing the matches in the simulator.
+     *
+     * @return the runner
+     */
+    private MatchRunner simulated() {
+        MatchSimulator simulator = new MatchSimulator(width, height, storage);
+        return (pairing, random) -> {
+            // attacking first is an advantage, so neither seat is given it
+            boolean swap = random.nextBoolean();
+            Entrant first = swap ? pairing.second() : pairing.first();
+            Entrant second = swap ? pairing.first() : pairing.second();
+            return simulator.play(first.getStrategy(), second.getStrategy(), random) == 0 ? first : second;
+        };
+    }
+
+    /**
+     * Plays the configured tournament and prints the top of the standings.
+     *
+     * @throws IOException if the roster cannot be read
+     */
+    public void run() throws IOException {
+        Entrant[] entrants = loadEntrants();
+        System.out.printf("format=%s entrants=%d board=%dx%d storage=%s threads=%d seed=%d%n", format,
+                entrants.length, width, height, storage, threads, seed);
+        long start = System.nanoTime();
+        Entrant[] standings = play(entrants);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("rounds=%d matches=%d (%.0f matches/s)%n%n", roundsPlayed, matchesPlayed,
+                matchesPlayed / seconds);
+        System.out.printf("%5s  %-16s %-8s %5s %5s %5s %5s %8s%n", "rank", "name", "strategy", "score", "won", "lost",
+                "byes", "buchholz");
+        for (int i = 0; i < Math.min(top, standings.length); i++) {
+            Entrant entrant = standings[i];
+            System.out.printf("%5d  %-16s %-8s %5d %5d %5d %5d %8d%n", i + 1, entrant.getName(),
+                    entrant.getStrategy(), entrant.getScore(), entrant.getWins(), entrant.getLosses(),
+                    entrant.getByes(), entrant.getBuchholz());
+        }
+    }
+
+    /**
+     * Plays a range of the matches of a round, splitting it in halves while it
+     * is large.
+     */
+    private static class RoundTask extends RecursiveAction {
+
+        private final MatchRunner matches;
+        private final Pairing[] pairings;
+        private final Entrant[] winners;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        RoundTask(MatchRunner matches, Pairing[] pairings, Entrant[] winners, int from, int to,
+                SplittableRandom random) {
+            this.matches = matches;
+            this.pairings = pairings;
+            this.winners = winners;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MATCHES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    Pairing pairing = pairings[i];
+                    winners[i] = pairing.isBye() ? pairing.first() : matches.play(pairing, random);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            RoundTask left = new RoundTask(matches, pairings, winners, from, middle, random.split());
+            RoundTask right = new RoundTask(matches, pairings, winners, middle, to, random.split());
+            left.fork();
+            right.compute();
+            left.join();
+        }
+    }
+
+    /**
+     * Checks that a strategy exists.
+     *
+     * @param strategy the name of the strategy
+     * @throws IllegalArgumentException if it does not
+     */
+    private static void checkStrategy(String strategy) {
+        if (!Arrays.asList(Strategies.NAMES).contains(strategy)) {
+            throw new IllegalArgumentException("Unknown strategy " + strategy);
+        }
+    }
+
+    /**
+     * Parses the command-line arguments.
+     *
+     * @param args the command-line arguments
+     * @return the configured tournament
+     */
+    static Tournament parse(String[] args) {
+        Tournament tournament = new Tournament();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException(String.format(ERR_UNKNOWN_OPTION, arg));
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "format":
+                    tournament.format = value;
+                    // fail on an unknown format before the roster is read
+                    tournament.newBracket(new Entrant[0]);
+                    break;
+                case "roster":
+                    tournament.roster = value;
+                    break;
+                case "entrants":
+                    tournament.entrantCount = Integer.parseInt(value);
+                    break;
+                case "strategies":
+                    tournament.strategyNames = value.split(",");
+                    for (String strategy : tournament.strategyNames) {
+                        checkStrategy(strategy);
+                    }
+                    break;
+                case "rounds":
+                    tournament.rounds = Integer.parseInt(value);
+                    break;
+                case "seed":
+                    tournament.seed = Long.parseLong(value);
+                    break;
+                case "threads":
+                    tournament.threads = Integer.parseInt(value);
+                    break;
+                case "top":
+                    tournament.top = Integer.parseInt(value);
+                    break;
+                case "width":
+                    tournament.width = Integer.parseInt(value);
+                    break;
+                case "height":
+                    tournament.height = Integer.parseInt(value);
+                    break;
+                case "storage":
+                    tournament.storage = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format(ERR_UNKNOWN_OPTION, arg));
+            }
+        }
+        // fail on an unknown storage before any match is played
+        tournament.simulated();
+        return tournament;
+    }
+
+    /**
+     * The main method to start a tournament.
+     *
+     * @param args the command-line arguments
+     * @throws IOException if the roster cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        parse(args).run();
+    }
+}
@@ -0,0 +1,114 @@
+package com.battleship.ai;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.battleship.client.BattleshipException;
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.Ship;
+import com.battleship.client.ShipStorage;
+import com.battleship.client.ShipStorageBuilder;
+
+/**
+ * Unit test for the probability density targeting engine
+ */
+public class ProbabilityDensityTargetingTest {
+
+    private final Ship[] fleet = new ShipStorageBuilder().getShips();
+
+    @Test
+    public void testCenterIsDensest() {
+        ProbabilityDensityTargeting targeting = new ProbabilityDensityTargeting(fleet);
+        targeting.reset(10, 10);
+        assertTrue(targeting.getDensity(4, 4) > targeting.getDensity(0, 0));
+        assertEquals(targeting.getDensity(4, 4), targeting.getDensity(5, 5));
+    }
+
+    @Test
+    public void testMissRemovesPlacements() {
+        ProbabilityDensityTargeting targeting = new ProbabilityDensityTargeting(new Ship[] { new Ship(1, 2, "x") });
+        targeting.reset(3, 1);
+        // placements: (0,1) and (1,2)
+        assertEquals(2, targeting.getDensity(1, 0));
+        targeting.observe(0, 0, HitStatus.MISSED);
+        assertEquals(1, targeting.getDensity(1, 0));
+        assertEquals(1, targeting.getDensity(2, 0));
+        assertEquals(new Coordinates(1, 0).toString(), targeting.nextTarget().toString());
+    }
+
+    @Test
+    public void testTargetsNeighbourOfHit() {
+        ProbabilityDensityTargeting targeting = new ProbabilityDensityTargeting(fleet);
+        targeting.reset(10, 10);
+        targeting.observe(4, 4, HitStatus.HIT);
+        Coordinates next = targeting.nextTarget();
+        assertEquals(1, Math.abs(next.getX() - 4) + Math.abs(next.getY() - 4));
+    }
+
+    @Test
+    public void testSinkingRestoresHuntMode() {
+        ProbabilityDensityTargeting targeting = new ProbabilityDensityTargeting(fleet);
+        targeting.reset(10, 10);
+        targeting.observe(0, 0, HitStatus.HIT);
+        targeting.observe(1, 0, HitStatus.DESTROYED);
+        // the sunk ship blocks its cells, the rest of the fleet still fits elsewhere
+        assertEquals(0, targeting.getDensity(0, 0));
+        assertTrue(targeting.getDensity(4, 4) > 0);
+    }
+
+    @Test
+    public void testPlaysLegalSalvos() throws BattleshipException {
+        Random random = new Random(7);
+        ProbabilityDensityTargeting targeting = new ProbabilityDensityTargeting(fleet);
+        ShipStorage board = randomBoard(random);
+        targeting.reset(10, 10);
+        int salvos = 0;
+        while (!board.isCompletelyDestroyed()) {
+            Coordinates[] targets = targeting.nextTargets(3);
+            // throws if a cell is attacked twice, within the salvo or before
+            HitStatus[] hitStatuses = board.attack(targets);
+            for (int i = 0; i < targets.length; i++) {
+                targeting.onResult(targets[i], hitStatuses[i]);
+            }
+            salvos++;
+        }
+        assertTrue("took " + salvos + " salvos", salvos <= 34);
+    }
+
+    @Test
+    public void testPlaysLegalGames() throws BattleshipException {
+        Random random = new Random(42);
+        ProbabilityDensityTargeting targeting = new ProbabilityDensityTargeting(fleet);
+        for (int game = 0; game < 20; game++) {
+            ShipStorage board = randomBoard(random);
+            targeting.reset(10, 10);
+            int turns = 0;
+            while (!board.isCompletelyDestroyed()) {
+                Coordinates target = targeting.nextTarget();
+                // throws if the engine attacks a cell twice
+                targeting.onResult(target, board.attack(target));
+                turns++;
+            }
+            assertTrue("took " + turns + " turns", turns < 100);
+        }
+    }
+
+    private ShipStorage randomBoard(Random random) {
+        ShipStorage board = new ShipStorage(10, 10);
+        for (Ship ship : fleet) {
+            while (true) {
+                try {
+                    board.addShip(new Coordinates(random.nextInt(10), random.nextInt(10)), random.nextBoolean(), ship);
+                    break;
+                } catch (BattleshipException e) {
+                    // draw again
+                }
+            }
+        }
+        return board;
+    }
+}
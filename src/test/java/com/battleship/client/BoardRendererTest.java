@@ -0,0 +1,105 @@
+package com.battleship.client;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the board renderer
+ */
+public class BoardRendererTest {
+
+    private static final String BG_DEFAULT = "\u001B[49m";
+    private static final String BG_YELLOW = "\u001B[43m";
+    private static final String BG_BLUE = "\u001B[44m";
+    private static final String RESET = "\u001B[m";
+
+    @Test
+    public void testPlainFrame() throws BattleshipException {
+        ShipStorage storage = new ShipStorage(3, 2);
+        storage.addShip(new Coordinates(0, 0), false, new Ship(1, 2, "1"));
+        storage.attack(new Coordinates(2, 1));
+
+        String frame = new BoardRenderer(false).render(storage);
+        assertEquals(" |A B C \n"
+                + "--------\n"
+                + "0|1 1   \n"
+                + "1|      \n"
+                + "[yellow: ship hit --- red: ship destroyed --- blue: missed attack]", frame);
+    }
+
+    @Test
+    public void testAnsiColors() throws BattleshipException {
+        ShipStorage storage = new ShipStorage(2, 1);
+        storage.addShip(new Coordinates(0, 0), false, new Ship(1, 1, "1"));
+        storage.attack(new Coordinates(1, 0));
+
+        String frame = new BoardRenderer(true).render(storage);
+        String row = frame.split("\n")[2];
+        assertEquals("0|" + BG_DEFAULT + "1" + RESET + " " + BG_BLUE + " " + RESET + " ", row);
+    }
+
+    @Test
+    public void testWideBoardLabels() throws BattleshipException {
+        ShipStorage storage = ShipStorage.create(28, 11);
+        storage.addShip(new Coordinates(26, 10), false, new Ship(1, 2, "1"));
+
+        String[] lines = new BoardRenderer(false).render(storage).split("\n");
+        assertTrue(lines[0].startsWith("  |A  B  C  "));
+        assertTrue(lines[0].endsWith("Z  AA AB "));
+        assertEquals(3 + 3 * 28, lines[1].length());
+        assertTrue(lines[2].startsWith(" 0|   "));
+        assertTrue(lines[12].endsWith("|" + "   ".repeat(26) + "1  1  "));
+
+        BoardRenderer renderer = new BoardRenderer(true);
+        renderer.redraw(storage);
+        storage.attack(new Coordinates(27, 0));
+        // row 0 is the 3rd line, column AB starts after " 0|" and 27 columns of 3
+        assertEquals("\u001B7\u001B[3;85H" + BG_BLUE + " " + RESET + "  \u001B8", renderer.redraw(storage));
+    }
+
+    @Test
+    public void testUnchangedBoardReusesFrame() throws BattleshipException {
+        ShipStorage storage = new ShipStorage(4, 4);
+        storage.addShip(new Coordinates(1, 1), true, new Ship(1, 3, "1"));
+        BoardRenderer renderer = new BoardRenderer(true);
+
+        String first = renderer.render(storage);
+        assertSame(first, renderer.render(storage));
+
+        storage.attack(new Coordinates(1, 2));
+        String second = renderer.render(storage);
+        assertNotSame(first, second);
+        assertEquals(new BoardRenderer(true).render(storage), second);
+        assertTrue(second.contains(BG_YELLOW + "1" + RESET));
+    }
+
+    @Test
+    public void testRedrawOnlyChangedCells() throws BattleshipException {
+        ShipStorage storage = new ShipStorage(12, 12);
+        ShipStorage.AttackHistory history = storage.new AttackHistory();
+        BoardRenderer renderer = new BoardRenderer(true);
+
+        String first = renderer.redraw(history);
+        assertTrue(first.startsWith("\u001B[H\u001B[2J"));
+        assertEquals("", renderer.redraw(history));
+
+        history.setHitStatus(new Coordinates(3, 11), HitStatus.MISSED);
+        // row 11 is the 14th line, its cells start after "11|" in column 4
+        assertEquals("\u001B7\u001B[14;10H" + BG_BLUE + " " + RESET + " \u001B8", renderer.redraw(history));
+
+        // rendering afterwards still draws the whole, current board
+        assertEquals(new BoardRenderer(true).render(history), renderer.render(history));
+    }
+
+    @Test
+    public void testRedrawBelowTop() throws BattleshipException {
+        ShipStorage storage = new ShipStorage(3, 3);
+        BoardRenderer renderer = new BoardRenderer(true, 8);
+
+        // drawn at its line without clearing the screen
+        assertTrue(renderer.redraw(storage).startsWith("\u001B[8;1H |A B C"));
+        storage.attack(new Coordinates(2, 0));
+        assertEquals("\u001B7\u001B[10;7H" + BG_BLUE + " " + RESET + " \u001B8", renderer.redraw(storage));
+    }
+}
@@ -3,6 +3,8 @@ package com.battleship.client;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.lang.management.ManagementFactory;
+
 import org.javatuples.Triplet;
 
 // Unit tests written by ChatGPT
@@ -42,5 +44,105 @@ public class CoordinateParserTest {
         CoordinateParser.splitString("hh2");
         CoordinateParser.splitString("hh2h");
     }
-    
+
+    @Test
+    public void testParsePacked() {
+        int packed = CoordinateParser.parse("j10");
+        assertEquals(9, CoordinateParser.packedX(packed));
+        assertEquals(10, CoordinateParser.packedY(packed));
+        assertFalse(CoordinateParser.isHorizontal(packed));
+
+        packed = CoordinateParser.parse("Z100h");
+        assertEquals(25, CoordinateParser.packedX(packed));
+        assertEquals(100, CoordinateParser.packedY(packed));
+        assertTrue(CoordinateParser.isHorizontal(packed));
+
+        assertEquals(CoordinateParser.INVALID, CoordinateParser.parse("7h"));
+        assertEquals(CoordinateParser.INVALID, CoordinateParser.parse("b4x"));
+        assertEquals(CoordinateParser.INVALID, CoordinateParser.parse("b99999999999"));
+        assertEquals(CoordinateParser.INVALID, CoordinateParser.parse(null));
+    }
+
+    @Test
+    public void testParseCoordinatesShared() throws BattleshipException {
+        Coordinates coordinates = CoordinateParser.parseCoordinates("c7");
+        assertEquals(2, coordinates.getX());
+        assertEquals(7, coordinates.getY());
+        assertSame(coordinates, CoordinateParser.parseCoordinates("C7"));
+        assertSame(coordinates, Coordinates.of(2, 7));
+        assertEquals(40, CoordinateParser.parseCoordinates("a40").getY());
+    }
+
+    @Test
+    public void testMultiLetterColumns() throws BattleshipException {
+        int packed = CoordinateParser.parse("aa0");
+        assertEquals(26, CoordinateParser.packedX(packed));
+        packed = CoordinateParser.parse("AB12h");
+        assertEquals(27, CoordinateParser.packedX(packed));
+        assertEquals(12, CoordinateParser.packedY(packed));
+        assertTrue(CoordinateParser.isHorizontal(packed));
+        assertEquals(701, CoordinateParser.packedX(CoordinateParser.parse("zz1")));
+        assertEquals(702, CoordinateParser.packedX(CoordinateParser.parse("aaa1")));
+        assertEquals(999, CoordinateParser.parseCoordinates("ALL999").getX());
+
+        assertEquals(CoordinateParser.INVALID, CoordinateParser.parse("ab"));
+        assertEquals(CoordinateParser.INVALID, CoordinateParser.parse("zzzz1"));
+        assertThrows(BattleshipException.class, () -> CoordinateParser.splitString("ab1"));
+    }
+
+    @Test
+    public void testRowIsRequired() {
+        // a trailing 'h' without a row is a second column letter
+        assertEquals(CoordinateParser.INVALID, CoordinateParser.parse("ah"));
+        assertEquals(CoordinateParser.INVALID, CoordinateParser.parse("Bh"));
+        assertThrows(BattleshipException.class, () -> CoordinateParser.splitString("ah"));
+        assertThrows(BattleshipException.class, () -> CoordinateParser.parseCoordinates("ah"));
+        assertTrue(CoordinateParser.isHorizontal(CoordinateParser.parse("a0h")));
+    }
+
+    @Test
+    public void testColumnLabels() {
+        assertEquals("A", Coordinates.columnLabel(0));
+        assertEquals("Z", Coordinates.columnLabel(25));
+        assertEquals("AA", Coordinates.columnLabel(26));
+        assertEquals("ZZ", Coordinates.columnLabel(701));
+        assertEquals("AAA", Coordinates.columnLabel(702));
+        assertEquals(3, Coordinates.columnLabelLength(999));
+        for (int x = 0; x < 2000; x++) {
+            String label = Coordinates.columnLabel(x);
+            assertEquals(label.length(), Coordinates.columnLabelLength(x));
+            assertEquals(x, CoordinateParser.packedX(CoordinateParser.parse(label + "0")));
+        }
+        assertEquals("AB7", Coordinates.of(27, 7).toString());
+        assertEquals("c3", new Coordinates('c', 3).toString().toLowerCase());
+    }
+
+    @Test
+    public void testParseDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        String[] inputs = { "a0", "j9", "e5h", "b4x", "c17" };
+        long thread = Thread.currentThread().getId();
+        // compiling and deoptimizing the loop allocates, so measure until the code is stable
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < 10 && allocated >= 1024; round++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            parse(inputs);
+            allocated = threads.getThreadAllocatedBytes(thread) - before;
+        }
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    /**
+     * Parses 100,000 inputs into shared coordinates.
+     */
+    private static void parse(String[] inputs) {
+        for (int i = 0; i < 100_000; i++) {
+            String input = inputs[i % inputs.length];
+            int packed = CoordinateParser.parse(input);
+            if (packed != CoordinateParser.INVALID && !CoordinateParser.isHorizontal(packed)) {
+                assertNotNull(Coordinates.of(CoordinateParser.packedX(packed), CoordinateParser.packedY(packed)));
+            }
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package com.battleship.client;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the random fleet placement
+ */
+public class RandomFleetPlacerTest {
+
+    private final Ship[] fleet = new ShipStorageBuilder().getShips();
+
+    @Test
+    public void testLegalLayouts() {
+        RandomFleetPlacer placer = new RandomFleetPlacer(fleet, 10, 10);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 1000; i++) {
+            ShipStorage storage = new BitboardShipStorage(10, 10);
+            placer.place(storage, random);
+            assertEquals(fleet.length, storage.getPlacements().size());
+        }
+    }
+
+    @Test
+    public void testFullBoard() {
+        // two ships of length 3 on a 3x2 board only fit side by side
+        Ship[] ships = { new Ship(1, 3, "x"), new Ship(2, 3, "x") };
+        ShipStorage storage = new ShipStorage(3, 2);
+        new RandomFleetPlacer(ships, 3, 2).place(storage, new SplittableRandom(1));
+        for (int y = 0; y < 2; y++) {
+            for (int x = 0; x < 3; x++) {
+                assertNotNull(storage.getValue(new Coordinates(x, y)));
+            }
+        }
+    }
+
+    @Test
+    public void testUniformSingleShip() {
+        // a ship of length 2 on a 3x1 board has two positions
+        RandomFleetPlacer placer = new RandomFleetPlacer(new Ship[] { new Ship(1, 2, "x") }, 3, 1);
+        SplittableRandom random = new SplittableRandom(3);
+        int atZero = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (placer.sample(random).get(0).start().getX() == 0) {
+                atZero++;
+            }
+        }
+        assertEquals(5000, atZero, 250);
+    }
+
+    @Test
+    public void testStreamIsReproducible() {
+        RandomFleetPlacer placer = new RandomFleetPlacer(fleet, 10, 10);
+        List<List<ShipStorage.Placement>> sequential = placer.stream(200, new SplittableRandom(11))
+                .collect(Collectors.toList());
+        List<List<ShipStorage.Placement>> parallel = placer.stream(200, new SplittableRandom(11)).parallel()
+                .collect(Collectors.toList());
+        assertEquals(200, sequential.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            for (int s = 0; s < fleet.length; s++) {
+                assertEquals(sequential.get(i).get(s).start().getX(), parallel.get(i).get(s).start().getX());
+                assertEquals(sequential.get(i).get(s).start().getY(), parallel.get(i).get(s).start().getY());
+                assertEquals(sequential.get(i).get(s).vertical(), parallel.get(i).get(s).vertical());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFleetTooLarge() {
+        new RandomFleetPlacer(fleet, 5, 5);
+    }
+}
@@ -2,14 +2,29 @@ package com.battleship.client;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.BiFunction;
+
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
 
 /**
- * Unit test for ship storage
+ * Unit test for ship storage, run against every storage with the same rules
  */
+@RunWith(Parameterized.class)
 public class ShipStorageTest {
 
+    @Parameter(0)
+    public String name;
+
+    @Parameter(1)
+    public BiFunction<Integer, Integer, ShipStorage> factory;
+
     private ShipStorage storage;
     private ShipStorage preparedStorage;
     private Ship ship1;
@@ -17,13 +32,23 @@ public class ShipStorageTest {
     private int height = 10;
     private int width = 10;
 
+    /**
+     * Lists the storages under test.
+     */
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> storages() {
+        BiFunction<Integer, Integer, ShipStorage> dense = ShipStorage::new;
+        BiFunction<Integer, Integer, ShipStorage> bitboard = BitboardShipStorage::new;
+        return Arrays.asList(new Object[][] { { "dense", dense }, { "bitboard", bitboard } });
+    }
+
     @Before
     public void setUp() throws BattleshipException {
-        storage = new ShipStorage(width, height);
+        storage = factory.apply(width, height);
         ship1 = new Ship(1, 2, "x");
         ship2 = new Ship(2, 4, "x");
 
-        preparedStorage = new ShipStorage(width, height);
+        preparedStorage = factory.apply(width, height);
         preparedStorage.addShip(new Coordinates(0, 0), false, ship1);
         preparedStorage.addShip(new Coordinates(0, 1), true, ship2);
     }
@@ -39,6 +64,16 @@ public class ShipStorageTest {
         assertThrows(BattleshipException.class, () -> {
             storage.addShip(new Coordinates('a', height), true, ship1);
         });
+        assertThrows(BattleshipException.class, () -> {
+            storage.addShip(new Coordinates('i', 0), false, ship2);
+        });
+    }
+
+    @Test
+    public void testCellOffTheBoard() {
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> storage.getValue(new Coordinates(width, 0)));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> storage.getHitStatus(new Coordinates(0, height)));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> storage.getHitStatus(-1, 0));
     }
 
     @Test
@@ -127,4 +162,54 @@ public class ShipStorageTest {
         // only ship entirely destroyed: over
         assertTrue(storage.isCompletelyDestroyed());
     }
+
+    @Test
+    public void testShipAcrossMaskWords() throws BattleshipException {
+        // cells 62 and 72 lie in the first and second word of a bit mask
+        storage.addShip(new Coordinates(2, 6), true, ship1);
+        assertEquals(HitStatus.HIT, storage.attack(new Coordinates(2, 6)));
+        assertEquals(HitStatus.DESTROYED, storage.attack(new Coordinates(2, 7)));
+        assertEquals(HitStatus.DESTROYED, storage.getHitStatus(new Coordinates(2, 6)));
+        assertTrue(storage.isCompletelyDestroyed());
+    }
+
+    @Test
+    public void testRemainingShips() throws BattleshipException {
+        assertEquals(0, storage.getRemainingShips());
+        storage.addShip(new Coordinates(0, 0), true, new Ship(1, 2, "S"));
+        storage.addShip(new Coordinates(2, 0), false, new Ship(2, 1, "B"));
+        assertEquals(2, storage.getRemainingShips());
+
+        storage.attack(new Coordinates(0, 0));
+        assertEquals(2, storage.getRemainingShips());
+        assertThrows(BattleshipException.class, () -> storage.attack(new Coordinates(0, 0)));
+        assertEquals(2, storage.getRemainingShips());
+        assertEquals(HitStatus.DESTROYED, storage.attack(new Coordinates(2, 0)));
+        assertEquals(1, storage.getRemainingShips());
+        assertEquals(HitStatus.DESTROYED, storage.attack(new Coordinates(0, 1)));
+        assertEquals(0, storage.getRemainingShips());
+        assertTrue(storage.isCompletelyDestroyed());
+    }
+
+    @Test
+    public void testSalvo() throws BattleshipException {
+        storage.addShip(new Coordinates(0, 0), true, new Ship(1, 2, "S"));
+        HitStatus[] hitStatuses = storage.attack(new Coordinates[] { new Coordinates(0, 0), new Coordinates(3, 3),
+                new Coordinates(0, 1) });
+        assertArrayEquals(new HitStatus[] { HitStatus.HIT, HitStatus.MISSED, HitStatus.DESTROYED }, hitStatuses);
+        assertTrue(storage.isCompletelyDestroyed());
+    }
+
+    @Test
+    public void testRejectedSalvoLeavesBoardUnchanged() throws BattleshipException {
+        storage.addShip(new Coordinates(0, 0), true, new Ship(1, 2, "S"));
+        BattleshipException e = assertThrows(BattleshipException.class,
+                () -> storage.attack(new Coordinates[] { new Coordinates(0, 0), new Coordinates(0, 0) }));
+        assertEquals(ShipStorage.ERR_ALREADY_ATTACKED, e.getMessage());
+        e = assertThrows(BattleshipException.class,
+                () -> storage.attack(new Coordinates[] { new Coordinates(0, 1), new Coordinates(0, 99) }));
+        assertEquals(ShipStorage.ERR_ATTACK_END, e.getMessage());
+        assertEquals(HitStatus.NOT_ATTTACKED, storage.getHitStatus(new Coordinates(0, 0)));
+        assertEquals(HitStatus.NOT_ATTTACKED, storage.getHitStatus(new Coordinates(0, 1)));
+    }
 }
@@ -0,0 +1,141 @@
+package com.battleship.client;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for the sparse ship storage, mirrors ShipStorageTest and adds a
+ * large board
+ */
+public class SparseShipStorageTest {
+
+    private ShipStorage storage;
+    private Ship ship1;
+    private Ship ship2;
+    private int height = 10;
+    private int width = 10;
+
+    @Before
+    public void setUp() {
+        storage = new SparseShipStorage(width, height);
+        ship1 = new Ship(1, 2, "x");
+        ship2 = new Ship(2, 4, "x");
+    }
+
+    @Test
+    public void invalidCoordinates() {
+        assertThrows(BattleshipException.class, () -> {
+            storage.addShip(new Coordinates('a', -1), false, ship1);
+        });
+
+        assertNull(storage.getValue(new Coordinates('a', 0)));
+
+        assertThrows(BattleshipException.class, () -> {
+            storage.addShip(new Coordinates('a', height), true, ship1);
+        });
+        assertThrows(BattleshipException.class, () -> {
+            storage.addShip(new Coordinates('i', 0), false, ship2);
+        });
+    }
+
+    @Test
+    public void setAndGet() throws BattleshipException {
+        Coordinates co = new Coordinates('a', 0);
+        storage.addShip(co, false, ship1);
+        assertEquals((int) storage.getValue(co), ship1.getId());
+        co = new Coordinates('b', 0);
+        assertEquals((int) storage.getValue(co), ship1.getId());
+        co = new Coordinates('c', 0);
+        assertNull(storage.getValue(co));
+
+        // place ship where there's already one
+        assertThrows(BattleshipException.class, () -> {
+            Coordinates conew = new Coordinates('b', 0);
+            storage.addShip(conew, true, ship2);
+        });
+    }
+
+    @Test(expected = BattleshipException.class)
+    public void testAttackOutOfBounds() throws BattleshipException {
+        storage.attack(new Coordinates(10, 10));
+    }
+
+    @Test(expected = BattleshipException.class)
+    public void testAttackAlreadyAttacked() throws BattleshipException {
+        storage.addShip(new Coordinates(0, 0), true, new Ship(1, 3, "A"));
+        storage.attack(new Coordinates(0, 0));
+        storage.attack(new Coordinates(0, 0));
+    }
+
+    @Test
+    public void testAttackDestroyed() throws BattleshipException {
+        storage.addShip(new Coordinates(0, 0), true, new Ship(1, 2, "S"));
+        storage.addShip(new Coordinates(2, 6), false, new Ship(2, 2, "T"));
+
+        assertEquals(HitStatus.MISSED, storage.attack(new Coordinates(3, 3)));
+        assertEquals(HitStatus.HIT, storage.attack(new Coordinates(0, 0)));
+        assertEquals(HitStatus.HIT, storage.getHitStatus(0, 0));
+        assertEquals(HitStatus.DESTROYED, storage.attack(new Coordinates(0, 1)));
+        assertEquals(HitStatus.DESTROYED, storage.getHitStatus(new Coordinates(0, 0)));
+        assertEquals(1, storage.getRemainingShips());
+        assertEquals("T", storage.getSymbol(3, 6));
+        assertEquals(" ", storage.getSymbol(4, 6));
+
+        assertEquals(HitStatus.HIT, storage.attack(new Coordinates(2, 6)));
+        assertEquals(HitStatus.DESTROYED, storage.attack(new Coordinates(3, 6)));
+        assertTrue(storage.isCompletelyDestroyed());
+    }
+
+    @Test
+    public void testMatchesDenseStorage() throws BattleshipException {
+        ShipStorage dense = new ShipStorage(width, height);
+        for (ShipStorage board : new ShipStorage[] { storage, dense }) {
+            board.addShip(new Coordinates(1, 1), false, new Ship(1, 4, "A"));
+            board.addShip(new Coordinates(9, 5), true, new Ship(2, 3, "B"));
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x += 2) {
+                assertEquals(dense.attack(Coordinates.of(x, y)), storage.attack(Coordinates.of(x, y)));
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(dense.getHitStatus(x, y), storage.getHitStatus(x, y));
+            }
+        }
+        long[] expected = new long[2];
+        long[] marked = new long[2];
+        dense.markAttacked(expected);
+        storage.markAttacked(marked);
+        assertArrayEquals(expected, marked);
+    }
+
+    @Test
+    public void testLargeBoardCostsShipsAndShots() throws BattleshipException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        ShipStorage large = ShipStorage.create(1000, 1000);
+        Ship[] fleet = new ShipStorageBuilder().getShips();
+        for (int i = 0; i < fleet.length; i++) {
+            large.addShip(Coordinates.of(990, 100 * i), true, fleet[i]);
+        }
+        for (int i = 0; i < 100; i++) {
+            large.attack(Coordinates.of(i * 7, 999 - i));
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        // a dense board allocates several bytes for each of the million cells
+        assertTrue("allocated " + allocated + " bytes", allocated < 64 * 1024);
+
+        assertTrue(large instanceof SparseShipStorage);
+        assertEquals(HitStatus.MISSED, large.getHitStatus(7, 998));
+        assertEquals(HitStatus.NOT_ATTTACKED, large.getHitStatus(8, 998));
+        assertEquals(HitStatus.HIT, large.attack(Coordinates.of(990, 900)));
+        assertEquals(fleet.length, large.getRemainingShips());
+    }
+}
@@ -0,0 +1,119 @@
+package com.battleship.journal;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.battleship.client.BattleshipException;
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.RandomFleetPlacer;
+import com.battleship.client.ShipStorage;
+import com.battleship.client.ShipStorageBuilder;
+
+/**
+ * Unit test for the match journal and its replay
+ */
+public class MatchJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final RandomFleetPlacer placer = new RandomFleetPlacer(new ShipStorageBuilder().getShips(), 10, 10);
+
+    /**
+     * Records a match in which player 0 attacks every cell of player 1 row by row.
+     */
+    private ShipStorage recordMatch(MatchJournal journal, long seed) throws BattleshipException {
+        long matchId = journal.startMatch(10, 10);
+        ShipStorage[] storages = new ShipStorage[2];
+        for (int player = 0; player < 2; player++) {
+            storages[player] = new ShipStorage(10, 10);
+            placer.place(storages[player], new SplittableRandom(seed + player));
+            for (ShipStorage.Placement placement : storages[player].getPlacements()) {
+                journal.recordPlacement(matchId, player, placement.start().getX(), placement.start().getY(),
+                        placement.vertical(), placement.ship().getId(), placement.ship().getLength(),
+                        placement.ship().getSymbol().charAt(0));
+            }
+        }
+        for (int y = 0; y < 10 && !storages[1].isCompletelyDestroyed(); y++) {
+            for (int x = 0; x < 10 && !storages[1].isCompletelyDestroyed(); x++) {
+                HitStatus hitStatus = storages[1].attack(new Coordinates(x, y));
+                journal.recordAttack(matchId, 0, x, y, hitStatus.ordinal(), false);
+            }
+        }
+        journal.endMatch(matchId, 0);
+        return storages[1];
+    }
+
+    @Test
+    public void testReplayAcrossSegments() throws IOException, BattleshipException {
+        Path directory = folder.getRoot().toPath();
+        ShipStorage[] expected = new ShipStorage[3];
+        // small segments, every match spans several of them
+        try (MatchJournal journal = new MatchJournal(directory, 16)) {
+            expected[0] = recordMatch(journal, 1);
+            expected[1] = recordMatch(journal, 2);
+        }
+        try (MatchJournal journal = new MatchJournal(directory, 16)) {
+            expected[2] = recordMatch(journal, 3);
+        }
+
+        Map<Long, JournalReplay.ReplayedMatch> matches = JournalReplay.replay(directory);
+        assertEquals(3, matches.size());
+        int index = 0;
+        for (JournalReplay.ReplayedMatch match : matches.values()) {
+            assertEquals(index, match.getMatchId());
+            assertEquals(0, match.getMismatches());
+            assertEquals(0, match.getWinner());
+            assertTrue(match.getShipStorage(1).isCompletelyDestroyed());
+            for (int y = 0; y < 10; y++) {
+                for (int x = 0; x < 10; x++) {
+                    Coordinates cell = new Coordinates(x, y);
+                    assertEquals(expected[index].getHitStatus(cell), match.getShipStorage(1).getHitStatus(cell));
+                    assertEquals(expected[index].getValue(cell), match.getShipStorage(1).getValue(cell));
+                }
+            }
+            index++;
+        }
+    }
+
+    @Test
+    public void testSalvoKeepsTurnIfAnyShotHit() throws IOException, BattleshipException {
+        Path directory = folder.getRoot().toPath();
+        try (MatchJournal journal = new MatchJournal(directory, 16)) {
+            long matchId = journal.startMatch(10, 10);
+            ShipStorage target = new ShipStorage(10, 10);
+            placer.place(target, new SplittableRandom(1));
+            for (ShipStorage.Placement placement : target.getPlacements()) {
+                journal.recordPlacement(matchId, 1, placement.start().getX(), placement.start().getY(),
+                        placement.vertical(), placement.ship().getId(), placement.ship().getLength(),
+                        placement.ship().getSymbol().charAt(0));
+            }
+            // salvos of two shots until one hits first and misses last
+            boolean firstHit = false;
+            for (int cell = 0; cell < 100; cell++) {
+                HitStatus hitStatus = target.attack(new Coordinates(cell % 10, cell / 10));
+                boolean salvo = cell % 2 == 1;
+                journal.recordAttack(matchId, 0, cell % 10, cell / 10, hitStatus.ordinal(), salvo);
+                if (!salvo) {
+                    firstHit = hitStatus != HitStatus.MISSED;
+                } else if (firstHit && hitStatus == HitStatus.MISSED) {
+                    break;
+                }
+            }
+        }
+
+        JournalReplay.ReplayedMatch match = JournalReplay.replay(directory).get(0L);
+        assertEquals(0, match.getMismatches());
+        assertTrue(match.isAttackAgain());
+        assertEquals(0, match.getAttackingPlayer());
+    }
+}
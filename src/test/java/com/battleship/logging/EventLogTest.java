@@ -0,0 +1,165 @@
+package com.battleship.logging;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the asynchronous event log
+ */
+public class EventLogTest {
+
+    @Test
+    public void testConcurrentEventsAreWritten() throws Exception {
+        Path file = Files.createTempFile("events", ".log");
+        try {
+            EventLog log = EventLog.toFile(file);
+            Thread[] publishers = new Thread[4];
+            for (int t = 0; t < publishers.length; t++) {
+                int match = t;
+                publishers[t] = new Thread(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        log.publish(match, i % 2, EventLog.Action.ATTACKED, i);
+                    }
+                });
+                publishers[t].start();
+            }
+            for (Thread publisher : publishers) {
+                publisher.join();
+            }
+            log.publish(EventLog.NONE, EventLog.NONE, EventLog.Action.CONNECTED, 51234);
+            log.close();
+
+            List<String> lines = Files.readAllLines(file);
+            assertEquals(4001, lines.size());
+            assertEquals(0, log.getDropped());
+            assertTrue(lines.get(0), lines.get(0).matches(
+                    "\\d{4}-\\d\\d-\\d\\dT\\d\\d:\\d\\d:\\d\\d\\.\\d{3}Z match=\\d player=[01] event=attacked"
+                            + " latency_ns=\\d+"));
+            assertTrue(lines.get(4000), lines.get(4000).endsWith("Z event=connected port=51234"));
+            for (int match = 0; match < publishers.length; match++) {
+                String prefix = " match=" + match + " ";
+                assertEquals(1000, lines.stream().filter(line -> line.contains(prefix)).count());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testFullBufferDropsInsteadOfBlocking() throws Exception {
+        // nobody reads the pipe, so the writer blocks once the pipe is full
+        Pipe pipe = Pipe.open();
+        EventLog log = new EventLog(pipe.sink(), 16);
+        for (int i = 0; i < 100_000; i++) {
+            log.publish(1, 0, EventLog.Action.PLACED, 0);
+        }
+        assertTrue(log.getDropped() > 0);
+
+        Thread reader = new Thread(() -> {
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            try {
+                while (pipe.source().read(buffer) >= 0) {
+                    buffer.clear();
+                }
+            } catch (IOException e) {
+                // closed
+            }
+        });
+        reader.start();
+        log.close();
+        reader.join();
+    }
+
+    @Test(timeout = 10_000)
+    public void testDropReportAfterFullDrain() throws Exception {
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        WritableByteChannel channel = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                writing.countDown();
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                int length = src.remaining();
+                written.write(src.array(), src.position(), length);
+                src.position(src.limit());
+                return length;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        EventLog log = new EventLog(channel, 1024);
+        // the writer blocks writing the first event, meanwhile the ring fills up
+        log.publish(EventLog.NONE, EventLog.NONE, EventLog.Action.CONNECTED, 1);
+        writing.await();
+        // 725 lines of 38 bytes, one of 100 and 298 of 127 fill the batch up to
+        // 40 bytes, less than the line reporting the drop needs
+        for (int i = 0; i < 725; i++) {
+            log.publish(EventLog.NONE, EventLog.NONE, EventLog.Action.PLACED, 0);
+        }
+        log.publish(Long.MIN_VALUE, 0, EventLog.Action.ATTACKED, 100_000_000_000L);
+        for (int i = 0; i < 298; i++) {
+            log.publish(Long.MIN_VALUE, Long.MIN_VALUE, EventLog.Action.ATTACKED, Long.MIN_VALUE);
+        }
+        log.publish(1, 0, EventLog.Action.PLACED, 0);
+        assertEquals(1, log.getDropped());
+        released.countDown();
+        log.close();
+
+        String[] lines = written.toString("US-ASCII").split("\n");
+        assertEquals(1026, lines.length);
+        assertTrue(lines[1024], lines[1024].endsWith(" latency_ns=-9223372036854775808"));
+        assertTrue(lines[1025], lines[1025].endsWith("Z event=dropped count=1"));
+    }
+
+    @Test
+    public void testPublishingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        EventLog log = new EventLog(Channels.newChannel(OutputStream.nullOutputStream()), 1024);
+        long thread = Thread.currentThread().getId();
+        // compiling and deoptimizing the loop allocates, so measure until the code is stable
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < 10 && allocated >= 1024; round++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            publish(log);
+            allocated = threads.getThreadAllocatedBytes(thread) - before;
+        }
+        log.close();
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    /**
+     * Publishes 100,000 events.
+     */
+    private static void publish(EventLog log) {
+        for (int i = 0; i < 100_000; i++) {
+            log.publish(i, i & 1, EventLog.Action.ATTACKED, i * 31L);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.battleship.metrics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the latency histogram
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketBounds() {
+        for (long value : new long[] { 0, 1, 15, 16, 17, 31, 32, 1000, 123456789L, Long.MAX_VALUE }) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.upperBoundOf(bucket));
+            // relative error below 1/16
+            assertTrue(LatencyHistogram.upperBoundOf(bucket) - value <= value / 16);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000L, histogram.getMax());
+        long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 500_000L && p50 <= 500_000L * 17 / 16);
+        long p99 = histogram.getPercentile(99);
+        assertTrue(p99 >= 990_000L && p99 <= 1_000_000L);
+        assertEquals(1_000_000L, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testAdd() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        b.record(20);
+        b.record(-5);
+        a.add(b);
+        assertEquals(3, a.getCount());
+        assertEquals(20, a.getMax());
+    }
+}
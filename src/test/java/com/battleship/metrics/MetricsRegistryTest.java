@@ -0,0 +1,102 @@
+package com.battleship.metrics;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the metrics registry and its exports
+ */
+public class MetricsRegistryTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Test
+    public void testPrometheusText() {
+        registry.counter("turns_total", "Attacks.").add(3);
+        registry.counter("disconnects_total{cause=\"a\"}", "Disconnects.").increment();
+        registry.counter("disconnects_total{cause=\"b\"}", "Disconnects.");
+        registry.gauge("active", "Active matches.", () -> 7);
+        LatencyHistogram latency = registry.histogram("latency_seconds", "Latency.", 1e-9);
+        latency.record(2_000_000);
+        latency.record(2_000_000);
+
+        String text = registry.toPrometheus();
+        assertTrue(text.contains("# TYPE turns_total counter\nturns_total 3\n"));
+        assertTrue(text.contains("# HELP disconnects_total Disconnects.\n# TYPE disconnects_total counter\n"
+                + "disconnects_total{cause=\"a\"} 1\ndisconnects_total{cause=\"b\"} 0\n"));
+        assertEquals(1, text.split("# TYPE disconnects_total", -1).length - 1);
+        assertTrue(text.contains("# TYPE active gauge\nactive 7\n"));
+        assertTrue(text.contains("# TYPE latency_seconds summary\n"));
+        assertTrue(text.contains("latency_seconds_count 2\n"));
+        assertTrue(text.contains("latency_seconds_sum 0.004\n"));
+        String median = text.substring(text.indexOf("latency_seconds{quantile=\"0.5\"} ") + 32);
+        assertEquals(0.002, Double.parseDouble(median.substring(0, median.indexOf('\n'))), 0.002 * 0.0625);
+    }
+
+    @Test
+    public void testMBeanAttributes() throws JMException {
+        registry.counter("accepts_total", "Accepts.").add(5);
+        registry.histogram("bytes", "Sizes.", 1).record(12);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.battleship:type=MetricsRegistryTest");
+        MetricsMBean.register(registry, name.toString());
+        try {
+            assertEquals(5L, server.getAttribute(name, "accepts_total"));
+            assertEquals(1L, server.getAttribute(name, "bytes.count"));
+            assertEquals(12.0, (Double) server.getAttribute(name, "bytes.max"), 0);
+            assertEquals(5, server.getMBeanInfo(name).getAttributes().length);
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void testEndpointServesText() throws IOException {
+        registry.counter("accepts_total", "Accepts.").add(2);
+        MetricsEndpoint endpoint = new MetricsEndpoint(registry, 0);
+        try (InputStream in = new URL("http://localhost:" + endpoint.getPort() + "/metrics").openStream()) {
+            assertEquals(registry.toPrometheus(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } finally {
+            endpoint.stop();
+        }
+    }
+
+    @Test
+    public void testRecordingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        LongAdder turns = registry.counter("turns_total", "Attacks.");
+        LatencyHistogram latency = registry.histogram("latency_seconds", "Latency.", 1e-9);
+        long thread = Thread.currentThread().getId();
+        // compiling and deoptimizing the loop allocates, so measure until the code is stable
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < 10 && allocated >= 1024; round++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            record(turns, latency);
+            allocated = threads.getThreadAllocatedBytes(thread) - before;
+        }
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    /**
+     * Records 100,000 turns and latencies.
+     */
+    private static void record(LongAdder turns, LatencyHistogram latency) {
+        for (int i = 0; i < 100_000; i++) {
+            turns.increment();
+            latency.record(i * 31L);
+        }
+    }
+}
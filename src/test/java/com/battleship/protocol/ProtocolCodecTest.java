@@ -0,0 +1,223 @@
+package com.battleship.protocol;
+
+import static org.junit.Assert.*;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.battleship.client.BattleshipException;
+import com.battleship.client.ClientDisconnectException;
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.Ship;
+import com.battleship.client.ShipStorage;
+import com.battleship.events.AttackEvent;
+import com.battleship.events.AttackerFeedbackEvent;
+import com.battleship.events.DefenderFeedbackEvent;
+import com.battleship.events.FleetLayoutEvent;
+import com.battleship.events.JoinEvent;
+import com.battleship.events.MatchTokenEvent;
+import com.battleship.events.ResumeEvent;
+import com.battleship.events.RoundStartEvent;
+import com.battleship.events.RoundStartEvent.AttackStatus;
+import com.battleship.events.RoundStartEvent.GameStatus;
+import com.battleship.events.SalvoEvent;
+import com.battleship.events.SalvoResultEvent;
+import com.battleship.events.SpectatorAttackEvent;
+import com.battleship.events.SpectatorBoardEvent;
+import com.battleship.events.TimeoutEvent;
+import com.battleship.events.WatchEvent;
+
+/**
+ * Unit test for the binary protocol codec
+ */
+public class ProtocolCodecTest {
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(ProtocolCodec.MAX_FRAME_LENGTH);
+    private final Frame frame = new Frame();
+
+    private Object roundTrip(Object message) throws ProtocolException {
+        buffer.clear();
+        ProtocolCodec.encode(buffer, message);
+        buffer.flip();
+        assertEquals(buffer.remaining(), ProtocolCodec.requiredLength(buffer));
+        frame.decode(buffer);
+        assertFalse(buffer.hasRemaining());
+        return frame.toMessage();
+    }
+
+    @Test
+    public void testEvents() throws ProtocolException {
+        AttackEvent attack = (AttackEvent) roundTrip(new AttackEvent(Integer.MAX_VALUE, new Coordinates(3, 7)));
+        assertEquals(Integer.MAX_VALUE, attack.turn());
+        assertEquals(3, attack.coordinates().getX());
+        assertEquals(7, attack.coordinates().getY());
+
+        RoundStartEvent start = new RoundStartEvent(GameStatus.GAME_ON, AttackStatus.DEFEND_AGAIN, 42);
+        assertEquals(start, roundTrip(start));
+        RoundStartEvent over = new RoundStartEvent(GameStatus.YOU_LOST, null, 7);
+        assertEquals(over, roundTrip(over));
+
+        AttackerFeedbackEvent hit = new AttackerFeedbackEvent(true, HitStatus.DESTROYED, null, 4);
+        assertEquals(hit, roundTrip(hit));
+
+        DefenderFeedbackEvent defender = (DefenderFeedbackEvent) roundTrip(
+                new DefenderFeedbackEvent(new Coordinates(9, 0), HitStatus.MISSED, 5));
+        assertEquals(9, defender.coordinates().getX());
+        assertEquals(HitStatus.MISSED, defender.hitStatus());
+        assertEquals(5, defender.shipsRemaining());
+
+        JoinEvent join = new JoinEvent(1500, 12, 8);
+        assertEquals(join, roundTrip(join));
+        assertEquals(new MatchTokenEvent(-42L), roundTrip(new MatchTokenEvent(-42L)));
+        assertEquals(new ResumeEvent(Long.MAX_VALUE, -1), roundTrip(new ResumeEvent(Long.MAX_VALUE, -1)));
+        assertEquals(new ResumeEvent(-7, 42), roundTrip(new ResumeEvent(-7, 42)));
+
+        ClientDisconnectException disconnect = (ClientDisconnectException) roundTrip(new ClientDisconnectException(1));
+        assertEquals(1, disconnect.getDisconnectId());
+    }
+
+    @Test
+    public void testSpectatorFrames() throws ProtocolException {
+        assertEquals(new WatchEvent(WatchEvent.LATEST), roundTrip(new WatchEvent(WatchEvent.LATEST)));
+        SpectatorAttackEvent attack = (SpectatorAttackEvent) roundTrip(
+                new SpectatorAttackEvent(1, new Coordinates(300, 2), HitStatus.DESTROYED, 3));
+        assertEquals(1, attack.attacker());
+        assertEquals(300, attack.coordinates().getX());
+        assertEquals(2, attack.coordinates().getY());
+        assertEquals(HitStatus.DESTROYED, attack.hitStatus());
+        assertEquals(3, attack.shipsRemaining());
+
+        HitStatus[] cells = new HitStatus[2 * 3 * 5];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = HitStatus.values()[i % 4];
+        }
+        SpectatorBoardEvent board = (SpectatorBoardEvent) roundTrip(
+                new SpectatorBoardEvent(3, 5, SpectatorBoardEvent.RUNNING, new int[] { 4, 2 }, cells));
+        assertEquals(SpectatorBoardEvent.RUNNING, board.winner());
+        assertArrayEquals(new int[] { 4, 2 }, board.shipsRemaining());
+        assertArrayEquals(cells, board.cells());
+        assertEquals(HitStatus.values()[(15 + 2 * 3 + 1) % 4], board.getHitStatus(1, 1, 2));
+
+        SpectatorBoardEvent empty = (SpectatorBoardEvent) roundTrip(
+                new SpectatorBoardEvent(0, 0, 1, new int[2], new HitStatus[0]));
+        assertEquals(1, empty.winner());
+        assertEquals(0, empty.cells().length);
+    }
+
+    @Test
+    public void testTimeoutFrames() throws ProtocolException {
+        TimeoutEvent skip = new TimeoutEvent(TimeoutEvent.Policy.SKIP, true, null, null, 5);
+        assertEquals(skip, roundTrip(skip));
+        TimeoutEvent forfeit = new TimeoutEvent(TimeoutEvent.Policy.FORFEIT, false, null, null, 0);
+        assertEquals(forfeit, roundTrip(forfeit));
+
+        TimeoutEvent shot = (TimeoutEvent) roundTrip(
+                new TimeoutEvent(TimeoutEvent.Policy.RANDOM_SHOT, false, new Coordinates(700, 3), HitStatus.HIT, 2));
+        assertEquals(TimeoutEvent.Policy.RANDOM_SHOT, shot.policy());
+        assertFalse(shot.ownTurn());
+        assertEquals(700, shot.coordinates().getX());
+        assertEquals(3, shot.coordinates().getY());
+        assertEquals(HitStatus.HIT, shot.hitStatus());
+        assertEquals(2, shot.shipsRemaining());
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void testOversizedBoard() throws ProtocolException {
+        buffer.clear();
+        buffer.put((byte) ProtocolCodec.VERSION).put((byte) FrameType.SPECTATOR_BOARD.getId());
+        buffer.putChar((char) 1000).putChar((char) 1000).put((byte) 0).put((byte) 0).put((byte) 0);
+        buffer.flip();
+        ProtocolCodec.requiredLength(buffer);
+    }
+
+    @Test
+    public void testRejectedAttack() throws ProtocolException {
+        AttackerFeedbackEvent rejected = (AttackerFeedbackEvent) roundTrip(new AttackerFeedbackEvent(false, null,
+                new BattleshipException(ShipStorage.ERR_ALREADY_ATTACKED), 2));
+        assertFalse(rejected.attackSuccess());
+        assertNull(rejected.hitStatus());
+        assertEquals(ShipStorage.ERR_ALREADY_ATTACKED, rejected.exception().getMessage());
+    }
+
+    @Test
+    public void testPlacement() throws ProtocolException, BattleshipException {
+        ShipStorage storage = new ShipStorage(10, 10);
+        storage.addShip(new Coordinates(0, 0), true, new Ship(1, 3, "x"));
+        storage.addShip(new Coordinates(4, 9), false, new Ship(2, 5, "x"));
+
+        ShipStorage decoded = (ShipStorage) roundTrip(storage);
+        assertEquals(10, decoded.getWidth());
+        assertEquals(2, decoded.getPlacements().size());
+        assertEquals(1, (int) decoded.getValue(new Coordinates(0, 2)));
+        assertEquals(2, (int) decoded.getValue(new Coordinates(8, 9)));
+        assertNull(decoded.getValue(new Coordinates(3, 9)));
+    }
+
+    @Test
+    public void testFleetLayout() throws ProtocolException {
+        FleetLayoutEvent layout = new FleetLayoutEvent(30, 12, new int[] { 0, 27 }, new int[] { 11, 3 },
+                new boolean[] { false, true });
+        buffer.clear();
+        ProtocolCodec.encode(buffer, layout);
+        // header, board size and count, five bytes per ship
+        assertEquals(ProtocolCodec.HEADER_LENGTH + 5 + 2 * 5, buffer.position());
+
+        FleetLayoutEvent decoded = (FleetLayoutEvent) roundTrip(layout);
+        assertEquals(30, decoded.width());
+        assertEquals(12, decoded.height());
+        assertArrayEquals(layout.x(), decoded.x());
+        assertArrayEquals(layout.y(), decoded.y());
+        assertArrayEquals(layout.vertical(), decoded.vertical());
+    }
+
+    @Test
+    public void testSalvoFrames() throws ProtocolException {
+        Coordinates[] targets = { new Coordinates(1, 2), new Coordinates(300, 4), new Coordinates(9, 9) };
+        SalvoEvent salvo = (SalvoEvent) roundTrip(new SalvoEvent(12, targets));
+        assertEquals(12, salvo.turn());
+        assertEquals(3, salvo.targets().length);
+        assertEquals(300, salvo.targets()[1].getX());
+        assertEquals(4, salvo.targets()[1].getY());
+
+        HitStatus[] hitStatuses = { HitStatus.MISSED, HitStatus.HIT, HitStatus.DESTROYED };
+        SalvoResultEvent result = (SalvoResultEvent) roundTrip(new SalvoResultEvent(false, targets, hitStatuses, 6));
+        assertFalse(result.ownSalvo());
+        assertEquals(6, result.shipsRemaining());
+        assertArrayEquals(hitStatuses, result.hitStatuses());
+        assertEquals(9, result.targets()[2].getX());
+        assertTrue(result.anyHit());
+
+        // a partial salvo frame asks for all of its shots
+        buffer.clear();
+        ProtocolCodec.encode(buffer, new SalvoEvent(12, targets));
+        buffer.flip();
+        int length = buffer.remaining();
+        buffer.limit(length - 1);
+        assertEquals(length, ProtocolCodec.requiredLength(buffer));
+    }
+
+    @Test
+    public void testPartialFrame() throws ProtocolException {
+        buffer.clear();
+        ProtocolCodec.encodeDefenderFeedback(buffer, 1, 2, HitStatus.HIT, 3);
+        buffer.flip();
+        int length = buffer.remaining();
+        buffer.limit(1);
+        assertTrue(buffer.remaining() < ProtocolCodec.requiredLength(buffer));
+        buffer.limit(length - 1);
+        assertTrue(buffer.remaining() < ProtocolCodec.requiredLength(buffer));
+        buffer.limit(length);
+        assertEquals(length, ProtocolCodec.requiredLength(buffer));
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void testWrongVersion() throws ProtocolException {
+        buffer.clear();
+        buffer.put((byte) (ProtocolCodec.VERSION + 1)).put((byte) FrameType.DISCONNECT.getId()).put((byte) 0);
+        buffer.flip();
+        ProtocolCodec.requiredLength(buffer);
+    }
+}
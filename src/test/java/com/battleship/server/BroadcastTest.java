@@ -0,0 +1,207 @@
+package com.battleship.server;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.battleship.client.BattleshipException;
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.Ship;
+import com.battleship.client.ShipStorage;
+import com.battleship.events.AttackEvent;
+import com.battleship.events.SpectatorAttackEvent;
+import com.battleship.events.SpectatorBoardEvent;
+import com.battleship.protocol.Frame;
+import com.battleship.protocol.ProtocolCodec;
+
+/**
+ * Unit test for streaming a match to spectators
+ */
+public class BroadcastTest {
+
+    private final byte[] chunk = new byte[ProtocolCodec.MAX_FRAME_LENGTH];
+
+    /**
+     * Creates a match on boards of the given size with one ship of length 2 in
+     * the top left corner of each, both fleets placed.
+     */
+    private static Match placedMatch(Broadcast broadcast, int size) throws Exception {
+        Match match = new Match((message, player) -> {
+        }, broadcast);
+        for (int player = 0; player < 2; player++) {
+            ShipStorage storage = new ShipStorage(size, size);
+            storage.addShip(new Coordinates(0, 0), false, new Ship(1, 2, "x"));
+            match.receive(player, storage);
+        }
+        return match;
+    }
+
+    /**
+     * Reads everything the cursor returns until it would wait, and decodes it.
+     */
+    private List<Object> drain(Broadcast.Cursor cursor, Broadcast broadcast, boolean ended) throws Exception {
+        ByteBuffer bytes = ByteBuffer.allocate(1 << 16);
+        if (!ended) {
+            // nothing more comes, let the cursor stop once it caught up
+            broadcast.close();
+        }
+        int length;
+        while ((length = cursor.next(chunk)) >= 0) {
+            bytes.put(chunk, 0, length);
+        }
+        bytes.flip();
+        List<Object> messages = new ArrayList<>();
+        Frame frame = new Frame();
+        while (bytes.hasRemaining()) {
+            assertTrue(bytes.remaining() >= ProtocolCodec.requiredLength(bytes));
+            frame.decode(bytes);
+            messages.add(frame.toMessage());
+        }
+        return messages;
+    }
+
+    /**
+     * Attacks a cell in the current turn of a match.
+     */
+    private static void attack(Match match, int player, int x, int y) throws Exception {
+        match.receive(player, new AttackEvent((int) match.getTurn(), new Coordinates(x, y)));
+    }
+
+    @Test
+    public void testSpectatorSeesBoardThenAttacks() throws Exception {
+        Broadcast broadcast = new Broadcast(7, Broadcast.DEFAULT_CAPACITY);
+        Broadcast.Cursor early = broadcast.watch();
+        // joined during the placement: an empty board
+        int length = early.next(chunk);
+        Frame frame = new Frame();
+        frame.decode(ByteBuffer.wrap(chunk, 0, length));
+        assertEquals(0, ((SpectatorBoardEvent) frame.toMessage()).width());
+
+        Match match = placedMatch(broadcast, 10);
+        attack(match, 0, 5, 5);
+        attack(match, 1, 0, 0);
+        attack(match, 1, 1, 0);
+
+        List<Object> messages = drain(early, broadcast, true);
+        assertEquals(5, messages.size());
+        SpectatorBoardEvent start = (SpectatorBoardEvent) messages.get(0);
+        assertEquals(10, start.width());
+        assertEquals(HitStatus.NOT_ATTTACKED, start.getHitStatus(0, 0, 0));
+        assertEquals(new SpectatorAttackEvent(0, Coordinates.of(5, 5), HitStatus.MISSED, 1), messages.get(1));
+        assertEquals(new SpectatorAttackEvent(1, Coordinates.of(0, 0), HitStatus.HIT, 1), messages.get(2));
+        SpectatorAttackEvent last = (SpectatorAttackEvent) messages.get(3);
+        assertEquals(HitStatus.DESTROYED, last.hitStatus());
+        assertEquals(0, last.shipsRemaining());
+        assertTrue(match.isOver());
+        assertEquals(1, ((SpectatorBoardEvent) messages.get(4)).winner());
+        assertEquals(0, early.getSkips());
+    }
+
+    @Test
+    public void testLateSpectatorStartsAtCurrentBoard() throws Exception {
+        Broadcast broadcast = new Broadcast(7, Broadcast.DEFAULT_CAPACITY);
+        Match match = placedMatch(broadcast, 10);
+        attack(match, 0, 0, 0);
+        attack(match, 0, 4, 4);
+
+        List<Object> messages = drain(broadcast.watch(), broadcast, false);
+        assertEquals(1, messages.size());
+        SpectatorBoardEvent board = (SpectatorBoardEvent) messages.get(0);
+        assertEquals(SpectatorBoardEvent.RUNNING, board.winner());
+        // player 0 attacked the board of player 1, only what both players know is shown
+        assertEquals(HitStatus.HIT, board.getHitStatus(1, 0, 0));
+        assertEquals(HitStatus.NOT_ATTTACKED, board.getHitStatus(1, 1, 0));
+        assertEquals(HitStatus.MISSED, board.getHitStatus(1, 4, 4));
+        assertEquals(HitStatus.NOT_ATTTACKED, board.getHitStatus(0, 0, 0));
+    }
+
+    @Test
+    public void testSlowSpectatorSkipsToLatestBoard() throws Exception {
+        Broadcast broadcast = new Broadcast(7, 8192);
+        Broadcast.Cursor slow = broadcast.watch();
+        Match match = placedMatch(broadcast, 40);
+        assertTrue(slow.next(chunk) > 0);
+        // far more attacks than the ring holds, all misses on the board of player 1
+        for (int y = 1; y < 40; y++) {
+            for (int x = 0; x < 40; x++) {
+                attack(match, 0, x, y);
+                attack(match, 1, x, y);
+            }
+        }
+
+        List<Object> messages = drain(slow, broadcast, false);
+        assertEquals(1, slow.getSkips());
+        SpectatorBoardEvent board = (SpectatorBoardEvent) messages.get(0);
+        assertEquals(HitStatus.MISSED, board.getHitStatus(1, 39, 39));
+        assertEquals(HitStatus.MISSED, board.getHitStatus(0, 39, 39));
+        assertEquals(1, messages.size());
+    }
+
+    @Test(timeout = 10_000)
+    public void testBoardsOfSkippingSpectatorFitTheAttacksAfterThem() throws Exception {
+        Broadcast broadcast = new Broadcast(7, 8192);
+        Match match = placedMatch(broadcast, 40);
+        Broadcast.Cursor cursor = broadcast.watch();
+        ByteBuffer bytes = ByteBuffer.allocate(1 << 22);
+        Thread spectator = new Thread(() -> {
+            try {
+                int length;
+                while ((length = cursor.next(chunk)) >= 0) {
+                    bytes.put(chunk, 0, length);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        spectator.start();
+        // the spectator encodes boards while the match changes them
+        for (int y = 1; y < 40; y++) {
+            for (int x = 0; x < 40; x++) {
+                attack(match, 0, x, y);
+                attack(match, 1, x, y);
+            }
+        }
+        broadcast.close();
+        spectator.join();
+
+        bytes.flip();
+        Frame frame = new Frame();
+        HitStatus[] seen = null;
+        while (bytes.hasRemaining()) {
+            frame.decode(bytes);
+            Object message = frame.toMessage();
+            if (message instanceof SpectatorBoardEvent board) {
+                seen = board.cells().clone();
+            } else {
+                // every cell is attacked once, a board never holds an attack that follows it
+                SpectatorAttackEvent attack = (SpectatorAttackEvent) message;
+                int defender = Match.otherPlayer(attack.attacker());
+                int cell = (defender * 40 + attack.coordinates().getY()) * 40 + attack.coordinates().getX();
+                assertEquals(HitStatus.NOT_ATTTACKED, seen[cell]);
+                seen[cell] = attack.hitStatus();
+            }
+        }
+        SpectatorBoardEvent latest = (SpectatorBoardEvent) drain(broadcast.watch(), broadcast, true).get(0);
+        assertArrayEquals(latest.cells(), seen);
+    }
+
+    @Test
+    public void testEndedMatchSendsWinner() throws Exception {
+        Broadcast broadcast = new Broadcast(7, Broadcast.DEFAULT_CAPACITY);
+        Broadcast.Cursor cursor = broadcast.watch();
+        Match match = placedMatch(broadcast, 10);
+        attack(match, 0, 0, 0);
+        attack(match, 0, 1, 0);
+
+        List<Object> messages = drain(cursor, broadcast, true);
+        SpectatorBoardEvent end = (SpectatorBoardEvent) messages.get(messages.size() - 1);
+        assertEquals(0, end.winner());
+        assertArrayEquals(new int[] { 1, 0 }, end.shipsRemaining());
+        assertEquals(HitStatus.DESTROYED, end.getHitStatus(1, 1, 0));
+    }
+}
@@ -0,0 +1,92 @@
+package com.battleship.server;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the matchmaking lobby
+ */
+public class LobbyTest {
+
+    private final List<String> pairs = new ArrayList<>();
+
+    private Lobby<String> lobby(int ratingWindow) {
+        return new Lobby<>((a, b) -> pairs.add(a + "-" + b), ratingWindow);
+    }
+
+    @Test
+    public void testArrivalOrder() {
+        Lobby<String> lobby = lobby(0);
+        for (String player : new String[] { "a", "b", "c", "d", "e" }) {
+            lobby.enqueue(player, Lobby.Ticket.DEFAULT);
+        }
+        assertEquals(5, lobby.getQueueDepth());
+        lobby.matchWaiting(System.nanoTime());
+        assertEquals(List.of("a-b", "c-d"), pairs);
+        assertEquals(1, lobby.getQueueDepth());
+        assertEquals(4, lobby.getWaitTime().getCount());
+    }
+
+    @Test
+    public void testArrivalOrderIgnoresRatings() {
+        Lobby<String> lobby = lobby(0);
+        lobby.enqueue("weak", new Lobby.Ticket(1000, 10, 10));
+        lobby.enqueue("strong", new Lobby.Ticket(2000, 10, 10));
+        lobby.enqueue("weak2", new Lobby.Ticket(1001, 10, 10));
+        lobby.enqueue("strong2", new Lobby.Ticket(2001, 10, 10));
+        lobby.matchWaiting(System.nanoTime());
+        assertEquals(List.of("weak-strong", "weak2-strong2"), pairs);
+    }
+
+    @Test
+    public void testBoardSize() {
+        Lobby<String> lobby = lobby(0);
+        lobby.enqueue("small", new Lobby.Ticket(Lobby.DEFAULT_RATING, 8, 8));
+        lobby.enqueue("a", Lobby.Ticket.DEFAULT);
+        lobby.enqueue("b", Lobby.Ticket.DEFAULT);
+        lobby.matchWaiting(System.nanoTime());
+        assertEquals(List.of("a-b"), pairs);
+        lobby.enqueue("small2", new Lobby.Ticket(Lobby.DEFAULT_RATING, 8, 8));
+        lobby.matchWaiting(System.nanoTime());
+        assertEquals(List.of("a-b", "small-small2"), pairs);
+        assertEquals(0, lobby.getWaitingBoardSizes());
+    }
+
+    @Test
+    public void testEmptyBoardSizesAreDropped() {
+        Lobby<String> lobby = lobby(0);
+        for (int size = 5; size < 1005; size++) {
+            lobby.enqueue("a" + size, new Lobby.Ticket(Lobby.DEFAULT_RATING, size, size));
+            lobby.enqueue("b" + size, new Lobby.Ticket(Lobby.DEFAULT_RATING, size, size));
+        }
+        lobby.enqueue("alone", Lobby.Ticket.DEFAULT);
+        lobby.matchWaiting(System.nanoTime());
+        assertEquals(1000, pairs.size());
+        // only the size of the player still waiting is kept
+        assertEquals(1, lobby.getWaitingBoardSizes());
+    }
+
+    @Test
+    public void testRatingWindowWidens() {
+        Lobby<String> lobby = lobby(100);
+        long now = System.nanoTime();
+        lobby.enqueue("weak", new Lobby.Ticket(1000, 10, 10));
+        lobby.enqueue("strong", new Lobby.Ticket(1900, 10, 10));
+        lobby.enqueue("medium", new Lobby.Ticket(1050, 10, 10));
+        lobby.matchWaiting(now);
+        assertEquals(List.of("weak-medium"), pairs);
+
+        lobby.enqueue("master", new Lobby.Ticket(2150, 10, 10));
+        lobby.matchWaiting(now);
+        assertEquals(1, pairs.size());
+        // after more than two seconds the window is three times as wide
+        lobby.matchWaiting(now + TimeUnit.SECONDS.toNanos(3));
+        assertEquals(List.of("weak-medium", "strong-master"), pairs);
+        assertEquals(0, lobby.getQueueDepth());
+    }
+}
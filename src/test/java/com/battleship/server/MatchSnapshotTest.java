@@ -0,0 +1,143 @@
+package com.battleship.server;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.battleship.client.BattleshipException;
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.RandomFleetPlacer;
+import com.battleship.client.ShipStorage;
+import com.battleship.client.ShipStorageBuilder;
+import com.battleship.events.AttackEvent;
+import com.battleship.events.AttackerFeedbackEvent;
+import com.battleship.events.DefenderFeedbackEvent;
+import com.battleship.events.RoundStartEvent;
+import com.battleship.events.RoundStartEvent.AttackStatus;
+
+/**
+ * Unit test for match snapshots and their store
+ */
+public class MatchSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final RandomFleetPlacer placer = new RandomFleetPlacer(new ShipStorageBuilder().getShips(), 10, 10);
+
+    /**
+     * Creates the boards of a match in which the first rows of player 1 were
+     * attacked.
+     */
+    private ShipStorage[] boards(long seed, int attacks) throws BattleshipException {
+        ShipStorage[] storages = new ShipStorage[2];
+        for (int player = 0; player < 2; player++) {
+            storages[player] = new ShipStorage(10, 10);
+            placer.place(storages[player], new SplittableRandom(seed + player));
+        }
+        for (int cell = 0; cell < attacks; cell++) {
+            storages[1].attack(new Coordinates(cell % 10, cell / 10));
+        }
+        return storages;
+    }
+
+    /**
+     * Lists the placements of a board by position and ship.
+     */
+    private static List<String> describe(ShipStorage shipStorage) {
+        return shipStorage.getPlacements().stream().map(placement -> placement.start() + " " + placement.vertical()
+                + " " + placement.ship().getId() + " " + placement.ship().getLength() + " "
+                + placement.ship().getSymbol()).toList();
+    }
+
+    /**
+     * Attacks a cell in the current turn of a match.
+     */
+    private static void attack(Match match, int player, int x, int y) throws Exception {
+        match.receive(player, new AttackEvent((int) match.getTurn(), new Coordinates(x, y)));
+    }
+
+    @Test
+    public void testRoundTrip() throws BattleshipException {
+        ShipStorage[] storages = boards(1, 37);
+        long[] tokens = { 11, -12 };
+        byte[] bytes = MatchSnapshot.encode(5, tokens, storages, 1, AttackStatus.ATTACK_AGAIN);
+        MatchSnapshot snapshot = MatchSnapshot.decode(bytes);
+        assertEquals(5, snapshot.getMatchId());
+        assertArrayEquals(tokens, snapshot.getTokens());
+        assertEquals(1, snapshot.getAttackingPlayer());
+        assertEquals(AttackStatus.ATTACK_AGAIN, snapshot.getAttackStatus());
+        for (int player = 0; player < 2; player++) {
+            assertEquals(describe(storages[player]), describe(snapshot.getShipStorage(player)));
+            for (int y = 0; y < 10; y++) {
+                for (int x = 0; x < 10; x++) {
+                    Coordinates coordinates = new Coordinates(x, y);
+                    assertEquals(storages[player].getHitStatus(coordinates),
+                            snapshot.getShipStorage(player).getHitStatus(coordinates));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedSnapshot() throws BattleshipException {
+        byte[] bytes = MatchSnapshot.encode(5, new long[] { 1, 2 }, boards(1, 10), 0, AttackStatus.ATTACK);
+        MatchSnapshot.decode(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRestoredMatchContinues() throws Exception {
+        ShipStorage[] storages = boards(2, 20);
+        byte[] bytes = MatchSnapshot.encode(0, new long[] { 1, 2 }, storages, 0, AttackStatus.ATTACK);
+        List<Object>[] sent = new List[] { new ArrayList<>(), new ArrayList<>() };
+        MatchSnapshot snapshot = MatchSnapshot.decode(bytes);
+        Match match = Match.restore((message, player) -> sent[player].add(message), snapshot);
+        match.resume();
+        assertEquals(AttackStatus.ATTACK, ((RoundStartEvent) sent[0].get(0)).attackStatus());
+        assertEquals(AttackStatus.DEFEND, ((RoundStartEvent) sent[1].get(0)).attackStatus());
+        // cells attacked before the checkpoint cannot be attacked again
+        attack(match, 0, 0, 0);
+        assertFalse(((AttackerFeedbackEvent) sent[0].get(1)).attackSuccess());
+        attack(match, 0, 5, 5);
+        assertTrue(((AttackerFeedbackEvent) sent[0].get(2)).attackSuccess());
+        assertTrue(sent[1].get(1) instanceof DefenderFeedbackEvent);
+        assertNotEquals(HitStatus.NOT_ATTTACKED, snapshot.getShipStorage(1).getHitStatus(new Coordinates(5, 5)));
+    }
+
+    @Test
+    public void testStoreWritesAndLoadsSnapshots() throws IOException, BattleshipException {
+        Path directory = folder.getRoot().toPath();
+        SnapshotStore store = new SnapshotStore(directory, 10);
+        for (int i = 0; i < 1000; i++) {
+            long matchId = store.newMatchId();
+            store.save(matchId, MatchSnapshot.encode(matchId, new long[] { Session.newToken(), Session.newToken() },
+                    boards(i, i % 100), i % 2, AttackStatus.ATTACK));
+        }
+        // the newer snapshot replaces the older one, ended matches are deleted
+        store.save(3, MatchSnapshot.encode(3, new long[] { 1, 2 }, boards(3, 50), 1, AttackStatus.ATTACK));
+        store.remove(4);
+        store.close();
+        Files.write(directory.resolve("match-9999.snap"), new byte[] { 1, 2, 3 });
+
+        SnapshotStore reopened = new SnapshotStore(directory, 10);
+        List<MatchSnapshot> snapshots = reopened.loadAll(4);
+        assertEquals(999, snapshots.size());
+        MatchSnapshot third = snapshots.stream().filter(snapshot -> snapshot.getMatchId() == 3).findAny().get();
+        assertEquals(1, third.getAttackingPlayer());
+        assertTrue(snapshots.stream().noneMatch(snapshot -> snapshot.getMatchId() == 4));
+        assertEquals(1000, reopened.newMatchId());
+        reopened.close();
+    }
+}
@@ -0,0 +1,335 @@
+package com.battleship.server;
+
+import static org.junit.Assert.*;
+
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.battleship.client.Coordinates;
+import com.battleship.client.HitStatus;
+import com.battleship.client.Ship;
+import com.battleship.client.ShipStorage;
+import com.battleship.events.AttackEvent;
+import com.battleship.events.AttackerFeedbackEvent;
+import com.battleship.events.FleetLayoutEvent;
+import com.battleship.events.RoundStartEvent;
+import com.battleship.events.RoundStartEvent.AttackStatus;
+import com.battleship.events.RoundStartEvent.GameStatus;
+import com.battleship.events.SalvoEvent;
+import com.battleship.events.SalvoResultEvent;
+import com.battleship.events.TimeoutEvent;
+
+/**
+ * Unit test for the rules of a match: expired turns, placements and salvos
+ */
+public class MatchTest {
+
+    // messages sent to each player
+    private final List<List<Object>> sent = List.of(new ArrayList<>(), new ArrayList<>());
+    private final Match match = new Match((message, player) -> sent.get(player).add(message));
+
+    /**
+     * Places one ship of length 2 in the top left corner of each board.
+     */
+    private void place() throws Exception {
+        for (int player = 0; player < 2; player++) {
+            ShipStorage storage = new ShipStorage(10, 10);
+            storage.addShip(new Coordinates(0, 0), false, new Ship(1, 2, "x"));
+            match.receive(player, storage);
+        }
+        sent.forEach(List::clear);
+    }
+
+    /**
+     * Attacks a cell in the current turn.
+     */
+    private void attack(int player, int x, int y) throws Exception {
+        match.receive(player, new AttackEvent((int) match.getTurn(), new Coordinates(x, y)));
+    }
+
+    /**
+     * Fires a salvo in the current turn.
+     */
+    private void salvo(int player, Coordinates... targets) throws Exception {
+        match.receive(player, new SalvoEvent((int) match.getTurn(), targets));
+    }
+
+    /**
+     * Returns the round start a player gets in the current turn.
+     */
+    private RoundStartEvent roundStart(GameStatus gameStatus, AttackStatus attackStatus) {
+        return new RoundStartEvent(gameStatus, attackStatus, (int) match.getTurn());
+    }
+
+    /**
+     * Returns the last message sent to a player.
+     */
+    private Object last(int player) {
+        List<Object> messages = sent.get(player);
+        return messages.get(messages.size() - 1);
+    }
+
+    @Test
+    public void testSkipPassesTheTurn() throws Exception {
+        place();
+        long turn = match.getTurn();
+        match.expire(TimeoutEvent.Policy.SKIP);
+
+        assertNotEquals(turn, match.getTurn());
+        assertTrue(match.isAwaiting(1));
+        assertEquals(new TimeoutEvent(TimeoutEvent.Policy.SKIP, true, null, null, 1), sent.get(0).get(0));
+        assertEquals(new TimeoutEvent(TimeoutEvent.Policy.SKIP, false, null, null, 1), sent.get(1).get(0));
+        assertEquals(roundStart(GameStatus.GAME_ON, AttackStatus.DEFEND), last(0));
+        assertEquals(roundStart(GameStatus.GAME_ON, AttackStatus.ATTACK), last(1));
+    }
+
+    @Test
+    public void testLateAttackIsDropped() throws Exception {
+        place();
+        int expired = (int) match.getTurn();
+        match.expire(TimeoutEvent.Policy.SKIP);
+        sent.forEach(List::clear);
+
+        // sent before player 0 learnt of the timeout: neither answered nor a protocol error
+        match.receive(0, new AttackEvent(expired, new Coordinates(5, 5)));
+        assertTrue(sent.get(0).isEmpty());
+        assertEquals(HitStatus.NOT_ATTTACKED, match.getShipStorage(1).getHitStatus(5, 5));
+
+        attack(1, 5, 5);
+        assertTrue(sent.get(1).get(0) instanceof AttackerFeedbackEvent);
+        assertTrue(match.isAwaiting(0));
+    }
+
+    @Test
+    public void testAttackAfterUnansweredTurnIsPlayed() throws Exception {
+        place();
+        match.expire(TimeoutEvent.Policy.SKIP);
+        attack(1, 5, 5);
+        sent.forEach(List::clear);
+
+        // player 0 never answered the expired turn, so this answers the current one
+        attack(0, 6, 6);
+        assertTrue(sent.get(0).get(0) instanceof AttackerFeedbackEvent);
+        assertEquals(HitStatus.MISSED, match.getShipStorage(1).getHitStatus(6, 6));
+        assertTrue(match.isAwaiting(1));
+    }
+
+    @Test
+    public void testLateAttackAfterRandomShotHitIsDropped() throws Exception {
+        place();
+        // leave only the ship of player 1 not attacked, so the random shot hits it
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++) {
+                if (x > 1 || y > 0) {
+                    match.getShipStorage(1).attack(Coordinates.of(x, y));
+                }
+            }
+        }
+        int expired = (int) match.getTurn();
+        match.expire(TimeoutEvent.Policy.RANDOM_SHOT);
+        TimeoutEvent timeout = (TimeoutEvent) sent.get(0).get(0);
+        assertEquals(HitStatus.HIT, timeout.hitStatus());
+        assertEquals(roundStart(GameStatus.GAME_ON, AttackStatus.ATTACK_AGAIN), last(0));
+        sent.forEach(List::clear);
+
+        // the late answer arrives while player 0 attacks again: it must not take the new turn
+        int other = 1 - timeout.coordinates().getX();
+        match.receive(0, new AttackEvent(expired, new Coordinates(other, 0)));
+        assertTrue(sent.get(0).isEmpty());
+        assertEquals(HitStatus.NOT_ATTTACKED, match.getShipStorage(1).getHitStatus(other, 0));
+        assertTrue(match.isAwaiting(0));
+
+        // the attack sent after reading the new round start is played
+        attack(0, other, 0);
+        assertEquals(HitStatus.DESTROYED, ((AttackerFeedbackEvent) sent.get(0).get(0)).hitStatus());
+        assertTrue(match.isOver());
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void testAttackOfUnstartedTurnIsRejected() throws Exception {
+        place();
+        match.receive(0, new AttackEvent((int) match.getTurn() + 1, new Coordinates(5, 5)));
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void testAttackOutOfTurnIsRejected() throws Exception {
+        place();
+        attack(1, 5, 5);
+    }
+
+    @Test
+    public void testRandomShotAttacksAFreshCell() throws Exception {
+        place();
+        // leave only the ship and the bottom right corner of the board of player 1 not attacked
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++) {
+                if ((x > 1 || y > 0) && !(x == 9 && y == 9)) {
+                    match.getShipStorage(1).attack(Coordinates.of(x, y));
+                }
+            }
+        }
+        match.expire(TimeoutEvent.Policy.RANDOM_SHOT);
+
+        TimeoutEvent own = (TimeoutEvent) sent.get(0).get(0);
+        assertEquals(TimeoutEvent.Policy.RANDOM_SHOT, own.policy());
+        assertTrue(own.ownTurn());
+        TimeoutEvent other = (TimeoutEvent) sent.get(1).get(0);
+        assertFalse(other.ownTurn());
+        assertSame(own.coordinates(), other.coordinates());
+        int x = own.coordinates().getX();
+        int y = own.coordinates().getY();
+        assertTrue(x == 9 && y == 9 || x <= 1 && y == 0);
+        assertEquals(x == 9 ? HitStatus.MISSED : HitStatus.HIT, own.hitStatus());
+        assertEquals(own.hitStatus(), match.getShipStorage(1).getHitStatus(x, y));
+        // a hit lets the timed out player attack again, a miss passes the turn
+        assertEquals(x != 9, match.isAwaiting(0));
+    }
+
+    @Test
+    public void testForfeitEndsTheMatch() throws Exception {
+        place();
+        attack(0, 5, 5);
+        sent.forEach(List::clear);
+        match.expire(TimeoutEvent.Policy.FORFEIT);
+
+        assertTrue(match.isOver());
+        assertEquals(roundStart(GameStatus.YOU_LOST, null), last(1));
+        assertEquals(roundStart(GameStatus.YOU_WON, null), last(0));
+    }
+
+    @Test
+    public void testExpiredPlacementIsForfeited() throws Exception {
+        ShipStorage storage = new ShipStorage(10, 10);
+        storage.addShip(new Coordinates(0, 0), false, new Ship(1, 2, "x"));
+        match.receive(1, storage);
+        long turn = match.getTurn();
+        match.expire(TimeoutEvent.Policy.SKIP);
+
+        assertTrue(match.isOver());
+        assertEquals(turn, match.getTurn());
+        assertEquals(new TimeoutEvent(TimeoutEvent.Policy.FORFEIT, true, null, null, 1), sent.get(0).get(0));
+        assertEquals(roundStart(GameStatus.YOU_LOST, null), last(0));
+        assertEquals(roundStart(GameStatus.YOU_WON, null), last(1));
+    }
+
+    /**
+     * Returns a layout of the standard fleet with one ship per row, starting in
+     * the given column.
+     */
+    private static FleetLayoutEvent rows(int column) {
+        int ships = Match.STANDARD_FLEET.length;
+        int[] x = new int[ships];
+        int[] y = new int[ships];
+        for (int i = 0; i < ships; i++) {
+            x[i] = column;
+            y[i] = i;
+        }
+        return new FleetLayoutEvent(10, 10, x, y, new boolean[ships]);
+    }
+
+    @Test
+    public void testFleetLayoutBuildsTheBoard() throws Exception {
+        match.setFleet(Match.STANDARD_FLEET);
+        match.receive(0, rows(0));
+        match.receive(1, rows(5));
+
+        assertEquals(Match.Phase.ATTACK, match.getPhase());
+        ShipStorage board = match.getShipStorage(1);
+        assertEquals(Match.STANDARD_FLEET.length, board.getRemainingShips());
+        assertEquals(Match.STANDARD_FLEET[0].getId(), (int) board.getValue(new Coordinates(9, 0)));
+        assertNull(board.getValue(new Coordinates(4, 0)));
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void testFleetLayoutWithMissingShipIsRejected() throws Exception {
+        match.setFleet(Match.STANDARD_FLEET);
+        match.receive(0, new FleetLayoutEvent(10, 10, new int[] { 0 }, new int[] { 0 }, new boolean[1]));
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void testOverlappingFleetLayoutIsRejected() throws Exception {
+        match.setFleet(Match.STANDARD_FLEET);
+        FleetLayoutEvent layout = rows(0);
+        layout.y()[1] = 0;
+        match.receive(0, layout);
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void testFleetLayoutOffTheBoardIsRejected() throws Exception {
+        match.setFleet(Match.STANDARD_FLEET);
+        match.receive(0, rows(6));
+    }
+
+    @Test
+    public void testOversizedFleetLayoutIsRejected() throws Exception {
+        match.setFleet(Match.STANDARD_FLEET);
+        match.setBoardSize(10, 10);
+        match.receive(0, rows(0));
+        FleetLayoutEvent layout = rows(5);
+        try {
+            match.receive(1, new FleetLayoutEvent(1000, 1000, layout.x(), layout.y(), layout.vertical()));
+            fail("a fleet on a larger board is almost unsinkable");
+        } catch (ProtocolException e) {
+            assertEquals(Match.Phase.PLACEMENT, match.getPhase());
+            assertNull(match.getShipStorage(1));
+        }
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void testOversizedPlacementIsRejected() throws Exception {
+        match.setBoardSize(10, 10);
+        ShipStorage storage = new ShipStorage(20, 20);
+        storage.addShip(new Coordinates(0, 0), false, new Ship(1, 2, "x"));
+        match.receive(0, storage);
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void testPlacementOfOtherShipsIsRejected() throws Exception {
+        match.setFleet(Match.STANDARD_FLEET);
+        place();
+    }
+
+    @Test
+    public void testSalvoIsAnsweredOnce() throws Exception {
+        match.setSalvo(3);
+        place();
+        long turn = match.getTurn();
+        salvo(0, new Coordinates(5, 5), new Coordinates(0, 0), new Coordinates(1, 0));
+
+        assertTrue(match.isOver());
+        SalvoResultEvent result = (SalvoResultEvent) sent.get(0).get(0);
+        assertTrue(result.ownSalvo());
+        assertArrayEquals(new HitStatus[] { HitStatus.MISSED, HitStatus.HIT, HitStatus.DESTROYED },
+                result.hitStatuses());
+        assertEquals(0, result.shipsRemaining());
+        assertFalse(((SalvoResultEvent) sent.get(1).get(0)).ownSalvo());
+        assertEquals(roundStart(GameStatus.YOU_WON, null), last(0));
+        assertEquals(turn + 1, match.getTurn());
+    }
+
+    @Test
+    public void testMissedSalvoPassesTheTurn() throws Exception {
+        match.setSalvo(2);
+        place();
+        salvo(0, new Coordinates(5, 5), new Coordinates(6, 6));
+
+        assertTrue(match.isAwaiting(1));
+        assertEquals(roundStart(GameStatus.GAME_ON, AttackStatus.ATTACK), last(1));
+    }
+
+    @Test
+    public void testOversizedSalvoIsRejected() throws Exception {
+        match.setSalvo(2);
+        place();
+        salvo(0, new Coordinates(5, 5), new Coordinates(6, 6), new Coordinates(7, 7));
+
+        AttackerFeedbackEvent rejected = (AttackerFeedbackEvent) last(0);
+        assertFalse(rejected.attackSuccess());
+        assertEquals(String.format(Match.ERR_SALVO_SIZE, 2), rejected.exception().getMessage());
+        assertTrue(match.isAwaiting(0));
+        assertEquals(HitStatus.NOT_ATTTACKED, match.getShipStorage(1).getHitStatus(5, 5));
+    }
+}
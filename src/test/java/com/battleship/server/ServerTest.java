@@ -0,0 +1,186 @@
+package com.battleship.server;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.battleship.client.ClientDisconnectException;
+import com.battleship.client.RandomFleetPlacer;
+import com.battleship.client.ShipStorage;
+import com.battleship.client.ShipStorageBuilder;
+import com.battleship.events.FleetLayoutEvent;
+import com.battleship.events.JoinEvent;
+import com.battleship.events.ResumeEvent;
+import com.battleship.events.RoundStartEvent.AttackStatus;
+import com.battleship.logging.EventLog;
+import com.battleship.metrics.MetricsRegistry;
+import com.battleship.protocol.ProtocolStream;
+
+/**
+ * Unit test for the blocking server ending its matches
+ */
+public class ServerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final EventLog eventLog = new EventLog(Channels.newChannel(OutputStream.nullOutputStream()), 16);
+    private final Server server = new Server(Executors.newCachedThreadPool(), 0);
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        port = start(server);
+    }
+
+    @After
+    public void tearDown() {
+        eventLog.close();
+    }
+
+    /**
+     * Starts a server on a free port in the background.
+     */
+    private int start(Server started) throws IOException {
+        int freePort;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            freePort = probe.getLocalPort();
+        }
+        started.setLog(eventLog);
+        Thread acceptor = new Thread(() -> {
+            try {
+                started.start(freePort);
+            } catch (IOException e) {
+                // the test fails on connecting
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return freePort;
+    }
+
+    /**
+     * Connects a client to a server.
+     */
+    private ProtocolStream connect(int serverPort) throws Exception {
+        for (int attempt = 0;; attempt++) {
+            try {
+                return new ProtocolStream(new Socket(InetAddress.getLoopbackAddress(), serverPort));
+            } catch (IOException e) {
+                // the server is still starting
+                if (attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    /**
+     * Connects a client and asks the lobby for a standard match.
+     */
+    private ProtocolStream join() throws Exception {
+        ProtocolStream stream = connect(port);
+        stream.write(new JoinEvent(Lobby.DEFAULT_RATING, 10, 10));
+        return stream;
+    }
+
+    /**
+     * Checks whether a directory holds no files.
+     */
+    private static boolean isEmpty(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.findAny().isEmpty();
+        }
+    }
+
+    /**
+     * Reads the value of a gauge or counter of a server.
+     */
+    private static long metric(Server server, String name) {
+        for (MetricsRegistry.Metric metric : server.getMetrics().getMetrics()) {
+            if (metric.name().equals(name)) {
+                return metric.value().getAsLong();
+            }
+        }
+        throw new AssertionError("No metric " + name);
+    }
+
+    @Test
+    public void testProtocolErrorEndsTheMatch() throws Exception {
+        ProtocolStream first = join();
+        while (server.getLobby().getQueueDepth() == 0) {
+            Thread.sleep(5);
+        }
+        ProtocolStream second = join();
+        // a layout with a single ship breaks the fleet rules
+        first.write(new FleetLayoutEvent(10, 10, new int[] { 0 }, new int[] { 0 }, new boolean[1]));
+
+        Object message = second.read();
+        assertTrue(message instanceof ClientDisconnectException);
+        assertEquals(0, ((ClientDisconnectException) message).getDisconnectId());
+        assertEquals(1, metric(server, "battleship_matches_started_total"));
+        assertEquals(0, metric(server, "battleship_active_matches"));
+        // counted by the match thread after the opponent was told
+        for (int i = 0; i < 100 && metric(server, "battleship_disconnects_total{cause=\"protocol_error\"}") == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, metric(server, "battleship_disconnects_total{cause=\"protocol_error\"}"));
+        first.close();
+        second.close();
+    }
+
+    @Test(timeout = 10_000)
+    public void testRecoveredMatchIsWonByReturningPlayer() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        RandomFleetPlacer placer = new RandomFleetPlacer(new ShipStorageBuilder().getShips(), 10, 10);
+        ShipStorage[] storages = new ShipStorage[2];
+        for (int player = 0; player < 2; player++) {
+            storages[player] = new ShipStorage(10, 10);
+            placer.place(storages[player], new SplittableRandom(player));
+        }
+        long[] tokens = { 21, 22 };
+        try (SnapshotStore store = new SnapshotStore(directory, 10)) {
+            store.save(7, MatchSnapshot.encode(7, tokens, storages, 0, AttackStatus.ATTACK));
+        }
+        Server recovering = new Server(Executors.newCachedThreadPool(), 0);
+        recovering.setSnapshots(new SnapshotStore(directory, 10));
+        recovering.setReconnect(100, Server.DEFAULT_REPLAY_CAPACITY);
+        ProtocolStream returning = connect(start(recovering));
+        returning.write(new ResumeEvent(tokens[0], 0));
+
+        assertEquals(new ResumeEvent(tokens[0], ResumeEvent.RESTARTED), returning.read());
+        Object message;
+        do {
+            // the round of the snapshot restarts, then the grace period of the opponent passes
+            message = returning.read();
+        } while (!(message instanceof ClientDisconnectException));
+        assertEquals(1, ((ClientDisconnectException) message).getDisconnectId());
+        for (int i = 0; i < 100 && metric(recovering, "battleship_disconnects_total{cause=\"grace_expired\"}") == 0;
+                i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, metric(recovering, "battleship_disconnects_total{cause=\"grace_expired\"}"));
+        // the snapshot of the decided match is deleted with the next write
+        for (int i = 0; i < 100 && !isEmpty(directory); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(isEmpty(directory));
+        returning.close();
+    }
+}
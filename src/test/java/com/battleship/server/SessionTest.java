@@ -0,0 +1,164 @@
+package com.battleship.server;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.battleship.client.ClientDisconnectException;
+import com.battleship.events.MatchTokenEvent;
+import com.battleship.events.ResumeEvent;
+import com.battleship.logging.EventLog;
+import com.battleship.protocol.ProtocolStream;
+
+/**
+ * Unit test for reconnectable player sessions
+ */
+public class SessionTest {
+
+    private ServerSocket serverSocket;
+    private final EventLog eventLog = new EventLog(Channels.newChannel(OutputStream.nullOutputStream()), 16);
+    private final MatchLog log = new MatchLog(eventLog, 1);
+
+    @Before
+    public void setUp() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        serverSocket.close();
+        eventLog.close();
+    }
+
+    /**
+     * Opens a connection and returns both ends, the server end first.
+     */
+    private ProtocolStream[] connect() throws IOException {
+        Socket client = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+        return new ProtocolStream[] { new ProtocolStream(serverSocket.accept()), new ProtocolStream(client) };
+    }
+
+    @Test
+    public void testReconnectReplaysMissedMessages() throws Exception {
+        ProtocolStream[] first = connect();
+        Session session = new Session(42, 0, first[0], 1, 5000, 8, log);
+        for (int i = 0; i < 3; i++) {
+            session.send(new MatchTokenEvent(i));
+        }
+        assertEquals(new MatchTokenEvent(0), first[1].read());
+        first[1].write(new MatchTokenEvent(100));
+        assertEquals(new MatchTokenEvent(100), session.read());
+        first[1].close();
+
+        // the match waits for the player and keeps sending meanwhile
+        CompletableFuture<Object> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                return session.read();
+            } catch (ClientDisconnectException e) {
+                return e;
+            }
+        });
+        session.send(new MatchTokenEvent(3));
+        ProtocolStream[] second = connect();
+        assertTrue(session.attach(second[0], 1));
+        assertEquals(new ResumeEvent(42, 2), second[1].read());
+        for (int i = 1; i < 4; i++) {
+            assertEquals(new MatchTokenEvent(i), second[1].read());
+        }
+        second[1].write(new MatchTokenEvent(101));
+        assertEquals(new MatchTokenEvent(101), read.get(5, TimeUnit.SECONDS));
+        session.close();
+        second[1].close();
+    }
+
+    @Test
+    public void testBufferedMessagesWrittenOnFlush() throws Exception {
+        ProtocolStream[] streams = connect();
+        Session session = new Session(42, 0, streams[0], 1, 5000, 8, log);
+        assertTrue(session.send(new MatchTokenEvent(0), false) > 0);
+        assertTrue(session.send(new MatchTokenEvent(1), false) > 0);
+        assertTrue(session.flush());
+        assertEquals(new MatchTokenEvent(0), streams[1].read());
+        assertEquals(new MatchTokenEvent(1), streams[1].read());
+        session.close();
+        streams[1].close();
+    }
+
+    @Test
+    public void testGracePeriodExpires() throws IOException {
+        ProtocolStream[] streams = connect();
+        Session session = new Session(42, 1, streams[0], 1, 100, 8, log);
+        streams[1].close();
+        long start = System.nanoTime();
+        try {
+            session.read();
+            fail("the player never reconnected");
+        } catch (ClientDisconnectException e) {
+            assertEquals(1, e.getDisconnectId());
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test(expected = ClientDisconnectException.class)
+    public void testNoGracePeriod() throws IOException, ClientDisconnectException {
+        ProtocolStream[] streams = connect();
+        Session session = new Session(0, 0, streams[0], 1, 0, 8, log);
+        streams[1].close();
+        session.read();
+    }
+
+    @Test
+    public void testFailedCloseStillDetaches() throws Exception {
+        Socket client = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+        ProtocolStream failing = new ProtocolStream(serverSocket.accept()) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                throw new IOException("close failed");
+            }
+        };
+        Session session = new Session(42, 0, failing, 1, 5000, 8, log);
+        try {
+            session.close();
+            fail("the stream failed to close");
+        } catch (IOException e) {
+            assertEquals("close failed", e.getMessage());
+        }
+        // a closed session never waits for a reconnect, even if closing failed
+        CompletableFuture<Object> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                return session.read();
+            } catch (ClientDisconnectException e) {
+                return e;
+            }
+        });
+        assertTrue(read.get(5, TimeUnit.SECONDS) instanceof ClientDisconnectException);
+        client.close();
+    }
+
+    @Test
+    public void testMissedMessagesNoLongerBuffered() throws Exception {
+        ProtocolStream[] first = connect();
+        Session session = new Session(42, 0, first[0], 1, 5000, 4, log);
+        for (int i = 0; i < 6; i++) {
+            session.send(new MatchTokenEvent(i));
+        }
+        ProtocolStream[] second = connect();
+        assertFalse(session.attach(second[0], 1));
+        assertTrue(session.attach(second[0], 2));
+        second[0].close();
+        second[1].close();
+        first[1].close();
+    }
+}
@@ -0,0 +1,97 @@
+package com.battleship.server;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the hashed timing wheel running the deadlines of matches
+ */
+public class TimingWheelTest {
+
+    /**
+     * Advances the wheel by the given number of ticks.
+     */
+    private static void advance(TimingWheel wheel, int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            wheel.tick();
+        }
+    }
+
+    @Test
+    public void testRunsTasksAtTheirTick() {
+        TimingWheel wheel = new TimingWheel(10, 8);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(() -> fired.add("b"), 30);
+        wheel.schedule(() -> fired.add("a"), 5);
+        // rounded up to whole ticks, and further than one turn of the wheel
+        wheel.schedule(() -> fired.add("c"), 101);
+        wheel.schedule(() -> fired.add("d"), 80);
+
+        advance(wheel, 1);
+        assertEquals(List.of("a"), fired);
+        advance(wheel, 2);
+        assertEquals(List.of("a", "b"), fired);
+        advance(wheel, 4);
+        assertEquals(List.of("a", "b"), fired);
+        advance(wheel, 1);
+        assertEquals(List.of("a", "b", "d"), fired);
+        advance(wheel, 2);
+        assertEquals(List.of("a", "b", "d"), fired);
+        advance(wheel, 1);
+        assertEquals(List.of("a", "b", "d", "c"), fired);
+        assertEquals(0, wheel.getPending());
+    }
+
+    @Test
+    public void testCancelledTaskDoesNotRun() {
+        TimingWheel wheel = new TimingWheel(10, 8);
+        List<String> fired = new ArrayList<>();
+        TimingWheel.Timeout cancelled = wheel.schedule(() -> fired.add("cancelled"), 20);
+        TimingWheel.Timeout kept = wheel.schedule(() -> fired.add("kept"), 20);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(1, wheel.getPending());
+
+        advance(wheel, 2);
+        assertEquals(List.of("kept"), fired);
+        assertFalse(kept.cancel());
+    }
+
+    @Test
+    public void testManyPendingDeadlines() {
+        TimingWheel wheel = new TimingWheel(10, 512);
+        int count = 100_000;
+        int[] fired = new int[1];
+        TimingWheel.Timeout[] timeouts = new TimingWheel.Timeout[count];
+        for (int i = 0; i < count; i++) {
+            // spread over several turns of the wheel
+            timeouts[i] = wheel.schedule(() -> fired[0]++, 10 + i % 2000 * 10);
+        }
+        assertEquals(count, wheel.getPending());
+        for (int i = 0; i < count; i += 2) {
+            assertTrue(timeouts[i].cancel());
+        }
+        assertEquals(count / 2, wheel.getPending());
+
+        advance(wheel, 1999);
+        assertEquals(count / 2 - count / 2 / 1000, fired[0]);
+        advance(wheel, 1);
+        assertEquals(count / 2, fired[0]);
+        assertEquals(0, wheel.getPending());
+    }
+
+    @Test
+    public void testRealTimeTicker() throws InterruptedException {
+        TimingWheel wheel = new TimingWheel(1, 8);
+        wheel.start();
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(latch::countDown, 20);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,37 @@
+package com.battleship.simulation;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the Monte Carlo match simulator
+ */
+public class MatchSimulatorTest {
+
+    private static TurnHistogram simulate(String strategy, int threads, String storage) {
+        return MatchSimulator.parse(new String[] { "--matches=600", "--seed=42", "--threads=" + threads,
+                "--storage=" + storage }).simulate(strategy);
+    }
+
+    @Test
+    public void testReproducibleAcrossThreadCounts() {
+        TurnHistogram single = simulate("random", 1, "bitboard");
+        TurnHistogram parallel = simulate("random", 4, "bitboard");
+        assertEquals(600, single.getTotal());
+        for (int turns = 0; turns <= 100; turns++) {
+            assertEquals(single.getCount(turns), parallel.getCount(turns));
+        }
+    }
+
+    @Test
+    public void testStoragesAgree() {
+        TurnHistogram bitboard = simulate("density", 2, "bitboard");
+        TurnHistogram dense = simulate("density", 2, "dense");
+        assertEquals(bitboard.getMean(), dense.getMean(), 0.0);
+        assertEquals(bitboard.getMean(), simulate("density", 2, "sparse").getMean(), 0.0);
+        // the whole fleet covers 30 cells
+        assertTrue(bitboard.getMin() >= 30);
+        assertTrue(bitboard.getMax() <= 100);
+    }
+}
@@ -0,0 +1,116 @@
+package com.battleship.tournament;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/**
+ * Unit test for Swiss and knockout tournaments
+ */
+public class TournamentTest {
+
+    /**
+     * Configures a tournament of made-up entrants.
+     */
+    private static Tournament tournament(String format, int entrants, int threads) {
+        return Tournament.parse(new String[] { "--format=" + format, "--entrants=" + entrants, "--seed=42",
+                "--threads=" + threads, "--strategies=random" });
+    }
+
+    /**
+     * Lets the better seed win every match.
+     */
+    private static Entrant favourite(Pairing pairing, SplittableRandom random) {
+        return pairing.first().getSeed() < pairing.second().getSeed() ? pairing.first() : pairing.second();
+    }
+
+    @Test
+    public void testSeedOrder() {
+        assertArrayEquals(new int[] { 0, 7, 3, 4, 1, 6, 2, 5 }, KnockoutBracket.seedOrder(8));
+    }
+
+    @Test
+    public void testKnockoutWithByes() throws Exception {
+        Tournament tournament = tournament("knockout", 100, 2);
+        tournament.setRunner(TournamentTest::favourite);
+        Entrant[] standings = tournament.play(tournament.loadEntrants());
+        // 128 slots: 28 byes, then 64 + 32 + ... + 1 matches
+        assertEquals(7, tournament.getRoundsPlayed());
+        assertEquals(99, tournament.getMatchesPlayed());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, standings[i].getSeed());
+        }
+        assertEquals(7, standings[0].getScore());
+        assertEquals(0, standings[0].getLosses());
+        assertEquals(6, standings[1].getScore());
+        assertEquals(1, standings[1].getLosses());
+        assertEquals(28, Arrays.stream(standings).mapToInt(Entrant::getByes).sum());
+        for (Entrant entrant : standings) {
+            assertEquals(entrant == standings[0] ? 0 : 1, entrant.getLosses());
+        }
+    }
+
+    @Test
+    public void testSwissPairsEveryoneOncePerRound() throws Exception {
+        Tournament tournament = tournament("swiss", 1001, 2);
+        Entrant[] standings = tournament.play(tournament.loadEntrants());
+        // ten rounds separate one of 1001 entrants, one bye per round
+        assertEquals(10, tournament.getRoundsPlayed());
+        assertEquals(10 * 500, tournament.getMatchesPlayed());
+        int byes = 0;
+        for (Entrant entrant : standings) {
+            assertEquals(10, entrant.getWins() + entrant.getLosses() + entrant.getByes());
+            assertTrue(entrant.getByes() <= 1);
+            byes += entrant.getByes();
+        }
+        assertEquals(10, byes);
+        for (int i = 1; i < standings.length; i++) {
+            assertTrue(standings[i - 1].getScore() >= standings[i].getScore());
+        }
+    }
+
+    @Test
+    public void testSwissAvoidsRematches() throws Exception {
+        Entrant[] entrants = tournament("swiss", 64, 1).loadEntrants();
+        SwissBracket bracket = new SwissBracket(entrants, 6);
+        for (int round = 0; round < 6; round++) {
+            Pairing[] pairings = bracket.nextRound();
+            assertEquals(32, pairings.length);
+            Entrant[] winners = new Entrant[pairings.length];
+            for (int i = 0; i < pairings.length; i++) {
+                Pairing pairing = pairings[i];
+                assertFalse(pairing.first().hasMet(pairing.second()));
+                winners[i] = favourite(pairing, null);
+                pairing.first().recordMatch(pairing.second(), winners[i] == pairing.first());
+                pairing.second().recordMatch(pairing.first(), winners[i] == pairing.second());
+            }
+            bracket.advance(winners);
+        }
+        assertEquals(0, bracket.nextRound().length);
+        // the best seed wins everything, and only it has six points
+        Entrant[] standings = bracket.standings();
+        assertEquals(0, standings[0].getSeed());
+        assertEquals(6, standings[0].getScore());
+        assertEquals(5, standings[1].getScore());
+    }
+
+    @Test
+    public void testReproducibleAcrossThreadCounts() throws Exception {
+        Tournament single = tournament("swiss", 300, 1);
+        Tournament parallel = tournament("swiss", 300, 4);
+        Entrant[] first = single.play(single.loadEntrants());
+        Entrant[] second = parallel.play(parallel.loadEntrants());
+        for (int i = 0; i < first.length; i++) {
+            assertEquals(first[i].getSeed(), second[i].getSeed());
+            assertEquals(first[i].getScore(), second[i].getScore());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFormat() {
+        Tournament.parse(new String[] { "--format=round-robin" });
+    }
+}